@@ -0,0 +1,89 @@
+package com.hoten.delaunay.examples;
+
+import com.hoten.delaunay.geom.Point;
+import com.hoten.delaunay.geom.Rectangle;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.Voronoi;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.VoronoiOptions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times the builds of Fortune's sweep ({@link VoronoiOptions.Engine#OBJECTS}, {@link VoronoiOptions.Engine#ARRAYS})
+ * against the triangulating engines ({@link VoronoiOptions.Engine#SWEEP_HULL},
+ * {@link VoronoiOptions.Engine#DIVIDE_AND_CONQUER}, {@link VoronoiOptions.Engine#POWER} with zero weights)
+ * in one thread, for uniform and clustered sites.
+ * <p>
+ * Usage: {@code EngineBenchmark [sites]}.
+ */
+public class EngineBenchmark {
+    /** Seed. */
+    private static final long SEED = 123L;
+
+    /** Graph size. */
+    private static final int BOUNDS = 16384;
+
+    public static void main(String[] args) {
+        int numSites = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+
+        Rectangle bounds = new Rectangle(0, 0, BOUNDS, BOUNDS);
+
+        System.out.println("Sites: " + numSites);
+
+        for (boolean clustered : new boolean[] {false, true}) {
+            List<Point> points = points(numSites, clustered);
+
+            for (VoronoiOptions.Engine engine : VoronoiOptions.Engine.values()) {
+                long best = Long.MAX_VALUE;
+                int numEdges = 0;
+
+                // first round warms up the JIT
+                for (int round = 0; round < 3; round++) {
+                    long t0 = System.nanoTime();
+
+                    Voronoi v = new Voronoi(points, bounds, new VoronoiOptions().engine(engine).parallelism(1));
+
+                    long t1 = System.nanoTime();
+
+                    if (round > 0)
+                        best = Math.min(best, t1 - t0);
+
+                    numEdges = v.edges().size();
+                }
+
+                System.out.printf("%-9s %-18s %.1f ms, %d edges%n", clustered ? "clustered" : "uniform", engine,
+                    best / 1e6, numEdges);
+            }
+        }
+    }
+
+    /**
+     * @param numSites Number of sites.
+     * @param clustered {@code True} for gaussian clusters, {@code false} for uniform sites.
+     * @return Sites.
+     */
+    private static List<Point> points(int numSites, boolean clustered) {
+        Random r = new Random(SEED);
+        List<Point> points = new ArrayList<>(numSites);
+
+        double[] centers = new double[64];
+
+        for (int i = 0; i < centers.length; i++)
+            centers[i] = BOUNDS * (0.1 + 0.8 * r.nextDouble());
+
+        for (int i = 0; i < numSites; i++) {
+            if (clustered) {
+                int c = 2 * r.nextInt(centers.length / 2);
+
+                double x = centers[c] + r.nextGaussian() * BOUNDS / 100;
+                double y = centers[c + 1] + r.nextGaussian() * BOUNDS / 100;
+
+                points.add(new Point(Math.max(0, Math.min(BOUNDS, x)), Math.max(0, Math.min(BOUNDS, y))));
+            }
+            else
+                points.add(new Point(r.nextDouble() * BOUNDS, r.nextDouble() * BOUNDS));
+        }
+
+        return points;
+    }
+}
@@ -0,0 +1,67 @@
+package com.hoten.delaunay.examples;
+
+import com.hoten.delaunay.geom.Point;
+import com.hoten.delaunay.geom.Rectangle;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.MemoryFootprint;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.Voronoi;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.VoronoiOptions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Prints heap taken by a diagram per site for each {@link VoronoiOptions.Storage}: measured after garbage
+ * collection and estimated by {@link Voronoi#memoryFootprint()}, with the estimate broken down by structure.
+ * Input points are allocated before the measurement, so they are not counted by the heap measurement.
+ * <p>
+ * Usage: {@code FootprintReport [sites]}.
+ */
+public class FootprintReport {
+    /** Seed. */
+    private static final long SEED = 123L;
+
+    /** Graph size, a 16k pixels wide map. */
+    private static final int BOUNDS = 16384;
+
+    public static void main(String[] args) {
+        int numSites = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+
+        Random r = new Random(SEED);
+        List<Point> points = new ArrayList<>(numSites);
+
+        for (int i = 0; i < numSites; i++)
+            points.add(new Point(r.nextDouble() * BOUNDS, r.nextDouble() * BOUNDS));
+
+        System.out.printf("%-8s %10s %10s %8s %8s %8s %8s %8s %8s%n", "storage", "measured", "estimated", "sites",
+            "edges", "ends", "vertices", "regions", "indexes");
+
+        for (VoronoiOptions.Storage storage : VoronoiOptions.Storage.values()) {
+            long before = usedHeap();
+
+            Voronoi v = new Voronoi(points, new Rectangle(0, 0, BOUNDS, BOUNDS), new VoronoiOptions().storage(storage));
+
+            long after = usedHeap();
+
+            MemoryFootprint f = v.memoryFootprint();
+
+            // site positions are the input points, the measurement doesn't count them either
+            System.out.printf("%-8s %10.1f %10.1f %8.1f %8.1f %8.1f %8.1f %8.1f %8.1f%n", storage,
+                (double) (after - before) / numSites, (double) (f.total() - f.getSitePositions()) / numSites,
+                (double) f.getSites() / numSites, (double) f.getEdges() / numSites,
+                (double) f.getClippedEnds() / numSites, (double) f.getVertices() / numSites,
+                (double) f.getRegions() / numSites, (double) f.getIndexes() / numSites);
+        }
+    }
+
+    /**
+     * @return Heap in use after garbage collection.
+     */
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+
+        for (int i = 0; i < 4; i++)
+            System.gc();
+
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
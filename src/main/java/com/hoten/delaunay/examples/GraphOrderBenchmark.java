@@ -0,0 +1,166 @@
+package com.hoten.delaunay.examples;
+
+import com.hoten.delaunay.geom.SpaceFillingCurve;
+import com.hoten.delaunay.voronoi.Center;
+import com.hoten.delaunay.voronoi.Corner;
+import com.hoten.delaunay.voronoi.VoronoiGraph;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.Voronoi;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares graph traversals in sweep order and along space filling curves.
+ * <p>
+ * Usage: {@code GraphOrderBenchmark [sites] [bounds] [repeats]}.
+ */
+public class GraphOrderBenchmark {
+    /** Seed, the same graph is built for every order. */
+    private static final long SEED = 123L;
+
+    public static void main(String[] args) {
+        int numSites = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int bounds = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+        int repeats = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        System.out.println("Sites: " + numSites + ", bounds: " + bounds + ", repeats: " + repeats);
+        System.out.printf("%-8s %12s %12s %12s %12s%n", "order", "bfs, ms", "spread, ms", "cells, ms", "render, ms");
+
+        // first round warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            run(null, numSites, bounds, repeats, round == 1);
+
+            for (SpaceFillingCurve curve : SpaceFillingCurve.values())
+                run(curve, numSites, bounds, repeats, round == 1);
+        }
+    }
+
+    /**
+     * @param curve Curve or {@code null} for sweep order.
+     * @param numSites Number of sites.
+     * @param bounds Graph size.
+     * @param repeats Number of traversals.
+     * @param print {@code True} to print results.
+     */
+    private static void run(SpaceFillingCurve curve, int numSites, int bounds, int repeats, boolean print) {
+        Random r = new Random(SEED);
+        Voronoi v = new Voronoi(numSites, bounds, bounds, r);
+        VoronoiGraph graph = new TestGraphImpl(v, 0, r, Variables.getAlgorithmImplementation(r, "radial"), curve);
+
+        // start traversals with a settled heap
+        System.gc();
+
+        long t0 = System.nanoTime();
+        double bfs = 0;
+
+        for (int i = 0; i < repeats; i++)
+            bfs += bfs(graph.getCorners());
+
+        long t1 = System.nanoTime();
+        double spread = 0;
+
+        for (int i = 0; i < repeats; i++)
+            spread += spread(graph.getCorners());
+
+        long t2 = System.nanoTime();
+        double cells = 0;
+
+        for (int i = 0; i < repeats; i++)
+            cells += cells(graph.getCenters());
+
+        long t3 = System.nanoTime();
+
+        graph.createMap();
+
+        long t4 = System.nanoTime();
+
+        if (print) {
+            System.out.printf("%-8s %12.1f %12.1f %12.1f %12.1f%n", curve == null ? "SWEEP" : curve.name(),
+                (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6, (t4 - t3) / 1e6);
+        }
+
+        // keep results alive
+        if (bfs + spread + cells == 42)
+            System.out.println();
+    }
+
+    /**
+     * Breadth first search from the border, same as corner elevations.
+     *
+     * @param corners Corners.
+     * @return Checksum.
+     */
+    private static double bfs(List<Corner> corners) {
+        double[] dist = new double[corners.size()];
+        ArrayDeque<Corner> queue = new ArrayDeque<>();
+
+        for (Corner c : corners) {
+            if (c.border) {
+                queue.add(c);
+                dist[c.index] = 0;
+            }
+            else
+                dist[c.index] = Double.MAX_VALUE;
+        }
+
+        double sum = 0;
+
+        while (!queue.isEmpty()) {
+            Corner c = queue.poll();
+
+            sum += dist[c.index];
+
+            for (Corner a : c.adjacent) {
+                double d = dist[c.index] + 1;
+
+                if (d < dist[a.index]) {
+                    dist[a.index] = d;
+                    queue.add(a);
+                }
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Smoothing over adjacent corners, same access pattern as moisture spread.
+     *
+     * @param corners Corners.
+     * @return Checksum.
+     */
+    private static double spread(List<Corner> corners) {
+        double sum = 0;
+
+        for (Corner c : corners) {
+            double m = c.moisture;
+
+            for (Corner a : c.adjacent)
+                m = Math.max(m, .9 * a.moisture + a.elevation);
+
+            sum += m;
+        }
+
+        return sum;
+    }
+
+    /**
+     * Walk over cell polygons, same access pattern as rendering.
+     *
+     * @param centers Centers.
+     * @return Checksum.
+     */
+    private static double cells(List<Center> centers) {
+        double sum = 0;
+
+        for (Center c : centers) {
+            for (Corner corner : c.corners)
+                sum += corner.loc.x - c.loc.x;
+
+            for (Center n : c.neighbors)
+                sum += n.elevation;
+        }
+
+        return sum;
+    }
+}
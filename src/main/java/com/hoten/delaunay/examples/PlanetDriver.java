@@ -0,0 +1,36 @@
+package com.hoten.delaunay.examples;
+
+import com.hoten.delaunay.geom.Rectangle;
+import com.hoten.delaunay.voronoi.VoronoiGraph;
+import com.hoten.delaunay.voronoi.groundshapes.HeightAlgorithm;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.SphericalVoronoi;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static com.hoten.delaunay.examples.Variables.*;
+
+/**
+ * Builds a whole planet from sites on the sphere with {@link Variables variables} and shows its map
+ * in the equirectangular projection, twice as wide as high.
+ */
+public class PlanetDriver {
+    public static void main(String[] args) {
+        System.out.println("Seed: " + SEED);
+        System.out.println("Sites: " + SITES_AMOUNT);
+        System.out.println("Shape: " + ALGORITHM);
+        System.out.println("Relaxs: " + LLOYD_RELAXATIONS);
+        System.out.println("=============================");
+
+        final Random r = new Random(SEED);
+        HeightAlgorithm algorithm = getAlgorithmImplementation(r, ALGORITHM);
+
+        SphericalVoronoi v = new SphericalVoronoi(SphericalVoronoi.randomSites(SITES_AMOUNT, r));
+
+        VoronoiGraph graph = new TestGraphImpl(v, new Rectangle(0, 0, GRAPH_BOUNDS, GRAPH_BOUNDS / 2),
+            LLOYD_RELAXATIONS, r, algorithm);
+
+        BufferedImage img = graph.createMap();
+
+        new ExampleFrame(img).setVisible(true);
+    }
+}
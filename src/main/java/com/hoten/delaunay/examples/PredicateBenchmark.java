@@ -0,0 +1,267 @@
+package com.hoten.delaunay.examples;
+
+import com.hoten.delaunay.geom.Point;
+import com.hoten.delaunay.geom.Predicates;
+import com.hoten.delaunay.geom.Rectangle;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.Edge;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.TriangleBuffer;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.Vertex;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.Voronoi;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.VoronoiOptions;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares exact predicates with their plain double versions on random and on nearly degenerate points,
+ * builds diagrams of random and of jittered grid sites, and checks the Delaunay triangles of nearly
+ * collinear sites, whose circle events are a few ulps apart, with every engine, queue and beach line.
+ * <p>
+ * Usage: {@code PredicateBenchmark [calls] [sites]}.
+ */
+public class PredicateBenchmark {
+    /** Seed. */
+    private static final long SEED = 123L;
+
+    /** Graph size. */
+    private static final int BOUNDS = 1000;
+
+    /** Nearly collinear sites: their circle events are ordered wrong by the rounded priorities. */
+    private static final double[] COLLINEAR = {
+        30.000000000967756, 10.000000000006118,
+        1010.0000000002664, 10.000000000229171,
+        1070.0000000001787, 10.000000000029633,
+        1180.0000000007076, 10.000000000029798,
+        120.00000000037986, 20.000000000107704
+    };
+
+    public static void main(String[] args) {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int numSites = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        double[] random = points(calls, false);
+        double[] degenerate = points(calls, true);
+
+        System.out.printf("%-12s %14s %14s %14s %14s%n", "points", "orient, ns", "naive, ns", "incircle, ns",
+            "naive, ns");
+
+        // first round warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            predicates("random", random, round == 1);
+            predicates("degenerate", degenerate, round == 1);
+        }
+
+        for (int round = 0; round < 2; round++) {
+            build("random", randomSites(numSites), round == 1);
+            build("grid", gridSites(numSites), round == 1);
+        }
+
+        checkCollinear();
+    }
+
+    /**
+     * Builds {@link #COLLINEAR} sites with every engine, queue and beach line and counts triangles
+     * whose circle has another site inside, or whose count differs from the one of
+     * {@link VoronoiOptions.Engine#SWEEP_HULL}.
+     */
+    private static void checkCollinear() {
+        List<Point> sites = new ArrayList<>();
+
+        for (int i = 0; i < COLLINEAR.length; i += 2)
+            sites.add(new Point(COLLINEAR[i], COLLINEAR[i + 1]));
+
+        Rectangle bounds = new Rectangle(0, 0, 1200, 30);
+        int expected = new Voronoi(sites, bounds, new VoronoiOptions().engine(VoronoiOptions.Engine.SWEEP_HULL))
+            .triangles().size();
+        int failed = 0;
+
+        for (VoronoiOptions.Engine engine : VoronoiOptions.Engine.values()) {
+            for (VoronoiOptions.Queue queue : VoronoiOptions.Queue.values()) {
+                for (VoronoiOptions.BeachLine beachLine : VoronoiOptions.BeachLine.values()) {
+                    Voronoi v = new Voronoi(sites, bounds,
+                        new VoronoiOptions().engine(engine).queue(queue).beachLine(beachLine));
+                    TriangleBuffer t = v.triangles();
+                    int bad = badTriangles(v, t);
+
+                    if (bad != 0 || t.size() != expected) {
+                        System.out.printf("Nearly collinear sites, %s %s %s: %d triangles of %d, %d not Delaunay%n",
+                            engine, queue, beachLine, t.size(), expected, bad);
+
+                        failed++;
+                    }
+                }
+            }
+        }
+
+        System.out.printf("Nearly collinear sites: %s%n", failed == 0 ? "OK" : failed + " builds failed");
+    }
+
+    /**
+     * @param v Diagram.
+     * @param t Its triangles.
+     * @return Number of triangles with a site strictly inside the circle.
+     */
+    private static int badTriangles(Voronoi v, TriangleBuffer t) {
+        int bad = 0;
+
+        for (int i = 0; i < t.size(); i++) {
+            Point a = v.siteCoord(t.site(i, 0)), b = v.siteCoord(t.site(i, 1)), c = v.siteCoord(t.site(i, 2));
+            double orient = Math.signum(Predicates.orient(a.x, a.y, b.x, b.y, c.x, c.y));
+
+            for (int s = 0; s < v.numSites(); s++) {
+                Point d = v.siteCoord(s);
+
+                if (orient * Predicates.inCircle(a.x, a.y, b.x, b.y, c.x, c.y, d.x, d.y) > 0
+                    && !Arrays.asList(a, b, c).contains(d)) {
+                    bad++;
+
+                    break;
+                }
+            }
+        }
+
+        return bad;
+    }
+
+    /**
+     * @param name Name of the point set.
+     * @param pts Coordinates, x and y of each point.
+     * @param print {@code True} to print results.
+     */
+    private static void predicates(String name, double[] pts, boolean print) {
+        int n = pts.length / 2 - 3;
+        double sum = 0;
+
+        long t0 = System.nanoTime();
+
+        for (int i = 0; i < n; i++)
+            sum += Math.signum(Predicates.orient(pts[2 * i], pts[2 * i + 1], pts[2 * i + 2], pts[2 * i + 3],
+                pts[2 * i + 4], pts[2 * i + 5]));
+
+        long t1 = System.nanoTime();
+
+        for (int i = 0; i < n; i++)
+            sum += Math.signum(naiveOrient(pts[2 * i], pts[2 * i + 1], pts[2 * i + 2], pts[2 * i + 3],
+                pts[2 * i + 4], pts[2 * i + 5]));
+
+        long t2 = System.nanoTime();
+
+        for (int i = 0; i < n; i++)
+            sum += Math.signum(Predicates.inCircle(pts[2 * i], pts[2 * i + 1], pts[2 * i + 2], pts[2 * i + 3],
+                pts[2 * i + 4], pts[2 * i + 5], pts[2 * i + 6], pts[2 * i + 7]));
+
+        long t3 = System.nanoTime();
+
+        for (int i = 0; i < n; i++)
+            sum += Math.signum(naiveInCircle(pts[2 * i], pts[2 * i + 1], pts[2 * i + 2], pts[2 * i + 3],
+                pts[2 * i + 4], pts[2 * i + 5], pts[2 * i + 6], pts[2 * i + 7]));
+
+        long t4 = System.nanoTime();
+
+        if (print) {
+            System.out.printf("%-12s %14.2f %14.2f %14.2f %14.2f%n", name, (double) (t1 - t0) / n,
+                (double) (t2 - t1) / n, (double) (t3 - t2) / n, (double) (t4 - t3) / n);
+        }
+
+        // keep results alive
+        if (sum == 0.5)
+            System.out.println();
+    }
+
+    /**
+     * @param name Name of the site set.
+     * @param sites Sites.
+     * @param print {@code True} to print results.
+     */
+    private static void build(String name, List<Point> sites, boolean print) {
+        long t0 = System.nanoTime();
+
+        Voronoi v = new Voronoi(sites, new Rectangle(0, 0, BOUNDS, BOUNDS));
+
+        long t1 = System.nanoTime();
+
+        int infinite = 0;
+
+        for (Edge e : v.edges()) {
+            if (e.getLeftVertex() == Vertex.VERTEX_AT_INFINITY || e.getRightVertex() == Vertex.VERTEX_AT_INFINITY)
+                infinite++;
+        }
+
+        if (print) {
+            System.out.printf("Build of %d %s sites: %.1f ms, edges: %d, edges to vertex at infinity: %d%n",
+                sites.size(), name, (t1 - t0) / 1e6, v.edges().size(), infinite);
+        }
+    }
+
+    /**
+     * @param n Number of points.
+     * @param degenerate {@code True} for points on a few lines, nudged by an ulp or so.
+     * @return Coordinates, x and y of each point.
+     */
+    private static double[] points(int n, boolean degenerate) {
+        Random r = new Random(SEED);
+        double[] pts = new double[2 * n];
+
+        for (int i = 0; i < n; i++) {
+            double x = r.nextDouble() * BOUNDS;
+
+            pts[2 * i] = x;
+            pts[2 * i + 1] = degenerate ? x * 0.5 + Math.ulp(x) * r.nextInt(3) : r.nextDouble() * BOUNDS;
+        }
+
+        return pts;
+    }
+
+    /**
+     * @param n Number of sites.
+     * @return Uniformly distributed sites.
+     */
+    private static List<Point> randomSites(int n) {
+        Random r = new Random(SEED);
+        List<Point> sites = new ArrayList<>(n);
+
+        for (int i = 0; i < n; i++)
+            sites.add(new Point(r.nextDouble() * BOUNDS, r.nextDouble() * BOUNDS));
+
+        return sites;
+    }
+
+    /**
+     * @param n Number of sites.
+     * @return Square grid sites moved by a tiny jitter, a lot of nearly cocircular quadruples.
+     */
+    private static List<Point> gridSites(int n) {
+        Random r = new Random(SEED);
+        int side = (int) Math.sqrt(n);
+        double step = (double) BOUNDS / side;
+        List<Point> sites = new ArrayList<>(side * side);
+
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++)
+                sites.add(new Point((i + .5 + r.nextDouble() * 1e-9) * step, (j + .5 + r.nextDouble() * 1e-9) * step));
+        }
+
+        return sites;
+    }
+
+    /**
+     * @return Plain double orientation, see {@link Predicates#orient}.
+     */
+    private static double naiveOrient(double ax, double ay, double bx, double by, double cx, double cy) {
+        return (ax - cx) * (by - cy) - (ay - cy) * (bx - cx);
+    }
+
+    /**
+     * @return Plain double in-circle test, see {@link Predicates#inCircle}.
+     */
+    private static double naiveInCircle(double ax, double ay, double bx, double by, double cx, double cy,
+        double dx, double dy) {
+        double adx = ax - dx, ady = ay - dy;
+        double bdx = bx - dx, bdy = by - dy;
+        double cdx = cx - dx, cdy = cy - dy;
+
+        return (adx * adx + ady * ady) * (bdx * cdy - cdx * bdy) + (bdx * bdx + bdy * bdy) * (cdx * ady - adx * cdy)
+            + (cdx * cdx + cdy * cdy) * (adx * bdy - bdx * ady);
+    }
+}
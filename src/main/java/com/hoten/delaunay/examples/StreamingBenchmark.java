@@ -0,0 +1,100 @@
+package com.hoten.delaunay.examples;
+
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.Voronoi;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.VoronoiOptions;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.VoronoiSink;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Streams the diagram of a site file which is written on the fly, so neither sites nor the diagram
+ * are ever held in memory.
+ * <p>
+ * Usage: {@code StreamingBenchmark [sites] [file]}. Without a file a temporary one is written and deleted.
+ */
+public class StreamingBenchmark {
+    /** Seed. */
+    private static final long SEED = 123L;
+
+    /** Graph size. */
+    private static final double BOUNDS = 1_000_000;
+
+    public static void main(String[] args) throws IOException {
+        long numSites = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        Path file = args.length > 1 ? Paths.get(args[1]) : Files.createTempFile("sites", ".bin");
+
+        try {
+            long t0 = System.nanoTime();
+
+            write(file, numSites);
+
+            long t1 = System.nanoTime();
+
+            Counter counter = new Counter();
+
+            Voronoi.stream(file, new VoronoiOptions(), counter);
+
+            long t2 = System.nanoTime();
+
+            Runtime rt = Runtime.getRuntime();
+
+            System.out.println("Sites: " + numSites + ", vertices: " + counter.vertices + ", edges: " + counter.edges
+                + ", infinite edges: " + counter.infinite);
+            System.out.printf("Write: %.1f s, stream: %.1f s, heap in use: %d MB%n", (t1 - t0) / 1e9, (t2 - t1) / 1e9,
+                (rt.totalMemory() - rt.freeMemory()) >> 20);
+        }
+        finally {
+            if (args.length < 2)
+                Files.delete(file);
+        }
+    }
+
+    /**
+     * Writes uniformly distributed sites sorted by y: y coordinates are generated as growing order statistics,
+     * so nothing has to be sorted.
+     *
+     * @param file Site file.
+     * @param numSites Number of sites.
+     * @throws IOException If the file can't be written.
+     */
+    private static void write(Path file, long numSites) throws IOException {
+        Random r = new Random(SEED);
+        double y = 0;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            for (long i = 0; i < numSites; i++) {
+                // exponential gaps give sorted uniform samples
+                y += -Math.log(1 - r.nextDouble()) * BOUNDS / numSites;
+
+                out.writeDouble(r.nextDouble() * BOUNDS);
+                out.writeDouble(y);
+            }
+        }
+    }
+
+    /**
+     * Counts the output.
+     */
+    private static class Counter implements VoronoiSink {
+        /** Counters. */
+        private long vertices, edges, infinite;
+
+        /** {@inheritDoc} */
+        @Override public void vertex(long id, double x, double y) {
+            vertices++;
+        }
+
+        /** {@inheritDoc} */
+        @Override public void edge(long id, int leftSite, int rightSite, long leftVertex, long rightVertex) {
+            edges++;
+
+            if (leftVertex < 0 || rightVertex < 0)
+                infinite++;
+        }
+    }
+}
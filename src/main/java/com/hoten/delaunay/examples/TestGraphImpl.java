@@ -1,8 +1,12 @@
 package com.hoten.delaunay.examples;
 
+import com.hoten.delaunay.geom.Rectangle;
+import com.hoten.delaunay.geom.SpaceFillingCurve;
 import com.hoten.delaunay.voronoi.Center;
 import com.hoten.delaunay.voronoi.VoronoiGraph;
 import com.hoten.delaunay.voronoi.groundshapes.HeightAlgorithm;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.PeriodicVoronoi;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.SphericalVoronoi;
 import com.hoten.delaunay.voronoi.nodename.as3delaunay.Voronoi;
 import java.awt.Color;
 import java.util.Random;
@@ -38,6 +42,28 @@ public class TestGraphImpl extends VoronoiGraph {
     }
 
     public TestGraphImpl(Voronoi v, int numLloydRelaxations, Random r, HeightAlgorithm algorithm) {
+        this(v, numLloydRelaxations, r, algorithm, null);
+    }
+
+    public TestGraphImpl(Voronoi v, int numLloydRelaxations, Random r, HeightAlgorithm algorithm,
+        SpaceFillingCurve curve) {
+        super(v, numLloydRelaxations, r, algorithm, curve);
+        OCEAN = ColorData.OCEAN.color;
+        LAKE = ColorData.LAKE.color;
+        BEACH = ColorData.BEACH.color;
+        RIVER = ColorData.RIVER.color;
+    }
+
+    public TestGraphImpl(SphericalVoronoi v, Rectangle bounds, int numLloydRelaxations, Random r,
+        HeightAlgorithm algorithm) {
+        super(v, bounds, numLloydRelaxations, r, algorithm);
+        OCEAN = ColorData.OCEAN.color;
+        LAKE = ColorData.LAKE.color;
+        BEACH = ColorData.BEACH.color;
+        RIVER = ColorData.RIVER.color;
+    }
+
+    public TestGraphImpl(PeriodicVoronoi v, int numLloydRelaxations, Random r, HeightAlgorithm algorithm) {
         super(v, numLloydRelaxations, r, algorithm);
         OCEAN = ColorData.OCEAN.color;
         LAKE = ColorData.LAKE.color;
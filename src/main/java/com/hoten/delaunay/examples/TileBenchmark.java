@@ -0,0 +1,77 @@
+package com.hoten.delaunay.examples;
+
+import com.hoten.delaunay.geom.Point;
+import com.hoten.delaunay.geom.Rectangle;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.EdgeClipper;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.Voronoi;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.VoronoiOptions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times edge clipping: the build, which clips all edges to the graph bounds, with one thread and with all
+ * processors, then clipping of edges to every tile of a grid with {@link Voronoi#clipEdges(Rectangle)}.
+ * <p>
+ * Usage: {@code TileBenchmark [sites] [tiles per side]}.
+ */
+public class TileBenchmark {
+    /** Seed. */
+    private static final long SEED = 123L;
+
+    /** Graph size. */
+    private static final int BOUNDS = 16384;
+
+    public static void main(String[] args) {
+        int numSites = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int tiles = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+        Random r = new Random(SEED);
+        List<Point> points = new ArrayList<>(numSites);
+
+        for (int i = 0; i < numSites; i++)
+            points.add(new Point(r.nextDouble() * BOUNDS, r.nextDouble() * BOUNDS));
+
+        Rectangle bounds = new Rectangle(0, 0, BOUNDS, BOUNDS);
+        int procs = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("Sites: " + numSites + ", tiles: " + tiles + "x" + tiles + ", processors: " + procs);
+
+        Voronoi v = null;
+
+        // first round warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            for (int threads : new int[] {1, procs}) {
+                long t0 = System.nanoTime();
+
+                v = new Voronoi(points, bounds, new VoronoiOptions().parallelism(threads));
+
+                if (round == 1)
+                    System.out.printf("build, %d threads: %.1f ms%n", threads, (System.nanoTime() - t0) / 1e6);
+            }
+        }
+
+        double tile = (double) BOUNDS / tiles;
+
+        long t0 = System.nanoTime();
+
+        v.clipEdges(new Rectangle(0, 0, tile, tile));
+
+        long t1 = System.nanoTime();
+        long segments = 0;
+
+        for (int i = 0; i < tiles; i++) {
+            for (int j = 0; j < tiles; j++) {
+                EdgeClipper.Segments s = v.clipEdges(new Rectangle(i * tile, j * tile, tile, tile));
+
+                segments += s.size();
+            }
+        }
+
+        long t2 = System.nanoTime();
+
+        System.out.printf("first query with buckets: %.1f ms%n", (t1 - t0) / 1e6);
+        System.out.printf("tiles: %.1f ms, %.1f us per tile, %.1f segments per tile of %d edges%n", (t2 - t1) / 1e6,
+            (t2 - t1) / 1e3 / (tiles * tiles), (double) segments / (tiles * tiles), v.edges().size());
+    }
+}
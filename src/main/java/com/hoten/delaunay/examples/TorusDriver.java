@@ -0,0 +1,50 @@
+package com.hoten.delaunay.examples;
+
+import com.hoten.delaunay.geom.Point;
+import com.hoten.delaunay.geom.Rectangle;
+import com.hoten.delaunay.voronoi.VoronoiGraph;
+import com.hoten.delaunay.voronoi.groundshapes.HeightAlgorithm;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.PeriodicVoronoi;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.hoten.delaunay.examples.Variables.*;
+
+/**
+ * Builds a wrap-around world on a torus with {@link Variables variables} and shows its map tiled two by two,
+ * so the seams can be checked.
+ */
+public class TorusDriver {
+    public static void main(String[] args) {
+        System.out.println("Seed: " + SEED);
+        System.out.println("Sites: " + SITES_AMOUNT);
+        System.out.println("Shape: " + ALGORITHM);
+        System.out.println("Relaxs: " + LLOYD_RELAXATIONS);
+        System.out.println("=============================");
+
+        final Random r = new Random(SEED);
+        HeightAlgorithm algorithm = getAlgorithmImplementation(r, ALGORITHM);
+
+        int size = GRAPH_BOUNDS / 2;
+        List<Point> points = new ArrayList<>(SITES_AMOUNT);
+
+        for (int i = 0; i < SITES_AMOUNT; i++)
+            points.add(new Point(r.nextDouble() * size, r.nextDouble() * size));
+
+        PeriodicVoronoi v = new PeriodicVoronoi(points, new Rectangle(0, 0, size, size));
+
+        VoronoiGraph graph = new TestGraphImpl(v, LLOYD_RELAXATIONS, r, algorithm);
+
+        BufferedImage tile = graph.createMap();
+        BufferedImage img = new BufferedImage(2 * size, 2 * size, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D g = img.createGraphics();
+
+        for (int i = 0; i < 4; i++)
+            g.drawImage(tile, i % 2 * size, i / 2 * size, null);
+
+        new ExampleFrame(img).setVisible(true);
+    }
+}
@@ -0,0 +1,66 @@
+package com.hoten.delaunay.examples;
+
+import com.hoten.delaunay.geom.Point;
+import com.hoten.delaunay.geom.Rectangle;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.TriangleBuffer;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.Voronoi;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.VoronoiOptions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times Delaunay triangles of every engine: filled by the build with {@link VoronoiOptions.Triangles#INDICES}
+ * against a build without them followed by {@link Voronoi#triangles()}, which collects them from the edges.
+ * <p>
+ * Usage: {@code TriangleBenchmark [sites]}.
+ */
+public class TriangleBenchmark {
+    /** Seed. */
+    private static final long SEED = 123L;
+
+    /** Graph size. */
+    private static final int BOUNDS = 16384;
+
+    public static void main(String[] args) {
+        int numSites = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+
+        Random r = new Random(SEED);
+        List<Point> points = new ArrayList<>(numSites);
+
+        for (int i = 0; i < numSites; i++)
+            points.add(new Point(r.nextDouble() * BOUNDS, r.nextDouble() * BOUNDS));
+
+        Rectangle bounds = new Rectangle(0, 0, BOUNDS, BOUNDS);
+
+        System.out.println("Sites: " + numSites);
+
+        for (VoronoiOptions.Engine engine : VoronoiOptions.Engine.values()) {
+            // first round warms up the JIT
+            for (int round = 0; round < 2; round++) {
+                long t0 = System.nanoTime();
+
+                Voronoi v = new Voronoi(points, bounds, new VoronoiOptions().engine(engine));
+
+                long t1 = System.nanoTime();
+
+                TriangleBuffer collected = v.triangles();
+
+                long t2 = System.nanoTime();
+
+                TriangleBuffer filled = new Voronoi(points, bounds,
+                    new VoronoiOptions().engine(engine).triangles(VoronoiOptions.Triangles.INDICES)).triangles();
+
+                long t3 = System.nanoTime();
+
+                if (round == 1) {
+                    System.out.printf("%-18s build %.1f ms + collect %.1f ms, filled by build %.1f ms, %d triangles%n",
+                        engine, (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6, filled.size());
+                }
+
+                if (collected.size() != filled.size())
+                    throw new AssertionError("Triangle counts differ: " + collected.size() + " " + filled.size());
+            }
+        }
+    }
+}
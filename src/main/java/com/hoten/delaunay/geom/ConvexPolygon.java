@@ -0,0 +1,338 @@
+package com.hoten.delaunay.geom;
+
+import java.util.List;
+
+/**
+ * Convex polygon which a diagram is clipped to, see
+ * {@link com.hoten.delaunay.voronoi.nodename.as3delaunay.Voronoi#Voronoi(List, ConvexPolygon,
+ * com.hoten.delaunay.voronoi.nodename.as3delaunay.VoronoiOptions)}.
+ * <p>
+ * Vertices are kept counterclockwise (y up), so the inside is on the left of every side. Points on the border
+ * are addressed by their distance from the first vertex counterclockwise along the border.
+ */
+public final class ConvexPolygon {
+    /** Vertex coordinates. */
+    private final double[] xs, ys;
+
+    /** Distance from the first vertex to each vertex along the border, and the perimeter at the end. */
+    private final double[] positions;
+
+    /** Rectangle the polygon is made of or {@code null}. */
+    private final Rectangle rectangle;
+
+    /** Bounding box. */
+    private final Rectangle bounds;
+
+    /**
+     * @param vertices Vertices in either order, at least 3 which are not on one line.
+     * @throws IllegalArgumentException If the polygon is not convex.
+     */
+    public ConvexPolygon(List<Point> vertices) {
+        this(xs(vertices), ys(vertices), null);
+    }
+
+    /**
+     * @param xs X coordinates.
+     * @param ys Y coordinates.
+     * @param rectangle Rectangle the polygon is made of or {@code null}.
+     */
+    private ConvexPolygon(double[] xs, double[] ys, Rectangle rectangle) {
+        int n = xs.length;
+
+        // a rectangle may be empty, it is counterclockwise anyway
+        if (rectangle == null)
+            validate(xs, ys);
+
+        this.xs = xs;
+        this.ys = ys;
+
+        positions = new double[n + 1];
+
+        double xmin = xs[0], ymin = ys[0], xmax = xs[0], ymax = ys[0];
+
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+
+            positions[i + 1] = positions[i] + Math.hypot(xs[j] - xs[i], ys[j] - ys[i]);
+
+            xmin = Math.min(xmin, xs[i]);
+            ymin = Math.min(ymin, ys[i]);
+            xmax = Math.max(xmax, xs[i]);
+            ymax = Math.max(ymax, ys[i]);
+        }
+
+        this.rectangle = rectangle;
+
+        bounds = rectangle != null ? rectangle : new Rectangle(xmin, ymin, xmax - xmin, ymax - ymin);
+    }
+
+    /**
+     * Puts vertices counterclockwise and checks the polygon is convex.
+     *
+     * @param xs X coordinates.
+     * @param ys Y coordinates.
+     */
+    private static void validate(double[] xs, double[] ys) {
+        int n = xs.length;
+
+        if (n < 3)
+            throw new IllegalArgumentException("Polygon must have at least 3 vertices: " + n);
+
+        double area = 0;
+
+        for (int i = 0; i < n; i++)
+            area += xs[i] * ys[(i + 1) % n] - xs[(i + 1) % n] * ys[i];
+
+        if (area == 0)
+            throw new IllegalArgumentException("Polygon vertices are on one line");
+
+        if (area < 0) {
+            for (int i = 0, j = n - 1; i < j; i++, j--) {
+                double t = xs[i];
+                xs[i] = xs[j];
+                xs[j] = t;
+
+                t = ys[i];
+                ys[i] = ys[j];
+                ys[j] = t;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n, k = (i + 2) % n;
+
+            if (Predicates.orient(xs[i], ys[i], xs[j], ys[j], xs[k], ys[k]) < 0)
+                throw new IllegalArgumentException("Polygon is not convex at vertex " + j);
+        }
+    }
+
+    /**
+     * @param r Rectangle.
+     * @return Polygon of the rectangle, it starts at the corner with the smallest coordinates.
+     */
+    public static ConvexPolygon of(Rectangle r) {
+        return new ConvexPolygon(new double[] {r.x, r.right, r.right, r.x},
+            new double[] {r.y, r.y, r.bottom, r.bottom}, r);
+    }
+
+    /**
+     * @param vertices Points.
+     * @return X coordinates.
+     */
+    private static double[] xs(List<Point> vertices) {
+        double[] xs = new double[vertices.size()];
+
+        for (int i = 0; i < xs.length; i++)
+            xs[i] = vertices.get(i).x;
+
+        return xs;
+    }
+
+    /**
+     * @param vertices Points.
+     * @return Y coordinates.
+     */
+    private static double[] ys(List<Point> vertices) {
+        double[] ys = new double[vertices.size()];
+
+        for (int i = 0; i < ys.length; i++)
+            ys[i] = vertices.get(i).y;
+
+        return ys;
+    }
+
+    /**
+     * @return Number of vertices.
+     */
+    public int size() {
+        return xs.length;
+    }
+
+    /**
+     * @param i Vertex.
+     * @return X coordinate of the vertex.
+     */
+    public double getX(int i) {
+        return xs[i];
+    }
+
+    /**
+     * @param i Vertex.
+     * @return Y coordinate of the vertex.
+     */
+    public double getY(int i) {
+        return ys[i];
+    }
+
+    /**
+     * @return Rectangle the polygon is made of by {@link #of(Rectangle)} or {@code null}.
+     */
+    public Rectangle asRectangle() {
+        return rectangle;
+    }
+
+    /**
+     * @return Bounding box, the rectangle itself for a polygon made of one.
+     */
+    public Rectangle bounds() {
+        return bounds;
+    }
+
+    /**
+     * @return Length of the border.
+     */
+    public double perimeter() {
+        return positions[xs.length];
+    }
+
+    /**
+     * @param i Vertex.
+     * @return Distance from the first vertex to the vertex counterclockwise along the border.
+     */
+    public double vertexPosition(int i) {
+        return positions[i];
+    }
+
+    /**
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @return {@code True} if the point is inside the polygon or on its border.
+     */
+    public boolean contains(double x, double y) {
+        for (int i = 0; i < xs.length; i++) {
+            int j = (i + 1) % xs.length;
+
+            if (Predicates.orient(xs[i], ys[i], xs[j], ys[j], x, y) < 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @return Distance from the point to the nearest side.
+     */
+    public double distanceToBorder(double x, double y) {
+        return Math.sqrt(squaredDistance(nearestSide(x, y), x, y));
+    }
+
+    /**
+     * @param x X coordinate of a point on the border.
+     * @param y Y coordinate of a point on the border.
+     * @return Distance from the first vertex to the point counterclockwise along the border. Points off the border
+     * are projected to the nearest side.
+     */
+    public double borderPosition(double x, double y) {
+        int i = nearestSide(x, y);
+        double len = positions[i + 1] - positions[i];
+
+        return positions[i] + len * projection(i, x, y);
+    }
+
+    /**
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @return Side nearest to the point, the first one of equally near sides.
+     */
+    private int nearestSide(double x, double y) {
+        int best = 0;
+        double min = Double.MAX_VALUE;
+
+        for (int i = 0; i < xs.length; i++) {
+            double d = squaredDistance(i, x, y);
+
+            if (d < min) {
+                min = d;
+                best = i;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * @param i Side from vertex {@code i} to the next one.
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @return Squared distance from the point to the side.
+     */
+    private double squaredDistance(int i, double x, double y) {
+        int j = (i + 1) % xs.length;
+        double t = projection(i, x, y);
+        double dx = xs[i] + (xs[j] - xs[i]) * t - x;
+        double dy = ys[i] + (ys[j] - ys[i]) * t - y;
+
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * @param i Side from vertex {@code i} to the next one.
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @return Projection of the point to the side, from 0 at the vertex to 1 at the next one.
+     */
+    private double projection(int i, double x, double y) {
+        int j = (i + 1) % xs.length;
+        double ex = xs[j] - xs[i], ey = ys[j] - ys[i];
+        double len2 = ex * ex + ey * ey;
+
+        if (len2 == 0)
+            return 0;
+
+        return Math.max(0, Math.min(1, ((x - xs[i]) * ex + (y - ys[i]) * ey) / len2));
+    }
+
+    /**
+     * Clips the part of the line {@code (px, py) + t * (dx, dy)} between {@code t0} and {@code t1}
+     * to the polygon (Cyrus-Beck). The bounds may be infinite for rays and lines.
+     *
+     * @param px X coordinate of the line origin.
+     * @param py Y coordinate of the line origin.
+     * @param dx X coordinate of the line direction.
+     * @param dy Y coordinate of the line direction.
+     * @param t0 Start of the part.
+     * @param t1 End of the part.
+     * @param out Receives the clipped start and end, starting from {@code off}.
+     * @param off Offset in {@code out}.
+     * @return {@code False} if no part of the line is inside, then {@code out} is not changed.
+     */
+    public boolean clipLine(double px, double py, double dx, double dy, double t0, double t1, double[] out, int off) {
+        for (int i = 0; i < xs.length && t0 <= t1; i++) {
+            int j = (i + 1) % xs.length;
+            double ex = xs[j] - xs[i], ey = ys[j] - ys[i];
+
+            // the inside is on the left: ex * (y - yi) - ey * (x - xi) >= 0
+            double num = ex * (py - ys[i]) - ey * (px - xs[i]);
+            double den = ex * dy - ey * dx;
+
+            if (den == 0) {
+                if (num < 0)
+                    return false;
+            }
+            else if (den > 0)
+                t0 = Math.max(t0, -num / den);
+            else
+                t1 = Math.min(t1, -num / den);
+        }
+
+        if (t0 > t1)
+            return false;
+
+        out[off] = t0;
+        out[off + 1] = t1;
+
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override public String toString() {
+        StringBuilder sb = new StringBuilder("ConvexPolygon [");
+
+        for (int i = 0; i < xs.length; i++)
+            sb.append(i > 0 ? ", " : "").append(xs[i]).append(' ').append(ys[i]);
+
+        return sb.append(']').toString();
+    }
+}
@@ -117,4 +117,20 @@ public class GenUtils {
 
         return Double.compare(s.getX(), p.x);
     }
+
+    /**
+     * @param s Site.
+     * @param x Point x coordinate.
+     * @param y Point y coordinate.
+     * @return Same as {@link #compareByYThenX(Site, Point)}.
+     */
+    public static int compareByYThenX(Site s, double x, double y) {
+        if (s.getY() < y)
+            return -1;
+
+        if (s.getY() > y)
+            return 1;
+
+        return Double.compare(s.getX(), x);
+    }
 }
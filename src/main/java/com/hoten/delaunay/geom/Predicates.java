@@ -0,0 +1,260 @@
+package com.hoten.delaunay.geom;
+
+import java.math.BigDecimal;
+
+/**
+ * Geometric predicates with exact signs. Each one is first evaluated in plain double arithmetic together
+ * with a bound of its rounding error, and only when the value is within the bound it is evaluated again
+ * with exact arithmetic. For all but nearly degenerate inputs the filter decides, so the predicates cost
+ * a few more multiplications than their naive versions.
+ * <p>
+ * Error bounds of {@link #orient} and {@link #inCircle} are the ones of Shewchuk's
+ * "Adaptive Precision Floating-Point Arithmetic and Fast Robust Geometric Predicates", the bound
+ * of {@link #power} is the one of {@link #inCircle} widened for the two subtractions of weights.
+ * <p>
+ * Versions over {@code long} coordinates are for points on an integer grid: they are evaluated in plain long
+ * arithmetic while it can't overflow and there is nothing to filter. Coordinates must not exceed
+ * {@code 2^53} in absolute value, so that they are exact doubles too.
+ */
+public final class Predicates {
+    /** Machine epsilon, half of an ulp of 1. */
+    private static final double EPSILON = Math.ulp(1.0) / 2;
+
+    /** Relative error bound of {@link #orient}. */
+    private static final double ORIENT_BOUND = (3 + 16 * EPSILON) * EPSILON;
+
+    /** Relative error bound of {@link #inCircle}. */
+    private static final double IN_CIRCLE_BOUND = (10 + 96 * EPSILON) * EPSILON;
+
+    /** Relative error bound of {@link #power}. */
+    private static final double POWER_BOUND = (16 + 128 * EPSILON) * EPSILON;
+
+    /** Relative error bound of {@link #tangentCircles}. */
+    private static final double TANGENT_BOUND = (8 + 64 * EPSILON) * EPSILON;
+
+    /** Coordinate differences below this don't overflow long {@link #orient}. */
+    private static final long ORIENT_LONG_LIMIT = 1L << 31;
+
+    /** Coordinate differences below this don't overflow long {@link #inCircle}. */
+    private static final long IN_CIRCLE_LONG_LIMIT = 1L << 14;
+
+    /** Coordinate differences below this don't overflow long {@link #tangentCircles}. */
+    private static final long TANGENT_LONG_LIMIT = 1L << 20;
+
+    /**
+     * Not instantiable.
+     */
+    private Predicates() {
+    }
+
+    /**
+     * @return Value with the sign of twice the signed area of triangle abc: positive if a, b, c
+     * are counterclockwise (in a y-up frame), negative if clockwise, zero if they are on one line.
+     */
+    public static double orient(double ax, double ay, double bx, double by, double cx, double cy) {
+        double left = (ax - cx) * (by - cy);
+        double right = (ay - cy) * (bx - cx);
+        double det = left - right;
+
+        if (Math.abs(det) > ORIENT_BOUND * (Math.abs(left) + Math.abs(right)))
+            return det;
+
+        BigDecimal acx = exact(ax).subtract(exact(cx));
+        BigDecimal acy = exact(ay).subtract(exact(cy));
+        BigDecimal bcx = exact(bx).subtract(exact(cx));
+        BigDecimal bcy = exact(by).subtract(exact(cy));
+
+        return acx.multiply(bcy).subtract(acy.multiply(bcx)).signum();
+    }
+
+    /**
+     * @return Positive if d is strictly inside the circle through a, b, c, negative if it is outside, zero
+     * if the four points are on one circle. The sign is flipped when a, b, c are clockwise.
+     */
+    public static double inCircle(double ax, double ay, double bx, double by, double cx, double cy,
+        double dx, double dy) {
+        double adx = ax - dx, ady = ay - dy;
+        double bdx = bx - dx, bdy = by - dy;
+        double cdx = cx - dx, cdy = cy - dy;
+
+        double bdxcdy = bdx * cdy, cdxbdy = cdx * bdy;
+        double cdxady = cdx * ady, adxcdy = adx * cdy;
+        double adxbdy = adx * bdy, bdxady = bdx * ady;
+
+        double alift = adx * adx + ady * ady;
+        double blift = bdx * bdx + bdy * bdy;
+        double clift = cdx * cdx + cdy * cdy;
+
+        double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy) + clift * (adxbdy - bdxady);
+
+        double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * alift
+            + (Math.abs(cdxady) + Math.abs(adxcdy)) * blift
+            + (Math.abs(adxbdy) + Math.abs(bdxady)) * clift;
+
+        if (Math.abs(det) > IN_CIRCLE_BOUND * permanent)
+            return det;
+
+        BigDecimal eadx = exact(ax).subtract(exact(dx)), eady = exact(ay).subtract(exact(dy));
+        BigDecimal ebdx = exact(bx).subtract(exact(dx)), ebdy = exact(by).subtract(exact(dy));
+        BigDecimal ecdx = exact(cx).subtract(exact(dx)), ecdy = exact(cy).subtract(exact(dy));
+
+        BigDecimal ealift = eadx.multiply(eadx).add(eady.multiply(eady));
+        BigDecimal eblift = ebdx.multiply(ebdx).add(ebdy.multiply(ebdy));
+        BigDecimal eclift = ecdx.multiply(ecdx).add(ecdy.multiply(ecdy));
+
+        return ealift.multiply(ebdx.multiply(ecdy).subtract(ecdx.multiply(ebdy)))
+            .add(eblift.multiply(ecdx.multiply(eady).subtract(eadx.multiply(ecdy))))
+            .add(eclift.multiply(eadx.multiply(ebdy).subtract(ebdx.multiply(eady))))
+            .signum();
+    }
+
+    /**
+     * Weighted version of {@link #inCircle}: a point p with weight w is lifted to {@code |p|^2 - w}, and the test
+     * tells on which side of the plane through the lifted a, b, c the lifted d is. With zero weights it is
+     * {@link #inCircle}. This is the test of regular (weighted Delaunay) triangulations: d is in conflict with
+     * triangle abc if its power distance to the orthocircle of abc is negative.
+     *
+     * @return Positive if lifted d is strictly below the plane, negative if it is above, zero if the four lifted
+     * points are on one plane. The sign is flipped when a, b, c are clockwise.
+     */
+    public static double power(double ax, double ay, double aw, double bx, double by, double bw,
+        double cx, double cy, double cw, double dx, double dy, double dw) {
+        double adx = ax - dx, ady = ay - dy;
+        double bdx = bx - dx, bdy = by - dy;
+        double cdx = cx - dx, cdy = cy - dy;
+
+        double bdxcdy = bdx * cdy, cdxbdy = cdx * bdy;
+        double cdxady = cdx * ady, adxcdy = adx * cdy;
+        double adxbdy = adx * bdy, bdxady = bdx * ady;
+
+        double adw = aw - dw, bdw = bw - dw, cdw = cw - dw;
+
+        double alift = adx * adx + ady * ady - adw;
+        double blift = bdx * bdx + bdy * bdy - bdw;
+        double clift = cdx * cdx + cdy * cdy - cdw;
+
+        double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy) + clift * (adxbdy - bdxady);
+
+        double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * (adx * adx + ady * ady + Math.abs(adw))
+            + (Math.abs(cdxady) + Math.abs(adxcdy)) * (bdx * bdx + bdy * bdy + Math.abs(bdw))
+            + (Math.abs(adxbdy) + Math.abs(bdxady)) * (cdx * cdx + cdy * cdy + Math.abs(cdw));
+
+        if (Math.abs(det) > POWER_BOUND * permanent)
+            return det;
+
+        BigDecimal eadx = exact(ax).subtract(exact(dx)), eady = exact(ay).subtract(exact(dy));
+        BigDecimal ebdx = exact(bx).subtract(exact(dx)), ebdy = exact(by).subtract(exact(dy));
+        BigDecimal ecdx = exact(cx).subtract(exact(dx)), ecdy = exact(cy).subtract(exact(dy));
+
+        BigDecimal ealift = eadx.multiply(eadx).add(eady.multiply(eady)).subtract(exact(aw)).add(exact(dw));
+        BigDecimal eblift = ebdx.multiply(ebdx).add(ebdy.multiply(ebdy)).subtract(exact(bw)).add(exact(dw));
+        BigDecimal eclift = ecdx.multiply(ecdx).add(ecdy.multiply(ecdy)).subtract(exact(cw)).add(exact(dw));
+
+        return ealift.multiply(ebdx.multiply(ecdy).subtract(ecdx.multiply(ebdy)))
+            .add(eblift.multiply(ecdx.multiply(eady).subtract(eadx.multiply(ecdy))))
+            .add(eclift.multiply(eadx.multiply(ebdy).subtract(ebdx.multiply(eady))))
+            .signum();
+    }
+
+    /**
+     * Compares two circles which touch the horizontal line through p at p, one passing through a and
+     * the other through b. Both a and b must not be above p, i.e. {@code ay <= py} and {@code by <= py}.
+     * <p>
+     * This is the beach line test of Fortune's sweep: when the sweep line is at p, the arc of the site
+     * with the smaller circle is the one closer to the sweep line over p.
+     *
+     * @return Negative if the circle through a is smaller, positive if the one through b is smaller,
+     * zero if they are the same. A site on the line through p has an infinite circle, unless it is p.
+     */
+    public static double tangentCircles(double px, double py, double ax, double ay, double bx, double by) {
+        double adx = ax - px, ady = ay - py;
+        double bdx = bx - px, bdy = by - py;
+
+        double alift = adx * adx + ady * ady;
+        double blift = bdx * bdx + bdy * bdy;
+
+        // diameters are alift / -ady and blift / -bdy
+        double left = alift * bdy;
+        double right = blift * ady;
+        double det = right - left;
+
+        if (Math.abs(det) > TANGENT_BOUND * (Math.abs(left) + Math.abs(right)))
+            return det;
+
+        BigDecimal eadx = exact(ax).subtract(exact(px)), eady = exact(ay).subtract(exact(py));
+        BigDecimal ebdx = exact(bx).subtract(exact(px)), ebdy = exact(by).subtract(exact(py));
+
+        BigDecimal ealift = eadx.multiply(eadx).add(eady.multiply(eady));
+        BigDecimal eblift = ebdx.multiply(ebdx).add(ebdy.multiply(ebdy));
+
+        return eblift.multiply(eady).subtract(ealift.multiply(ebdy)).signum();
+    }
+
+    /**
+     * Same as {@link #orient(double, double, double, double, double, double)} on grid points.
+     *
+     * @return Sign of twice the signed area of triangle abc.
+     */
+    public static int orient(long ax, long ay, long bx, long by, long cx, long cy) {
+        long acx = ax - cx, acy = ay - cy;
+        long bcx = bx - cx, bcy = by - cy;
+
+        if (fits(ORIENT_LONG_LIMIT, acx, acy, bcx, bcy))
+            return Long.signum(acx * bcy - acy * bcx);
+
+        return (int) Math.signum(orient((double) ax, ay, bx, by, cx, cy));
+    }
+
+    /**
+     * Same as {@link #inCircle(double, double, double, double, double, double, double, double)} on grid points.
+     *
+     * @return Sign of the in-circle determinant.
+     */
+    public static int inCircle(long ax, long ay, long bx, long by, long cx, long cy, long dx, long dy) {
+        long adx = ax - dx, ady = ay - dy;
+        long bdx = bx - dx, bdy = by - dy;
+        long cdx = cx - dx, cdy = cy - dy;
+
+        if (fits(IN_CIRCLE_LONG_LIMIT, adx, ady, bdx, bdy) && fits(IN_CIRCLE_LONG_LIMIT, cdx, cdy, 0, 0)) {
+            long alift = adx * adx + ady * ady;
+            long blift = bdx * bdx + bdy * bdy;
+            long clift = cdx * cdx + cdy * cdy;
+
+            return Long.signum(alift * (bdx * cdy - cdx * bdy) + blift * (cdx * ady - adx * cdy)
+                + clift * (adx * bdy - bdx * ady));
+        }
+
+        return (int) Math.signum(inCircle((double) ax, ay, bx, by, cx, cy, dx, dy));
+    }
+
+    /**
+     * Same as {@link #tangentCircles(double, double, double, double, double, double)} on grid points.
+     *
+     * @return Sign of the comparison.
+     */
+    public static int tangentCircles(long px, long py, long ax, long ay, long bx, long by) {
+        long adx = ax - px, ady = ay - py;
+        long bdx = bx - px, bdy = by - py;
+
+        if (fits(TANGENT_LONG_LIMIT, adx, ady, bdx, bdy))
+            return Long.signum((bdx * bdx + bdy * bdy) * ady - (adx * adx + ady * ady) * bdy);
+
+        return (int) Math.signum(tangentCircles((double) px, py, ax, ay, bx, by));
+    }
+
+    /**
+     * @param limit Exclusive limit.
+     * @return {@code True} if all values are within the limit.
+     */
+    private static boolean fits(long limit, long a, long b, long c, long d) {
+        return Math.abs(a) < limit && Math.abs(b) < limit && Math.abs(c) < limit && Math.abs(d) < limit;
+    }
+
+    /**
+     * @param v Value.
+     * @return Exact decimal value of the double.
+     */
+    private static BigDecimal exact(double v) {
+        return new BigDecimal(v);
+    }
+}
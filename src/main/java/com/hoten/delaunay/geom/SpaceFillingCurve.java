@@ -0,0 +1,121 @@
+package com.hoten.delaunay.geom;
+
+import java.util.Arrays;
+
+/**
+ * Curves which visit every cell of a grid so that cells close on the curve are close on the plane.
+ * Ordering points along a curve keeps neighbours close in memory too.
+ */
+public enum SpaceFillingCurve {
+    /** Hilbert curve: consecutive cells are always adjacent. */
+    HILBERT {
+        /** {@inheritDoc} */
+        @Override long key(int x, int y) {
+            long d = 0;
+
+            for (int s = SIDE / 2; s > 0; s /= 2) {
+                int rx = (x & s) > 0 ? 1 : 0;
+                int ry = (y & s) > 0 ? 1 : 0;
+
+                d += (long) s * s * ((3 * rx) ^ ry);
+
+                // rotate the quadrant, so the curve inside it starts and ends at the right corners
+                if (ry == 0) {
+                    if (rx == 1) {
+                        x = SIDE - 1 - x;
+                        y = SIDE - 1 - y;
+                    }
+
+                    int t = x;
+                    x = y;
+                    y = t;
+                }
+            }
+
+            return d;
+        }
+    },
+
+    /** Morton (Z-order) curve: interleaved coordinate bits. Cheaper, but has long jumps between quadrants. */
+    MORTON {
+        /** {@inheritDoc} */
+        @Override long key(int x, int y) {
+            return spread(x) | (spread(y) << 1);
+        }
+    };
+
+    /** Bits per coordinate. Key fits 2 * BITS bits. */
+    private static final int BITS = 15;
+
+    /** Grid side. */
+    private static final int SIDE = 1 << BITS;
+
+    /**
+     * @param x Grid column in [0, 2^15).
+     * @param y Grid row in [0, 2^15).
+     * @return Position of the cell on the curve.
+     */
+    abstract long key(int x, int y);
+
+    /**
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param bounds Bounds mapped to the grid. Points outside are clamped to the border.
+     * @return Position of the point on the curve.
+     */
+    public long key(double x, double y, Rectangle bounds) {
+        return key(cell(x, bounds.x, bounds.width), cell(y, bounds.y, bounds.height));
+    }
+
+    /**
+     * @param xs X coordinates.
+     * @param ys Y coordinates.
+     * @param bounds Bounds mapped to the grid.
+     * @return Permutation: i-th point along the curve is {@code perm[i]}-th input point.
+     * Points in the same cell keep input order.
+     */
+    public int[] order(double[] xs, double[] ys, Rectangle bounds) {
+        int n = xs.length;
+        long[] packed = new long[n];
+
+        for (int i = 0; i < n; i++)
+            packed[i] = (key(xs[i], ys[i], bounds) << 32) | i;
+
+        Arrays.parallelSort(packed);
+
+        int[] perm = new int[n];
+
+        for (int i = 0; i < n; i++)
+            perm[i] = (int) packed[i];
+
+        return perm;
+    }
+
+    /**
+     * @param v Coordinate.
+     * @param min Min coordinate.
+     * @param size Range of coordinates.
+     * @return Grid cell.
+     */
+    private static int cell(double v, double min, double size) {
+        if (!(size > 0))
+            return 0;
+
+        int c = (int) ((v - min) / size * SIDE);
+
+        return c < 0 ? 0 : Math.min(c, SIDE - 1);
+    }
+
+    /**
+     * @param v Value of {@link #BITS} bits.
+     * @return Value with a zero bit inserted after each bit.
+     */
+    private static long spread(long v) {
+        v = (v | (v << 8)) & 0x00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0FL;
+        v = (v | (v << 2)) & 0x33333333L;
+        v = (v | (v << 1)) & 0x55555555L;
+
+        return v;
+    }
+}
@@ -1,16 +1,23 @@
 package com.hoten.delaunay.voronoi;
 
+import com.hoten.delaunay.geom.ConvexPolygon;
 import com.hoten.delaunay.geom.GenUtils;
 import com.hoten.delaunay.geom.Point;
 import com.hoten.delaunay.geom.Rectangle;
+import com.hoten.delaunay.geom.SpaceFillingCurve;
 import com.hoten.delaunay.voronoi.groundshapes.HeightAlgorithm;
 import com.hoten.delaunay.voronoi.nodename.as3delaunay.LineSegment;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.PeriodicVoronoi;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.SphericalVoronoi;
 import com.hoten.delaunay.voronoi.nodename.as3delaunay.Voronoi;
+import com.hoten.delaunay.voronoi.nodename.as3delaunay.VoronoiOptions;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.*;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * VoronoiGraph.java
@@ -23,10 +30,20 @@ public abstract class VoronoiGraph {
     private final List<Corner> corners = new ArrayList<>();
     private final List<Center> centers = new ArrayList<>();
     private final Rectangle bounds;
+    private final ConvexPolygon domain;
     private final Random r;
     private final BufferedImage pixelCenterMap;
     protected Color OCEAN, RIVER, LAKE, BEACH;
 
+    /** Sweep order index of each center, corner and edge. */
+    private int[] centerOrder, cornerOrder, edgeOrder;
+
+    /** Packed unit vectors of centers and corners of a planet, {@code null} for a plane graph. */
+    private double[] centerXyz, cornerXyz;
+
+    /** Map wraps around horizontally, as a planet or a torus does, and vertically, as a torus does. */
+    private final boolean wrapX, wrapY;
+
     /**
      * @param v Voronoi structure.
      * @param numLloydRelaxations Amount of Lloyd relaxations.
@@ -34,14 +51,97 @@ public abstract class VoronoiGraph {
      * @param algorithm Ground shape algorithm.
      */
     public VoronoiGraph(Voronoi v, int numLloydRelaxations, Random r, HeightAlgorithm algorithm) {
+        this(v, numLloydRelaxations, r, algorithm, null);
+    }
+
+    /**
+     * @param v Voronoi structure.
+     * @param numLloydRelaxations Amount of Lloyd relaxations.
+     * @param r Randomizer.
+     * @param algorithm Ground shape algorithm.
+     * @param curve Curve to number and allocate centers, corners and edges along, so elements close on the map
+     * are close in memory for all the traversals, or {@code null} to keep the sweep order. See {@link #centerOrder()}.
+     */
+    public VoronoiGraph(Voronoi v, int numLloydRelaxations, Random r, HeightAlgorithm algorithm,
+        SpaceFillingCurve curve) {
         this.r = r;
         bounds = v.getPlotBounds();
+        domain = v.getClipDomain();
+        wrapX = wrapY = false;
+
+        v = relaxGraph(v, numLloydRelaxations);
+
+        buildGraph(v, curve);
+        improveCorners();
+
+        assignTerrain(algorithm);
+
+        pixelCenterMap = new BufferedImage((int) bounds.width, (int) bounds.width, BufferedImage.TYPE_4BYTE_ABGR);
+    }
+
+    /**
+     * Graph of a whole planet. Centers, corners and edges are laid on the map in the equirectangular projection:
+     * longitude goes along the width of the bounds, latitude goes down from the north pole at the top. Nothing
+     * is clipped and no corner is on the border, the largest body of water is the ocean instead. Elements are
+     * numbered like the sites and triangles of the diagram, so the orders are identities.
+     *
+     * @param v Spherical Voronoi structure.
+     * @param bounds Map bounds, twice as wide as high to keep cells at the equator undistorted.
+     * @param numLloydRelaxations Amount of Lloyd relaxations.
+     * @param r Randomizer.
+     * @param algorithm Ground shape algorithm, it is given the map positions.
+     */
+    public VoronoiGraph(SphericalVoronoi v, Rectangle bounds, int numLloydRelaxations, Random r,
+        HeightAlgorithm algorithm) {
+        this.r = r;
+        this.bounds = bounds;
+        domain = ConvexPolygon.of(bounds);
+        wrapX = true;
+        wrapY = false;
+
+        v = relaxGraph(v, numLloydRelaxations);
+
+        buildGraph(v);
+        improveSphereCorners();
+
+        assignTerrain(algorithm);
+
+        pixelCenterMap = new BufferedImage((int) bounds.width, (int) bounds.width, BufferedImage.TYPE_4BYTE_ABGR);
+    }
+
+    /**
+     * Graph of a torus, whose map tiles seamlessly. Cells at an edge of the bounds go on at the opposite edge,
+     * positions are wrapped into the bounds. Nothing is clipped and no corner is on the border, the largest
+     * body of water is the ocean instead. Elements are numbered like the sites and triangles of the diagram,
+     * so the orders are identities.
+     *
+     * @param v Periodic Voronoi structure.
+     * @param numLloydRelaxations Amount of Lloyd relaxations.
+     * @param r Randomizer.
+     * @param algorithm Ground shape algorithm, it should wrap around too for the terrain to tile seamlessly.
+     */
+    public VoronoiGraph(PeriodicVoronoi v, int numLloydRelaxations, Random r, HeightAlgorithm algorithm) {
+        this.r = r;
+        bounds = v.getBounds();
+        domain = ConvexPolygon.of(bounds);
+        wrapX = wrapY = true;
 
         v = relaxGraph(v, numLloydRelaxations);
 
         buildGraph(v);
         improveCorners();
 
+        assignTerrain(algorithm);
+
+        pixelCenterMap = new BufferedImage((int) bounds.width, (int) bounds.width, BufferedImage.TYPE_4BYTE_ABGR);
+    }
+
+    /**
+     * Assigns elevations, water, rivers, moisture and biomes.
+     *
+     * @param algorithm Ground shape algorithm.
+     */
+    private void assignTerrain(HeightAlgorithm algorithm) {
         assignCornerElevations(algorithm);
         assignOceanCoastAndLand();
         redistributeElevations(landCorners());
@@ -54,12 +154,53 @@ public abstract class VoronoiGraph {
         redistributeMoisture(landCorners());
         assignPolygonMoisture();
         assignBiomes();
+    }
 
-        pixelCenterMap = new BufferedImage((int) bounds.width, (int) bounds.width, BufferedImage.TYPE_4BYTE_ABGR);
+    /**
+     * @return Centers.
+     */
+    public List<Center> getCenters() {
+        return Collections.unmodifiableList(centers);
+    }
+
+    /**
+     * @return Corners.
+     */
+    public List<Corner> getCorners() {
+        return Collections.unmodifiableList(corners);
+    }
+
+    /**
+     * @return Edges.
+     */
+    public List<Edge> getEdges() {
+        return Collections.unmodifiableList(edges);
+    }
+
+    /**
+     * @return Index each center would have in sweep order, by its current index. Identity if graph isn't reordered.
+     */
+    public int[] centerOrder() {
+        return centerOrder.clone();
     }
 
     /**
-     * Isn't Lloyd relaxation, but it's easy workaround.
+     * @return Index each corner would have in sweep order, by its current index. Identity if graph isn't reordered.
+     */
+    public int[] cornerOrder() {
+        return cornerOrder.clone();
+    }
+
+    /**
+     * @return Index each edge would have in sweep order, by its current index. Identity if graph isn't reordered.
+     */
+    public int[] edgeOrder() {
+        return edgeOrder.clone();
+    }
+
+    /**
+     * Isn't Lloyd relaxation, but it's easy workaround. Sites of {@link VoronoiOptions#constraints} stay,
+     * the next build makes them again. Sites keep their weights, a site without a region stays where it is.
      *
      * @param v Voronoi structure.
      * @param numLloydRelaxations Amount of relaxation steps.
@@ -67,11 +208,24 @@ public abstract class VoronoiGraph {
      */
     private Voronoi relaxGraph(Voronoi v, int numLloydRelaxations) {
         for (int i = 0; i < numLloydRelaxations; i++) {
-            List<Point> points = v.siteCoords();
+            List<Point> points = new ArrayList<>();
+            List<Point> coords = v.siteCoords();
+            double[] weights = new double[coords.size()];
+
+            for (Point p : coords) {
+                if (v.isConstraintSite(p))
+                    continue;
+
+                weights[points.size()] = v.siteWeight(p);
 
-            for (Point p : points) {
                 List<Point> region = v.region(p);
 
+                if (region.isEmpty()) {
+                    points.add(p);
+
+                    continue;
+                }
+
                 double x = 0;
                 double y = 0;
 
@@ -85,9 +239,69 @@ public abstract class VoronoiGraph {
 
                 p.x = x;
                 p.y = y;
+
+                points.add(p);
+            }
+
+            v = new Voronoi(points, Arrays.copyOf(weights, points.size()), v.getClipDomain(), v.getOptions());
+        }
+
+        return v;
+    }
+
+    /**
+     * Moves every site to the mean of its region vertices, like {@link #relaxGraph(Voronoi, int)}.
+     *
+     * @param v Spherical Voronoi structure.
+     * @param numLloydRelaxations Amount of relaxation steps.
+     * @return Spherical Voronoi structure with more evenly distributed points.
+     */
+    private SphericalVoronoi relaxGraph(SphericalVoronoi v, int numLloydRelaxations) {
+        for (int i = 0; i < numLloydRelaxations; i++) {
+            double[] vertices = v.circumcenters();
+            double[] points = new double[3 * v.numSites()];
+
+            for (int s = 0; s < v.numSites(); s++) {
+                for (int t : v.region(s)) {
+                    for (int k = 0; k < 3; k++)
+                        points[3 * s + k] += vertices[3 * t + k];
+                }
+            }
+
+            v = new SphericalVoronoi(points, v.getEngine());
+        }
+
+        return v;
+    }
+
+    /**
+     * Moves every site to the mean of its region vertices, like {@link #relaxGraph(Voronoi, int)}.
+     *
+     * @param v Periodic Voronoi structure.
+     * @param numLloydRelaxations Amount of relaxation steps.
+     * @return Periodic Voronoi structure with more evenly distributed points.
+     */
+    private PeriodicVoronoi relaxGraph(PeriodicVoronoi v, int numLloydRelaxations) {
+        for (int i = 0; i < numLloydRelaxations; i++) {
+            double[] sites = v.sites();
+            double[] vertices = v.circumcenters();
+            List<Point> points = new ArrayList<>(v.numSites());
+
+            for (int s = 0; s < v.numSites(); s++) {
+                int[] region = v.region(s);
+
+                double x = 0;
+                double y = 0;
+
+                for (int t : region) {
+                    x += unwrapX(vertices[2 * t], sites[2 * s]);
+                    y += unwrapY(vertices[2 * t + 1], sites[2 * s + 1]);
+                }
+
+                points.add(new Point(x / region.length, y / region.length));
             }
 
-            v = new Voronoi(points, v.getPlotBounds());
+            v = new PeriodicVoronoi(points, v.getBounds(), v.getEngine());
         }
 
         return v;
@@ -108,11 +322,11 @@ public abstract class VoronoiGraph {
                 double y = 0;
 
                 for (Center center : c.touches) {
-                    x += center.loc.x;
-                    y += center.loc.y;
+                    x += unwrapX(center.loc.x, c.loc.x);
+                    y += unwrapY(center.loc.y, c.loc.y);
                 }
 
-                newP[c.index] = new Point(x / c.touches.size(), y / c.touches.size());
+                newP[c.index] = wrap(x / c.touches.size(), y / c.touches.size());
             }
         }
 
@@ -122,9 +336,103 @@ public abstract class VoronoiGraph {
 
         edges.stream().filter((e) -> (e.v0 != null && e.v1 != null)).forEach((e) -> {
             e.setVornoi(e.v0, e.v1);
+
+            // ends on the two sides of an edge of a torus map are joined across it
+            if (wrapY) {
+                e.midpoint = wrap((e.v0.loc.x + unwrapX(e.v1.loc.x, e.v0.loc.x)) / 2,
+                    (e.v0.loc.y + unwrapY(e.v1.loc.y, e.v0.loc.y)) / 2);
+            }
         });
     }
 
+    /**
+     * Moves corners to the mean of their centers on the sphere, like {@link #improveCorners()}.
+     */
+    private void improveSphereCorners() {
+        double[] xyz = new double[cornerXyz.length];
+
+        for (Corner c : corners) {
+            double x = 0, y = 0, z = 0;
+
+            for (Center center : c.touches) {
+                x += centerXyz[3 * center.index];
+                y += centerXyz[3 * center.index + 1];
+                z += centerXyz[3 * center.index + 2];
+            }
+
+            double len = Math.sqrt(x * x + y * y + z * z);
+
+            xyz[3 * c.index] = x / len;
+            xyz[3 * c.index + 1] = y / len;
+            xyz[3 * c.index + 2] = z / len;
+
+            c.loc = toMap(xyz[3 * c.index], xyz[3 * c.index + 1], xyz[3 * c.index + 2]);
+        }
+
+        cornerXyz = xyz;
+
+        for (Edge e : edges) {
+            int a = 3 * e.v0.index, b = 3 * e.v1.index;
+
+            // map positions of the ends may be on the two sides of the seam, the midpoint is taken on the sphere
+            e.midpoint = toMap(xyz[a] + xyz[b], xyz[a + 1] + xyz[b + 1], xyz[a + 2] + xyz[b + 2]);
+        }
+    }
+
+    /**
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param z Z coordinate, to the north pole.
+     * @return Map position of the direction.
+     */
+    private Point toMap(double x, double y, double z) {
+        double lon = Math.atan2(y, x);
+        double lat = Math.atan2(z, Math.sqrt(x * x + y * y));
+
+        return new Point(bounds.x + (lon + Math.PI) / (2 * Math.PI) * bounds.width,
+            bounds.y + (Math.PI / 2 - lat) / Math.PI * bounds.height);
+    }
+
+    /**
+     * @param x X coordinate on the map.
+     * @param ref Reference x coordinate.
+     * @return Coordinate of the same place on a wrapped map shifted by the map width to be closest
+     * to the reference, the coordinate itself otherwise.
+     */
+    private double unwrapX(double x, double ref) {
+        if (!wrapX)
+            return x;
+
+        return x - bounds.width * Math.rint((x - ref) / bounds.width);
+    }
+
+    /**
+     * @param y Y coordinate on the map.
+     * @param ref Reference y coordinate.
+     * @return Coordinate of the same place on a torus map shifted by the map height to be closest
+     * to the reference, the coordinate itself otherwise.
+     */
+    private double unwrapY(double y, double ref) {
+        if (!wrapY)
+            return y;
+
+        return y - bounds.height * Math.rint((y - ref) / bounds.height);
+    }
+
+    /**
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @return Position wrapped into the bounds on a torus map, the position itself otherwise.
+     */
+    private Point wrap(double x, double y) {
+        if (wrapY) {
+            x -= bounds.width * Math.floor((x - bounds.x) / bounds.width);
+            y -= bounds.height * Math.floor((y - bounds.y) / bounds.height);
+        }
+
+        return new Point(x, y);
+    }
+
     private Edge edgeWithCenters(Center c1, Center c2) {
         for (Edge e : c1.borders) {
             if (e.d0 == c2 || e.d1 == c2)
@@ -139,12 +447,71 @@ public abstract class VoronoiGraph {
         int[] y = new int[3];
         x[0] = (int) center.loc.x;
         y[0] = (int) center.loc.y;
-        x[1] = (int) c1.loc.x;
-        y[1] = (int) c1.loc.y;
-        x[2] = (int) c2.loc.x;
-        y[2] = (int) c2.loc.y;
+        x[1] = (int) unwrapX(c1.loc.x, center.loc.x);
+        y[1] = (int) unwrapY(c1.loc.y, center.loc.y);
+        x[2] = (int) unwrapX(c2.loc.x, unwrapX(c1.loc.x, center.loc.x));
+        y[2] = (int) unwrapY(c2.loc.y, unwrapY(c1.loc.y, center.loc.y));
 
         g.fillPolygon(x, y, 3);
+
+        if (!wrapX)
+            return;
+
+        // a triangle across an edge of a wrapped map is drawn on both sides
+        int dx = shift(x, bounds.x, bounds.right, bounds.width);
+        int dy = wrapY ? shift(y, bounds.y, bounds.bottom, bounds.height) : 0;
+
+        if (dx != 0)
+            g.fillPolygon(shifted(x, dx), y, 3);
+
+        if (dy != 0)
+            g.fillPolygon(x, shifted(y, dy), 3);
+
+        if (dx != 0 && dy != 0)
+            g.fillPolygon(shifted(x, dx), shifted(y, dy), 3);
+    }
+
+    /**
+     * @param v Coordinates of a shape.
+     * @param min Map start.
+     * @param max Map end.
+     * @param size Map size.
+     * @return Shift which brings the shape sticking out of the map to the other side, or {@code 0}.
+     */
+    private static int shift(int[] v, double min, double max, double size) {
+        int lo = Math.min(v[0], Math.min(v[1], v[2])), hi = Math.max(v[0], Math.max(v[1], v[2]));
+
+        return lo < min ? (int) size : hi > max ? -(int) size : 0;
+    }
+
+    /**
+     * @param v Coordinates.
+     * @param shift Shift.
+     * @return Shifted coordinates.
+     */
+    private static int[] shifted(int[] v, int shift) {
+        int[] res = new int[v.length];
+
+        for (int i = 0; i < v.length; i++)
+            res[i] = v[i] + shift;
+
+        return res;
+    }
+
+    /**
+     * Draws a line, on both sides of an edge of a wrapped map if it crosses it.
+     *
+     * @param g Graphics.
+     * @param a First end.
+     * @param b Second end.
+     */
+    private void drawLine(Graphics2D g, Point a, Point b) {
+        double bx = unwrapX(b.x, a.x), by = unwrapY(b.y, a.y);
+
+        g.drawLine((int) a.x, (int) a.y, (int) bx, (int) by);
+
+        if (bx != b.x || by != b.y)
+            g.drawLine((int) (a.x + b.x - bx), (int) (a.y + b.y - by), (int) b.x, (int) b.y);
     }
 
     public BufferedImage createMap() {
@@ -196,9 +563,12 @@ public abstract class VoronoiGraph {
 
             drawTriangle(g, e.v0, e.v1, c);
 
-            c.area += Math.abs(c.loc.x * (e.v0.loc.y - e.v1.loc.y)
-                    + e.v0.loc.x * (e.v1.loc.y - c.loc.y)
-                    + e.v1.loc.x * (c.loc.y - e.v0.loc.y)) / 2;
+            double x0 = unwrapX(e.v0.loc.x, c.loc.x), y0 = unwrapY(e.v0.loc.y, c.loc.y);
+            double x1 = unwrapX(e.v1.loc.x, x0), y1 = unwrapY(e.v1.loc.y, y0);
+
+            c.area += Math.abs(c.loc.x * (y0 - y1)
+                    + x0 * (y1 - c.loc.y)
+                    + x1 * (c.loc.y - y0)) / 2;
         }
 
         //handle the missing triangle
@@ -267,13 +637,13 @@ public abstract class VoronoiGraph {
             if (drawDelaunay) {
                 g.setStroke(new BasicStroke(1));
                 g.setColor(Color.YELLOW);
-                g.drawLine((int) e.d0.loc.x, (int) e.d0.loc.y, (int) e.d1.loc.x, (int) e.d1.loc.y);
+                drawLine(g, e.d0.loc, e.d1.loc);
             }
 
             if (drawRivers && e.river > 0) {
                 g.setStroke(new BasicStroke(1 + (int) Math.sqrt(e.river * 2)));
                 g.setColor(RIVER);
-                g.drawLine((int) e.v0.loc.x, (int) e.v0.loc.y, (int) e.v1.loc.x, (int) e.v1.loc.y);
+                drawLine(g, e.v0.loc, e.v1.loc);
             }
         }
 
@@ -296,8 +666,11 @@ public abstract class VoronoiGraph {
             });
         }
 
-        g.setColor(Color.WHITE);
-        g.drawRect((int) bounds.x, (int) bounds.y, (int) bounds.width, (int) bounds.height);
+        // a wrapped map goes on past its bounds
+        if (!wrapX) {
+            g.setColor(Color.WHITE);
+            g.drawRect((int) bounds.x, (int) bounds.y, (int) bounds.width, (int) bounds.height);
+        }
 
         //TODO remove test paint
         /*for (Center center : centers) {
@@ -313,35 +686,47 @@ public abstract class VoronoiGraph {
         }*/
     }
 
-    private void buildGraph(Voronoi v) {
-        Map<Point, Center> pointCenterMap = generateCenters(v);
+    private void buildGraph(Voronoi v, SpaceFillingCurve curve) {
+        Map<Point, Center> pointCenterMap = generateCenters(v, curve);
 
-        generateEdges(v, pointCenterMap);
+        generateEdges(v, pointCenterMap, curve);
     }
 
-    private Map<Point, Center> generateCenters(Voronoi v) {
+    private Map<Point, Center> generateCenters(Voronoi v, SpaceFillingCurve curve) {
         Map<Point, Center> pointCenterMap = new HashMap<>();
         List<Point> points = v.siteCoords();
 
-        points.stream().forEach((p) -> {
+        centerOrder = order(curve, points);
+
+        for (int i : centerOrder) {
+            Point p = points.get(i);
             Center c = new Center(centers.size(), p);
             centers.add(c);
             pointCenterMap.put(p, c);
-        });
+        }
 
         //bug fix
-        centers.stream().forEach((c) -> {
-            v.region(c.loc);
-        });
+        for (int i = 0; i < v.numSites(); i++)
+            v.region(i);
 
         return pointCenterMap;
     }
 
-    private void generateEdges(Voronoi v, Map<Point, Center> pointCenterMap) {
+    private void generateEdges(Voronoi v, Map<Point, Center> pointCenterMap, SpaceFillingCurve curve) {
         final List<com.hoten.delaunay.voronoi.nodename.as3delaunay.Edge> libEdges = v.edges();
         final Map<Integer, Corner> pointCornerMap = new HashMap<>();
+        final List<Point> midpoints = new ArrayList<>(libEdges.size());
 
         for (com.hoten.delaunay.voronoi.nodename.as3delaunay.Edge libEdge : libEdges) {
+            final LineSegment dEdge = libEdge.delaunayLine();
+
+            midpoints.add(new Point((dEdge.p0.x + dEdge.p1.x) / 2, (dEdge.p0.y + dEdge.p1.y) / 2));
+        }
+
+        edgeOrder = order(curve, midpoints);
+
+        for (int i : edgeOrder) {
+            final com.hoten.delaunay.voronoi.nodename.as3delaunay.Edge libEdge = libEdges.get(i);
             final LineSegment vEdge = libEdge.voronoiEdge();
             final LineSegment dEdge = libEdge.delaunayLine();
 
@@ -354,54 +739,227 @@ public abstract class VoronoiGraph {
             edge.d0 = pointCenterMap.get(dEdge.p0);
             edge.d1 = pointCenterMap.get(dEdge.p1);
 
-            // Centers point to edges. Corners point to edges.
-            if (edge.d0 != null) {
-                edge.d0.borders.add(edge);
-            }
-            if (edge.d1 != null) {
-                edge.d1.borders.add(edge);
-            }
-            if (edge.v0 != null) {
-                edge.v0.protrudes.add(edge);
-            }
-            if (edge.v1 != null) {
-                edge.v1.protrudes.add(edge);
-            }
+            connect(edge);
+        }
 
-            // Centers point to centers.
-            if (edge.d0 != null && edge.d1 != null) {
-                addToCenterList(edge.d0.neighbors, edge.d1);
-                addToCenterList(edge.d1.neighbors, edge.d0);
-            }
+        orderCorners(curve);
+    }
 
-            // Corners point to corners
-            if (edge.v0 != null && edge.v1 != null) {
-                addToCornerList(edge.v0.adjacent, edge.v1);
-                addToCornerList(edge.v1.adjacent, edge.v0);
-            }
+    /**
+     * Graph of a planet: a center for every site, a corner for every triangle and an edge for every pair
+     * of halfedges.
+     *
+     * @param v Spherical Voronoi structure.
+     */
+    private void buildGraph(SphericalVoronoi v) {
+        centerXyz = v.sites();
+        cornerXyz = v.circumcenters();
 
-            // Centers point to corners
-            if (edge.d0 != null) {
-                addToCornerList(edge.d0.corners, edge.v0);
-                addToCornerList(edge.d0.corners, edge.v1);
-            }
-            if (edge.d1 != null) {
-                addToCornerList(edge.d1.corners, edge.v0);
-                addToCornerList(edge.d1.corners, edge.v1);
-            }
+        for (int i = 0; i < v.numSites(); i++)
+            centers.add(new Center(i, toMap(centerXyz[3 * i], centerXyz[3 * i + 1], centerXyz[3 * i + 2])));
 
-            // Corners point to centers
-            if (edge.v0 != null) {
-                addToCenterList(edge.v0.touches, edge.d0);
-                addToCenterList(edge.v0.touches, edge.d1);
-            }
-            if (edge.v1 != null) {
-                addToCenterList(edge.v1.touches, edge.d0);
-                addToCenterList(edge.v1.touches, edge.d1);
-            }
+        for (int t = 0; t < v.numTriangles(); t++) {
+            Corner c = new Corner();
+            c.loc = toMap(cornerXyz[3 * t], cornerXyz[3 * t + 1], cornerXyz[3 * t + 2]);
+            c.index = t;
+            corners.add(c);
+        }
+
+        addEdges(v.triangles(), v.halfedges());
+    }
+
+    /**
+     * Graph of a torus: a center for every site, a corner for every triangle and an edge for every pair
+     * of halfedges.
+     *
+     * @param v Periodic Voronoi structure.
+     */
+    private void buildGraph(PeriodicVoronoi v) {
+        double[] sites = v.sites();
+        double[] vertices = v.circumcenters();
+
+        for (int i = 0; i < v.numSites(); i++)
+            centers.add(new Center(i, new Point(sites[2 * i], sites[2 * i + 1])));
+
+        for (int t = 0; t < v.numTriangles(); t++) {
+            Corner c = new Corner();
+            c.loc = wrap(vertices[2 * t], vertices[2 * t + 1]);
+            c.index = t;
+            corners.add(c);
+        }
+
+        addEdges(v.triangles(), v.halfedges());
+    }
+
+    /**
+     * Adds an edge for every pair of halfedges, see {@link SphericalVoronoi}. Centers and corners are numbered
+     * like the sites and triangles.
+     *
+     * @param triangles Site of each halfedge origin.
+     * @param halfedges Opposite halfedge of each halfedge.
+     */
+    private void addEdges(int[] triangles, int[] halfedges) {
+        for (int e = 0; e < triangles.length; e++) {
+            if (halfedges[e] < e)
+                continue;
+
+            final Edge edge = new Edge();
+            edge.index = edges.size();
+            edges.add(edge);
+
+            edge.d0 = centers.get(triangles[e]);
+            edge.d1 = centers.get(triangles[e % 3 == 2 ? e - 2 : e + 1]);
+            edge.v0 = corners.get(e / 3);
+            edge.v1 = corners.get(halfedges[e] / 3);
+
+            connect(edge);
+        }
+
+        centerOrder = identity(centers.size());
+        cornerOrder = identity(corners.size());
+        edgeOrder = identity(edges.size());
+    }
+
+    /**
+     * Links the centers and corners of an edge with the edge and with each other.
+     *
+     * @param edge Edge.
+     */
+    private void connect(Edge edge) {
+        // Centers point to edges. Corners point to edges.
+        if (edge.d0 != null) {
+            edge.d0.borders.add(edge);
+        }
+        if (edge.d1 != null) {
+            edge.d1.borders.add(edge);
+        }
+        if (edge.v0 != null) {
+            edge.v0.protrudes.add(edge);
+        }
+        if (edge.v1 != null) {
+            edge.v1.protrudes.add(edge);
+        }
+
+        // Centers point to centers.
+        if (edge.d0 != null && edge.d1 != null) {
+            addToCenterList(edge.d0.neighbors, edge.d1);
+            addToCenterList(edge.d1.neighbors, edge.d0);
+        }
+
+        // Corners point to corners
+        if (edge.v0 != null && edge.v1 != null) {
+            addToCornerList(edge.v0.adjacent, edge.v1);
+            addToCornerList(edge.v1.adjacent, edge.v0);
+        }
+
+        // Centers point to corners
+        if (edge.d0 != null) {
+            addToCornerList(edge.d0.corners, edge.v0);
+            addToCornerList(edge.d0.corners, edge.v1);
+        }
+        if (edge.d1 != null) {
+            addToCornerList(edge.d1.corners, edge.v0);
+            addToCornerList(edge.d1.corners, edge.v1);
+        }
+
+        // Corners point to centers
+        if (edge.v0 != null) {
+            addToCenterList(edge.v0.touches, edge.d0);
+            addToCenterList(edge.v0.touches, edge.d1);
+        }
+        if (edge.v1 != null) {
+            addToCenterList(edge.v1.touches, edge.d0);
+            addToCenterList(edge.v1.touches, edge.d1);
+        }
+    }
+
+    /**
+     * Corners are made in order of edges, which is close to the curve order already. This sorts them along
+     * the curve precisely and finds their sweep order indices.
+     *
+     * @param curve Curve or {@code null} for sweep order.
+     */
+    private void orderCorners(SpaceFillingCurve curve) {
+        List<Point> locs = new ArrayList<>(corners.size());
+
+        for (Corner c : corners)
+            locs.add(c.loc);
+
+        if (curve == null) {
+            cornerOrder = order(null, locs);
+
+            return;
+        }
+
+        // number corners in the order the sweep ordered edges would make them
+        int[] sweepIndex = new int[corners.size()];
+        int[] edgeByLibIndex = new int[edges.size()];
+        int next = 0;
+
+        Arrays.fill(sweepIndex, -1);
+
+        for (int i = 0; i < edgeOrder.length; i++)
+            edgeByLibIndex[edgeOrder[i]] = i;
+
+        for (int i : edgeByLibIndex) {
+            Edge e = edges.get(i);
+
+            if (e.v0 != null && sweepIndex[e.v0.index] == -1)
+                sweepIndex[e.v0.index] = next++;
+
+            if (e.v1 != null && sweepIndex[e.v1.index] == -1)
+                sweepIndex[e.v1.index] = next++;
+        }
+
+        int[] perm = order(curve, locs);
+        List<Corner> copy = new ArrayList<>(corners);
+
+        cornerOrder = new int[perm.length];
+
+        for (int i = 0; i < perm.length; i++) {
+            Corner c = copy.get(perm[i]);
+
+            cornerOrder[i] = sweepIndex[c.index];
+            c.index = i;
+            corners.set(i, c);
         }
     }
 
+    /**
+     * @param curve Curve or {@code null} for identity.
+     * @param points Points.
+     * @return Permutation: i-th point along the curve is {@code perm[i]}-th point of the list.
+     */
+    private int[] order(SpaceFillingCurve curve, List<Point> points) {
+        int n = points.size();
+
+        if (curve == null)
+            return identity(n);
+
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            xs[i] = points.get(i).x;
+            ys[i] = points.get(i).y;
+        }
+
+        return curve.order(xs, ys, bounds);
+    }
+
+    /**
+     * @param n Number of elements.
+     * @return Identity permutation.
+     */
+    private static int[] identity(int n) {
+        int[] perm = new int[n];
+
+        for (int i = 0; i < n; i++)
+            perm[i] = i;
+
+        return perm;
+    }
+
     // Helper functions for the following for loop; ideally these
     // would be inlined
     private void addToCornerList(List<Corner> list, Corner c) {
@@ -426,7 +984,7 @@ public abstract class VoronoiGraph {
         if (c == null) {
             c = new Corner();
             c.loc = p;
-            c.border = bounds.liesOnAxes(p);
+            c.border = domain.asRectangle() != null ? bounds.liesOnAxes(p) : domain.distanceToBorder(p.x, p.y) <= 1;
             c.index = corners.size();
             corners.add(c);
 
@@ -439,10 +997,14 @@ public abstract class VoronoiGraph {
     private void assignCornerElevations(HeightAlgorithm algorithm) {
         Deque<Corner> queue = new LinkedList<>();
 
-        for (Corner c : corners) {
+        for (Corner c : corners)
             c.water = algorithm.isWater(c.loc, bounds, r);
 
-            if (c.border) {
+        // a wrapped map has no border, elevations rise from its ocean
+        Set<Corner> ocean = wrapX ? largestBody(corners, c -> c.water, c -> c.adjacent) : null;
+
+        for (Corner c : corners) {
+            if (ocean != null ? ocean.contains(c) : c.border) {
                 c.elevation = 0;
                 queue.add(c);
             } else {
@@ -489,6 +1051,13 @@ public abstract class VoronoiGraph {
             center.water = center.ocean || ((double) numWater / center.corners.size() >= waterThreshold);
         }
 
+        if (wrapX) {
+            for (Center center : largestBody(centers, c -> c.water, c -> c.neighbors)) {
+                center.ocean = true;
+                queue.add(center);
+            }
+        }
+
         while (!queue.isEmpty()) {
             final Center center = queue.pop();
 
@@ -527,6 +1096,42 @@ public abstract class VoronoiGraph {
         }
     }
 
+    /**
+     * @param nodes Centers or corners.
+     * @param water Tells if a node is water.
+     * @param neighbors Neighbors of a node.
+     * @return Largest connected set of water nodes, the ocean of a wrapped map.
+     */
+    private static <T> Set<T> largestBody(List<T> nodes, Predicate<T> water, Function<T, List<T>> neighbors) {
+        Set<T> seen = new HashSet<>();
+        Set<T> best = new HashSet<>();
+
+        for (T start : nodes) {
+            if (!water.test(start) || !seen.add(start))
+                continue;
+
+            Set<T> body = new HashSet<>();
+            Deque<T> queue = new ArrayDeque<>();
+
+            body.add(start);
+            queue.add(start);
+
+            while (!queue.isEmpty()) {
+                for (T n : neighbors.apply(queue.pop())) {
+                    if (water.test(n) && seen.add(n)) {
+                        body.add(n);
+                        queue.add(n);
+                    }
+                }
+            }
+
+            if (body.size() > best.size())
+                best = body;
+        }
+
+        return best;
+    }
+
     private List<Corner> landCorners() {
         List<Corner> list = new ArrayList<>();
 
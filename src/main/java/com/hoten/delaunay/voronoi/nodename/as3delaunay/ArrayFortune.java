@@ -0,0 +1,1607 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.Predicates;
+import com.hoten.delaunay.geom.Rectangle;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fortune's sweep over primitive arrays. It is a line by line port of {@link ObjectFortune}
+ * ({@link HalfedgeList}, {@link HalfedgePriorityQueue}, {@link Halfedge#isLeftOf}, {@link Vertex#intersect}),
+ * so it makes the same decisions with the same floating point arithmetic, but sites, vertices, edges and
+ * halfedges are addressed by integer ids instead of being allocated one by one.
+ * <p>
+ * Halfedge slots are recycled as soon as they leave both the beach line and the event queue,
+ * so the halfedge arrays are as large as the beach line, not as the diagram.
+ * <p>
+ * Instance is owned by a {@link VoronoiWorkspace} and keeps its arrays between builds,
+ * they are reallocated only when a build needs more room than any previous one.
+ * <p>
+ * In streaming mode ({@link #stream(MappedSites, VoronoiOptions, Rectangle, VoronoiSink, BeachLineStats)})
+ * sites are read from a mapped file, vertices go to the sink as soon as they are found and edges as soon as
+ * both ends are known, then their slots are reused. Memory is then bounded by the beach line and the hull.
+ */
+final class ArrayFortune {
+
+    /** Id of missing vertex, halfedge, edge or site. */
+    private static final int NONE = -1;
+
+    /** Edge id of a halfedge removed from the beach line. Same role as {@link Edge#DELETED}. */
+    private static final int DELETED = -2;
+
+    /** Seed of treap priorities. Same as in {@link HalfedgeTree}. */
+    private static final int TREE_SEED = 0x9E3779B9;
+
+    /** Halfedge orientation. */
+    private static final byte LEFT = 0, RIGHT = 1;
+
+    /** Site coordinates in sweep order. */
+    private double[] sx, sy;
+
+    /** Site count. */
+    private int numSites;
+
+    /** Sites of a streaming build, {@code null} when sites are in {@link #sx} and {@link #sy}. */
+    private MappedSites mapped;
+
+    /** Receiver of vertices and finished edges of a streaming build. */
+    private VoronoiSink sink;
+
+    /** Edge equations: ax + by = c. */
+    private double[] ea, eb, ec;
+
+    /** Left and right site of each edge. */
+    private int[] eLeftSite, eRightSite;
+
+    /** Left and right vertex of each edge. */
+    private int[] eLeftVertex, eRightVertex;
+
+    /** Edge count. In streaming mode - edge slots in use. */
+    private int numEdges;
+
+    /** Recycled edge slots of a streaming build. */
+    private int[] freeEdges;
+
+    /** Recycled edge slot count. */
+    private int numFreeEdges;
+
+    /** Serial number of each edge of a streaming build. */
+    private long[] eSerial;
+
+    /** Serial numbers of left and right vertex of each edge of a streaming build. */
+    private long[] eLeftVertexSerial, eRightVertexSerial;
+
+    /** Serial counters of a streaming build. */
+    private long edgeSerial, vertexSerial;
+
+    /** Vertex coordinates. {@code NaN} for a vertex at infinity. */
+    private double[] vx, vy;
+
+    /** Vertex count. */
+    private int numVertices;
+
+    /** Beach line neighbours of each halfedge. */
+    private int[] hLeft, hRight;
+
+    /** Next halfedge in the same priority queue bucket. */
+    private int[] hNextInQueue;
+
+    /** Edge of each halfedge, {@link #NONE} for dummies and {@link #DELETED} when removed from the beach line. */
+    private int[] hEdge;
+
+    /** Orientation of each halfedge. */
+    private byte[] hLeftRight;
+
+    /** {@code True} if halfedge has a pending circle event. */
+    private boolean[] hHasVertex;
+
+    /** Pending circle event vertex and its y-coordinate in the transformed space V*, the event priority. */
+    private double[] hVertexX, hVertexY, hYStar;
+
+    /** Bound of the rounding error of {@link #hYStar}, see {@link CircleEvent}. */
+    private double[] hEventError;
+
+    /** Sites of the pending circle event, same as {@link Halfedge#eventLeft} and others. */
+    private int[] hEventLeft, hEventMiddle, hEventRight;
+
+    /** Number of beach line hash buckets pointing to each halfedge. */
+    private int[] hHashRefs;
+
+    /** {@code True} if halfedge left both beach line and queue. */
+    private boolean[] hDead;
+
+    /** Halfedge slots in use. */
+    private int halfedgeTop;
+
+    /** Recycled halfedge slots. */
+    private int[] freeHalfedges;
+
+    /** Recycled halfedge count. */
+    private int numFreeHalfedges;
+
+    /** Beach line ends. */
+    private int leftEnd, rightEnd;
+
+    /** Beach line hash. */
+    private int[] listHash;
+
+    /** Beach line hash size, may be less than {@code listHash.length}. */
+    private int listHashSize;
+
+    /** {@code True} for {@link VoronoiOptions.BeachLine#TREE}. */
+    private boolean beachTree;
+
+    /** Treap links of each halfedge. Same as {@link Halfedge#treeLeft} and others. */
+    private int[] tLeft, tRight, tParent;
+
+    /** Treap priority of each halfedge. */
+    private int[] tPriority;
+
+    /** Treap root. */
+    private int treeRoot;
+
+    /** Treap priority generator state. */
+    private int treeRandom;
+
+    /** Beach line lookup counters. */
+    private BeachLineStats stats;
+
+    /** Triangles filled by the sweep or {@code null}. */
+    private TriangleBuffer triangles;
+
+    /** Beach line hash geometry. */
+    private double listXMin, listDeltaX;
+
+    /** First halfedge of each priority queue bucket. */
+    private int[] queueHash;
+
+    /** Priority queue bucket count, may be less than {@code queueHash.length}. */
+    private int queueHashSize;
+
+    /** Priority queue geometry. */
+    private double queueYMin, queueDeltaY;
+
+    /** Priority queue size. */
+    private int queueCount;
+
+    /** First bucket which may be not empty. */
+    private int queueMinBucket;
+
+    /** {@code True} for {@link VoronoiOptions.Queue#INDEXED_HEAP}. */
+    private boolean indexedHeap;
+
+    /** {@code True} for {@link VoronoiOptions.Queue#LAZY_HEAP}. */
+    private boolean lazyHeap;
+
+    /** Binary heap of halfedges. */
+    private int[] heap;
+
+    /** Slot of each halfedge in {@link #heap}. */
+    private int[] hHeapIndex;
+
+    /** Insertion stamp of each queued halfedge, used to break ties in {@link #heap}. */
+    private long[] hStamp;
+
+    /** Insertion counter. */
+    private long nextStamp;
+
+    /** Generation of each halfedge, bumped when its event is cancelled or its slot is reused. */
+    private int[] hGeneration;
+
+    /** Event priority and its error bound of each lazy heap record. */
+    private double[] rYStar, rError;
+
+    /** Event sites of each lazy heap record, stale records keep comparing on them. */
+    private int[] rLeft, rMiddle, rRight;
+
+    /** Halfedge of each lazy heap record. */
+    private int[] rHalfedge;
+
+    /** Halfedge generation of each lazy heap record. */
+    private int[] rGeneration;
+
+    /** Insertion stamp of each lazy heap record. */
+    private long[] rStamp;
+
+    /** Lazy heap size including stale records. */
+    private int recordCount;
+
+    /** Results of {@link #intersect(int, int)}, see {@link CircleEvent#compute}. */
+    private final double[] intersection = new double[CircleEvent.SIZE];
+
+    /** Sites of the last intersection. */
+    private int ia, ib, ic;
+
+    /** Grid steps per unit of {@link VoronoiOptions#fixedPoint(int)}, {@code 0} for doubles. */
+    private double fixedScale;
+
+    /**
+     * Prepares arrays for a new build, reusing the ones left from previous builds when they are large enough.
+     *
+     * @param sites Sites sorted by y, then x.
+     * @param options Queue and beach line settings.
+     */
+    private void reset(List<Site> sites, VoronoiOptions options) {
+        numSites = sites.size();
+        mapped = null;
+        sink = null;
+
+        if (sx == null || sx.length < numSites) {
+            sx = new double[numSites];
+            sy = new double[numSites];
+        }
+
+        for (int i = 0; i < numSites; i++) {
+            Site site = sites.get(i);
+            sx[i] = site.getX();
+            sy[i] = site.getY();
+        }
+
+        prepare(options, Math.max(16, 3 * numSites), Math.max(16, 2 * numSites));
+
+        fixedScale = options.fixedPointScale();
+    }
+
+    /**
+     * Prepares arrays for a streaming build. Only live edges are stored, so edge arrays start as small
+     * as the halfedge ones and grow if the hull is large.
+     *
+     * @param sites Sites sorted by y, then x.
+     * @param options Queue and beach line settings.
+     * @param sink Receiver of vertices and edges.
+     */
+    private void reset(MappedSites sites, VoronoiOptions options, VoronoiSink sink) {
+        numSites = sites.size();
+        mapped = sites;
+        this.sink = sink;
+
+        prepare(options, 64 + 8 * (int) Math.sqrt(numSites), 16);
+
+        // site files are not snapped
+        fixedScale = 0;
+
+        if (eSerial == null || eSerial.length < ea.length) {
+            eSerial = new long[ea.length];
+            eLeftVertexSerial = new long[ea.length];
+            eRightVertexSerial = new long[ea.length];
+            freeEdges = new int[ea.length];
+        }
+
+        edgeSerial = 0;
+        vertexSerial = 0;
+    }
+
+    /**
+     * @param options Queue and beach line settings.
+     * @param edgeCap Initial edge capacity.
+     * @param vertexCap Initial vertex capacity.
+     */
+    private void prepare(VoronoiOptions options, int edgeCap, int vertexCap) {
+        indexedHeap = options.getQueue() == VoronoiOptions.Queue.INDEXED_HEAP;
+        lazyHeap = options.getQueue() == VoronoiOptions.Queue.LAZY_HEAP;
+        beachTree = options.getBeachLine() == VoronoiOptions.BeachLine.TREE;
+
+        if (ea == null || ea.length < edgeCap) {
+            ea = new double[edgeCap];
+            eb = new double[edgeCap];
+            ec = new double[edgeCap];
+            eLeftSite = new int[edgeCap];
+            eRightSite = new int[edgeCap];
+            eLeftVertex = new int[edgeCap];
+            eRightVertex = new int[edgeCap];
+        }
+
+        if (vx == null || vx.length < vertexCap) {
+            vx = new double[vertexCap];
+            vy = new double[vertexCap];
+        }
+
+        int halfedgeCap = 64 + 8 * (int) Math.sqrt(numSites);
+
+        if (hEdge == null || hEdge.length < halfedgeCap) {
+            hLeft = new int[halfedgeCap];
+            hRight = new int[halfedgeCap];
+            hNextInQueue = new int[halfedgeCap];
+            hEdge = new int[halfedgeCap];
+            hLeftRight = new byte[halfedgeCap];
+            hHasVertex = new boolean[halfedgeCap];
+            hVertexX = new double[halfedgeCap];
+            hVertexY = new double[halfedgeCap];
+            hYStar = new double[halfedgeCap];
+            hEventError = new double[halfedgeCap];
+            hEventLeft = new int[halfedgeCap];
+            hEventMiddle = new int[halfedgeCap];
+            hEventRight = new int[halfedgeCap];
+            hHashRefs = new int[halfedgeCap];
+            hDead = new boolean[halfedgeCap];
+            hHeapIndex = new int[halfedgeCap];
+            hStamp = new long[halfedgeCap];
+            hGeneration = new int[halfedgeCap];
+            tLeft = new int[halfedgeCap];
+            tRight = new int[halfedgeCap];
+            tParent = new int[halfedgeCap];
+            tPriority = new int[halfedgeCap];
+            freeHalfedges = new int[halfedgeCap];
+        }
+        else
+            Arrays.fill(hHashRefs, 0, halfedgeTop, 0);
+
+        numEdges = 0;
+        numFreeEdges = 0;
+        numVertices = 0;
+        halfedgeTop = 0;
+        numFreeHalfedges = 0;
+        nextStamp = 0;
+    }
+
+    /**
+     * Runs the sweep and turns its output into {@link Edge} and {@link Vertex} objects.
+     *
+     * @param sites Sites sorted by y, then x.
+     * @param options Build settings.
+     * @param dataBounds Bounds of the sites.
+     * @param edges Output edge list.
+     * @param triangles Output triangles or {@code null}.
+     * @param stats Beach line lookup counters.
+     */
+    void build(List<Site> sites, VoronoiOptions options, Rectangle dataBounds, List<Edge> edges,
+        TriangleBuffer triangles, BeachLineStats stats) {
+        this.stats = stats;
+        this.triangles = triangles;
+
+        reset(sites, options);
+        sweep(dataBounds);
+
+        // the workspace outlives the diagram
+        this.triangles = null;
+
+        Vertex[] vertices = new Vertex[numVertices];
+
+        for (int i = 0; i < numVertices; i++) {
+            if (Double.isNaN(vx[i]) || Double.isNaN(vy[i])) {
+                vertices[i] = Vertex.VERTEX_AT_INFINITY;
+                vertices[i].setIndex(i);
+            }
+            else
+                vertices[i] = Vertex.create(vx[i], vy[i], i, options.isCompact());
+        }
+
+        for (int i = 0; i < numEdges; i++) {
+            Edge edge = Edge.createBisectingEdge(sites.get(eLeftSite[i]), sites.get(eRightSite[i]), i);
+
+            if (eLeftVertex[i] != NONE)
+                edge.setVertex(LR.LEFT, vertices[eLeftVertex[i]]);
+
+            if (eRightVertex[i] != NONE)
+                edge.setVertex(LR.RIGHT, vertices[eRightVertex[i]]);
+
+            edges.add(edge);
+        }
+    }
+
+    /**
+     * Runs the sweep over sites of a mapped file, passing vertices and edges to the sink.
+     *
+     * @param sites Sites sorted by y, then x.
+     * @param options Queue and beach line settings.
+     * @param dataBounds Bounds of the sites.
+     * @param sink Receiver of vertices and edges.
+     * @param stats Beach line lookup counters.
+     */
+    void stream(MappedSites sites, VoronoiOptions options, Rectangle dataBounds, VoronoiSink sink,
+        BeachLineStats stats) {
+        this.stats = stats;
+        this.triangles = null;
+
+        reset(sites, options, sink);
+
+        try {
+            sweep(dataBounds);
+
+            // edges left are the ones which extend to infinity
+            for (int i = 0; i < numEdges; i++) {
+                if (eLeftSite[i] != NONE)
+                    emitEdge(i);
+            }
+        }
+        finally {
+            mapped = null;
+            this.sink = null;
+        }
+    }
+
+    /**
+     * Fortune's algorithm. See {@link ObjectFortune#build}.
+     *
+     * @param dataBounds Bounds of the sites.
+     */
+    private void sweep(Rectangle dataBounds) {
+        int sqrtNSites = (int) Math.sqrt(numSites + 4);
+
+        initQueue(dataBounds.y, dataBounds.height, sqrtNSites);
+        initList(dataBounds.x, dataBounds.width, sqrtNSites);
+
+        if (numSites == 0)
+            return;
+
+        int bottomMostSite = 0;
+        int newSite = numSites > 1 ? 1 : NONE;
+
+        for (;;) {
+            if (newSite != NONE && (queueCount == 0 || compareSite(newSite, queueMin()) < 0)) {
+                // Step 8: the halfedges just to the left and to the right of new site
+                int lbnd = edgeListLeftNeighbor(siteX(newSite), siteY(newSite));
+                int rbnd = hRight[lbnd];
+                int bottomSite = rightRegion(lbnd, bottomMostSite);
+
+                // Step 9:
+                int edge = createBisectingEdge(bottomSite, newSite);
+
+                // inserting two halfedges into the beach line constitutes Step 10:
+                int bisector = createHalfedge(edge, LEFT);
+                listInsert(lbnd, bisector);
+
+                // first half of Step 11:
+                if (intersect(lbnd, bisector))
+                    queueReschedule(lbnd);
+
+                lbnd = bisector;
+                bisector = createHalfedge(edge, RIGHT);
+                listInsert(lbnd, bisector);
+
+                // second half of Step 11:
+                if (intersect(bisector, rbnd)) {
+                    setEvent(bisector);
+                    queueInsert(bisector);
+                }
+
+                newSite = newSite + 1 < numSites ? newSite + 1 : NONE;
+            }
+            else if (queueCount != 0) {
+                // intersection is smallest
+                int lbnd = queueExtractMin();
+                int llbnd = hLeft[lbnd];
+                int rbnd = hRight[lbnd];
+                int rrbnd = hRight[rbnd];
+                int bottomSite = leftRegion(lbnd, bottomMostSite);
+                int topSite = rightRegion(rbnd, bottomMostSite);
+
+                long v = createVertex(hVertexX[lbnd], hVertexY[lbnd]);
+
+                // these three sites define a Delaunay triangle
+                if (triangles != null) {
+                    triangles.set((int) v, bottomSite, rightRegion(lbnd, bottomMostSite), topSite, hVertexX[lbnd],
+                        hVertexY[lbnd]);
+                }
+                setVertex(hEdge[lbnd], hLeftRight[lbnd], v);
+                setVertex(hEdge[rbnd], hLeftRight[rbnd], v);
+                listRemove(lbnd);
+                queueRemove(rbnd);
+                listRemove(rbnd);
+                freeHalfedge(lbnd);
+                freeHalfedge(rbnd);
+
+                byte leftRight = LEFT;
+
+                if (siteY(bottomSite) > siteY(topSite)) {
+                    int tempSite = bottomSite;
+                    bottomSite = topSite;
+                    topSite = tempSite;
+                    leftRight = RIGHT;
+                }
+
+                int edge = createBisectingEdge(bottomSite, topSite);
+                int bisector = createHalfedge(edge, leftRight);
+                listInsert(llbnd, bisector);
+                setVertex(edge, (byte) (1 - leftRight), v);
+
+                if (intersect(llbnd, bisector))
+                    queueReschedule(llbnd);
+
+                if (intersect(bisector, rrbnd)) {
+                    setEvent(bisector);
+                    queueInsert(bisector);
+                }
+            }
+            else
+                break;
+        }
+    }
+
+    /**
+     * Stores last intersection as a pending circle event of the halfedge.
+     *
+     * @param he Halfedge.
+     */
+    private void setEvent(int he) {
+        hHasVertex[he] = true;
+        hVertexX[he] = intersection[CircleEvent.X];
+        hVertexY[he] = intersection[CircleEvent.Y];
+        hYStar[he] = intersection[CircleEvent.PRIORITY];
+        hEventError[he] = intersection[CircleEvent.ERROR];
+        hEventLeft[he] = ia;
+        hEventMiddle[he] = ib;
+        hEventRight[he] = ic;
+    }
+
+    /**
+     * Same as {@link CircleEvent#compare(Site, Halfedge)}.
+     */
+    private int compareSite(int site, int he) {
+        int cmp = CircleEvent.filter(siteY(site), 0, hYStar[he], hEventError[he]);
+
+        if (cmp != 0)
+            return cmp;
+
+        int a = hEventLeft[he], b = hEventMiddle[he], c = hEventRight[he];
+
+        return CircleEvent.compareSite(siteX(site), siteY(site), siteX(a), siteY(a), siteX(b), siteY(b), siteX(c),
+            siteY(c));
+    }
+
+    /**
+     * Same as {@link CircleEvent#compare(Halfedge, Halfedge)}.
+     */
+    private int compareEvents(int he0, int he1) {
+        int cmp = CircleEvent.filter(hYStar[he0], hEventError[he0], hYStar[he1], hEventError[he1]);
+
+        if (cmp != 0)
+            return cmp;
+
+        return compareEvents(hEventLeft[he0], hEventMiddle[he0], hEventRight[he0], hEventLeft[he1],
+            hEventMiddle[he1], hEventRight[he1]);
+    }
+
+    /**
+     * Same as {@link CircleEvent#compare(Site, Site, Site, Site, Site, Site)}.
+     */
+    private int compareEvents(int a0, int b0, int c0, int a1, int b1, int c1) {
+        return CircleEvent.compare(siteX(a0), siteY(a0), siteX(b0), siteY(b0), siteX(c0), siteY(c0),
+            siteX(a1), siteY(a1), siteX(b1), siteY(b1), siteX(c1), siteY(c1));
+    }
+
+    /**
+     * @param site Site id.
+     * @return X coordinate.
+     */
+    private double siteX(int site) {
+        return mapped != null ? mapped.x(site) : sx[site];
+    }
+
+    /**
+     * @param site Site id.
+     * @return Y coordinate.
+     */
+    private double siteY(int site) {
+        return mapped != null ? mapped.y(site) : sy[site];
+    }
+
+    /**
+     * @param site Site id.
+     * @return X coordinate on the fixed point grid.
+     */
+    private long gridX(int site) {
+        return FixedPoint.grid(sx[site], fixedScale);
+    }
+
+    /**
+     * @param site Site id.
+     * @return Y coordinate on the fixed point grid.
+     */
+    private long gridY(int site) {
+        return FixedPoint.grid(sy[site], fixedScale);
+    }
+
+    /**
+     * Same as {@link Voronoi#leftRegion(Halfedge, Site)}.
+     */
+    private int leftRegion(int he, int bottomMostSite) {
+        int edge = hEdge[he];
+
+        if (edge == NONE)
+            return bottomMostSite;
+
+        return hLeftRight[he] == LEFT ? eLeftSite[edge] : eRightSite[edge];
+    }
+
+    /**
+     * Same as {@link Voronoi#rightRegion(Halfedge, Site)}.
+     */
+    private int rightRegion(int he, int bottomMostSite) {
+        int edge = hEdge[he];
+
+        if (edge == NONE)
+            return bottomMostSite;
+
+        return hLeftRight[he] == LEFT ? eRightSite[edge] : eLeftSite[edge];
+    }
+
+    /**
+     * Same as {@link Edge#createBisectingEdge(Site, Site, int)}.
+     *
+     * @return Edge id.
+     */
+    private int createBisectingEdge(int site0, int site1) {
+        double a, b, c;
+
+        double dx = siteX(site1) - siteX(site0);
+        double dy = siteY(site1) - siteY(site0);
+
+        c = siteX(site0) * dx + siteY(site0) * dy + (dx * dx + dy * dy) * 0.5;
+
+        if (Math.abs(dx) > Math.abs(dy)) {
+            a = 1.0;
+            b = dy / dx;
+            c /= dx;
+        } else {
+            b = 1.0;
+            a = dx / dy;
+            c /= dy;
+        }
+
+        int edge;
+
+        if (numFreeEdges > 0)
+            edge = freeEdges[--numFreeEdges];
+        else {
+            if (numEdges == ea.length) {
+                int cap = numEdges * 2;
+                ea = Arrays.copyOf(ea, cap);
+                eb = Arrays.copyOf(eb, cap);
+                ec = Arrays.copyOf(ec, cap);
+                eLeftSite = Arrays.copyOf(eLeftSite, cap);
+                eRightSite = Arrays.copyOf(eRightSite, cap);
+                eLeftVertex = Arrays.copyOf(eLeftVertex, cap);
+                eRightVertex = Arrays.copyOf(eRightVertex, cap);
+
+                if (mapped != null) {
+                    eSerial = Arrays.copyOf(eSerial, cap);
+                    eLeftVertexSerial = Arrays.copyOf(eLeftVertexSerial, cap);
+                    eRightVertexSerial = Arrays.copyOf(eRightVertexSerial, cap);
+                    freeEdges = Arrays.copyOf(freeEdges, cap);
+                }
+            }
+
+            edge = numEdges++;
+        }
+
+        ea[edge] = a;
+        eb[edge] = b;
+        ec[edge] = c;
+        eLeftSite[edge] = site0;
+        eRightSite[edge] = site1;
+        eLeftVertex[edge] = NONE;
+        eRightVertex[edge] = NONE;
+
+        if (mapped != null) {
+            eSerial[edge] = edgeSerial++;
+            eLeftVertexSerial[edge] = NONE;
+            eRightVertexSerial[edge] = NONE;
+        }
+
+        return edge;
+    }
+
+    /**
+     * @param edge Edge id.
+     * @param leftRight End of the edge.
+     * @param v Vertex id.
+     */
+    private void setVertex(int edge, byte leftRight, long v) {
+        if (mapped != null) {
+            if (leftRight == LEFT)
+                eLeftVertexSerial[edge] = v;
+            else
+                eRightVertexSerial[edge] = v;
+
+            if (eLeftVertexSerial[edge] != NONE && eRightVertexSerial[edge] != NONE)
+                emitEdge(edge);
+
+            return;
+        }
+
+        if (leftRight == LEFT)
+            eLeftVertex[edge] = (int) v;
+        else
+            eRightVertex[edge] = (int) v;
+    }
+
+    /**
+     * Passes edge to the sink and recycles its slot. Halfedges of the edge leave the beach line before
+     * the slot is taken again.
+     *
+     * @param edge Edge id.
+     */
+    private void emitEdge(int edge) {
+        sink.edge(eSerial[edge], eLeftSite[edge], eRightSite[edge], eLeftVertexSerial[edge], eRightVertexSerial[edge]);
+
+        eLeftSite[edge] = NONE;
+        freeEdges[numFreeEdges++] = edge;
+    }
+
+    /**
+     * @return Vertex id.
+     */
+    private long createVertex(double x, double y) {
+        if (mapped != null) {
+            sink.vertex(vertexSerial, x, y);
+
+            return vertexSerial++;
+        }
+
+        if (numVertices == vx.length) {
+            vx = Arrays.copyOf(vx, numVertices * 2);
+            vy = Arrays.copyOf(vy, numVertices * 2);
+        }
+
+        vx[numVertices] = x;
+        vy[numVertices] = y;
+
+        return numVertices++;
+    }
+
+    /**
+     * @param edge Edge id or {@link #NONE} for a dummy.
+     * @param leftRight Orientation.
+     * @return Halfedge id.
+     */
+    private int createHalfedge(int edge, byte leftRight) {
+        int he;
+
+        if (numFreeHalfedges > 0)
+            he = freeHalfedges[--numFreeHalfedges];
+        else {
+            if (halfedgeTop == hEdge.length) {
+                int cap = halfedgeTop * 2;
+                hLeft = Arrays.copyOf(hLeft, cap);
+                hRight = Arrays.copyOf(hRight, cap);
+                hNextInQueue = Arrays.copyOf(hNextInQueue, cap);
+                hEdge = Arrays.copyOf(hEdge, cap);
+                hLeftRight = Arrays.copyOf(hLeftRight, cap);
+                hHasVertex = Arrays.copyOf(hHasVertex, cap);
+                hVertexX = Arrays.copyOf(hVertexX, cap);
+                hVertexY = Arrays.copyOf(hVertexY, cap);
+                hYStar = Arrays.copyOf(hYStar, cap);
+                hEventError = Arrays.copyOf(hEventError, cap);
+                hEventLeft = Arrays.copyOf(hEventLeft, cap);
+                hEventMiddle = Arrays.copyOf(hEventMiddle, cap);
+                hEventRight = Arrays.copyOf(hEventRight, cap);
+                hHashRefs = Arrays.copyOf(hHashRefs, cap);
+                hDead = Arrays.copyOf(hDead, cap);
+                hHeapIndex = Arrays.copyOf(hHeapIndex, cap);
+                hStamp = Arrays.copyOf(hStamp, cap);
+                hGeneration = Arrays.copyOf(hGeneration, cap);
+                tLeft = Arrays.copyOf(tLeft, cap);
+                tRight = Arrays.copyOf(tRight, cap);
+                tParent = Arrays.copyOf(tParent, cap);
+                tPriority = Arrays.copyOf(tPriority, cap);
+                freeHalfedges = Arrays.copyOf(freeHalfedges, cap);
+            }
+
+            he = halfedgeTop++;
+        }
+
+        hEdge[he] = edge;
+        hLeftRight[he] = leftRight;
+        hLeft[he] = NONE;
+        hRight[he] = NONE;
+        hNextInQueue[he] = NONE;
+        hHasVertex[he] = false;
+        hDead[he] = false;
+        hGeneration[he]++;
+
+        return he;
+    }
+
+    /**
+     * Releases halfedge which is out of both beach line and queue. Slot is reused only when no beach line
+     * hash bucket points to it, otherwise the walk in {@link #edgeListLeftNeighbor(double, double)} could
+     * start from a different halfedge than the object sweep does.
+     *
+     * @param he Halfedge id.
+     */
+    private void freeHalfedge(int he) {
+        hEdge[he] = DELETED;
+        hDead[he] = true;
+
+        if (hHashRefs[he] == 0)
+            freeHalfedges[numFreeHalfedges++] = he;
+    }
+
+    /**
+     * Puts halfedge into beach line hash bucket.
+     *
+     * @param b Bucket.
+     * @param he Halfedge id or {@link #NONE}.
+     */
+    private void setHash(int b, int he) {
+        int old = listHash[b];
+
+        if (old == he)
+            return;
+
+        if (old != NONE && --hHashRefs[old] == 0 && hDead[old])
+            freeHalfedges[numFreeHalfedges++] = old;
+
+        if (he != NONE)
+            hHashRefs[he]++;
+
+        listHash[b] = he;
+    }
+
+    /**
+     * Same as {@link Vertex#intersect(Halfedge, Halfedge)}. Intersection is stored in {@link #intersection},
+     * its sites in {@link #ia}, {@link #ib}, {@link #ic}.
+     *
+     * @return {@code True} if there is an intersection.
+     */
+    private boolean intersect(int he0, int he1) {
+        int edge0 = hEdge[he0];
+        int edge1 = hEdge[he1];
+
+        if (edge0 < 0 || edge1 < 0)
+            return false;
+
+        int a = hLeftRight[he0] == LEFT ? eLeftSite[edge0] : eRightSite[edge0];
+        int b = hLeftRight[he0] == LEFT ? eRightSite[edge0] : eLeftSite[edge0];
+        int c = hLeftRight[he1] == LEFT ? eRightSite[edge1] : eLeftSite[edge1];
+
+        if (fixedScale != 0) {
+            if (Predicates.orient(gridX(a), gridY(a), gridX(b), gridY(b), gridX(c), gridY(c)) <= 0)
+                return false;
+
+            CircleEvent.compute(siteX(a), siteY(a), siteX(b), siteY(b), siteX(c), siteY(c), intersection);
+            FixedPoint.circumcenter(fixedScale, siteX(a), siteY(a), siteX(b), siteY(b), siteX(c), siteY(c),
+                intersection);
+        }
+        else {
+            if (!(Predicates.orient(siteX(a), siteY(a), siteX(b), siteY(b), siteX(c), siteY(c)) > 0))
+                return false;
+
+            CircleEvent.compute(siteX(a), siteY(a), siteX(b), siteY(b), siteX(c), siteY(c), intersection);
+        }
+
+        ia = a;
+        ib = b;
+        ic = c;
+
+        return true;
+    }
+
+    /**
+     * Same as {@link Halfedge#isLeftOf(com.hoten.delaunay.geom.Point)}.
+     */
+    private boolean isLeftOf(int he, double px, double py) {
+        int edge = hEdge[he];
+        int topSite = eRightSite[edge];
+        int bottomSite = eLeftSite[edge];
+        boolean rightOfSite = px > siteX(topSite);
+
+        if (fixedScale != 0) {
+            long gx = FixedPoint.grid(px, fixedScale), gy = FixedPoint.grid(py, fixedScale);
+
+            if (hLeftRight[he] == LEFT) {
+                return rightOfSite || Predicates.tangentCircles(gx, gy, gridX(topSite), gridY(topSite),
+                    gridX(bottomSite), gridY(bottomSite)) < 0;
+            }
+
+            return rightOfSite && Predicates.tangentCircles(gx, gy, gridX(bottomSite), gridY(bottomSite),
+                gridX(topSite), gridY(topSite)) < 0;
+        }
+
+        if (hLeftRight[he] == LEFT) {
+            return rightOfSite || Predicates.tangentCircles(px, py, siteX(topSite), siteY(topSite),
+                siteX(bottomSite), siteY(bottomSite)) < 0;
+        }
+
+        return rightOfSite && Predicates.tangentCircles(px, py, siteX(bottomSite), siteY(bottomSite),
+            siteX(topSite), siteY(topSite)) < 0;
+    }
+
+    /**
+     * Same as {@link HalfedgeList#reset(double, double, int, BeachLineStats)}
+     * or {@link HalfedgeTree#reset(BeachLineStats)}.
+     */
+    private void initList(double xmin, double deltax, int sqrtNSites) {
+        leftEnd = createHalfedge(NONE, LEFT);
+        rightEnd = createHalfedge(NONE, LEFT);
+
+        if (beachTree) {
+            treeRandom = TREE_SEED;
+            treeLink(leftEnd);
+            treeRoot = leftEnd;
+            listInsert(leftEnd, rightEnd);
+
+            return;
+        }
+
+        listXMin = xmin;
+        listDeltaX = deltax;
+        listHashSize = 2 * sqrtNSites;
+
+        if (listHash == null || listHash.length < listHashSize)
+            listHash = new int[listHashSize];
+
+        Arrays.fill(listHash, 0, listHashSize, NONE);
+
+        hRight[leftEnd] = rightEnd;
+        hLeft[rightEnd] = leftEnd;
+
+        setHash(0, leftEnd);
+        setHash(listHashSize - 1, rightEnd);
+    }
+
+    /**
+     * Insert new halfedge to the right of lb.
+     */
+    private void listInsert(int lb, int he) {
+        int next = hRight[lb];
+
+        hLeft[he] = lb;
+        hRight[he] = next;
+
+        if (next != NONE)
+            hLeft[next] = he;
+
+        hRight[lb] = he;
+
+        if (beachTree)
+            treeInsert(lb, next, he);
+    }
+
+    /**
+     * Removes halfedge from the beach line.
+     */
+    private void listRemove(int he) {
+        if (beachTree)
+            treeRemove(he);
+
+        hRight[hLeft[he]] = hRight[he];
+        hLeft[hRight[he]] = hLeft[he];
+        hEdge[he] = DELETED;
+        hLeft[he] = hRight[he] = NONE;
+    }
+
+    /**
+     * Same as {@link HalfedgeList#edgeListLeftNeighbor(com.hoten.delaunay.geom.Point)}
+     * or {@link HalfedgeTree#edgeListLeftNeighbor(com.hoten.delaunay.geom.Point)}.
+     *
+     * @return The rightmost halfedge that is still left of p.
+     */
+    private int edgeListLeftNeighbor(double px, double py) {
+        stats.lookups++;
+
+        if (beachTree)
+            return treeLeftNeighbor(px, py);
+
+        int hashSize = listHashSize;
+        int bucket = (int) ((px - listXMin) / listDeltaX * hashSize);
+
+        if (bucket < 0)
+            bucket = 0;
+
+        if (bucket >= hashSize)
+            bucket = hashSize - 1;
+
+        int he = getHash(bucket);
+
+        if (he == NONE) {
+            for (int i = 1; true; ++i) {
+                if ((he = getHash(bucket - i)) != NONE)
+                    break;
+
+                if ((he = getHash(bucket + i)) != NONE)
+                    break;
+            }
+        }
+
+        long walk = 1;
+
+        // Now search linear list of halfedges for the correct one
+        if (he == leftEnd || (he != rightEnd && isLeftOf(he, px, py))) {
+            do {
+                he = hRight[he];
+                walk++;
+            } while (he != rightEnd && isLeftOf(he, px, py));
+
+            he = hLeft[he];
+        } else {
+            do {
+                he = hLeft[he];
+                walk++;
+            } while (he != leftEnd && !isLeftOf(he, px, py));
+        }
+
+        stats.walk(walk);
+
+        if (bucket > 0 && bucket < hashSize - 1)
+            setHash(bucket, he);
+
+        return he;
+    }
+
+    /**
+     * Get entry from hash table, pruning any deleted nodes.
+     */
+    private int getHash(int b) {
+        if (b < 0 || b >= listHashSize)
+            return NONE;
+
+        stats.probes++;
+
+        int he = listHash[b];
+
+        if (he != NONE && hEdge[he] == DELETED) {
+            setHash(b, NONE);
+
+            return NONE;
+        }
+
+        return he;
+    }
+
+    /**
+     * Same as {@link HalfedgeTree#edgeListLeftNeighbor(com.hoten.delaunay.geom.Point)}.
+     */
+    private int treeLeftNeighbor(double px, double py) {
+        int best = leftEnd;
+        int node = treeRoot;
+        long walk = 0;
+
+        while (node != NONE) {
+            walk++;
+
+            if (node == leftEnd || (node != rightEnd && isLeftOf(node, px, py))) {
+                best = node;
+                node = tRight[node];
+            }
+            else
+                node = tLeft[node];
+        }
+
+        stats.walk(walk);
+
+        return best;
+    }
+
+    /**
+     * Prepares halfedge to become a treap node.
+     */
+    private void treeLink(int he) {
+        treeRandom ^= treeRandom << 13;
+        treeRandom ^= treeRandom >>> 17;
+        treeRandom ^= treeRandom << 5;
+
+        tPriority[he] = treeRandom;
+        tLeft[he] = tRight[he] = tParent[he] = NONE;
+    }
+
+    /**
+     * Same as treap part of {@link HalfedgeTree#insert(Halfedge, Halfedge)}.
+     *
+     * @param lb Left neighbour.
+     * @param next Former right neighbour of lb.
+     * @param he New halfedge.
+     */
+    private void treeInsert(int lb, int next, int he) {
+        treeLink(he);
+
+        if (tRight[lb] == NONE) {
+            tRight[lb] = he;
+            tParent[he] = lb;
+        }
+        else {
+            tLeft[next] = he;
+            tParent[he] = next;
+        }
+
+        while (tParent[he] != NONE && tPriority[he] < tPriority[tParent[he]])
+            treeRotateUp(he);
+    }
+
+    /**
+     * Same as treap part of {@link HalfedgeTree#remove(Halfedge)}.
+     */
+    private void treeRemove(int he) {
+        while (tLeft[he] != NONE || tRight[he] != NONE) {
+            int child;
+
+            if (tLeft[he] == NONE)
+                child = tRight[he];
+            else if (tRight[he] == NONE)
+                child = tLeft[he];
+            else
+                child = tPriority[tLeft[he]] < tPriority[tRight[he]] ? tLeft[he] : tRight[he];
+
+            treeRotateUp(child);
+        }
+
+        int parent = tParent[he];
+
+        if (parent == NONE)
+            treeRoot = NONE;
+        else if (tLeft[parent] == he)
+            tLeft[parent] = NONE;
+        else
+            tRight[parent] = NONE;
+
+        tParent[he] = NONE;
+    }
+
+    /**
+     * Rotates node above its parent keeping in order sequence.
+     */
+    private void treeRotateUp(int x) {
+        int p = tParent[x];
+        int g = tParent[p];
+
+        if (tLeft[p] == x) {
+            tLeft[p] = tRight[x];
+
+            if (tRight[x] != NONE)
+                tParent[tRight[x]] = p;
+
+            tRight[x] = p;
+        }
+        else {
+            tRight[p] = tLeft[x];
+
+            if (tLeft[x] != NONE)
+                tParent[tLeft[x]] = p;
+
+            tLeft[x] = p;
+        }
+
+        tParent[p] = x;
+        tParent[x] = g;
+
+        if (g == NONE)
+            treeRoot = x;
+        else if (tLeft[g] == p)
+            tLeft[g] = x;
+        else
+            tRight[g] = x;
+    }
+
+    /**
+     * Same as {@link HalfedgePriorityQueue#HalfedgePriorityQueue(double, double, int)},
+     * {@link IndexedHalfedgeHeap#IndexedHalfedgeHeap(int)} or {@link LazyCircleEventQueue#LazyCircleEventQueue(int)}.
+     */
+    private void initQueue(double ymin, double deltay, int sqrtNSites) {
+        queueCount = 0;
+
+        if (indexedHeap) {
+            int cap = Math.max(16, 4 * sqrtNSites);
+
+            if (heap == null || heap.length < cap)
+                heap = new int[cap];
+
+            return;
+        }
+
+        if (lazyHeap) {
+            int cap = Math.max(16, 8 * sqrtNSites);
+
+            if (rHalfedge == null || rHalfedge.length < cap) {
+                rYStar = new double[cap];
+                rError = new double[cap];
+                rLeft = new int[cap];
+                rMiddle = new int[cap];
+                rRight = new int[cap];
+                rHalfedge = new int[cap];
+                rGeneration = new int[cap];
+                rStamp = new long[cap];
+            }
+
+            recordCount = 0;
+
+            return;
+        }
+
+        queueYMin = ymin;
+        queueDeltaY = deltay;
+        queueHashSize = 4 * sqrtNSites;
+        queueMinBucket = 0;
+
+        if (queueHash == null || queueHash.length < queueHashSize)
+            queueHash = new int[queueHashSize];
+
+        Arrays.fill(queueHash, 0, queueHashSize, NONE);
+    }
+
+    /**
+     * Replaces halfedge's pending event (if any) with the last intersection.
+     * Heap does it in place (decrease or increase key), buckets by removal and insertion.
+     *
+     * @param he Halfedge.
+     */
+    private void queueReschedule(int he) {
+        if (indexedHeap && hHasVertex[he]) {
+            setEvent(he);
+            hStamp[he] = nextStamp++;
+
+            if (!heapSiftUp(hHeapIndex[he]))
+                heapSiftDown(hHeapIndex[he]);
+
+            return;
+        }
+
+        queueRemove(he);
+        setEvent(he);
+        queueInsert(he);
+    }
+
+    /**
+     * @return Priority queue bucket for halfedge's event.
+     */
+    private int bucket(int he) {
+        int hashSize = queueHashSize;
+        int theBucket = (int) ((hYStar[he] - queueYMin) / queueDeltaY * hashSize);
+
+        if (theBucket < 0)
+            theBucket = 0;
+
+        if (theBucket >= hashSize)
+            theBucket = hashSize - 1;
+
+        // same adjustment as HalfedgePriorityQueue does for the rounded priority
+        while (theBucket > 0 && !startsBelow(theBucket, he))
+            --theBucket;
+
+        while (theBucket < hashSize - 1 && startsBelow(theBucket + 1, he))
+            ++theBucket;
+
+        return theBucket;
+    }
+
+    /**
+     * @param bucket Bucket.
+     * @param he Halfedge with pending event.
+     * @return {@code True} if the bucket starts at or below the event priority.
+     */
+    private boolean startsBelow(int bucket, int he) {
+        double start = queueYMin + queueDeltaY * bucket / queueHashSize;
+        int cmp = CircleEvent.filter(start, 0, hYStar[he], hEventError[he]);
+
+        if (cmp == 0) {
+            int a = hEventLeft[he], b = hEventMiddle[he], c = hEventRight[he];
+
+            cmp = CircleEvent.compareLevel(start, siteX(a), siteY(a), siteX(b), siteY(b), siteX(c), siteY(c));
+        }
+
+        return cmp <= 0;
+    }
+
+    /**
+     * Inserts halfedge's pending event into the queue.
+     */
+    private void queueInsert(int he) {
+        if (indexedHeap) {
+            if (queueCount == heap.length)
+                heap = Arrays.copyOf(heap, queueCount * 2);
+
+            int i = queueCount++;
+
+            heap[i] = he;
+            hHeapIndex[he] = i;
+            hStamp[he] = nextStamp++;
+
+            heapSiftUp(i);
+
+            return;
+        }
+
+        if (lazyHeap) {
+            recordPush(he);
+            ++queueCount;
+
+            return;
+        }
+
+        int insertionBucket = bucket(he);
+
+        if (insertionBucket < queueMinBucket)
+            queueMinBucket = insertionBucket;
+
+        int previous = NONE;
+        int next = queueHash[insertionBucket];
+
+        while (next != NONE && compareEvents(he, next) > 0) {
+            previous = next;
+            next = hNextInQueue[next];
+        }
+
+        hNextInQueue[he] = next;
+
+        if (previous == NONE)
+            queueHash[insertionBucket] = he;
+        else
+            hNextInQueue[previous] = he;
+
+        ++queueCount;
+    }
+
+    /**
+     * Removes halfedge's pending event from the queue, if any.
+     */
+    private void queueRemove(int he) {
+        if (!hHasVertex[he])
+            return;
+
+        if (indexedHeap) {
+            heapRemoveAt(hHeapIndex[he]);
+            hHasVertex[he] = false;
+
+            return;
+        }
+
+        if (lazyHeap) {
+            // the record stays in the heap and is skipped when it reaches the top
+            hGeneration[he]++;
+            hHasVertex[he] = false;
+            queueCount--;
+
+            return;
+        }
+
+        int b = bucket(he);
+        int previous = NONE;
+        int cur = queueHash[b];
+
+        while (cur != he) {
+            previous = cur;
+            cur = hNextInQueue[cur];
+        }
+
+        if (previous == NONE)
+            queueHash[b] = hNextInQueue[he];
+        else
+            hNextInQueue[previous] = hNextInQueue[he];
+
+        queueCount--;
+        hHasVertex[he] = false;
+        hNextInQueue[he] = NONE;
+    }
+
+    /**
+     * @return Halfedge with the smallest event.
+     */
+    private int queueMin() {
+        if (indexedHeap)
+            return heap[0];
+
+        if (lazyHeap) {
+            while (rGeneration[0] != hGeneration[rHalfedge[0]])
+                recordRemoveTop();
+
+            return rHalfedge[0];
+        }
+
+        while (queueMinBucket < queueHashSize - 1 && queueHash[queueMinBucket] == NONE)
+            ++queueMinBucket;
+
+        return queueHash[queueMinBucket];
+    }
+
+    /**
+     * Removes and returns halfedge with the smallest event.
+     */
+    private int queueExtractMin() {
+        int answer = queueMin();
+
+        if (indexedHeap) {
+            heapRemoveAt(0);
+
+            return answer;
+        }
+
+        if (lazyHeap) {
+            recordRemoveTop();
+            queueCount--;
+
+            return answer;
+        }
+
+        queueHash[queueMinBucket] = hNextInQueue[answer];
+        queueCount--;
+        hNextInQueue[answer] = NONE;
+
+        return answer;
+    }
+
+    /**
+     * @param i Heap slot to clear.
+     */
+    private void heapRemoveAt(int i) {
+        queueCount--;
+
+        if (i != queueCount) {
+            heap[i] = heap[queueCount];
+            hHeapIndex[heap[i]] = i;
+
+            if (!heapSiftUp(i))
+                heapSiftDown(i);
+        }
+    }
+
+    /**
+     * @param i Heap slot.
+     * @return {@code True} if element has moved.
+     */
+    private boolean heapSiftUp(int i) {
+        int start = i;
+        int he = heap[i];
+
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+
+            if (!heapLess(he, heap[parent]))
+                break;
+
+            heap[i] = heap[parent];
+            hHeapIndex[heap[i]] = i;
+            i = parent;
+        }
+
+        heap[i] = he;
+        hHeapIndex[he] = i;
+
+        return i != start;
+    }
+
+    /**
+     * @param i Heap slot.
+     */
+    private void heapSiftDown(int i) {
+        int he = heap[i];
+        int half = queueCount >>> 1;
+
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+
+            if (right < queueCount && heapLess(heap[right], heap[child]))
+                child = right;
+
+            if (!heapLess(heap[child], he))
+                break;
+
+            heap[i] = heap[child];
+            hHeapIndex[heap[i]] = i;
+            i = child;
+        }
+
+        heap[i] = he;
+        hHeapIndex[he] = i;
+    }
+
+    /**
+     * Same order as in {@link IndexedHalfedgeHeap}.
+     *
+     * @return {@code True} if event of he0 goes before event of he1.
+     */
+    private boolean heapLess(int he0, int he1) {
+        int cmp = compareEvents(he0, he1);
+
+        if (cmp != 0)
+            return cmp < 0;
+
+        return hStamp[he0] > hStamp[he1];
+    }
+
+    /**
+     * Pushes halfedge's pending event as a lazy heap record.
+     *
+     * @param he Halfedge.
+     */
+    private void recordPush(int he) {
+        if (recordCount == rHalfedge.length) {
+            int cap = recordCount * 2;
+            rYStar = Arrays.copyOf(rYStar, cap);
+            rError = Arrays.copyOf(rError, cap);
+            rLeft = Arrays.copyOf(rLeft, cap);
+            rMiddle = Arrays.copyOf(rMiddle, cap);
+            rRight = Arrays.copyOf(rRight, cap);
+            rHalfedge = Arrays.copyOf(rHalfedge, cap);
+            rGeneration = Arrays.copyOf(rGeneration, cap);
+            rStamp = Arrays.copyOf(rStamp, cap);
+        }
+
+        int i = recordCount++;
+        double y = hYStar[he], err = hEventError[he];
+        int left = hEventLeft[he], middle = hEventMiddle[he], right = hEventRight[he];
+        long stamp = nextStamp++;
+
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+
+            if (!recordLess(y, err, left, middle, right, stamp, parent))
+                break;
+
+            recordMove(parent, i);
+            i = parent;
+        }
+
+        recordSet(i, y, err, left, middle, right, he, hGeneration[he], stamp);
+    }
+
+    /**
+     * Removes top lazy heap record.
+     */
+    private void recordRemoveTop() {
+        recordCount--;
+
+        if (recordCount == 0)
+            return;
+
+        int last = recordCount;
+        double y = rYStar[last], err = rError[last];
+        int left = rLeft[last], middle = rMiddle[last], right = rRight[last];
+        int he = rHalfedge[last], gen = rGeneration[last];
+        long stamp = rStamp[last];
+        int half = recordCount >>> 1;
+        int i = 0;
+
+        while (i < half) {
+            int child = 2 * i + 1;
+            int sibling = child + 1;
+
+            if (sibling < recordCount && recordLess(rYStar[sibling], rError[sibling], rLeft[sibling],
+                rMiddle[sibling], rRight[sibling], rStamp[sibling], child))
+                child = sibling;
+
+            if (recordLess(y, err, left, middle, right, stamp, child))
+                break;
+
+            recordMove(child, i);
+            i = child;
+        }
+
+        recordSet(i, y, err, left, middle, right, he, gen, stamp);
+    }
+
+    /**
+     * Fills lazy heap record.
+     */
+    private void recordSet(int i, double y, double err, int left, int middle, int right, int he, int gen,
+        long stamp) {
+        rYStar[i] = y;
+        rError[i] = err;
+        rLeft[i] = left;
+        rMiddle[i] = middle;
+        rRight[i] = right;
+        rHalfedge[i] = he;
+        rGeneration[i] = gen;
+        rStamp[i] = stamp;
+    }
+
+    /**
+     * @param from Source slot.
+     * @param to Target slot.
+     */
+    private void recordMove(int from, int to) {
+        rYStar[to] = rYStar[from];
+        rError[to] = rError[from];
+        rLeft[to] = rLeft[from];
+        rMiddle[to] = rMiddle[from];
+        rRight[to] = rRight[from];
+        rHalfedge[to] = rHalfedge[from];
+        rGeneration[to] = rGeneration[from];
+        rStamp[to] = rStamp[from];
+    }
+
+    /**
+     * @return {@code True} if event (y, err, left, middle, right, stamp) goes before the record in the slot.
+     */
+    private boolean recordLess(double y, double err, int left, int middle, int right, long stamp, int slot) {
+        int cmp = CircleEvent.filter(y, err, rYStar[slot], rError[slot]);
+
+        if (cmp == 0)
+            cmp = compareEvents(left, middle, right, rLeft[slot], rMiddle[slot], rRight[slot]);
+
+        if (cmp != 0)
+            return cmp < 0;
+
+        return stamp > rStamp[slot];
+    }
+}
@@ -0,0 +1,70 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+/**
+ * Counters of beach line lookups made during one build, to compare {@link VoronoiOptions.BeachLine} structures.
+ */
+public final class BeachLineStats {
+
+    /** Lookups of the halfedge to the left of a new site. */
+    long lookups;
+
+    /** Hash buckets looked at, including empty and stale ones. */
+    long probes;
+
+    /** Halfedges tested with {@link Halfedge#isLeftOf}. */
+    long walkSteps;
+
+    /** Longest walk of a single lookup. */
+    long maxWalk;
+
+    /**
+     * @param steps Halfedges tested by a lookup.
+     */
+    void walk(long steps) {
+        walkSteps += steps;
+
+        if (steps > maxWalk)
+            maxWalk = steps;
+    }
+
+    /**
+     * @return Lookups of the halfedge to the left of a new site.
+     */
+    public long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * @return Hash buckets looked at, including empty and stale ones. Always 0 for a tree.
+     */
+    public long getProbes() {
+        return probes;
+    }
+
+    /**
+     * @return Halfedges tested against a new site: walk along the list or path from the root of the tree.
+     */
+    public long getWalkSteps() {
+        return walkSteps;
+    }
+
+    /**
+     * @return Longest walk of a single lookup.
+     */
+    public long getMaxWalk() {
+        return maxWalk;
+    }
+
+    /**
+     * @return Average walk of a lookup.
+     */
+    public double averageWalk() {
+        return lookups == 0 ? 0 : (double) walkSteps / lookups;
+    }
+
+    /** {@inheritDoc} */
+    @Override public String toString() {
+        return "BeachLineStats [lookups=" + lookups + ", probes=" + probes + ", walkSteps=" + walkSteps +
+            ", maxWalk=" + maxWalk + ", averageWalk=" + averageWalk() + ']';
+    }
+}
@@ -0,0 +1,539 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Circle events of Fortune's sweep. The event of counterclockwise sites a, b, c fires when the sweep line
+ * reaches the top of their circle, so events go in the order of the y of the top (the priority, y in V*),
+ * then of the x of the center, and a site goes before an event if it is below the top, or on its level and
+ * left of the center.
+ * <p>
+ * The priority is computed in doubles together with a bound of its rounding error. Events, or a site and
+ * an event, whose priorities are further apart than the sum of the bounds are ordered by the doubles,
+ * the rest are compared exactly on their sites. For nearly collinear sites the center is far away and
+ * the priority is the difference of two large numbers, so it is computed from the exact determinant
+ * of the sites and with no cancellation. Then the bound is a few ulps as well, and the exact comparison
+ * is left to events on one level, which are common only in lattices.
+ * <p>
+ * Exact comparisons scale coordinates of all points by a power of two, so that they are integers, as small
+ * as it allows, and square the radicals away.
+ */
+final class CircleEvent {
+    /** Slots of the array filled by {@link #compute}: vertex x and y, priority and its error bound. */
+    static final int X = 0, Y = 1, PRIORITY = 2, ERROR = 3;
+
+    /** Size of the array filled by {@link #compute}. */
+    static final int SIZE = 4;
+
+    /** Machine epsilon, half of an ulp of 1. */
+    private static final double EPSILON = Math.ulp(1.0) / 2;
+
+    /** Relative error bound of the determinant of the sites, the one of orientation test. */
+    private static final double ORIENT_BOUND = (3 + 16 * EPSILON) * EPSILON;
+
+    /** Relative error bound of the numerators of the center. */
+    private static final double CENTER_BOUND = (8 + 64 * EPSILON) * EPSILON;
+
+    /** Largest relative error of the determinant which is not recomputed exactly. */
+    private static final double EXACT_THRESHOLD = 0x1p-26;
+
+    /** Scaled coordinates below it are compared in longs first, their differences can't overflow. */
+    private static final double LONG_LIMIT = 0x1p61;
+
+    /** First order error bounds are doubled to cover the higher order terms. */
+    private static final double ERROR_SCALE = 2;
+
+    /**
+     * Utility class.
+     */
+    private CircleEvent() {
+        // No-op.
+    }
+
+    /**
+     * Computes the event of three counterclockwise sites. If the center is too far for doubles,
+     * all values are {@code NaN} and the bound is infinite, so the event is ordered exactly.
+     *
+     * @param out Receives vertex x and y and, if it has {@link #SIZE} slots, the priority and its error bound,
+     * see {@link #X} and others.
+     */
+    static void compute(double ax, double ay, double bx, double by, double cx, double cy, double[] out) {
+        double bdx = bx - ax, bdy = by - ay;
+        double cdx = cx - ax, cdy = cy - ay;
+
+        double b2 = bdx * bdx + bdy * bdy;
+        double c2 = cdx * cdx + cdy * cdy;
+
+        double left = bdx * cdy, right = bdy * cdx;
+        double cyb2 = cdy * b2, byc2 = bdy * c2;
+        double bxc2 = bdx * c2, cxb2 = cdx * b2;
+
+        double d = left - right;
+        double ux = cyb2 - byc2;
+        double uy = bxc2 - cxb2;
+
+        double dErr = ORIENT_BOUND * (Math.abs(left) + Math.abs(right));
+        double uxErr = CENTER_BOUND * (Math.abs(cyb2) + Math.abs(byc2));
+        double uyErr = CENTER_BOUND * (Math.abs(bxc2) + Math.abs(cxb2));
+
+        if (!(dErr <= EXACT_THRESHOLD * d)) {
+            // nearly collinear sites, the determinant is mostly rounding error: round exact values once
+            BigDecimal ebdx = exact(bx).subtract(exact(ax)), ebdy = exact(by).subtract(exact(ay));
+            BigDecimal ecdx = exact(cx).subtract(exact(ax)), ecdy = exact(cy).subtract(exact(ay));
+            BigDecimal eb2 = ebdx.multiply(ebdx).add(ebdy.multiply(ebdy));
+            BigDecimal ec2 = ecdx.multiply(ecdx).add(ecdy.multiply(ecdy));
+
+            d = ebdx.multiply(ecdy).subtract(ebdy.multiply(ecdx)).doubleValue();
+            ux = ecdy.multiply(eb2).subtract(ebdy.multiply(ec2)).doubleValue();
+            uy = ebdx.multiply(ec2).subtract(ecdx.multiply(eb2)).doubleValue();
+
+            dErr = EPSILON * Math.abs(d) + Double.MIN_VALUE;
+            uxErr = EPSILON * Math.abs(ux) + Double.MIN_VALUE;
+            uyErr = EPSILON * Math.abs(uy) + Double.MIN_VALUE;
+        }
+
+        // center is a + (ux, uy) / d2, radius is s / d2
+        double d2 = 2 * d, d2Err = 2 * dErr;
+        double s = Math.sqrt(ux * ux + uy * uy);
+        double sErr = uxErr + uyErr + 2 * EPSILON * s;
+
+        // n = uy + s, with no cancellation when the center is below a
+        double n, nErr;
+
+        if (uy >= 0) {
+            n = uy + s;
+            nErr = uyErr + sErr + EPSILON * n;
+        }
+        else {
+            double den = s - uy;
+            double denErr = sErr + uyErr + EPSILON * den;
+            double numErr = uxErr * (2 * Math.abs(ux) + uxErr) + EPSILON * ux * ux;
+
+            n = ux * ux / den;
+            nErr = den > denErr ? (numErr + n * denErr) / (den - denErr) + EPSILON * n : Double.POSITIVE_INFINITY;
+        }
+
+        double top = n / d2;
+        double topErr = d2 > d2Err ? (nErr + Math.abs(top) * d2Err) / (d2 - d2Err) + EPSILON * Math.abs(top)
+            : Double.POSITIVE_INFINITY;
+
+        double x = ax + ux / d2;
+        double y = ay + uy / d2;
+        double priority = ay + top;
+        double err = ERROR_SCALE * (topErr + EPSILON * Math.abs(priority));
+
+        if (!Double.isFinite(x) || !Double.isFinite(y) || !Double.isFinite(priority)) {
+            x = Double.NaN;
+            y = Double.NaN;
+            priority = Double.NaN;
+            err = Double.POSITIVE_INFINITY;
+        }
+
+        out[X] = x;
+        out[Y] = y;
+
+        if (out.length >= SIZE) {
+            out[PRIORITY] = priority;
+            out[ERROR] = err;
+        }
+    }
+
+    /**
+     * Orders two priorities if their error bounds allow. A site has exact priority, its y.
+     *
+     * @return Negative if the first priority is smaller, positive if it is greater, zero if exact comparison
+     * is needed.
+     */
+    static int filter(double priority0, double error0, double priority1, double error1) {
+        double diff = priority0 - priority1;
+        double err = error0 + error1;
+
+        if (diff > err)
+            return 1;
+
+        if (diff < -err)
+            return -1;
+
+        return 0;
+    }
+
+    /**
+     * @param he0 Halfedge with pending event.
+     * @param he1 Halfedge with pending event.
+     * @return Negative if the event of he0 goes first, positive if the one of he1 does, zero if they are at
+     * one point.
+     */
+    static int compare(Halfedge he0, Halfedge he1) {
+        int cmp = filter(he0.ystar, he0.eventError, he1.ystar, he1.eventError);
+
+        if (cmp != 0)
+            return cmp;
+
+        return compare(he0.eventLeft, he0.eventMiddle, he0.eventRight, he1.eventLeft, he1.eventMiddle,
+            he1.eventRight);
+    }
+
+    /**
+     * Exact order of the events of two triples of sites.
+     *
+     * @return Negative if the event of the first triple goes first, positive if the one of the second does,
+     * zero if they are at one point.
+     */
+    static int compare(Site a0, Site b0, Site c0, Site a1, Site b1, Site c1) {
+        return compare(a0.getX(), a0.getY(), b0.getX(), b0.getY(), c0.getX(), c0.getY(),
+            a1.getX(), a1.getY(), b1.getX(), b1.getY(), c1.getX(), c1.getY());
+    }
+
+    /**
+     * @param site Site.
+     * @param he Halfedge with pending event.
+     * @return Negative if the site goes before the event, positive if after it, zero if the site is at the top
+     * of the circle.
+     */
+    static int compare(Site site, Halfedge he) {
+        int cmp = filter(site.getY(), 0, he.ystar, he.eventError);
+
+        if (cmp != 0)
+            return cmp;
+
+        Site a = he.eventLeft, b = he.eventMiddle, c = he.eventRight;
+
+        return compareSite(site.getX(), site.getY(), a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY());
+    }
+
+    /**
+     * Exact order of the events of two counterclockwise triples of points.
+     *
+     * @return Negative if the event of the first triple goes first, positive if the one of the second does,
+     * zero if they are at one point.
+     */
+    static int compare(double ax0, double ay0, double bx0, double by0, double cx0, double cy0,
+        double ax1, double ay1, double bx1, double by1, double cx1, double cy1) {
+        // a translated triple, the common tie of lattices, is as far as its first point
+        if (translated(ax0, ay0, bx0, by0, cx0, cy0, ax1, ay1, bx1, by1, cx1, cy1))
+            return ay0 != ay1 ? Double.compare(ay0, ay1) : Double.compare(ax0, ax1);
+
+        if (translated(ax0, ay0, bx0, by0, cx0, cy0, bx1, by1, cx1, cy1, ax1, ay1))
+            return ay0 != by1 ? Double.compare(ay0, by1) : Double.compare(ax0, bx1);
+
+        if (translated(ax0, ay0, bx0, by0, cx0, cy0, cx1, cy1, ax1, ay1, bx1, by1))
+            return ay0 != cy1 ? Double.compare(ay0, cy1) : Double.compare(ax0, cx1);
+
+        long[] l = longs(ax0, ay0, bx0, by0, cx0, cy0, ax1, ay1, bx1, by1, cx1, cy1);
+
+        if (l != null) {
+            try {
+                long[] e0 = circle(l, 0), e1 = circle(l, 6);
+
+                long d0 = e0[0], d1 = e1[0];
+                long d01 = Math.multiplyExact(d0, d1);
+
+                long rational = Math.subtractExact(Math.addExact(Math.multiplyExact(l[1] - l[7], d01),
+                    Math.multiplyExact(e0[2], d1)), Math.multiplyExact(e1[2], d0));
+                int cmp = signOfSum(rational, Math.multiplyExact(Math.multiplyExact(d1, d1), e0[3]),
+                    Math.multiplyExact(Math.multiplyExact(d0, d0), e1[3]));
+
+                if (cmp != 0)
+                    return cmp;
+
+                return Long.signum(Math.subtractExact(Math.addExact(Math.multiplyExact(l[0] - l[6], d01),
+                    Math.multiplyExact(e0[1], d1)), Math.multiplyExact(e1[1], d0)));
+            }
+            catch (ArithmeticException ignored) {
+                // too large for longs
+            }
+        }
+
+        BigInteger[] p = integers(ax0, ay0, bx0, by0, cx0, cy0, ax1, ay1, bx1, by1, cx1, cy1);
+        BigInteger[] e0 = circle(p, 0), e1 = circle(p, 6);
+
+        BigInteger d0 = e0[0], d1 = e1[0];
+        BigInteger d01 = d0.multiply(d1);
+
+        // Y0 - Y1 = ((ay0 - ay1) d0 d1 + uy0 d1 - uy1 d0 + d1 sqrt(s0) - d0 sqrt(s1)) / (d0 d1)
+        BigInteger rational = p[1].subtract(p[7]).multiply(d01).add(e0[2].multiply(d1)).subtract(e1[2].multiply(d0));
+        int cmp = signOfSum(rational, d1.multiply(d1).multiply(e0[3]), d0.multiply(d0).multiply(e1[3]));
+
+        if (cmp != 0)
+            return cmp;
+
+        return p[0].subtract(p[6]).multiply(d01).add(e0[1].multiply(d1)).subtract(e1[1].multiply(d0)).signum();
+    }
+
+    /**
+     * @return Whether the second triple is the first one moved by a vector, exactly.
+     */
+    private static boolean translated(double ax0, double ay0, double bx0, double by0, double cx0, double cy0,
+        double ax1, double ay1, double bx1, double by1, double cx1, double cy1) {
+        return sameDifference(bx0, ax0, bx1, ax1) && sameDifference(by0, ay0, by1, ay1)
+            && sameDifference(cx0, ax0, cx1, ax1) && sameDifference(cy0, ay0, cy1, ay1);
+    }
+
+    /**
+     * Compares {@code x0 + y1} and {@code x1 + y0} as sums rounded to nearest and their exact errors,
+     * which together are determined by the exact sum.
+     *
+     * @return Whether {@code x0 - y0 == x1 - y1} exactly.
+     */
+    private static boolean sameDifference(double x0, double y0, double x1, double y1) {
+        double s0 = x0 + y1, s1 = x1 + y0;
+
+        if (s0 != s1)
+            return false;
+
+        // errors of the sums, by two sum
+        double v0 = s0 - x0, v1 = s1 - x1;
+
+        return (x0 - (s0 - v0)) + (y1 - v0) == (x1 - (s1 - v1)) + (y0 - v1);
+    }
+
+    /**
+     * Exact order of a point and the event of a counterclockwise triple.
+     *
+     * @return Negative if the point goes before the event, positive if after it, zero if it is at the top
+     * of the circle.
+     */
+    static int compareSite(double px, double py, double ax, double ay, double bx, double by, double cx, double cy) {
+        BigInteger[] p = integers(ax, ay, bx, by, cx, cy, px, py);
+        BigInteger[] e = circle(p, 0);
+
+        int cmp = signOfLevel(p[7], p[1], e);
+
+        if (cmp != 0)
+            return cmp;
+
+        // px - X = ((px - ax) d - ux) / d
+        return p[6].subtract(p[0]).multiply(e[0]).subtract(e[1]).signum();
+    }
+
+    /**
+     * Exact test of a level against the priority of the event of a counterclockwise triple.
+     *
+     * @param y Level.
+     * @return Negative if the level is below the top of the circle, positive if above it, zero if the top
+     * is on the level.
+     */
+    static int compareLevel(double y, double ax, double ay, double bx, double by, double cx, double cy) {
+        BigInteger[] p = integers(ax, ay, bx, by, cx, cy, 0, y);
+
+        return signOfLevel(p[7], p[1], circle(p, 0));
+    }
+
+    /**
+     * @param y Scaled level.
+     * @param ay Scaled y of the first point of the triple.
+     * @param e Circle of the triple, see {@link #circle}.
+     * @return Sign of the level minus the priority.
+     */
+    private static int signOfLevel(BigInteger y, BigInteger ay, BigInteger[] e) {
+        // y - Y = ((y - ay) d - uy - sqrt(s)) / d
+        BigInteger l = y.subtract(ay).multiply(e[0]).subtract(e[2]);
+
+        if (l.signum() <= 0)
+            return -1;
+
+        return l.multiply(l).compareTo(e[3]);
+    }
+
+    /**
+     * Center of the circle through three scaled points as an offset from the first one:
+     * {@code (ux, uy) / d}, and the square of the radius: {@code s / d^2}.
+     *
+     * @param p Scaled coordinates.
+     * @param from Slot of x of the first point.
+     * @return {@code d}, {@code ux}, {@code uy}, {@code s}, with positive {@code d}.
+     */
+    private static long[] circle(long[] p, int from) {
+        long bdx = p[from + 2] - p[from], bdy = p[from + 3] - p[from + 1];
+        long cdx = p[from + 4] - p[from], cdy = p[from + 5] - p[from + 1];
+
+        long b2 = Math.addExact(Math.multiplyExact(bdx, bdx), Math.multiplyExact(bdy, bdy));
+        long c2 = Math.addExact(Math.multiplyExact(cdx, cdx), Math.multiplyExact(cdy, cdy));
+
+        long d = Math.multiplyExact(Math.subtractExact(Math.multiplyExact(bdx, cdy), Math.multiplyExact(bdy, cdx)), 2);
+        long ux = Math.subtractExact(Math.multiplyExact(cdy, b2), Math.multiplyExact(bdy, c2));
+        long uy = Math.subtractExact(Math.multiplyExact(bdx, c2), Math.multiplyExact(cdx, b2));
+
+        if (d < 0) {
+            d = -d;
+            ux = -ux;
+            uy = -uy;
+        }
+
+        return new long[] {d, ux, uy, Math.addExact(Math.multiplyExact(ux, ux), Math.multiplyExact(uy, uy))};
+    }
+
+    /**
+     * Center of the circle through three scaled points, see {@link #circle(long[], int)}.
+     */
+    private static BigInteger[] circle(BigInteger[] p, int from) {
+        BigInteger bdx = p[from + 2].subtract(p[from]), bdy = p[from + 3].subtract(p[from + 1]);
+        BigInteger cdx = p[from + 4].subtract(p[from]), cdy = p[from + 5].subtract(p[from + 1]);
+
+        BigInteger b2 = bdx.multiply(bdx).add(bdy.multiply(bdy));
+        BigInteger c2 = cdx.multiply(cdx).add(cdy.multiply(cdy));
+
+        BigInteger d = bdx.multiply(cdy).subtract(bdy.multiply(cdx)).shiftLeft(1);
+        BigInteger ux = cdy.multiply(b2).subtract(bdy.multiply(c2));
+        BigInteger uy = bdx.multiply(c2).subtract(cdx.multiply(b2));
+
+        if (d.signum() < 0) {
+            d = d.negate();
+            ux = ux.negate();
+            uy = uy.negate();
+        }
+
+        return new BigInteger[] {d, ux, uy, ux.multiply(ux).add(uy.multiply(uy))};
+    }
+
+    /**
+     * @param x Rational term.
+     * @param p Non negative radicand.
+     * @param q Non negative radicand.
+     * @return Sign of {@code x + sqrt(p) - sqrt(q)}.
+     * @throws ArithmeticException If it overflows.
+     */
+    private static int signOfSum(long x, long p, long q) {
+        if (p == q)
+            return Long.signum(x);
+
+        int first = x >= 0 ? (x > 0 || p > 0 ? 1 : 0) : Long.compare(p, Math.multiplyExact(x, x));
+
+        if (first < 0)
+            return -1;
+
+        if (first == 0)
+            return -Long.signum(q);
+
+        long r = Math.subtractExact(Math.addExact(Math.multiplyExact(x, x), p), q);
+        long t = p > 0 ? Math.multiplyExact(x, 2) : 0;
+
+        int sr = Long.signum(r), st = Long.signum(t);
+
+        if (st == 0 || sr == st)
+            return sr;
+
+        if (sr == 0)
+            return st;
+
+        int cmp = Long.compare(Math.multiplyExact(r, r), Math.multiplyExact(Math.multiplyExact(t, t), p));
+
+        return sr > 0 ? cmp : -cmp;
+    }
+
+    /**
+     * @param x Rational term.
+     * @param p Non negative radicand.
+     * @param q Non negative radicand.
+     * @return Sign of {@code x + sqrt(p) - sqrt(q)}.
+     */
+    private static int signOfSum(BigInteger x, BigInteger p, BigInteger q) {
+        // circles of one size, the common case of lattices
+        if (p.equals(q))
+            return x.signum();
+
+        // sign of x + sqrt(p)
+        int first = x.signum() >= 0 ? (x.signum() > 0 || p.signum() > 0 ? 1 : 0) : p.compareTo(x.multiply(x));
+
+        if (first < 0)
+            return -1;
+
+        if (first == 0)
+            return -q.signum();
+
+        // both sides are non negative: compare (x + sqrt(p))^2 = x^2 + p + 2x sqrt(p) with q
+        BigInteger r = x.multiply(x).add(p).subtract(q);
+        BigInteger t = p.signum() > 0 ? x.shiftLeft(1) : BigInteger.ZERO;
+
+        int sr = r.signum(), st = t.signum();
+
+        if (st == 0 || sr == st)
+            return sr;
+
+        if (sr == 0)
+            return st;
+
+        // r + t sqrt(p) with terms of opposite signs
+        int cmp = r.multiply(r).compareTo(t.multiply(t).multiply(p));
+
+        return sr > 0 ? cmp : -cmp;
+    }
+
+    /**
+     * Scales coordinates by a common power of two, so that all of them are integers.
+     *
+     * @param coords Finite coordinates.
+     * @return Scaled coordinates.
+     */
+    private static BigInteger[] integers(double... coords) {
+        int low = Integer.MAX_VALUE;
+
+        for (double v : coords) {
+            if (v != 0)
+                low = Math.min(low, lowExponent(v));
+        }
+
+        BigInteger[] res = new BigInteger[coords.length];
+
+        for (int i = 0; i < coords.length; i++) {
+            double v = coords[i];
+
+            if (v == 0)
+                res[i] = BigInteger.ZERO;
+            else {
+                int e = lowExponent(v);
+
+                res[i] = BigInteger.valueOf((long) Math.scalb(v, -e)).shiftLeft(e - low);
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * Scales coordinates like {@link #integers}, if they stay small enough for longs.
+     *
+     * @param coords Finite coordinates.
+     * @return Scaled coordinates, below {@link #LONG_LIMIT} in magnitude, or {@code null}.
+     */
+    private static long[] longs(double... coords) {
+        int low = Integer.MAX_VALUE;
+
+        for (double v : coords) {
+            if (v != 0)
+                low = Math.min(low, lowExponent(v));
+        }
+
+        long[] res = new long[coords.length];
+
+        for (int i = 0; i < coords.length; i++) {
+            double v = Math.scalb(coords[i], -low);
+
+            if (!(Math.abs(v) < LONG_LIMIT))
+                return null;
+
+            res[i] = (long) v;
+        }
+
+        return res;
+    }
+
+    /**
+     * @param v Non zero finite value.
+     * @return Exponent of the lowest set mantissa bit: {@code v} is an odd integer times two to it.
+     */
+    private static int lowExponent(double v) {
+        int e = Math.max(Math.getExponent(v), Double.MIN_EXPONENT) - 52;
+
+        return e + Long.numberOfTrailingZeros((long) Math.scalb(v, -e));
+    }
+
+    /**
+     * @param v Value.
+     * @return Exact decimal value of the double.
+     */
+    private static BigDecimal exact(double v) {
+        return new BigDecimal(v);
+    }
+}
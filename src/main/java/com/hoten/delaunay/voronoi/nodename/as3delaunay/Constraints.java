@@ -0,0 +1,654 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.GenUtils;
+import com.hoten.delaunay.geom.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Polylines, such as coastlines and rivers, which the diagram follows exactly, see
+ * {@link VoronoiOptions#constraints(Constraints)}.
+ * <p>
+ * Polylines are resampled, so every piece is from half the spacing to the spacing long, and every vertex gets
+ * a protected ball of {@code 3/4} of the spacing in radius. Balls of the two ends of a piece cross in two points
+ * mirrored over the piece, and both points become sites. Their bisector is the line of the piece, so
+ * the Delaunay edge between them is dual to a Voronoi edge lying on the piece. The four sites around a vertex
+ * lie on its ball, so the Voronoi vertex of their cells is the polyline vertex itself. Cells on the two sides
+ * of a polyline meet along it: a coastline is a chain of Voronoi edges between cells of the land side and
+ * of the water side, whatever the density of the other sites is.
+ * <p>
+ * Input sites inside a ball would break this, so they are merged into the nearest constraint site. A point
+ * met more than once, such as the mouth of a river which ends at a vertex of a coastline, is a junction:
+ * resampling keeps it and its pieces share one ball. Otherwise polylines should be farther than the spacing
+ * from each other. A piece is protected while its sites are outside all other balls, which a turn or a junction
+ * of less than {@code 120} degrees breaks. Balls shrink there: arms of such a corner are cut into pieces of exactly
+ * the spacing out to twice the spacing over the sine of the angle, and balls on this run get {@code k} times
+ * the longer adjacent piece in radius, with {@code k} halfway between {@code 1/2}, where balls stop crossing,
+ * and {@code 1/(2 cos(angle / 2))}, where sites of the two arms fall into each other's balls. Only when the arms
+ * are too short for the run, or the angle is below a degree, sites falling into another ball are dropped and
+ * the corner is rounded. A polyline whose last point is its first one is closed.
+ */
+public final class Constraints {
+    /** Radius of a ball in spacings. */
+    private static final double RADIUS = 0.75;
+
+    /** Run of equal pieces at a sharp corner, in spacings over the sine of its angle. */
+    private static final double RUN = 2;
+
+    /** Smallest corner angle whose balls shrink, sharper corners are rounded. */
+    private static final double MIN_TURN = Math.toRadians(1);
+
+    /** Relative tolerance of the ball radius: sites on a ball are not inside it. */
+    private static final double TOLERANCE = 1e-9;
+
+    /** Max cell count along one axis of the ball lookup grid. */
+    private static final double MAX_CELL = 1 << 30;
+
+    /** Resampled polylines. */
+    private final List<List<Point>> polylines;
+
+    /** Max piece length. */
+    private final double spacing;
+
+    /** Largest ball radius. */
+    private final double radius;
+
+    /** Ball centers: resampled vertices of all polylines. */
+    private final double[] bx, by;
+
+    /** Ball radii. */
+    private final double[] br;
+
+    /** Constraint site coordinates. */
+    private final double[] sx, sy;
+
+    /** Start of the sites of each ball in {@link #ballSites}, and their end at the next ball. */
+    private final int[] ballStart;
+
+    /** Constraint sites on the balls. */
+    private final int[] ballSites;
+
+    /** Origin and cell size of the ball lookup grid. */
+    private final double xmin, ymin, xmax, ymax, cell;
+
+    /** Sorted cell keys of the balls. */
+    private final long[] keys;
+
+    /** Ball of each sorted key. */
+    private final int[] balls;
+
+    /**
+     * @param polylines Polylines, each one of at least 2 points.
+     * @param spacing Max piece length, the density of constraint sites along the polylines.
+     * @throws IllegalArgumentException If spacing is not positive or a polyline has fewer than 2 points.
+     */
+    public Constraints(List<List<Point>> polylines, double spacing) {
+        if (!(spacing > 0) || Double.isInfinite(spacing))
+            throw new IllegalArgumentException("Spacing must be a positive number: " + spacing);
+
+        this.spacing = spacing;
+
+        radius = RADIUS * spacing;
+
+        List<Point> input = new ArrayList<>();
+
+        for (List<Point> polyline : polylines) {
+            if (polyline.size() < 2)
+                throw new IllegalArgumentException("Polyline must have at least 2 points: " + polyline.size());
+
+            input.addAll(polyline);
+        }
+
+        // a point met more than once is a junction, e.g. the mouth of a river on a coastline
+        int[] inputBall = unique(input);
+        int[] uses = new int[input.size()];
+
+        for (int b : inputBall)
+            uses[b]++;
+
+        List<List<Point>> kept = new ArrayList<>(polylines.size());
+        List<Point> corners = new ArrayList<>();
+        int from = 0;
+
+        for (List<Point> polyline : polylines) {
+            boolean[] junction = new boolean[polyline.size()];
+
+            for (int i = 0; i < polyline.size(); i++)
+                junction[i] = uses[inputBall[from + i]] > 1;
+
+            List<Point> k = keep(polyline, junction, spacing);
+
+            kept.add(k);
+            corners.addAll(k);
+
+            from += polyline.size();
+        }
+
+        // arms of all polylines meeting at a point make its corner
+        int[] cornerOf = unique(corners);
+        double[] turn = turns(kept, cornerOf);
+
+        List<List<Point>> resampled = new ArrayList<>(polylines.size());
+        List<Point> vertices = new ArrayList<>();
+        double[] shrunk = new double[0];
+
+        from = 0;
+
+        for (List<Point> k : kept) {
+            double[] angles = new double[k.size()];
+
+            for (int i = 0; i < k.size(); i++)
+                angles[i] = turn[cornerOf[from + i]];
+
+            List<Point> r = new ArrayList<>();
+            double[] s = resample(k, angles, spacing, r);
+
+            shrunk = Arrays.copyOf(shrunk, vertices.size() + r.size());
+            System.arraycopy(s, 0, shrunk, vertices.size(), r.size());
+
+            resampled.add(Collections.unmodifiableList(r));
+            vertices.addAll(r);
+
+            from += k.size();
+        }
+
+        this.polylines = Collections.unmodifiableList(resampled);
+
+        // coincident vertices share a ball, shrunk if any of them is next to a sharp corner
+        int[] ballOf = unique(vertices);
+        int numBalls = 0;
+
+        for (int b : ballOf)
+            numBalls = Math.max(numBalls, b + 1);
+
+        bx = new double[numBalls];
+        by = new double[numBalls];
+        br = new double[numBalls];
+
+        for (int i = 0; i < vertices.size(); i++) {
+            bx[ballOf[i]] = vertices.get(i).x;
+            by[ballOf[i]] = vertices.get(i).y;
+            br[ballOf[i]] = Math.max(br[ballOf[i]], shrunk[i]);
+        }
+
+        for (int i = 0; i < numBalls; i++) {
+            if (br[i] == 0)
+                br[i] = radius;
+        }
+
+        double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+
+        for (int i = 0; i < numBalls; i++) {
+            x0 = Math.min(x0, bx[i]);
+            y0 = Math.min(y0, by[i]);
+            x1 = Math.max(x1, bx[i]);
+            y1 = Math.max(y1, by[i]);
+        }
+
+        xmin = x0;
+        ymin = y0;
+        xmax = x1;
+        ymax = y1;
+
+        // cells may be larger than the radius on huge extents, then a cell just holds more balls
+        cell = Math.max(radius, Math.max(xmax - xmin, ymax - ymin) / MAX_CELL);
+
+        long[] cellKeys = new long[numBalls];
+
+        for (int i = 0; i < numBalls; i++)
+            cellKeys[i] = SiteMerger.morton((int) ((bx[i] - xmin) / cell), (int) ((by[i] - ymin) / cell));
+
+        balls = CoordinateSort.sortByKey(cellKeys.clone());
+        keys = new long[numBalls];
+
+        for (int i = 0; i < numBalls; i++)
+            keys[i] = cellKeys[balls[i]];
+
+        double[] xs = new double[2 * vertices.size()];
+        double[] ys = new double[2 * vertices.size()];
+        int[] onBalls = new int[4 * vertices.size()];
+        int numSites = 0;
+
+        from = 0;
+
+        for (List<Point> r : resampled) {
+            for (int i = from; i + 1 < from + r.size(); i++) {
+                int a = ballOf[i], b = ballOf[i + 1];
+                double dx = bx[b] - bx[a], dy = by[b] - by[a];
+                double len = Math.hypot(dx, dy);
+
+                if (a == b)
+                    continue;
+
+                // foot and offset of the crossing points of the balls on the piece
+                double h, mx, my;
+
+                if (br[a] == br[b]) {
+                    h = Math.sqrt(br[a] * br[a] - len * len / 4);
+                    mx = (bx[a] + bx[b]) / 2;
+                    my = (by[a] + by[b]) / 2;
+                }
+                else {
+                    double t = (len * len + br[a] * br[a] - br[b] * br[b]) / (2 * len);
+
+                    h = Math.sqrt(br[a] * br[a] - t * t);
+                    mx = bx[a] + t * dx / len;
+                    my = by[a] + t * dy / len;
+                }
+
+                if (!(h > 0))
+                    continue;
+
+                for (int side = -1; side <= 1; side += 2) {
+                    double x = mx - side * h * dy / len;
+                    double y = my + side * h * dx / len;
+
+                    if (insideOther(x, y, a, b))
+                        continue;
+
+                    xs[numSites] = x;
+                    ys[numSites] = y;
+                    onBalls[2 * numSites] = a;
+                    onBalls[2 * numSites + 1] = b;
+                    numSites++;
+                }
+            }
+
+            from += r.size();
+        }
+
+        sx = Arrays.copyOf(xs, numSites);
+        sy = Arrays.copyOf(ys, numSites);
+
+        // sites of each ball as runs
+        ballStart = new int[numBalls + 1];
+        ballSites = new int[2 * numSites];
+
+        for (int i = 0; i < 2 * numSites; i++)
+            ballStart[onBalls[i] + 1]++;
+
+        for (int b = 0; b < numBalls; b++)
+            ballStart[b + 1] += ballStart[b];
+
+        int[] fill = Arrays.copyOf(ballStart, numBalls);
+
+        for (int i = 0; i < 2 * numSites; i++)
+            ballSites[fill[onBalls[i]]++] = i / 2;
+    }
+
+    /**
+     * @param points Points.
+     * @return Id of each point, equal for points at the same position, from {@code 0} without gaps.
+     */
+    private static int[] unique(List<Point> points) {
+        int n = points.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            xs[i] = points.get(i).x;
+            ys[i] = points.get(i).y;
+        }
+
+        int[] perm = CoordinateSort.sortByYThenX(xs, ys);
+        int[] res = new int[n];
+        int ids = 0;
+
+        for (int i = 0; i < n; i++) {
+            int p = perm[i], q = i > 0 ? perm[i - 1] : -1;
+
+            res[p] = q >= 0 && xs[p] == xs[q] && ys[p] == ys[q] ? res[q] : ids++;
+        }
+
+        return res;
+    }
+
+    /**
+     * @param polyline Polyline.
+     * @param junction {@code True} for vertices which must be kept.
+     * @param spacing Max piece length.
+     * @return Polyline without vertices closer than half the spacing to the kept ones.
+     */
+    private static List<Point> keep(List<Point> polyline, boolean[] junction, double spacing) {
+        int n = polyline.size();
+        List<Point> kept = new ArrayList<>();
+
+        kept.add(polyline.get(0));
+
+        for (int i = 1; i < n - 1; i++) {
+            Point p = polyline.get(i);
+
+            if (!junction[i]) {
+                int next = i + 1;
+
+                while (next < n - 1 && !junction[next])
+                    next++;
+
+                if (GenUtils.distance(p, kept.get(kept.size() - 1)) < spacing / 2
+                    || GenUtils.distance(p, polyline.get(next)) < spacing / 2)
+                    continue;
+            }
+
+            kept.add(p);
+        }
+
+        kept.add(polyline.get(n - 1));
+
+        return kept;
+    }
+
+    /**
+     * @param kept Kept vertices of the polylines.
+     * @param cornerOf Id of each kept vertex, equal for vertices at the same position.
+     * @return Smallest angle between two arms of each corner id, {@code PI} for a corner of one arm.
+     */
+    private static double[] turns(List<List<Point>> kept, int[] cornerOf) {
+        int numCorners = 0;
+
+        for (int c : cornerOf)
+            numCorners = Math.max(numCorners, c + 1);
+
+        // arm directions of each corner as runs
+        int[] armStart = new int[numCorners + 1];
+        int from = 0;
+
+        for (List<Point> k : kept) {
+            for (int i = 0; i < k.size(); i++)
+                armStart[cornerOf[from + i] + 1] += (i > 0 ? 1 : 0) + (i + 1 < k.size() ? 1 : 0);
+
+            from += k.size();
+        }
+
+        for (int c = 0; c < numCorners; c++)
+            armStart[c + 1] += armStart[c];
+
+        double[] arms = new double[armStart[numCorners]];
+        int[] fill = Arrays.copyOf(armStart, numCorners + 1);
+
+        Arrays.fill(arms, Double.NaN);
+
+        from = 0;
+
+        for (List<Point> k : kept) {
+            for (int i = 0; i < k.size(); i++) {
+                Point p = k.get(i);
+                int c = cornerOf[from + i];
+
+                for (int j = i - 1; j <= i + 1; j += 2) {
+                    if (j < 0 || j >= k.size())
+                        continue;
+
+                    Point q = k.get(j);
+
+                    // a zero length arm has no direction
+                    if (q.x != p.x || q.y != p.y)
+                        arms[fill[c]] = Math.atan2(q.y - p.y, q.x - p.x);
+
+                    fill[c]++;
+                }
+            }
+
+            from += k.size();
+        }
+
+        double[] res = new double[numCorners];
+
+        Arrays.fill(res, Math.PI);
+
+        for (int c = 0; c < numCorners; c++) {
+            for (int i = armStart[c]; i < armStart[c + 1]; i++) {
+                for (int j = i + 1; j < armStart[c + 1]; j++) {
+                    double d = Math.abs(arms[i] - arms[j]);
+
+                    if (!Double.isNaN(d))
+                        res[c] = Math.min(res[c], Math.min(d, 2 * Math.PI - d));
+                }
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * @param turn Corner angle.
+     * @return Ball radius at the corner in pieces, {@link #RADIUS} if the corner is not sharp.
+     */
+    private static double shrink(double turn) {
+        if (turn < MIN_TURN)
+            return RADIUS;
+
+        return Math.min(RADIUS, (0.5 + 0.5 / Math.cos(turn / 2)) / 2);
+    }
+
+    /**
+     * @param turn Corner angle.
+     * @param spacing Max piece length.
+     * @return Length of the run of equal pieces on the arms of the corner, {@code 0} if the corner is not sharp.
+     */
+    private static double run(double turn, double spacing) {
+        return shrink(turn) < RADIUS ? RUN * spacing / Math.sin(Math.min(turn, Math.PI / 2)) : 0;
+    }
+
+    /**
+     * @param kept Kept vertices of a polyline.
+     * @param turn Corner angle of each kept vertex.
+     * @param spacing Max piece length.
+     * @param res Polyline with every segment split into pieces from half the spacing to the spacing long,
+     * pieces on the runs of sharp corners are exactly the spacing long.
+     * @return Radius of the ball of each vertex of the result shrunk by a sharp corner, or {@code 0}.
+     */
+    private static double[] resample(List<Point> kept, double[] turn, double spacing, List<Point> res) {
+        // ball radius in adjacent pieces of vertices on the runs of sharp corners
+        double[] factor = new double[1];
+
+        factor[0] = RADIUS;
+
+        res.add(kept.get(0));
+
+        for (int i = 0; i + 1 < kept.size(); i++) {
+            Point a = kept.get(i), b = kept.get(i + 1);
+            double len = GenUtils.distance(a, b);
+            double runA = run(turn[i], spacing), runB = run(turn[i + 1], spacing);
+
+            // pieces of the runs, one more than the run needs
+            int ma = runA > 0 ? (int) Math.ceil(runA / spacing) + 1 : 0;
+            int mb = runB > 0 ? (int) Math.ceil(runB / spacing) + 1 : 0;
+            double rest = len - (ma + mb) * spacing;
+
+            // a segment too short for its runs gets as much of them as fits with half a piece left,
+            // and is on the runs as a whole
+            if (rest < 0) {
+                double fit = Math.max(0, len - spacing / 2) / (runA > 0 && runB > 0 ? 2 : 1);
+
+                ma = runA > 0 ? (int) (fit / spacing) : 0;
+                mb = runB > 0 ? (int) (fit / spacing) : 0;
+                rest = len - (ma + mb) * spacing;
+                runA = runA > 0 ? Double.POSITIVE_INFINITY : 0;
+                runB = runB > 0 ? Double.POSITIVE_INFINITY : 0;
+            }
+            else if (rest > 0 && rest < spacing / 2) {
+                if (ma >= mb)
+                    ma--;
+                else
+                    mb--;
+
+                rest += spacing;
+            }
+
+            int mid = rest > 0 || ma + mb == 0 ? Math.max(1, (int) Math.ceil(rest / spacing)) : 0;
+            int k = ma + mid + mb;
+
+            factor = Arrays.copyOf(factor, res.size() + k);
+
+            for (int j = 0; j <= k; j++) {
+                double t = j <= ma ? j * spacing
+                    : j <= ma + mid ? ma * spacing + rest * (j - ma) / mid
+                    : len - (k - j) * spacing;
+
+                if (j == k)
+                    res.add(b);
+                else if (j > 0 && ma + mb == 0)
+                    res.add(new Point(a.x + (b.x - a.x) * j / k, a.y + (b.y - a.y) * j / k));
+                else if (j > 0)
+                    res.add(new Point(a.x + (b.x - a.x) * t / len, a.y + (b.y - a.y) * t / len));
+
+                double f = j == 0 ? shrink(turn[i]) : j == k ? shrink(turn[i + 1]) : RADIUS;
+
+                if (t < runA)
+                    f = Math.min(f, shrink(turn[i]));
+
+                if (len - t < runB)
+                    f = Math.min(f, shrink(turn[i + 1]));
+
+                int v = res.size() - 1;
+
+                // the kept vertex may be on a run of the previous segment
+                factor[v] = j == 0 ? Math.min(factor[v], f) : f;
+            }
+        }
+
+        // balls on the runs get the factor of the longer adjacent piece
+        double[] radii = new double[res.size()];
+
+        for (int i = 0; i < res.size(); i++) {
+            if (factor[i] == RADIUS)
+                continue;
+
+            double gap = 0;
+
+            if (i > 0)
+                gap = Math.max(gap, GenUtils.distance(res.get(i - 1), res.get(i)));
+
+            if (i + 1 < res.size())
+                gap = Math.max(gap, GenUtils.distance(res.get(i), res.get(i + 1)));
+
+            radii[i] = factor[i] * gap;
+        }
+
+        return radii;
+    }
+
+    /**
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param a Ball to skip.
+     * @param b Another ball to skip.
+     * @return {@code True} if the point is strictly inside a ball other than the two.
+     */
+    private boolean insideOther(double x, double y, int a, int b) {
+        return ball(x, y, a, b, -TOLERANCE) >= 0;
+    }
+
+    /**
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param skip0 Ball to skip or {@code -1}.
+     * @param skip1 Another ball to skip or {@code -1}.
+     * @param tolerance Relative tolerance of the radius, negative to find balls strictly containing the point.
+     * @return Ball containing the point with the least power, the squared distance from its center less its
+     * squared radius, or {@code -1}.
+     */
+    private int ball(double x, double y, int skip0, int skip1, double tolerance) {
+        double r = radius * (1 + Math.abs(tolerance));
+
+        if (keys.length == 0 || x < xmin - r || x > xmax + r || y < ymin - r || y > ymax + r)
+            return -1;
+
+        int cx = (int) Math.floor((x - xmin) / cell), cy = (int) Math.floor((y - ymin) / cell);
+        int best = -1;
+        double min = Double.MAX_VALUE;
+
+        for (int j = cy - 1; j <= cy + 1; j++) {
+            for (int i = cx - 1; i <= cx + 1; i++) {
+                if (i < 0 || j < 0)
+                    continue;
+
+                long key = SiteMerger.morton(i, j);
+                int slot = SiteMerger.firstSlot(keys, key);
+
+                if (slot < 0)
+                    continue;
+
+                for (; slot < keys.length && keys[slot] == key; slot++) {
+                    int ball = balls[slot];
+                    double dx = bx[ball] - x, dy = by[ball] - y;
+                    double d = dx * dx + dy * dy, rr = br[ball] * br[ball];
+
+                    if (ball != skip0 && ball != skip1 && d < rr * (1 + tolerance) && d - rr < min) {
+                        best = ball;
+                        min = d - rr;
+                    }
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * @param x X coordinate of an input site.
+     * @param y Y coordinate of an input site.
+     * @return Constraint site the input site is merged into, or {@code -1} if it is not inside a ball.
+     */
+    int absorb(double x, double y) {
+        int ball = ball(x, y, -1, -1, TOLERANCE);
+
+        if (ball < 0)
+            return -1;
+
+        int best = -1;
+        double min = Double.MAX_VALUE;
+
+        for (int slot = ballStart[ball]; slot < ballStart[ball + 1]; slot++) {
+            int s = ballSites[slot];
+            double dx = sx[s] - x, dy = sy[s] - y;
+            double d = dx * dx + dy * dy;
+
+            if (d < min) {
+                best = s;
+                min = d;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * @return Number of constraint sites.
+     */
+    int numSites() {
+        return sx.length;
+    }
+
+    /**
+     * @param s Constraint site.
+     * @return X coordinate.
+     */
+    double siteX(int s) {
+        return sx[s];
+    }
+
+    /**
+     * @param s Constraint site.
+     * @return Y coordinate.
+     */
+    double siteY(int s) {
+        return sy[s];
+    }
+
+    /**
+     * @return Resampled polylines, which Voronoi edges follow.
+     */
+    public List<List<Point>> polylines() {
+        return polylines;
+    }
+
+    /**
+     * @return Max piece length.
+     */
+    public double spacing() {
+        return spacing;
+    }
+}
@@ -0,0 +1,201 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import java.util.stream.IntStream;
+
+/**
+ * Stable LSD radix sort of points by y, then x over primitive keys. Coordinates are mapped to longs which
+ * compare as unsigned numbers in the same order as {@link com.hoten.delaunay.geom.GenUtils#compareByYThenX}
+ * compares doubles, so there are no comparator calls and no boxing.
+ * <p>
+ * Large inputs are sorted in parallel: every pass splits the input into chunks, counts digits of the chunks
+ * concurrently and then scatters them concurrently into disjoint ranges computed from the counts.
+ */
+final class CoordinateSort {
+
+    /** Bits of a radix digit. */
+    private static final int DIGIT_BITS = 8;
+
+    /** Digit values. */
+    private static final int RADIX = 1 << DIGIT_BITS;
+
+    /** Input size starting from which passes run in parallel. */
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * Utility class.
+     */
+    private CoordinateSort() {
+        // No-op.
+    }
+
+    /**
+     * @param xs X coordinates.
+     * @param ys Y coordinates.
+     * @return Permutation: i-th point of the sorted order is {@code perm[i]}-th input point.
+     * Points with equal coordinates keep input order.
+     */
+    static int[] sortByYThenX(double[] xs, double[] ys) {
+        int n = xs.length;
+        boolean parallel = n >= PARALLEL_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1;
+
+        int[] perm = new int[n];
+        long[] keys = new long[n];
+
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+            keys[i] = sortableKey(xs[i]);
+        }
+
+        int[] permBuf = new int[n];
+        long[] keysBuf = new long[n];
+
+        // least significant key first, the sort is stable
+        sort(keys, perm, keysBuf, permBuf, parallel);
+
+        for (int i = 0; i < n; i++)
+            keys[i] = sortableKey(ys[perm[i]] + 0.0); // GenUtils compares y with '<', so -0.0 is 0.0
+
+        return sort(keys, perm, keysBuf, permBuf, parallel);
+    }
+
+    /**
+     * @param keys Keys, compared as unsigned longs. Content is destroyed.
+     * @return Permutation: i-th key of the sorted order is {@code perm[i]}-th input key.
+     * Equal keys keep input order.
+     */
+    static int[] sortByKey(long[] keys) {
+        int n = keys.length;
+        boolean parallel = n >= PARALLEL_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1;
+
+        int[] perm = new int[n];
+
+        for (int i = 0; i < n; i++)
+            perm[i] = i;
+
+        return sort(keys, perm, new long[n], new int[n], parallel);
+    }
+
+    /**
+     * @param v Coordinate.
+     * @return Key which compares as unsigned long in the same order as {@link Double#compare(double, double)}.
+     */
+    static long sortableKey(double v) {
+        long bits = Double.doubleToLongBits(v);
+
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
+    /**
+     * Sorts permutation by keys.
+     *
+     * @param keys Keys, parallel to perm. Content is destroyed.
+     * @param perm Permutation.
+     * @param keysBuf Buffer of the same size.
+     * @param permBuf Buffer of the same size.
+     * @param parallel {@code True} to run passes in parallel.
+     * @return Sorted perm.
+     */
+    private static int[] sort(long[] keys, int[] perm, long[] keysBuf, int[] permBuf, boolean parallel) {
+        int n = keys.length;
+
+        if (n < 2)
+            return perm;
+
+        // skip passes over digits which are equal for all keys
+        long diff = 0;
+
+        for (int i = 1; i < n; i++)
+            diff |= keys[i] ^ keys[0];
+
+        long[] srcKeys = keys, dstKeys = keysBuf;
+        int[] srcPerm = perm, dstPerm = permBuf;
+
+        for (int shift = 0; shift < Long.SIZE; shift += DIGIT_BITS) {
+            if (((diff >>> shift) & (RADIX - 1)) == 0)
+                continue;
+
+            if (parallel)
+                parallelPass(srcKeys, srcPerm, dstKeys, dstPerm, shift);
+            else
+                pass(srcKeys, srcPerm, dstKeys, dstPerm, shift);
+
+            long[] tk = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tk;
+
+            int[] tp = srcPerm;
+            srcPerm = dstPerm;
+            dstPerm = tp;
+        }
+
+        if (srcPerm != perm)
+            System.arraycopy(srcPerm, 0, perm, 0, n);
+
+        return perm;
+    }
+
+    /**
+     * Counting sort by one digit.
+     */
+    private static void pass(long[] srcKeys, int[] srcPerm, long[] dstKeys, int[] dstPerm, int shift) {
+        int n = srcKeys.length;
+        int[] offsets = new int[RADIX];
+
+        for (int i = 0; i < n; i++)
+            offsets[(int) (srcKeys[i] >>> shift) & (RADIX - 1)]++;
+
+        for (int d = 0, sum = 0; d < RADIX; d++) {
+            int cnt = offsets[d];
+            offsets[d] = sum;
+            sum += cnt;
+        }
+
+        for (int i = 0; i < n; i++) {
+            int pos = offsets[(int) (srcKeys[i] >>> shift) & (RADIX - 1)]++;
+
+            dstKeys[pos] = srcKeys[i];
+            dstPerm[pos] = srcPerm[i];
+        }
+    }
+
+    /**
+     * Counting sort by one digit. Chunks are counted and scattered concurrently. Digit d of chunk c goes after
+     * digit d of all previous chunks, so the pass stays stable.
+     */
+    private static void parallelPass(long[] srcKeys, int[] srcPerm, long[] dstKeys, int[] dstPerm, int shift) {
+        int n = srcKeys.length;
+        int chunks = Math.min(Runtime.getRuntime().availableProcessors() * 4, n / (PARALLEL_THRESHOLD / 4));
+        int chunkSize = (n + chunks - 1) / chunks;
+        int[][] offsets = new int[chunks][RADIX];
+
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int[] cnt = offsets[c];
+            int to = Math.min(n, (c + 1) * chunkSize);
+
+            for (int i = c * chunkSize; i < to; i++)
+                cnt[(int) (srcKeys[i] >>> shift) & (RADIX - 1)]++;
+        });
+
+        int sum = 0;
+
+        for (int d = 0; d < RADIX; d++) {
+            for (int c = 0; c < chunks; c++) {
+                int cnt = offsets[c][d];
+                offsets[c][d] = sum;
+                sum += cnt;
+            }
+        }
+
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int[] off = offsets[c];
+            int to = Math.min(n, (c + 1) * chunkSize);
+
+            for (int i = c * chunkSize; i < to; i++) {
+                int pos = off[(int) (srcKeys[i] >>> shift) & (RADIX - 1)]++;
+
+                dstKeys[pos] = srcKeys[i];
+                dstPerm[pos] = srcPerm[i];
+            }
+        });
+    }
+}
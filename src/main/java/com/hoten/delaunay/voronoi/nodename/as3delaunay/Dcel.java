@@ -0,0 +1,254 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Doubly connected edge list of a diagram, see {@link Voronoi#dcel()}. Every {@link Edge} is split into two
+ * halfedges: halfedge {@code 2 * e} lies on the face of the left site of edge {@code e}, {@code 2 * e + 1}
+ * on the face of its right site, so the twin of a halfedge is {@code h ^ 1}. Faces are sites, vertices
+ * are {@link Vertex#getIndex()}.
+ * <p>
+ * A face is on the left of its halfedges, so {@link #next(int)} goes around it counterclockwise (y up).
+ * Faces of hull sites are unbounded: their chain starts with a halfedge coming from infinity and ends with one
+ * going to infinity. Chains are broken when all sites are on one line, then edges have no vertices at all.
+ */
+public final class Dcel {
+    /** No halfedge or vertex. */
+    public static final int NONE = -1;
+
+    /** Edges, halfedge {@code h} belongs to edge {@code h >> 1}. */
+    private final List<Edge> edges;
+
+    /** Origin vertex of each halfedge, {@link #NONE} at infinity. */
+    private final int[] origin;
+
+    /** Face (site index) of each halfedge. */
+    private final int[] face;
+
+    /** Next halfedge around the face, {@link #NONE} at the end of an unbounded chain. */
+    private final int[] next;
+
+    /** Previous halfedge around the face, {@link #NONE} at the start of an unbounded chain. */
+    private final int[] prev;
+
+    /** {@code True} if the halfedge of the left site goes from the left vertex to the right vertex. */
+    private final boolean[] leftForward;
+
+    /** First halfedge of each face: start of the chain of an unbounded face. */
+    private final int[] faceStart;
+
+    /**
+     * Links halfedges around vertices: each halfedge is followed by the halfedge of the same face leaving
+     * its destination. Vertices have three edges unless four or more sites are cocircular, so it is linear.
+     *
+     * @param numSites Number of sites.
+     * @param edges Edges, sites of an edge must know their indices.
+     */
+    Dcel(int numSites, List<Edge> edges) {
+        this.edges = edges;
+
+        int m = edges.size();
+        int numVertices = 0;
+
+        origin = new int[2 * m];
+        face = new int[2 * m];
+        next = new int[2 * m];
+        prev = new int[2 * m];
+        leftForward = new boolean[m];
+        faceStart = new int[numSites];
+
+        for (int e = 0; e < m; e++) {
+            Edge edge = edges.get(e);
+            int vl = vertexId(edge.getLeftVertex());
+            int vr = vertexId(edge.getRightVertex());
+
+            leftForward[e] = isLeftForward(edge);
+
+            origin[2 * e] = leftForward[e] ? vl : vr;
+            origin[2 * e + 1] = leftForward[e] ? vr : vl;
+            face[2 * e] = edge.getLeftSite().getIndex();
+            face[2 * e + 1] = edge.getRightSite().getIndex();
+
+            numVertices = Math.max(numVertices, Math.max(vl, vr) + 1);
+        }
+
+        // halfedges by origin
+        int[] start = new int[numVertices + 1];
+
+        for (int o : origin) {
+            if (o != NONE)
+                start[o + 1]++;
+        }
+
+        for (int v = 0; v < numVertices; v++)
+            start[v + 1] += start[v];
+
+        int[] fill = Arrays.copyOf(start, numVertices);
+        int[] outgoing = new int[start[numVertices]];
+
+        for (int h = 0; h < 2 * m; h++) {
+            if (origin[h] != NONE)
+                outgoing[fill[origin[h]]++] = h;
+        }
+
+        Arrays.fill(next, NONE);
+        Arrays.fill(prev, NONE);
+
+        for (int h = 0; h < 2 * m; h++) {
+            int dest = origin[h ^ 1];
+
+            if (dest == NONE)
+                continue;
+
+            for (int i = start[dest]; i < start[dest + 1]; i++) {
+                int g = outgoing[i];
+
+                if (face[g] == face[h]) {
+                    next[h] = g;
+                    prev[g] = h;
+
+                    break;
+                }
+            }
+        }
+
+        Arrays.fill(faceStart, NONE);
+
+        for (int h = 0; h < 2 * m; h++) {
+            if (faceStart[face[h]] == NONE || prev[h] == NONE)
+                faceStart[face[h]] = h;
+        }
+    }
+
+    /**
+     * @param v Vertex or {@code null}.
+     * @return Vertex index or {@link #NONE} at infinity.
+     */
+    private static int vertexId(Vertex v) {
+        return v == null || v == Vertex.VERTEX_AT_INFINITY ? NONE : v.getIndex();
+    }
+
+    /**
+     * The left vertex of an edge is the end with the smaller x, or the one with the larger y on a vertical edge
+     * (see {@link Edge#clipVertices(com.hoten.delaunay.geom.Rectangle)}). The left site is on the left of
+     * the bisector when it is walked in the direction of {@code right - left} turned counterclockwise.
+     *
+     * @param edge Edge.
+     * @return {@code True} if the halfedge of the left site goes from the left vertex to the right vertex.
+     */
+    static boolean isLeftForward(Edge edge) {
+        Site l = edge.getLeftSite(), r = edge.getRightSite();
+
+        // from the left vertex to the right one
+        double tx = edge.b >= 0 ? edge.b : -edge.b;
+        double ty = edge.b >= 0 ? -edge.a : edge.a;
+
+        return tx * (l.getY() - r.getY()) + ty * (r.getX() - l.getX()) > 0;
+    }
+
+    /**
+     * @return Number of halfedges, twice the number of edges.
+     */
+    public int size() {
+        return origin.length;
+    }
+
+    /**
+     * @return Bytes of the arrays, see {@link MemoryFootprint}.
+     */
+    long footprint() {
+        return MemoryFootprint.shallowSize(Dcel.class) + 4 * MemoryFootprint.arraySize(origin.length, 4)
+            + MemoryFootprint.arraySize(leftForward.length, 1) + MemoryFootprint.arraySize(faceStart.length, 4);
+    }
+
+    /**
+     * @param h Halfedge.
+     * @return Opposite halfedge of the same edge.
+     */
+    public int twin(int h) {
+        return h ^ 1;
+    }
+
+    /**
+     * @param h Halfedge.
+     * @return Edge index in {@link Voronoi#edges()}.
+     */
+    public int edge(int h) {
+        return h >> 1;
+    }
+
+    /**
+     * @param h Halfedge.
+     * @return Origin vertex index or {@link #NONE} if the halfedge comes from infinity.
+     */
+    public int origin(int h) {
+        return origin[h];
+    }
+
+    /**
+     * @param h Halfedge.
+     * @return Destination vertex index or {@link #NONE} if the halfedge goes to infinity.
+     */
+    public int destination(int h) {
+        return origin[h ^ 1];
+    }
+
+    /**
+     * @param h Halfedge.
+     * @return Site index of the face on the left.
+     */
+    public int face(int h) {
+        return face[h];
+    }
+
+    /**
+     * @param h Halfedge.
+     * @return Next halfedge counterclockwise around the face or {@link #NONE}.
+     */
+    public int next(int h) {
+        return next[h];
+    }
+
+    /**
+     * @param h Halfedge.
+     * @return Previous halfedge around the face or {@link #NONE}.
+     */
+    public int prev(int h) {
+        return prev[h];
+    }
+
+    /**
+     * @param site Site index.
+     * @return First halfedge of the face, the one coming from infinity if the face is unbounded,
+     * or {@link #NONE} if the site has no edges.
+     */
+    public int faceHalfedge(int site) {
+        return faceStart[site];
+    }
+
+    /**
+     * @param edge Edge.
+     * @param site Left or right site of the edge.
+     * @return Halfedge of the edge on the face of the site.
+     */
+    int halfedge(Edge edge, Site site) {
+        return 2 * edge.getIndex() + (edge.getLeftSite() == site ? 0 : 1);
+    }
+
+    /**
+     * @param h Halfedge.
+     * @return Which end of the edge the halfedge starts at.
+     */
+    LR startSide(int h) {
+        return leftForward[h >> 1] == ((h & 1) == 0) ? LR.LEFT : LR.RIGHT;
+    }
+
+    /**
+     * @param h Halfedge.
+     * @return Edge object of the halfedge.
+     */
+    Edge edgeOf(int h) {
+        return edges.get(h >> 1);
+    }
+}
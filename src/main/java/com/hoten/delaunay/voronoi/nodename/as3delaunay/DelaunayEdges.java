@@ -0,0 +1,122 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import java.util.List;
+
+/**
+ * Turns a Delaunay triangulation in flat arrays into Voronoi edges, see {@link TriangulationEngine}. The layout
+ * is the one of delaunator: halfedge {@code e} goes from site {@code triangles[e]} to the next corner of its
+ * triangle {@code e / 3}, corners of a triangle are counterclockwise (y up), and {@code halfedges[e]} is
+ * the opposite halfedge in the neighbouring triangle or {@code -1} on the hull.
+ */
+public final class DelaunayEdges {
+    /**
+     * Utility class.
+     */
+    private DelaunayEdges() {
+        // No-op.
+    }
+
+    /**
+     * Adds an edge for every Delaunay edge. Vertex {@code t} is the circumcenter of triangle {@code t}, or its
+     * orthocenter (the point of equal power distance to the corners) if the sites have weights; the triangles
+     * must then be a regular triangulation. Without triangles all sites are on one line, and every site is joined
+     * with the next one.
+     *
+     * @param sites Sites sorted by y, then x. The index of a site is its position.
+     * @param triangles Site index of each halfedge origin, at least {@code 3 * numTriangles} elements.
+     * @param halfedges Opposite halfedge of each halfedge or {@code -1}.
+     * @param numTriangles Number of triangles.
+     * @param options Build settings: vertices are snapped and stored as the options say.
+     * @param edges Output edges.
+     * @param out Output triangles or {@code null}.
+     */
+    public static void build(List<Site> sites, int[] triangles, int[] halfedges, int numTriangles,
+        VoronoiOptions options, List<Edge> edges, TriangleBuffer out) {
+        int numSites = sites.size();
+
+        if (numTriangles == 0) {
+            for (int i = 1, prev = 0; i < numSites; i++) {
+                Site s = sites.get(i), p = sites.get(prev);
+
+                // coincident sites have no edges of their own
+                if (s.getX() == p.getX() && s.getY() == p.getY())
+                    continue;
+
+                edges.add(Edge.createBisectingEdge(p, s, edges.size()));
+
+                prev = i;
+            }
+
+            return;
+        }
+
+        double fixedScale = options.fixedPointScale();
+        double[] center = new double[2];
+        Vertex[] vertices = new Vertex[numTriangles];
+
+        if (out != null)
+            out.ensureCapacity(numTriangles);
+
+        for (int t = 0; t < numTriangles; t++) {
+            Site a = sites.get(triangles[3 * t]);
+            Site b = sites.get(triangles[3 * t + 1]);
+            Site c = sites.get(triangles[3 * t + 2]);
+
+            circumcenter(fixedScale, a, b, c, center);
+
+            vertices[t] = Vertex.create(center[0], center[1], t, options.isCompact());
+
+            if (out != null)
+                out.set(t, a.getIndex(), b.getIndex(), c.getIndex(), center[0], center[1]);
+        }
+
+        for (int e = 0; e < 3 * numTriangles; e++) {
+            int opposite = halfedges[e];
+
+            // the hull halfedge or the first one of a pair makes the edge
+            if (opposite >= 0 && opposite < e)
+                continue;
+
+            int from = triangles[e];
+            int to = triangles[e % 3 == 2 ? e - 2 : e + 1];
+
+            Vertex here = vertices[e / 3];
+            Vertex there = opposite >= 0 ? vertices[opposite / 3] : null;
+
+            Edge edge = Edge.createBisectingEdge(sites.get(Math.min(from, to)), sites.get(Math.max(from, to)),
+                edges.size());
+
+            // triangle to the left of the direction from left site to right site is the left vertex end
+            edge.setVertex(LR.LEFT, from < to ? here : there);
+            edge.setVertex(LR.RIGHT, from < to ? there : here);
+
+            edges.add(edge);
+        }
+    }
+
+    /**
+     * @param fixedScale Grid steps per unit, {@code 0} for doubles. Orthocenters are computed in doubles.
+     * @param a First site.
+     * @param b Second site.
+     * @param c Third site.
+     * @param center Receives circumcenter, or orthocenter, x and y.
+     */
+    private static void circumcenter(double fixedScale, Site a, Site b, Site c, double[] center) {
+        boolean weighted = a.getWeight() != 0 || b.getWeight() != 0 || c.getWeight() != 0;
+
+        if (fixedScale != 0 && !weighted)
+            FixedPoint.circumcenter(fixedScale, a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY(), center);
+        else {
+            double bx = b.getX() - a.getX(), by = b.getY() - a.getY();
+            double cx = c.getX() - a.getX(), cy = c.getY() - a.getY();
+
+            // weights shift the bisectors, see Edge.bisect
+            double b2 = bx * bx + by * by + a.getWeight() - b.getWeight();
+            double c2 = cx * cx + cy * cy + a.getWeight() - c.getWeight();
+            double d = 2 * (bx * cy - by * cx);
+
+            center[0] = a.getX() + (cy * b2 - by * c2) / d;
+            center[1] = a.getY() + (bx * c2 - cx * b2) / d;
+        }
+    }
+}
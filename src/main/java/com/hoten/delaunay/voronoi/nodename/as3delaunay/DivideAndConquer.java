@@ -0,0 +1,841 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.Predicates;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Guibas-Stolfi divide and conquer Delaunay triangulation over a quad-edge structure in primitive arrays.
+ * Sites are split into halves by x, both halves are triangulated and then their seam is merged.
+ * Halves larger than {@link #FORK_THRESHOLD} are triangulated concurrently in a {@link ForkJoinPool}.
+ * <p>
+ * The halves don't depend on the number of threads, and the merges make decisions only from geometry,
+ * so the triangulation is the same whatever the parallelism is. Then every Delaunay edge becomes
+ * an {@link Edge} with the same sites, orientation and vertices as the sweep gives it, and edges are listed
+ * in the order of their sites.
+ * <p>
+ * Quad-edge ids are never shared between concurrent halves: the half of sites {@code [lo, hi)} owns ids
+ * {@code [3 * lo, 3 * hi)}, which is enough since a planar graph on {@code n} points has at most
+ * {@code 3n - 6} edges, and deleted edges are reused.
+ */
+final class DivideAndConquer {
+
+    /** Halves with fewer sites are triangulated in the current thread. */
+    static final int FORK_THRESHOLD = 1 << 14;
+
+    /** Origin of a deleted or never used quad-edge. */
+    private static final int NONE = -1;
+
+    /** Site coordinates ordered by x, then y, without duplicates. */
+    private final double[] px, py;
+
+    /** Sweep index of the site at each position. */
+    private final int[] siteOf;
+
+    /** Next edge counterclockwise around the origin, 4 rotations per quad-edge. */
+    private final int[] onext;
+
+    /** Origin of both primal directions of each quad-edge: {@code org[e >> 1]} for even {@code e}. */
+    private final int[] org;
+
+    /** Grid steps per unit of {@link VoronoiOptions#fixedPoint(int)}, {@code 0} for doubles. */
+    private final double fixedScale;
+
+    /** Site coordinates on the fixed point grid, {@code null} for doubles. */
+    private final long[] gx, gy;
+
+    /** {@code True} to store vertex positions as floats. */
+    private final boolean compact;
+
+    /**
+     * @param sites Sites sorted in sweep order.
+     * @param options Build settings.
+     */
+    private DivideAndConquer(List<Site> sites, VoronoiOptions options) {
+        int n = sites.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            Site s = sites.get(i);
+
+            xs[i] = s.getX();
+            ys[i] = s.getY();
+        }
+
+        // sorting by "y then x" with swapped coordinates gives x, then y
+        int[] perm = CoordinateSort.sortByYThenX(ys, xs);
+
+        double[] ux = new double[n];
+        double[] uy = new double[n];
+        int[] uSite = new int[n];
+        int cnt = 0;
+
+        for (int i = 0; i < n; i++) {
+            int s = perm[i];
+
+            // coincident sites have no edges of their own
+            if (cnt > 0 && ux[cnt - 1] == xs[s] && uy[cnt - 1] == ys[s])
+                continue;
+
+            ux[cnt] = xs[s];
+            uy[cnt] = ys[s];
+            uSite[cnt++] = s;
+        }
+
+        px = Arrays.copyOf(ux, cnt);
+        py = Arrays.copyOf(uy, cnt);
+        siteOf = Arrays.copyOf(uSite, cnt);
+
+        onext = new int[12 * cnt];
+        org = new int[6 * cnt];
+
+        Arrays.fill(org, NONE);
+
+        fixedScale = options.fixedPointScale();
+        compact = options.isCompact();
+
+        if (fixedScale != 0) {
+            gx = new long[cnt];
+            gy = new long[cnt];
+
+            for (int i = 0; i < cnt; i++) {
+                gx[i] = FixedPoint.grid(px[i], fixedScale);
+                gy[i] = FixedPoint.grid(py[i], fixedScale);
+            }
+        }
+        else {
+            gx = null;
+            gy = null;
+        }
+    }
+
+    /**
+     * Triangulates sites and adds Voronoi edges of the triangulation.
+     *
+     * @param sites Sites sorted in sweep order.
+     * @param options Build settings: {@link VoronoiOptions#getParallelism()} threads are used.
+     * @param edges Output edges.
+     */
+    static void build(List<Site> sites, VoronoiOptions options, List<Edge> edges, TriangleBuffer triangles) {
+        DivideAndConquer dc = new DivideAndConquer(sites, options);
+
+        int parallelism = options.getParallelism();
+        int n = dc.px.length;
+
+        if (n < 2)
+            return;
+
+        ForkJoinPool pool = parallelism > 1 && n >= 2 * FORK_THRESHOLD ? new ForkJoinPool(parallelism) : null;
+
+        try {
+            if (pool != null)
+                pool.invoke(dc.new Half(0, n));
+            else
+                dc.triangulate(0, n, new Ids(0, 3 * n));
+
+            dc.toEdges(sites, edges, triangles, pool);
+        }
+        finally {
+            if (pool != null)
+                pool.shutdown();
+        }
+    }
+
+    /**
+     * Triangulation of a half which forks its own halves.
+     */
+    private final class Half extends RecursiveAction {
+        /** Serial version uid. */
+        private static final long serialVersionUID = 0L;
+
+        /** Site positions. */
+        private final int lo, hi;
+
+        /** Leftmost and rightmost hull edges, see {@link DivideAndConquer#triangulate}. */
+        private long hull;
+
+        /** Free quad-edge ids. */
+        private Ids ids;
+
+        /**
+         * @param lo First site position.
+         * @param hi Last site position, exclusive.
+         */
+        Half(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /** {@inheritDoc} */
+        @Override protected void compute() {
+            if (hi - lo < 2 * FORK_THRESHOLD) {
+                ids = new Ids(3 * lo, 3 * hi);
+                hull = triangulate(lo, hi, ids);
+
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+
+            Half left = new Half(lo, mid);
+            Half right = new Half(mid, hi);
+
+            invokeAll(left, right);
+
+            ids = Ids.join(left.ids, right.ids);
+            hull = merge(left.hull, right.hull, ids);
+        }
+    }
+
+    /**
+     * @param lo First site position.
+     * @param hi Last site position, exclusive. At least 2 sites.
+     * @param ids Free quad-edge ids.
+     * @return Counterclockwise hull edge out of the leftmost site in high bits and clockwise hull edge
+     * out of the rightmost site in low bits.
+     */
+    private long triangulate(int lo, int hi, Ids ids) {
+        int n = hi - lo;
+
+        if (n == 2) {
+            int a = makeEdge(ids, lo, lo + 1);
+
+            return pack(a, sym(a));
+        }
+
+        if (n == 3) {
+            int a = makeEdge(ids, lo, lo + 1);
+            int b = makeEdge(ids, lo + 1, lo + 2);
+
+            splice(sym(a), b);
+
+            double c = ccw(lo, lo + 1, lo + 2);
+
+            if (c > 0) {
+                connect(b, a, ids);
+
+                return pack(a, sym(b));
+            }
+
+            if (c < 0) {
+                int e = connect(b, a, ids);
+
+                return pack(sym(e), e);
+            }
+
+            // collinear
+            return pack(a, sym(b));
+        }
+
+        int mid = (lo + hi) >>> 1;
+
+        long left = triangulate(lo, mid, ids);
+        long right = triangulate(mid, hi, ids);
+
+        return merge(left, right, ids);
+    }
+
+    /**
+     * Merges triangulations of two halves along their seam.
+     *
+     * @param left Hull edges of the left half.
+     * @param right Hull edges of the right half.
+     * @param ids Free quad-edge ids.
+     * @return Hull edges of the union.
+     */
+    private long merge(long left, long right, Ids ids) {
+        int ldo = (int) (left >>> 32), ldi = (int) left;
+        int rdi = (int) (right >>> 32), rdo = (int) right;
+
+        // lower common tangent
+        for (;;) {
+            if (leftOf(org(rdi), ldi))
+                ldi = lnext(ldi);
+            else if (rightOf(org(ldi), rdi))
+                rdi = rprev(rdi);
+            else
+                break;
+        }
+
+        int basel = connect(sym(rdi), ldi, ids);
+
+        if (org(ldi) == org(ldo))
+            ldo = sym(basel);
+
+        if (org(rdi) == org(rdo))
+            rdo = basel;
+
+        // zip the seam up
+        for (;;) {
+            int lcand = onext(sym(basel));
+
+            if (valid(lcand, basel)) {
+                while (inCircle(dest(basel), org(basel), dest(lcand), dest(onext(lcand))) > 0) {
+                    int t = onext(lcand);
+
+                    deleteEdge(lcand, ids);
+                    lcand = t;
+                }
+            }
+
+            int rcand = oprev(basel);
+
+            if (valid(rcand, basel)) {
+                while (inCircle(dest(basel), org(basel), dest(rcand), dest(oprev(rcand))) > 0) {
+                    int t = oprev(rcand);
+
+                    deleteEdge(rcand, ids);
+                    rcand = t;
+                }
+            }
+
+            boolean lvalid = valid(lcand, basel);
+            boolean rvalid = valid(rcand, basel);
+
+            if (!lvalid && !rvalid)
+                break;
+
+            if (!lvalid || (rvalid && inCircle(dest(lcand), org(lcand), org(rcand), dest(rcand)) > 0))
+                basel = connect(rcand, sym(basel), ids);
+            else
+                basel = connect(sym(basel), sym(lcand), ids);
+        }
+
+        return pack(ldo, rdo);
+    }
+
+    /**
+     * Makes an {@link Edge} of every Delaunay edge. Edges are ordered by left site, then by right site.
+     * A vertex is made for every triangle, numbered in the order of the first edge of the triangle.
+     * <p>
+     * Every pass handles sites independently, so the passes run in chunks in the pool. Each triangle
+     * is made by its first site, and the counts of the first pass give every site its own edge and vertex
+     * indices, so the result doesn't depend on the chunks.
+     *
+     * @param sites Sites sorted in sweep order.
+     * @param edges Output edges.
+     * @param triangles Output triangles or {@code null}, triangle {@code t} is the one of vertex {@code t}.
+     * @param pool Pool or {@code null} to run in the current thread.
+     */
+    private void toEdges(List<Site> sites, List<Edge> edges, TriangleBuffer triangles, ForkJoinPool pool) {
+        int numSites = sites.size();
+
+        // some edge out of each site, by sweep index
+        int[] out = new int[numSites];
+
+        Arrays.fill(out, NONE);
+
+        for (int half = 0; half < org.length; half++) {
+            if (org[half] != NONE)
+                out[siteOf[org[half]]] = half << 1;
+        }
+
+        int[] edgeBase = new int[numSites + 1];
+        int[] vertexBase = new int[numSites + 1];
+
+        forEachChunk(pool, numSites, (from, to) -> {
+            Star star = new Star();
+
+            for (int s = from; s < to; s++) {
+                star.collect(s, out[s]);
+
+                edgeBase[s + 1] = star.cnt;
+
+                for (int i = 0; i < star.cnt; i++)
+                    vertexBase[s + 1] += newTriangles(star.es[i]);
+            }
+        });
+
+        for (int s = 0; s < numSites; s++) {
+            edgeBase[s + 1] += edgeBase[s];
+            vertexBase[s + 1] += vertexBase[s];
+        }
+
+        Vertex[] vertexOf = new Vertex[org.length];
+
+        // chunks set their own triangles
+        if (triangles != null)
+            triangles.ensureCapacity(vertexBase[numSites]);
+
+        forEachChunk(pool, numSites, (from, to) -> {
+            Star star = new Star();
+            double[] center = new double[2];
+
+            for (int s = from; s < to; s++) {
+                star.collect(s, out[s]);
+
+                int idx = vertexBase[s];
+
+                for (int i = 0; i < star.cnt; i++) {
+                    for (int k = 0; k < 2; k++) {
+                        int d = k == 0 ? star.es[i] : sym(star.es[i]);
+
+                        if (isNewTriangle(d)) {
+                            Vertex v = circumcenter(d, idx, center);
+
+                            if (triangles != null) {
+                                triangles.set(idx, siteOf[org(d)], siteOf[dest(d)], siteOf[dest(lnext(d))], center[0],
+                                    center[1]);
+                            }
+
+                            idx++;
+
+                            vertexOf[d >> 1] = v;
+                            vertexOf[lnext(d) >> 1] = v;
+                            vertexOf[lnext(lnext(d)) >> 1] = v;
+                        }
+                    }
+                }
+            }
+        });
+
+        if (triangles != null)
+            triangles.trim(vertexBase[numSites]);
+
+        Edge[] result = new Edge[edgeBase[numSites]];
+
+        forEachChunk(pool, numSites, (from, to) -> {
+            Star star = new Star();
+
+            for (int s = from; s < to; s++) {
+                star.collect(s, out[s]);
+
+                for (int i = 0; i < star.cnt; i++) {
+                    int e = star.es[i];
+                    int idx = edgeBase[s] + i;
+
+                    Edge edge = Edge.bisect(sites.get(s), sites.get(siteOf[dest(e)]), idx);
+
+                    // triangle to the left of the direction from left site to right site is the left vertex end
+                    edge.setVertex(LR.LEFT, vertexOf[e >> 1]);
+                    edge.setVertex(LR.RIGHT, vertexOf[sym(e) >> 1]);
+
+                    result[idx] = edge;
+                }
+            }
+        });
+
+        // sites learn about edges in the order of the list
+        for (Edge edge : result) {
+            edge.getLeftSite().addEdge(edge);
+            edge.getRightSite().addEdge(edge);
+            edges.add(edge);
+        }
+    }
+
+    /**
+     * Code to run on a chunk of sites.
+     */
+    private interface Chunk {
+        /**
+         * @param from First site.
+         * @param to Last site, exclusive.
+         */
+        void run(int from, int to);
+    }
+
+    /**
+     * @param pool Pool or {@code null} to run in the current thread.
+     * @param n Number of sites.
+     * @param chunk Code to run.
+     */
+    private static void forEachChunk(ForkJoinPool pool, int n, Chunk chunk) {
+        if (pool == null) {
+            chunk.run(0, n);
+
+            return;
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int from = 0; from < n; from += FORK_THRESHOLD) {
+            int f = from;
+            int t = Math.min(n, from + FORK_THRESHOLD);
+
+            tasks.add(() -> {
+                chunk.run(f, t);
+
+                return null;
+            });
+        }
+
+        for (Future<Void> f : pool.invokeAll(tasks)) {
+            try {
+                f.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new IllegalStateException("Interrupted", e);
+            }
+            catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to make edges", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Edges out of a site to sites later in sweep order, the site is their left site.
+     */
+    private final class Star {
+        /** Edges sorted by sweep index of their destinations. */
+        private int[] es = new int[16];
+
+        /** Edge count. */
+        private int cnt;
+
+        /**
+         * @param s Sweep index of the site.
+         * @param start Some edge out of the site or {@link DivideAndConquer#NONE} for a coincident site.
+         */
+        void collect(int s, int start) {
+            cnt = 0;
+
+            if (start == NONE)
+                return;
+
+            int e = start;
+
+            do {
+                if (siteOf[dest(e)] > s) {
+                    if (cnt == es.length)
+                        es = Arrays.copyOf(es, cnt * 2);
+
+                    es[cnt++] = e;
+                }
+
+                e = onext(e);
+            }
+            while (e != start);
+
+            // insertion sort, sites have few edges
+            for (int i = 1; i < cnt; i++) {
+                int x = es[i];
+                int key = siteOf[dest(x)];
+                int j = i - 1;
+
+                while (j >= 0 && siteOf[dest(es[j])] > key) {
+                    es[j + 1] = es[j];
+                    j--;
+                }
+
+                es[j + 1] = x;
+            }
+        }
+    }
+
+    /**
+     * @param e Edge from its left site to its right site.
+     * @return Number of triangles on both sides of the edge for which it is the first edge.
+     */
+    private int newTriangles(int e) {
+        return (isNewTriangle(e) ? 1 : 0) + (isNewTriangle(sym(e)) ? 1 : 0);
+    }
+
+    /**
+     * @param d Edge from the left site to the right site or its opposite.
+     * @return {@code True} if the face to the left of the edge is a triangle and the edge connects
+     * its two earliest sites in sweep order, so the triangle gets its vertex with this edge.
+     */
+    private boolean isNewTriangle(int d) {
+        if (!isTriangle(d))
+            return false;
+
+        int a = siteOf[org(d)], b = siteOf[dest(d)], c = siteOf[dest(lnext(d))];
+
+        return c > a && c > b;
+    }
+
+    /**
+     * @param e Primal edge.
+     * @return {@code True} if the face to the left of the edge is a triangle of the triangulation,
+     * not the outer face.
+     */
+    private boolean isTriangle(int e) {
+        int e1 = lnext(e);
+        int e2 = lnext(e1);
+
+        return lnext(e2) == e && ccw(org(e), org(e1), org(e2)) > 0;
+    }
+
+    /**
+     * @param e Primal edge.
+     * @param idx Vertex index.
+     * @param center Receives circumcenter x and y.
+     * @return Circumcenter of the triangle to the left of the edge.
+     */
+    private Vertex circumcenter(int e, int idx, double[] center) {
+        int a = org(e), b = dest(e), c = dest(lnext(e));
+
+        if (fixedScale != 0)
+            FixedPoint.circumcenter(fixedScale, px[a], py[a], px[b], py[b], px[c], py[c], center);
+        else {
+            double bx = px[b] - px[a], by = py[b] - py[a];
+            double cx = px[c] - px[a], cy = py[c] - py[a];
+            double b2 = bx * bx + by * by;
+            double c2 = cx * cx + cy * cy;
+            double d = 2 * (bx * cy - by * cx);
+
+            center[0] = px[a] + (cy * b2 - by * c2) / d;
+            center[1] = py[a] + (bx * c2 - cx * b2) / d;
+        }
+
+        return Vertex.create(center[0], center[1], idx, compact);
+    }
+
+    /**
+     * @return Twice the signed area of triangle abc, positive if it is counterclockwise.
+     */
+    private double ccw(int a, int b, int c) {
+        if (gx != null)
+            return Predicates.orient(gx[a], gy[a], gx[b], gy[b], gx[c], gy[c]);
+
+        return Predicates.orient(px[a], py[a], px[b], py[b], px[c], py[c]);
+    }
+
+    /**
+     * @return Positive if d is inside the circle through counterclockwise a, b, c.
+     */
+    private double inCircle(int a, int b, int c, int d) {
+        if (gx != null)
+            return Predicates.inCircle(gx[a], gy[a], gx[b], gy[b], gx[c], gy[c], gx[d], gy[d]);
+
+        return Predicates.inCircle(px[a], py[a], px[b], py[b], px[c], py[c], px[d], py[d]);
+    }
+
+    /**
+     * @return {@code True} if site is strictly to the right of the edge.
+     */
+    private boolean rightOf(int site, int e) {
+        return ccw(site, dest(e), org(e)) > 0;
+    }
+
+    /**
+     * @return {@code True} if site is strictly to the left of the edge.
+     */
+    private boolean leftOf(int site, int e) {
+        return ccw(site, org(e), dest(e)) > 0;
+    }
+
+    /**
+     * @return {@code True} if candidate edge goes above the base edge.
+     */
+    private boolean valid(int e, int basel) {
+        return rightOf(dest(e), basel);
+    }
+
+    /**
+     * @param ids Free quad-edge ids.
+     * @param from Origin.
+     * @param to Destination.
+     * @return New isolated edge.
+     */
+    private int makeEdge(Ids ids, int from, int to) {
+        int e = ids.take() << 2;
+
+        onext[e] = e;
+        onext[e + 1] = e + 3;
+        onext[e + 2] = e + 2;
+        onext[e + 3] = e + 1;
+
+        org[e >> 1] = from;
+        org[(e >> 1) + 1] = to;
+
+        return e;
+    }
+
+    /**
+     * @return New edge from the destination of a to the origin of b, so that a, e and b have the same left face.
+     */
+    private int connect(int a, int b, Ids ids) {
+        int e = makeEdge(ids, dest(a), org(b));
+
+        splice(e, lnext(a));
+        splice(sym(e), b);
+
+        return e;
+    }
+
+    /**
+     * Disconnects edge and frees its id.
+     */
+    private void deleteEdge(int e, Ids ids) {
+        splice(e, oprev(e));
+        splice(sym(e), oprev(sym(e)));
+
+        org[e >> 1 & ~1] = NONE;
+        org[(e >> 1 & ~1) + 1] = NONE;
+
+        ids.give(e >> 2);
+    }
+
+    /**
+     * Guibas-Stolfi splice: joins or separates rings of a and b.
+     */
+    private void splice(int a, int b) {
+        int alpha = rot(onext[a]);
+        int beta = rot(onext[b]);
+
+        int t1 = onext[b];
+        int t2 = onext[a];
+        int t3 = onext[beta];
+        int t4 = onext[alpha];
+
+        onext[a] = t1;
+        onext[b] = t2;
+        onext[alpha] = t3;
+        onext[beta] = t4;
+    }
+
+    /**
+     * @return Origin of primal edge.
+     */
+    private int org(int e) {
+        return org[e >> 1];
+    }
+
+    /**
+     * @return Destination of primal edge.
+     */
+    private int dest(int e) {
+        return org[sym(e) >> 1];
+    }
+
+    /**
+     * @return Next edge counterclockwise around the origin.
+     */
+    private int onext(int e) {
+        return onext[e];
+    }
+
+    /**
+     * @return Next edge clockwise around the origin.
+     */
+    private int oprev(int e) {
+        return rot(onext[rot(e)]);
+    }
+
+    /**
+     * @return Next edge counterclockwise around the left face.
+     */
+    private int lnext(int e) {
+        return rot(onext[rotInv(e)]);
+    }
+
+    /**
+     * @return Previous edge around the right face.
+     */
+    private int rprev(int e) {
+        return onext[sym(e)];
+    }
+
+    /**
+     * @return Dual edge directed from right to left.
+     */
+    private static int rot(int e) {
+        return (e & ~3) | ((e + 1) & 3);
+    }
+
+    /**
+     * @return Dual edge directed from left to right.
+     */
+    private static int rotInv(int e) {
+        return (e & ~3) | ((e + 3) & 3);
+    }
+
+    /**
+     * @return Same edge in the opposite direction.
+     */
+    private static int sym(int e) {
+        return e ^ 2;
+    }
+
+    /**
+     * @return Two edges in one long.
+     */
+    private static long pack(int hi, int lo) {
+        return ((long) hi << 32) | (lo & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Free quad-edge ids of a half: deleted ids first, then never used ranges.
+     */
+    private static final class Ids {
+        /** Deleted ids. */
+        private int[] free = new int[16];
+
+        /** Deleted id count. */
+        private int freeSize;
+
+        /** Never used ranges. */
+        private int[] from, to;
+
+        /** Index of the range to take from. */
+        private int range;
+
+        /**
+         * @param from First id.
+         * @param to Last id, exclusive.
+         */
+        Ids(int from, int to) {
+            this.from = new int[] {from};
+            this.to = new int[] {to};
+        }
+
+        /**
+         * @return Free id.
+         */
+        int take() {
+            if (freeSize > 0)
+                return free[--freeSize];
+
+            while (from[range] == to[range])
+                range++;
+
+            return from[range]++;
+        }
+
+        /**
+         * @param id Deleted id.
+         */
+        void give(int id) {
+            if (freeSize == free.length)
+                free = Arrays.copyOf(free, freeSize * 2);
+
+            free[freeSize++] = id;
+        }
+
+        /**
+         * @param a Ids of the left half.
+         * @param b Ids of the right half.
+         * @return Ids of both halves.
+         */
+        static Ids join(Ids a, Ids b) {
+            Ids ids = new Ids(0, 0);
+
+            ids.free = Arrays.copyOf(a.free, Math.max(16, a.freeSize + b.freeSize));
+            System.arraycopy(b.free, 0, ids.free, a.freeSize, b.freeSize);
+            ids.freeSize = a.freeSize + b.freeSize;
+
+            int na = a.from.length - a.range;
+            int nb = b.from.length - b.range;
+
+            ids.from = new int[na + nb];
+            ids.to = new int[na + nb];
+
+            System.arraycopy(a.from, a.range, ids.from, 0, na);
+            System.arraycopy(a.to, a.range, ids.to, 0, na);
+            System.arraycopy(b.from, b.range, ids.from, na, nb);
+            System.arraycopy(b.to, b.range, ids.to, na, nb);
+
+            return ids;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.hoten.delaunay.voronoi.nodename.as3delaunay;
 
+import com.hoten.delaunay.geom.ConvexPolygon;
 import com.hoten.delaunay.geom.GenUtils;
 import com.hoten.delaunay.geom.Point;
 import com.hoten.delaunay.geom.Rectangle;
@@ -19,17 +20,23 @@ public final class Edge {
     /** Represents deleted edge in halfedges. Used in edge reordering to find out wrong edge list for reordering. */
     public final static Edge DELETED = new Edge(-1);
 
-    /** Edge index. */
+    /** Edge index. Position of the edge in {@link Voronoi#edges()}. */
     private int index;
 
     /** The equation of the edge: ax + by = c. */
     public double a, b, c;
 
     /**
-     *  Once {@link #clipVertices(Rectangle)} is called, this Map will hold two Points
-     *  representing the clipped coordinates of the left and right ends...
+     *  Once {@link #clipVertices(Rectangle)} is called, these Points
+     *  hold the clipped coordinates of the left and right ends...
      */
-    private Map<LR, Point> clippedVertices;
+    private Point clippedLeft, clippedRight;
+
+    /**
+     * Clipped ends stored as floats instead of {@link #clippedLeft} and {@link #clippedRight}: x and y
+     * of the left end, then of the right end.
+     */
+    private float[] clippedFloats;
 
     /**
      * One of two Voronoi vertices that the edge connects
@@ -39,9 +46,8 @@ public final class Edge {
 
     /**
      * The two input Sites for which this Edge is a bisector. So called joins of this edge.
-     * It can be {@link LR#LEFT} or {@link LR#RIGHT}.
      */
-    private HashMap<LR, Site> sites;
+    private Site leftSite, rightSite;
 
     /**
      * This is the only way to create a new Edge.
@@ -53,12 +59,33 @@ public final class Edge {
      *
      */
     public static Edge createBisectingEdge(Site site0, Site site1, int idx) {
+        Edge edge = bisect(site0, site1, idx);
+
+        site0.addEdge(edge);
+        site1.addEdge(edge);
+
+        return edge;
+    }
+
+    /**
+     * Same as {@link #createBisectingEdge(Site, Site, int)}, but the sites don't learn about the edge.
+     * Doesn't touch the sites, so edges can be made concurrently.
+     *
+     * @param site0 Site 0.
+     * @param site1 Site 1.
+     * @param idx Edge index.
+     * @return Border edge between given sites.
+     */
+    static Edge bisect(Site site0, Site site1, int idx) {
         double a, b, c;
 
         double dx = site1.getX() - site0.getX();
         double dy = site1.getY() - site0.getY();
 
-        c = site0.getX() * dx + site0.getY() * dy + (dx * dx + dy * dy) * 0.5;
+        // power bisector, the plain one for equal weights
+        double dw = site0.getWeight() - site1.getWeight();
+
+        c = site0.getX() * dx + site0.getY() * dy + (dx * dx + dy * dy + dw) * 0.5;
 
         if (Math.abs(dx) > Math.abs(dy)) {
             a = 1.0;
@@ -74,8 +101,6 @@ public final class Edge {
 
         edge.setLeftSite(site0);
         edge.setRightSite(site1);
-        site0.addEdge(edge);
-        site1.addEdge(edge);
 
         edge.leftVertex = null;
         edge.rightVertex = null;
@@ -97,7 +122,21 @@ public final class Edge {
         if (!isVisible())
             return new LineSegment(null, null);
 
-        return new LineSegment(clippedVertices.get(LR.LEFT), clippedVertices.get(LR.RIGHT));
+        return new LineSegment(clippedEnd(LR.LEFT), clippedEnd(LR.RIGHT));
+    }
+
+    /**
+     * @return Position of the edge in {@link Voronoi#edges()}.
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * @param idx Position of the edge in {@link Voronoi#edges()}.
+     */
+    void setIndex(int idx) {
+        index = idx;
     }
 
     /**
@@ -152,7 +191,41 @@ public final class Edge {
      * @return Vertices clipped in boundaries.
      */
     public Map<LR, Point> getClippedEnds() {
-        return clippedVertices;
+        if (!isVisible())
+            return null;
+
+        Map<LR, Point> ends = new HashMap<>();
+
+        ends.put(LR.LEFT, clippedEnd(LR.LEFT));
+        ends.put(LR.RIGHT, clippedEnd(LR.RIGHT));
+
+        return ends;
+    }
+
+    /**
+     * Same as {@code getClippedEnds().get(leftRight)} without making the map.
+     *
+     * @param leftRight End of the edge.
+     * @return Clipped end or {@code null} if the edge is not visible.
+     */
+    Point clippedEnd(LR leftRight) {
+        if (clippedFloats != null) {
+            int i = leftRight == LR.LEFT ? 0 : 2;
+
+            return new Point(clippedFloats[i], clippedFloats[i + 1]);
+        }
+
+        return leftRight == LR.LEFT ? clippedLeft : clippedRight;
+    }
+
+    /**
+     * @return Bytes of the clipped ends, see {@link MemoryFootprint}.
+     */
+    long clippedEndsFootprint() {
+        if (clippedFloats != null)
+            return MemoryFootprint.arraySize(clippedFloats.length, 4);
+
+        return clippedLeft != null ? 2 * MemoryFootprint.pointSize() : 0;
     }
 
     /**
@@ -161,7 +234,7 @@ public final class Edge {
      * @return {@code True} if edge is inside graph bounds. Otherwise - {@code false}.
      */
     public boolean isVisible() {
-        return clippedVertices != null;
+        return clippedLeft != null || clippedFloats != null;
     }
 
     /**
@@ -170,14 +243,14 @@ public final class Edge {
      * @param s Site.
      */
     public void setLeftSite(Site s) {
-        sites.put(LR.LEFT, s);
+        leftSite = s;
     }
 
     /**
      * @return Left site for this edge.
      */
     public Site getLeftSite() {
-        return sites.get(LR.LEFT);
+        return leftSite;
     }
 
     /**
@@ -186,14 +259,14 @@ public final class Edge {
      * @param s Site.
      */
     public void setRightSite(Site s) {
-        sites.put(LR.RIGHT, s);
+        rightSite = s;
     }
 
     /**
      * @return Right site for this edge.
      */
     public Site getRightSite() {
-        return sites.get(LR.RIGHT);
+        return rightSite;
     }
 
     /**
@@ -201,41 +274,152 @@ public final class Edge {
      * @return Site for given orientation.
      */
     public Site site(LR leftRight) {
-        return sites.get(leftRight);
+        return leftRight == LR.LEFT ? leftSite : rightSite;
     }
 
     /**
      * @param idx Edge index.
      */
     private Edge(int idx) {
-        sites = new HashMap<>();
         index = idx;
     }
 
     /** {@inheritDoc} */
     @Override public String toString() {
-        return "Edge " + index + "; sites " + sites.get(LR.LEFT) + ", " + sites.get(LR.RIGHT)
+        return "Edge " + index + "; sites " + leftSite + ", " + rightSite
             + "; endVertices " + (leftVertex != null ? leftVertex.getIndex() : "null") + ", "
             + (rightVertex != null ? rightVertex.getIndex() : "null") + "::";
     }
 
     /**
-     * Set clippedVertices to contain the two ends of the portion of the
+     * Set clipped ends to the two ends of the portion of the
      * Voronoi edge that is visible within the graph bounds. If no part of the Edge
-     * falls within the bounds, leave clippedVertices null.
+     * falls within the bounds, leave them null.
      *
      * @param bounds Graph bounds.
      */
     public void clipVertices(Rectangle bounds) {
-        double xmin = bounds.x;
-        double ymin = bounds.y;
-        double xmax = bounds.right;
-        double ymax = bounds.bottom;
+        clipVertices(ConvexPolygon.of(bounds), false, new double[4]);
+    }
+
+    /**
+     * Same as {@link #clipVertices(Rectangle)} for any clip domain, optionally storing the ends as floats.
+     *
+     * @param domain Clip domain.
+     * @param compact {@code True} to store the ends as floats.
+     * @param ends Scratch array of at least 4 elements.
+     */
+    void clipVertices(ConvexPolygon domain, boolean compact, double[] ends) {
+        clippedLeft = null;
+        clippedRight = null;
+        clippedFloats = null;
+
+        if (!clip(domain, ends, 0))
+            return;
+
+        if (compact)
+            clippedFloats = new float[] {(float) ends[0], (float) ends[1], (float) ends[2], (float) ends[3]};
+        else {
+            clippedLeft = new Point(ends[0], ends[1]);
+            clippedRight = new Point(ends[2], ends[3]);
+        }
+    }
+
+    /**
+     * Clips the edge to a domain without changing the edge: by {@link #clip(double, double, double, double,
+     * double[], int)} if it is a rectangle, otherwise the line of the edge is clipped to the polygon between
+     * the vertices which the edge has.
+     *
+     * @param domain Clip domain.
+     * @param out Receives x and y of the left end, then x and y of the right end, starting from {@code off}.
+     * @param off Offset in {@code out}.
+     * @return {@code False} if no part of the edge is inside the domain, then {@code out} is not changed.
+     */
+    boolean clip(ConvexPolygon domain, double[] out, int off) {
+        Rectangle r = domain.asRectangle();
+
+        if (r != null)
+            return clip(r.x, r.y, r.right, r.bottom, out, off);
+
+        Vertex left = finite(leftVertex), right = finite(rightVertex);
+
+        // from the left vertex to the right one
+        double dx = b >= 0 ? b : -b;
+        double dy = b >= 0 ? -a : a;
+        double px, py;
+
+        if (left != null) {
+            px = left.getX();
+            py = left.getY();
+        } else if (right != null) {
+            px = right.getX();
+            py = right.getY();
+        } else {
+            // the point of the line nearest to the first vertex of the domain
+            double d = (a * domain.getX(0) + b * domain.getY(0) - c) / (a * a + b * b);
+
+            px = domain.getX(0) - d * a;
+            py = domain.getY(0) - d * b;
+        }
+
+        double t0 = left != null ? 0 : Double.NEGATIVE_INFINITY;
+        double t1 = Double.POSITIVE_INFINITY;
+
+        if (right != null)
+            t1 = ((right.getX() - px) * dx + (right.getY() - py) * dy) / (dx * dx + dy * dy);
 
+        if (!domain.clipLine(px, py, dx, dy, t0, t1, out, off))
+            return false;
+
+        double s0 = out[off], s1 = out[off + 1];
+
+        // ends inside the domain are the vertices themselves
+        if (left != null && s0 == t0) {
+            out[off] = left.getX();
+            out[off + 1] = left.getY();
+        } else {
+            out[off] = px + s0 * dx;
+            out[off + 1] = py + s0 * dy;
+        }
+
+        if (right != null && s1 == t1) {
+            out[off + 2] = right.getX();
+            out[off + 3] = right.getY();
+        } else {
+            out[off + 2] = px + s1 * dx;
+            out[off + 3] = py + s1 * dy;
+        }
+
+        return true;
+    }
+
+    /**
+     * @param v Vertex or {@code null}.
+     * @return The vertex or {@code null} if it is at infinity.
+     */
+    private static Vertex finite(Vertex v) {
+        return v == Vertex.VERTEX_AT_INFINITY ? null : v;
+    }
+
+    /**
+     * Clips the edge to a rectangle without changing the edge.
+     *
+     * @param xmin Left side of the rectangle.
+     * @param ymin Top side of the rectangle.
+     * @param xmax Right side of the rectangle.
+     * @param ymax Bottom side of the rectangle.
+     * @param out Receives x and y of the left end, then x and y of the right end, starting from {@code off}.
+     * @param off Offset in {@code out}.
+     * @return {@code False} if no part of the edge is inside the rectangle, then {@code out} is not changed.
+     */
+    boolean clip(double xmin, double ymin, double xmax, double ymax, double[] out, int off) {
         Vertex vertex0, vertex1;
         double x0, x1, y0, y1;
 
-        if (a == 1.0 && b >= 0.0) {
+        // the ends are swapped, compared by this flag since both vertices may be null
+        boolean fromRight = a == 1.0 && b >= 0.0;
+
+        if (fromRight) {
             vertex0 = rightVertex;
             vertex1 = leftVertex;
         } else {
@@ -249,7 +433,7 @@ public final class Edge {
                 y0 = vertex0.getY();
             }
             if (y0 > ymax) {
-                return;
+                return false;
             }
             x0 = c - b * y0;
 
@@ -258,12 +442,12 @@ public final class Edge {
                 y1 = vertex1.getY();
             }
             if (y1 < ymin) {
-                return;
+                return false;
             }
             x1 = c - b * y1;
 
             if ((x0 > xmax && x1 > xmax) || (x0 < xmin && x1 < xmin)) {
-                return;
+                return false;
             }
 
             if (x0 > xmax) {
@@ -287,7 +471,7 @@ public final class Edge {
                 x0 = vertex0.getX();
             }
             if (x0 > xmax) {
-                return;
+                return false;
             }
             y0 = c - a * x0;
 
@@ -296,12 +480,12 @@ public final class Edge {
                 x1 = vertex1.getX();
             }
             if (x1 < xmin) {
-                return;
+                return false;
             }
             y1 = c - a * x1;
 
             if ((y0 > ymax && y1 > ymax) || (y0 < ymin && y1 < ymin)) {
-                return;
+                return false;
             }
 
             if (y0 > ymax) {
@@ -321,14 +505,13 @@ public final class Edge {
             }
         }
 
-        clippedVertices = new HashMap<>();
+        int l = fromRight ? off + 2 : off, r = fromRight ? off : off + 2;
 
-        if (vertex0 == leftVertex) {
-            clippedVertices.put(LR.LEFT, new Point(x0, y0));
-            clippedVertices.put(LR.RIGHT, new Point(x1, y1));
-        } else {
-            clippedVertices.put(LR.RIGHT, new Point(x0, y0));
-            clippedVertices.put(LR.LEFT, new Point(x1, y1));
-        }
+        out[l] = x0;
+        out[l + 1] = y0;
+        out[r] = x1;
+        out[r + 1] = y1;
+
+        return true;
     }
 }
\ No newline at end of file
@@ -0,0 +1,428 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.ConvexPolygon;
+import com.hoten.delaunay.geom.Rectangle;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Clips edges of a diagram to viewports on demand, see {@link Voronoi#clipEdges(Rectangle)}.
+ * <p>
+ * Parts of edges inside the graph bounds are put into a uniform grid of buckets, a few edges per bucket,
+ * so a viewport only looks at the edges of the buckets it overlaps. Edges leaving the graph bounds are also
+ * listed apart and are looked at when a viewport is not inside the graph bounds. Found edges are clipped
+ * to the viewport into primitive arrays, the edges themselves are not changed.
+ * <p>
+ * Also clips all edges to the graph bounds when the diagram is built, in parallel when there are many.
+ */
+public final class EdgeClipper {
+    /** Edges in a chunk clipped in one thread. */
+    static final int CHUNK = 1 << 13;
+
+    /** Largest number of buckets along a side. */
+    private static final int MAX_SIDE = 1 << 11;
+
+    /** Edges of the diagram. */
+    private final List<Edge> edges;
+
+    /** Clip domain. */
+    private final ConvexPolygon domain;
+
+    /** Graph bounds. */
+    private final double xmin, ymin, xmax, ymax;
+
+    /** Grid size. */
+    private final int cols, rows;
+
+    /** Buckets per unit. */
+    private final double scaleX, scaleY;
+
+    /** Start of each bucket in {@link #bucketEdges}, one more than buckets. */
+    private final int[] bucketStart;
+
+    /** Edge positions by bucket. */
+    private final int[] bucketEdges;
+
+    /** Positions of edges which are not entirely inside the graph bounds. */
+    private final int[] outside;
+
+    /**
+     * Clips edges to the clip domain, see {@link Edge#clipVertices(Rectangle)}.
+     *
+     * @param edges Edges.
+     * @param domain Clip domain.
+     * @param compact {@code True} to store the ends as floats.
+     * @param parallelism Number of threads.
+     */
+    static void clipAll(List<Edge> edges, ConvexPolygon domain, boolean compact, int parallelism) {
+        int n = edges.size();
+
+        if (parallelism < 2 || n < 2 * CHUNK) {
+            clipRange(edges, domain, compact, 0, n);
+
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            pool.invoke(new Clip(edges, domain, compact, 0, n));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param edges Edges.
+     * @param domain Clip domain.
+     * @param compact {@code True} to store the ends as floats.
+     * @param lo First edge position.
+     * @param hi Last edge position, exclusive.
+     */
+    private static void clipRange(List<Edge> edges, ConvexPolygon domain, boolean compact, int lo, int hi) {
+        double[] ends = new double[4];
+
+        for (int i = lo; i < hi; i++)
+            edges.get(i).clipVertices(domain, compact, ends);
+    }
+
+    /**
+     * Clipping of a range of edges which forks its halves.
+     */
+    private static final class Clip extends RecursiveAction {
+        /** Serial version uid. */
+        private static final long serialVersionUID = 0L;
+
+        /** Edges. */
+        private final List<Edge> edges;
+
+        /** Clip domain. */
+        private final ConvexPolygon domain;
+
+        /** {@code True} to store the ends as floats. */
+        private final boolean compact;
+
+        /** Edge positions. */
+        private final int lo, hi;
+
+        /**
+         * @param edges Edges.
+         * @param domain Clip domain.
+         * @param compact {@code True} to store the ends as floats.
+         * @param lo First edge position.
+         * @param hi Last edge position, exclusive.
+         */
+        Clip(List<Edge> edges, ConvexPolygon domain, boolean compact, int lo, int hi) {
+            this.edges = edges;
+            this.domain = domain;
+            this.compact = compact;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /** {@inheritDoc} */
+        @Override protected void compute() {
+            if (hi - lo <= CHUNK) {
+                clipRange(edges, domain, compact, lo, hi);
+
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+
+            invokeAll(new Clip(edges, domain, compact, lo, mid), new Clip(edges, domain, compact, mid, hi));
+        }
+    }
+
+    /**
+     * Puts the edges into buckets.
+     *
+     * @param edges Edges of a diagram, they must not change while the clipper is used.
+     * @param domain Clip domain.
+     */
+    EdgeClipper(List<Edge> edges, ConvexPolygon domain) {
+        this.edges = edges;
+        this.domain = domain;
+
+        Rectangle bounds = domain.bounds();
+
+        xmin = bounds.x;
+        ymin = bounds.y;
+        xmax = bounds.right;
+        ymax = bounds.bottom;
+
+        int side = (int) Math.min(MAX_SIDE, Math.max(1, Math.sqrt(edges.size() / 4.0)));
+        double aspect = bounds.height > 0 && bounds.width > 0 ? bounds.width / bounds.height : 1;
+
+        cols = (int) Math.min(MAX_SIDE, Math.max(1, Math.round(side * Math.sqrt(aspect))));
+        rows = (int) Math.min(MAX_SIDE, Math.max(1, Math.round(side / Math.sqrt(aspect))));
+        scaleX = bounds.width > 0 ? cols / bounds.width : 0;
+        scaleY = bounds.height > 0 ? rows / bounds.height : 0;
+
+        int m = edges.size();
+        double[] ends = new double[4 * m];
+        boolean[] visible = new boolean[m];
+        int numOutside = 0;
+
+        bucketStart = new int[cols * rows + 1];
+
+        for (int i = 0; i < m; i++) {
+            Edge e = edges.get(i);
+
+            visible[i] = e.clip(xmin, ymin, xmax, ymax, ends, 4 * i);
+
+            if (visible[i])
+                addToBuckets(ends, 4 * i, i, null, null);
+
+            if (!isInside(e.getLeftVertex()) || !isInside(e.getRightVertex()))
+                numOutside++;
+        }
+
+        for (int b = 0; b < cols * rows; b++)
+            bucketStart[b + 1] += bucketStart[b];
+
+        int[] fill = Arrays.copyOf(bucketStart, cols * rows);
+
+        bucketEdges = new int[bucketStart[cols * rows]];
+        outside = new int[numOutside];
+        numOutside = 0;
+
+        for (int i = 0; i < m; i++) {
+            Edge e = edges.get(i);
+
+            if (visible[i])
+                addToBuckets(ends, 4 * i, i, fill, bucketEdges);
+
+            if (!isInside(e.getLeftVertex()) || !isInside(e.getRightVertex()))
+                outside[numOutside++] = i;
+        }
+    }
+
+    /**
+     * @param v Vertex or {@code null}.
+     * @return {@code True} if the vertex is inside the graph bounds.
+     */
+    private boolean isInside(Vertex v) {
+        return v != null && v != Vertex.VERTEX_AT_INFINITY &&
+            v.getX() >= xmin && v.getX() <= xmax && v.getY() >= ymin && v.getY() <= ymax;
+    }
+
+    /**
+     * Visits buckets crossed by a segment column by column. Counts the edge in {@link #bucketStart}
+     * if {@code fill} is {@code null}, otherwise puts it into {@code bucketEdges}.
+     *
+     * @param ends Segment ends.
+     * @param off Offset of the segment in {@code ends}.
+     * @param edge Edge position.
+     * @param fill Next free place of each bucket or {@code null}.
+     * @param bucketEdges Edge positions by bucket or {@code null}.
+     */
+    private void addToBuckets(double[] ends, int off, int edge, int[] fill, int[] bucketEdges) {
+        double x0 = ends[off], y0 = ends[off + 1], x1 = ends[off + 2], y1 = ends[off + 3];
+
+        if (x1 < x0) {
+            double t = x0;
+            x0 = x1;
+            x1 = t;
+
+            t = y0;
+            y0 = y1;
+            y1 = t;
+        }
+
+        int c0 = col(x0), c1 = col(x1);
+
+        for (int c = c0; c <= c1; c++) {
+            double ya = y0, yb = y1;
+
+            // part of the segment inside the column
+            if (c0 != c1) {
+                double left = Math.max(x0, xmin + c / scaleX);
+                double right = Math.min(x1, xmin + (c + 1) / scaleX);
+
+                ya = y0 + (y1 - y0) * (left - x0) / (x1 - x0);
+                yb = y0 + (y1 - y0) * (right - x0) / (x1 - x0);
+            }
+
+            int r0 = row(Math.min(ya, yb)), r1 = row(Math.max(ya, yb));
+
+            for (int r = r0; r <= r1; r++) {
+                int b = r * cols + c;
+
+                if (fill == null)
+                    bucketStart[b + 1]++;
+                else
+                    bucketEdges[fill[b]++] = edge;
+            }
+        }
+    }
+
+    /**
+     * @param x X coordinate.
+     * @return Column of the coordinate, clamped to the grid.
+     */
+    private int col(double x) {
+        return (int) Math.max(0, Math.min(cols - 1, (x - xmin) * scaleX));
+    }
+
+    /**
+     * @param y Y coordinate.
+     * @return Row of the coordinate, clamped to the grid.
+     */
+    private int row(double y) {
+        return (int) Math.max(0, Math.min(rows - 1, (y - ymin) * scaleY));
+    }
+
+    /**
+     * Clips the edges crossing a viewport to it. May be called concurrently.
+     *
+     * @param viewport Viewport, it may go beyond the graph bounds.
+     * @return Clipped parts of the edges.
+     */
+    public Segments clip(Rectangle viewport) {
+        int[] candidates = new int[16];
+        int n = 0;
+
+        if (viewport.x <= xmax && viewport.right >= xmin && viewport.y <= ymax && viewport.bottom >= ymin) {
+            int c0 = col(viewport.x), c1 = col(viewport.right);
+            int r0 = row(viewport.y), r1 = row(viewport.bottom);
+
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    int b = r * cols + c;
+
+                    for (int i = bucketStart[b]; i < bucketStart[b + 1]; i++) {
+                        if (n == candidates.length)
+                            candidates = Arrays.copyOf(candidates, 2 * n);
+
+                        candidates[n++] = bucketEdges[i];
+                    }
+                }
+            }
+        }
+
+        if (viewport.x < xmin || viewport.right > xmax || viewport.y < ymin || viewport.bottom > ymax) {
+            candidates = Arrays.copyOf(candidates, n + outside.length);
+
+            System.arraycopy(outside, 0, candidates, n, outside.length);
+
+            n += outside.length;
+        }
+
+        Arrays.sort(candidates, 0, n);
+
+        Segments res = new Segments(n);
+
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && candidates[i] == candidates[i - 1])
+                continue;
+
+            int e = candidates[i];
+
+            if (edges.get(e).clip(viewport.x, viewport.y, viewport.right, viewport.bottom, res.ends, 4 * res.size)
+                && clipToDomain(res.ends, 4 * res.size))
+                res.edges[res.size++] = e;
+        }
+
+        return res;
+    }
+
+    /**
+     * Clips a segment to the clip domain unless it is a rectangle, since segments are already inside the graph
+     * bounds then.
+     *
+     * @param ends Segment ends.
+     * @param off Offset of the segment in {@code ends}.
+     * @return {@code False} if no part of the segment is inside the domain.
+     */
+    private boolean clipToDomain(double[] ends, int off) {
+        if (domain.asRectangle() != null)
+            return true;
+
+        double x0 = ends[off], y0 = ends[off + 1], dx = ends[off + 2] - x0, dy = ends[off + 3] - y0;
+
+        if (!domain.clipLine(x0, y0, dx, dy, 0, 1, ends, off))
+            return false;
+
+        double t0 = ends[off], t1 = ends[off + 1];
+
+        ends[off] = x0 + t0 * dx;
+        ends[off + 1] = y0 + t0 * dy;
+        ends[off + 2] = x0 + t1 * dx;
+        ends[off + 3] = y0 + t1 * dy;
+
+        return true;
+    }
+
+    /**
+     * Parts of edges clipped to a viewport, in primitive arrays.
+     */
+    public static final class Segments {
+        /** Number of segments. */
+        private int size;
+
+        /** Edge positions in {@link Voronoi#edges()}. */
+        private final int[] edges;
+
+        /** X and y of the left end, then x and y of the right end of each segment. */
+        private final double[] ends;
+
+        /**
+         * @param capacity Largest number of segments.
+         */
+        private Segments(int capacity) {
+            edges = new int[capacity];
+            ends = new double[4 * capacity];
+        }
+
+        /**
+         * @return Number of segments.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param i Segment.
+         * @return Position of the edge in {@link Voronoi#edges()}.
+         */
+        public int edge(int i) {
+            return edges[i];
+        }
+
+        /**
+         * @param i Segment.
+         * @return X coordinate of the left end.
+         */
+        public double x0(int i) {
+            return ends[4 * i];
+        }
+
+        /**
+         * @param i Segment.
+         * @return Y coordinate of the left end.
+         */
+        public double y0(int i) {
+            return ends[4 * i + 1];
+        }
+
+        /**
+         * @param i Segment.
+         * @return X coordinate of the right end.
+         */
+        public double x1(int i) {
+            return ends[4 * i + 2];
+        }
+
+        /**
+         * @param i Segment.
+         * @return Y coordinate of the right end.
+         */
+        public double y1(int i) {
+            return ends[4 * i + 3];
+        }
+    }
+}
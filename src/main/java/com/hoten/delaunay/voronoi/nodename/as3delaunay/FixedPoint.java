@@ -0,0 +1,141 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import java.math.BigInteger;
+
+/**
+ * Fixed point mode, see {@link VoronoiOptions#fixedPoint(int)}. Sites are snapped to multiples of
+ * {@code 2^-bits}, so a site coordinate times the scale is an exact integer and predicates run on longs.
+ * Scaling by a power of two is exact, so grid coordinates and doubles never disagree.
+ * <p>
+ * A vertex is the circumcenter of its three sites: an exact rational offset from the lowest of them, which
+ * is rounded to doubles only at the end. The rounding doesn't depend on the order the sites are given in,
+ * so every engine gets bit identical vertices. The sweep doesn't order its events by the rounded vertex
+ * but by the exact circle of the snapped sites, see {@link CircleEvent}, whose exact comparisons run on the
+ * same integers as the grid.
+ */
+final class FixedPoint {
+    /** Largest grid coordinate, doubles are exact up to it. */
+    private static final double MAX_GRID = 0x1p53;
+
+    /** Grid coordinate differences below this keep the circumcenter in long arithmetic. */
+    private static final long LONG_LIMIT = 1L << 30;
+
+    /** Low half of a wide product, see {@link #wide(long, long, long, long)}. */
+    private static final long LOW_MASK = (1L << 31) - 1;
+
+    /**
+     * Utility class.
+     */
+    private FixedPoint() {
+        // No-op.
+    }
+
+    /**
+     * @param bits Fraction bits.
+     * @return Number of grid steps per unit.
+     */
+    static double scale(int bits) {
+        return Math.scalb(1.0, bits);
+    }
+
+    /**
+     * @param v Coordinate.
+     * @param scale Grid steps per unit.
+     * @return Coordinate rounded to the nearest grid step.
+     * @throws IllegalArgumentException If the coordinate is out of the grid.
+     */
+    static double snap(double v, double scale) {
+        double g = Math.rint(v * scale);
+
+        if (!(Math.abs(g) <= MAX_GRID))
+            throw new IllegalArgumentException("Coordinate doesn't fit the fixed point grid: " + v);
+
+        return g / scale;
+    }
+
+    /**
+     * @param v Snapped coordinate.
+     * @param scale Grid steps per unit.
+     * @return Grid coordinate.
+     */
+    static long grid(double v, double scale) {
+        return (long) (v * scale);
+    }
+
+    /**
+     * Circumcenter of three counterclockwise or clockwise, but not collinear, snapped points.
+     *
+     * @param scale Grid steps per unit.
+     * @param out Receives circumcenter x and y.
+     */
+    static void circumcenter(double scale, double x0, double y0, double x1, double y1, double x2, double y2,
+        double[] out) {
+        long ax = grid(x0, scale), ay = grid(y0, scale);
+        long bx = grid(x1, scale), by = grid(y1, scale);
+        long cx = grid(x2, scale), cy = grid(y2, scale);
+
+        // lowest point first, swapping the other two only flips signs of both numerator and denominator
+        if (below(bx, by, ax, ay) && !below(cx, cy, bx, by)) {
+            long tx = ax, ty = ay;
+
+            ax = bx;
+            ay = by;
+            bx = tx;
+            by = ty;
+        }
+        else if (below(cx, cy, ax, ay)) {
+            long tx = ax, ty = ay;
+
+            ax = cx;
+            ay = cy;
+            cx = tx;
+            cy = ty;
+        }
+
+        long bdx = bx - ax, bdy = by - ay;
+        long cdx = cx - ax, cdy = cy - ay;
+
+        double dx, dy;
+
+        if (Math.abs(bdx) < LONG_LIMIT && Math.abs(bdy) < LONG_LIMIT && Math.abs(cdx) < LONG_LIMIT
+            && Math.abs(cdy) < LONG_LIMIT) {
+            long b2 = bdx * bdx + bdy * bdy;
+            long c2 = cdx * cdx + cdy * cdy;
+            double d = 2 * (bdx * cdy - bdy * cdx);
+
+            dx = wide(cdy, b2, bdy, c2) / d;
+            dy = wide(bdx, c2, cdx, b2) / d;
+        }
+        else {
+            BigInteger bgx = BigInteger.valueOf(bdx), bgy = BigInteger.valueOf(bdy);
+            BigInteger cgx = BigInteger.valueOf(cdx), cgy = BigInteger.valueOf(cdy);
+            BigInteger b2 = bgx.multiply(bgx).add(bgy.multiply(bgy));
+            BigInteger c2 = cgx.multiply(cgx).add(cgy.multiply(cgy));
+            double d = bgx.multiply(cgy).subtract(bgy.multiply(cgx)).shiftLeft(1).doubleValue();
+
+            dx = cgy.multiply(b2).subtract(bgy.multiply(c2)).doubleValue() / d;
+            dy = bgx.multiply(c2).subtract(cgx.multiply(b2)).doubleValue() / d;
+        }
+
+        out[0] = (ax + dx) / scale;
+        out[1] = (ay + dy) / scale;
+    }
+
+    /**
+     * @return {@code a * b - c * d} for {@code |a|, |c| < 2^30} and {@code 0 <= b, d < 2^61}, which needs
+     * up to 92 bits: high and low parts are computed in longs separately and added as doubles.
+     */
+    private static double wide(long a, long b, long c, long d) {
+        long hi = a * (b >>> 31) - c * (d >>> 31);
+        long lo = a * (b & LOW_MASK) - c * (d & LOW_MASK);
+
+        return hi * 0x1p31 + lo;
+    }
+
+    /**
+     * @return {@code True} if the first point comes before the second one in y-then-x order.
+     */
+    private static boolean below(long x0, long y0, long x1, long y1) {
+        return y0 < y1 || (y0 == y1 && x0 < x1);
+    }
+}
@@ -1,47 +1,56 @@
 package com.hoten.delaunay.voronoi.nodename.as3delaunay;
 
 import com.hoten.delaunay.geom.Point;
-import java.util.Stack;
+import com.hoten.delaunay.geom.Predicates;
 
 public final class Halfedge {
 
-    private static Stack<Halfedge> _pool = new Stack<>();
-
-    public static Halfedge create(Edge edge, LR lr) {
-        if (_pool.size() > 0) {
-            return _pool.pop().init(edge, lr);
-        } else {
-            return new Halfedge(edge, lr);
-        }
-    }
-
-    public static Halfedge createDummy() {
-        return create(null, null);
-    }
-
     public Halfedge edgeListLeftNeighbor, edgeListRightNeighbor;
     public Halfedge nextInPriorityQueue;
+    // links in HalfedgeTree, null when the beach line is a HalfedgeList
+    public Halfedge treeLeft, treeRight, treeParent;
+    public int treePriority;
+    // slot in IndexedHalfedgeHeap, -1 if not queued there
+    public int heapIndex = -1;
     public Edge edge;
     public LR leftRight;
-    public Vertex vertex;
-    // the vertex's y-coordinate in the transformed Voronoi space V*
+    // pending circle event: where this halfedge meets its right neighbour, NaN for a vertex at infinity;
+    // the Vertex itself is made only when the event fires
+    public boolean hasVertex;
+    public double vertexX, vertexY;
+    // the vertex's y-coordinate in the transformed Voronoi space V*, the priority of the event
     public double ystar;
+    // bound of the rounding error of ystar, see CircleEvent
+    public double eventError;
+    // sites of the event: left and right regions of this halfedge and right region of its right neighbour
+    public Site eventLeft, eventMiddle, eventRight;
+    // bumped whenever the halfedge gets a new life, so LazyCircleEventQueue can skip stale events
+    public int eventGeneration;
+    // number of HalfedgeList hash buckets pointing to this halfedge
+    int hashRefs;
+    // disposed while still in the HalfedgeList hash, recycled when the hash lets it go
+    boolean dead;
+    // owner of this halfedge, it gets the halfedge back on dispose
+    private final VoronoiWorkspace workspace;
 
-    public Halfedge( Edge edge, LR lr) {
+    Halfedge(VoronoiWorkspace workspace, Edge edge, LR lr) {
+        this.workspace = workspace;
         init(edge, lr);
     }
 
-    private Halfedge init(Edge edge, LR lr) {
+    Halfedge init(Edge edge, LR lr) {
         this.edge = edge;
         leftRight = lr;
         nextInPriorityQueue = null;
-        vertex = null;
+        hasVertex = false;
+        dead = false;
+        eventGeneration++;
         return this;
     }
 
     @Override
     public String toString() {
-        return "Halfedge (leftRight: " + leftRight + "; vertex: " + vertex + ")";
+        return "Halfedge (leftRight: " + leftRight + "; vertex: " + (hasVertex ? vertexX + ", " + vertexY : "null") + ")";
     }
 
     public void dispose() {
@@ -49,71 +58,47 @@ public final class Halfedge {
             // still in HalfedgeList
             return;
         }
-        if (nextInPriorityQueue != null) {
+        if (nextInPriorityQueue != null || heapIndex != -1) {
             // still in PriorityQueue
             return;
         }
-        edge = null;
         leftRight = null;
-        vertex = null;
-        _pool.push(this);
+        hasVertex = false;
+        if (hashRefs > 0) {
+            // still in HalfedgeList hash, which must see Edge.DELETED to prune it
+            dead = true;
+            return;
+        }
+        edge = null;
+        workspace.release(this);
     }
 
     public void reallyDispose() {
         edgeListLeftNeighbor = null;
         edgeListRightNeighbor = null;
         nextInPriorityQueue = null;
-        edge = null;
-        leftRight = null;
-        vertex = null;
-        _pool.push(this);
+        dispose();
     }
 
+    /**
+     * Exact test of the breakpoint against a new site. Left of the top site the halfedge is left of p
+     * where the arc of the top site is closer to the sweep line than the one of the bottom site, right
+     * of it - where the arc of the bottom site is closer.
+     *
+     * @param p New site on the sweep line.
+     * @return {@code True} if the breakpoint of this halfedge is left of p.
+     */
     public boolean isLeftOf(Point p) {
-        Site topSite;
-        boolean rightOfSite, above, fast;
-        double dxp, dyp, dxs, t1, t2, t3, yl;
+        Site topSite = edge.getRightSite();
+        Site bottomSite = edge.getLeftSite();
+        boolean rightOfSite = p.x > topSite.getX();
 
-        topSite = edge.getRightSite();
-        rightOfSite = p.x > topSite.getX();
-        if (rightOfSite && this.leftRight == LR.LEFT) {
-            return true;
-        }
-        if (!rightOfSite && this.leftRight == LR.RIGHT) {
-            return false;
+        if (leftRight == LR.LEFT) {
+            return rightOfSite || Predicates.tangentCircles(p.x, p.y, topSite.getX(), topSite.getY(),
+                bottomSite.getX(), bottomSite.getY()) < 0;
         }
 
-        if (edge.a == 1.0) {
-            dyp = p.y - topSite.getY();
-            dxp = p.x - topSite.getX();
-            fast = false;
-            if ((!rightOfSite && edge.b < 0.0) || (rightOfSite && edge.b >= 0.0)) {
-                above = dyp >= edge.b * dxp;
-                fast = above;
-            } else {
-                above = p.x + p.y * edge.b > edge.c;
-                if (edge.b < 0.0) {
-                    above = !above;
-                }
-                if (!above) {
-                    fast = true;
-                }
-            }
-            if (!fast) {
-                dxs = topSite.getX() - edge.getLeftSite().getX();
-                above = edge.b * (dxp * dxp - dyp * dyp)
-                        < dxs * dyp * (1.0 + 2.0 * dxp / dxs + edge.b * edge.b);
-                if (edge.b < 0.0) {
-                    above = !above;
-                }
-            }
-        } else /* edge.b == 1.0 */ {
-            yl = edge.c - edge.a * p.x;
-            t1 = p.y - yl;
-            t2 = p.x - topSite.getX();
-            t3 = yl - topSite.getY();
-            above = t1 * t1 > t2 * t2 + t3 * t3;
-        }
-        return (this.leftRight == LR.LEFT) == above;
+        return rightOfSite && Predicates.tangentCircles(p.x, p.y, bottomSite.getX(), bottomSite.getY(),
+            topSite.getX(), topSite.getY()) < 0;
     }
 }
@@ -1,54 +1,66 @@
 package com.hoten.delaunay.voronoi.nodename.as3delaunay;
 
 import com.hoten.delaunay.geom.Point;
-import java.util.ArrayList;
-import java.util.List;
 
-public final class HalfedgeList implements IDisposable {
+public final class HalfedgeList implements IBeachLine {
 
-    private final double _deltax;
-    private final double _xmin;
+    private final VoronoiWorkspace _workspace;
+    private double _deltax;
+    private double _xmin;
     private int _hashsize;
-    private final List<Halfedge> _hash;
+    private Halfedge[] _hash = new Halfedge[0];
     public Halfedge leftEnd;
     public Halfedge rightEnd;
+    private BeachLineStats _stats;
 
     @Override
     public void dispose() {
+        for (int i = 0; i < _hashsize; i++) {
+            setHash(i, null);
+        }
+
         Halfedge halfEdge = leftEnd;
         Halfedge prevHe;
-        while (halfEdge != rightEnd) {
+        while (halfEdge != null) {
             prevHe = halfEdge;
             halfEdge = halfEdge.edgeListRightNeighbor;
-            prevHe.dispose();
+            prevHe.reallyDispose();
         }
         leftEnd = null;
-        rightEnd.dispose();
         rightEnd = null;
+    }
 
-        _hash.clear();
+    HalfedgeList(VoronoiWorkspace workspace) {
+        _workspace = workspace;
     }
 
-    public HalfedgeList(double xmin, double deltax, int sqrt_nsites) {
+    /**
+     * Makes an empty beach line, reusing the hash of the previous build when it is large enough.
+     *
+     * @param xmin Min x of the sites.
+     * @param deltax Width of the sites.
+     * @param sqrt_nsites Square root of the site count.
+     * @param stats Lookup counters.
+     */
+    void reset(double xmin, double deltax, int sqrt_nsites, BeachLineStats stats) {
+        _stats = stats;
         _xmin = xmin;
         _deltax = deltax;
         _hashsize = 2 * sqrt_nsites;
 
-        _hash = new ArrayList<>(_hashsize);
+        if (_hash.length < _hashsize)
+            _hash = new Halfedge[_hashsize];
 
         // two dummy Halfedges:
-        leftEnd = Halfedge.createDummy();
-        rightEnd = Halfedge.createDummy();
+        leftEnd = _workspace.halfedge(null, null);
+        rightEnd = _workspace.halfedge(null, null);
         leftEnd.edgeListLeftNeighbor = null;
         leftEnd.edgeListRightNeighbor = rightEnd;
         rightEnd.edgeListLeftNeighbor = leftEnd;
         rightEnd.edgeListRightNeighbor = null;
-        
-        for(int i = 0; i < _hashsize; i++)
-            _hash.add(null);
-        
-        _hash.set(0, leftEnd);
-        _hash.set(_hashsize - 1, rightEnd);
+
+        setHash(0, leftEnd);
+        setHash(_hashsize - 1, rightEnd);
     }
 
     /**
@@ -58,6 +70,7 @@ public final class HalfedgeList implements IDisposable {
      * @param newHalfedge
      *
      */
+    @Override
     public void insert(Halfedge lb, Halfedge newHalfedge) {
         newHalfedge.edgeListLeftNeighbor = lb;
         newHalfedge.edgeListRightNeighbor = lb.edgeListRightNeighbor;
@@ -72,6 +85,7 @@ public final class HalfedgeList implements IDisposable {
      * @param halfEdge
      *
      */
+    @Override
     public void remove(Halfedge halfEdge) {
         halfEdge.edgeListLeftNeighbor.edgeListRightNeighbor = halfEdge.edgeListRightNeighbor;
         halfEdge.edgeListRightNeighbor.edgeListLeftNeighbor = halfEdge.edgeListLeftNeighbor;
@@ -85,9 +99,13 @@ public final class HalfedgeList implements IDisposable {
      * @param p
      * @return
      */
+    @Override
     public Halfedge edgeListLeftNeighbor(Point p) {
         int i, bucket;
         Halfedge halfEdge;
+        long walk = 1;
+
+        _stats.lookups++;
 
         /* Use hash table to get close to desired halfedge */
         bucket = (int) ((p.x - _xmin) / _deltax * _hashsize);
@@ -112,17 +130,20 @@ public final class HalfedgeList implements IDisposable {
         if (halfEdge == leftEnd || (halfEdge != rightEnd && halfEdge.isLeftOf(p))) {
             do {
                 halfEdge = halfEdge.edgeListRightNeighbor;
+                walk++;
             } while (halfEdge != rightEnd && halfEdge.isLeftOf(p));
             halfEdge = halfEdge.edgeListLeftNeighbor;
         } else {
             do {
                 halfEdge = halfEdge.edgeListLeftNeighbor;
+                walk++;
             } while (halfEdge != leftEnd && !halfEdge.isLeftOf(p));
         }
+        _stats.walk(walk);
 
         /* Update hash table and reference counts */
         if (bucket > 0 && bucket < _hashsize - 1) {
-            _hash.set(bucket, halfEdge);
+            setHash(bucket, halfEdge);
         }
         return halfEdge;
     }
@@ -136,15 +157,36 @@ public final class HalfedgeList implements IDisposable {
         if (b < 0 || b >= _hashsize)
             return null;
 
-        halfEdge = _hash.get(b);
+        _stats.probes++;
+
+        halfEdge = _hash[b];
 
         if (halfEdge != null && halfEdge.edge == Edge.DELETED) {
             /* Hash table points to deleted halfedge.  Patch as necessary. */
-            _hash.set(b, null);
+            setHash(b, null);
             // still can't dispose halfEdge yet!
             return null;
         }
 
         return halfEdge;
     }
+
+    /**
+     * Put entry into hash table. A disposed halfedge goes back to the workspace when the last bucket lets it go,
+     * not earlier: until then the bucket must see it as deleted.
+     */
+    private void setHash(int b, Halfedge halfEdge) {
+        Halfedge old = _hash[b];
+
+        if (old == halfEdge)
+            return;
+
+        if (old != null && --old.hashRefs == 0 && old.dead)
+            old.dispose();
+
+        if (halfEdge != null)
+            halfEdge.hashRefs++;
+
+        _hash[b] = halfEdge;
+    }
 }
\ No newline at end of file
@@ -1,49 +1,61 @@
 package com.hoten.delaunay.voronoi.nodename.as3delaunay;
 
-import com.hoten.delaunay.geom.Point;
-import java.util.ArrayList;
-
-public final class HalfedgePriorityQueue // also known as heap
+public final class HalfedgePriorityQueue implements IHalfedgePriorityQueue // also known as heap
 {
 
-    private final ArrayList<Halfedge> _hash;
+    private final VoronoiWorkspace _workspace;
+    private Halfedge[] _hash = new Halfedge[0];
     private int _count;
     private int _minBucket;
-    private final int _hashsize;
-    private final double _ymin;
-    private final double _deltay;
+    private int _hashsize;
+    private double _ymin;
+    private double _deltay;
+
+    HalfedgePriorityQueue(VoronoiWorkspace workspace) {
+        _workspace = workspace;
+    }
 
-    public HalfedgePriorityQueue(double ymin, double deltay, int sqrt_nsites) {
+    /**
+     * Makes an empty queue, reusing the buckets of the previous build when there are enough of them.
+     *
+     * @param ymin Min y of the sites.
+     * @param deltay Height of the sites.
+     * @param sqrt_nsites Square root of the site count.
+     */
+    void reset(double ymin, double deltay, int sqrt_nsites) {
         _ymin = ymin;
         _deltay = deltay;
         _hashsize = 4 * sqrt_nsites;
         _count = 0;
         _minBucket = 0;
-        _hash = new ArrayList<>(_hashsize);
+        if (_hash.length < _hashsize) {
+            _hash = new Halfedge[_hashsize];
+        }
         // dummy Halfedge at the top of each hash
         for (int i = 0; i < _hashsize; ++i) {
-            _hash.add(Halfedge.createDummy());
-            _hash.get(i).nextInPriorityQueue = null;
+            _hash[i] = _workspace.halfedge(null, null);
+            _hash[i].nextInPriorityQueue = null;
         }
     }
 
+    @Override
     public void dispose() {
         // get rid of dummies
         for (int i = 0; i < _hashsize; ++i) {
-            _hash.get(i).dispose();
+            _hash[i].dispose();
+            _hash[i] = null;
         }
-        _hash.clear();
     }
 
+    @Override
     public void insert(Halfedge halfEdge) {
         Halfedge previous, next;
         int insertionBucket = bucket(halfEdge);
         if (insertionBucket < _minBucket) {
             _minBucket = insertionBucket;
         }
-        previous = _hash.get(insertionBucket);
-        while ((next = previous.nextInPriorityQueue) != null
-                && (halfEdge.ystar > next.ystar || (halfEdge.ystar == next.ystar && halfEdge.vertex.getX() > next.vertex.getX()))) {
+        previous = _hash[insertionBucket];
+        while ((next = previous.nextInPriorityQueue) != null && CircleEvent.compare(halfEdge, next) > 0) {
             previous = next;
         }
         halfEdge.nextInPriorityQueue = previous.nextInPriorityQueue;
@@ -51,15 +63,16 @@ public final class HalfedgePriorityQueue // also known as heap
         ++_count;
     }
 
+    @Override
     public void remove(Halfedge halfEdge) {
-        if (halfEdge.vertex != null) {
-            Halfedge previous = _hash.get(bucket(halfEdge));
+        if (halfEdge.hasVertex) {
+            Halfedge previous = _hash[bucket(halfEdge)];
             while (previous.nextInPriorityQueue != halfEdge) {
                 previous = previous.nextInPriorityQueue;
             }
             previous.nextInPriorityQueue = halfEdge.nextInPriorityQueue;
             _count--;
-            halfEdge.vertex = null;
+            halfEdge.hasVertex = false;
             halfEdge.nextInPriorityQueue = null;
             halfEdge.dispose();
         }
@@ -73,11 +86,37 @@ public final class HalfedgePriorityQueue // also known as heap
         if (theBucket >= _hashsize) {
             theBucket = _hashsize - 1;
         }
+        // ystar is rounded: move to the last bucket which starts at or below the exact priority,
+        // so that buckets keep the order of CircleEvent#compare
+        while (theBucket > 0 && !startsBelow(theBucket, halfEdge)) {
+            --theBucket;
+        }
+        while (theBucket < _hashsize - 1 && startsBelow(theBucket + 1, halfEdge)) {
+            ++theBucket;
+        }
         return theBucket;
     }
 
+    /**
+     * @param bucket Bucket.
+     * @param halfEdge Halfedge with pending event.
+     * @return {@code True} if the bucket starts at or below the event priority.
+     */
+    private boolean startsBelow(int bucket, Halfedge halfEdge) {
+        double start = _ymin + _deltay * bucket / _hashsize;
+        int cmp = CircleEvent.filter(start, 0, halfEdge.ystar, halfEdge.eventError);
+
+        if (cmp == 0) {
+            Site a = halfEdge.eventLeft, b = halfEdge.eventMiddle, c = halfEdge.eventRight;
+
+            cmp = CircleEvent.compareLevel(start, a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY());
+        }
+
+        return cmp <= 0;
+    }
+
     private boolean isEmpty(int bucket) {
-        return (_hash.get(bucket).nextInPriorityQueue == null);
+        return (_hash[bucket].nextInPriorityQueue == null);
     }
 
     /**
@@ -90,18 +129,25 @@ public final class HalfedgePriorityQueue // also known as heap
         }
     }
 
+    @Override
     public boolean empty() {
         return _count == 0;
     }
 
-    /**
-     * @return coordinates of the Halfedge's vertex in V*, the transformed
-     * Voronoi diagram
-     */
-    public Point min() {
+    @Override
+    public Halfedge minHalfedge() {
         adjustMinBucket();
-        Halfedge answer = _hash.get(_minBucket).nextInPriorityQueue;
-        return new Point(answer.vertex.getX(), answer.ystar);
+        return _hash[_minBucket].nextInPriorityQueue;
+    }
+
+    @Override
+    public double minX() {
+        return minHalfedge().vertexX;
+    }
+
+    @Override
+    public double minYStar() {
+        return minHalfedge().ystar;
     }
 
     /**
@@ -109,16 +155,18 @@ public final class HalfedgePriorityQueue // also known as heap
      *
      * @return
      */
+    @Override
     public Halfedge extractMin() {
         Halfedge answer;
 
         // get the first real Halfedge in _minBucket
-        answer = _hash.get(_minBucket).nextInPriorityQueue;
+        adjustMinBucket();
+        answer = _hash[_minBucket].nextInPriorityQueue;
 
-        _hash.get(_minBucket).nextInPriorityQueue = answer.nextInPriorityQueue;
+        _hash[_minBucket].nextInPriorityQueue = answer.nextInPriorityQueue;
         _count--;
         answer.nextInPriorityQueue = null;
 
         return answer;
     }
-}
\ No newline at end of file
+}
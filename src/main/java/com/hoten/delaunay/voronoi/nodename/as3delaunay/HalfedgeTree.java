@@ -0,0 +1,211 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.Point;
+
+/**
+ * Beach line as a treap of halfedges ordered by their breakpoints. Lookup descends from the root,
+ * so it tests O(log n) halfedges whatever the width or anisotropy of the input is, while {@link HalfedgeList}
+ * walks from a hash bucket which may be far away from the answer.
+ * <p>
+ * Halfedges are linked into a list as well, so the sweep sees the same neighbours as with {@link HalfedgeList}.
+ * Treap priorities come from a generator with a fixed seed, so builds are reproducible.
+ */
+public final class HalfedgeTree implements IBeachLine {
+
+    /** Seed of treap priorities. */
+    private static final int SEED = 0x9E3779B9;
+
+    /** Owner of the dummies. */
+    private final VoronoiWorkspace workspace;
+
+    /** Root of the treap. */
+    private Halfedge root;
+
+    /** Beach line ends. */
+    private Halfedge leftEnd, rightEnd;
+
+    /** Priority generator state (xorshift). */
+    private int random;
+
+    /** Lookup counters. */
+    private BeachLineStats stats;
+
+    /**
+     * @param workspace Owner of the dummies.
+     */
+    HalfedgeTree(VoronoiWorkspace workspace) {
+        this.workspace = workspace;
+    }
+
+    /**
+     * Makes an empty beach line.
+     *
+     * @param stats Lookup counters.
+     */
+    void reset(BeachLineStats stats) {
+        this.stats = stats;
+        random = SEED;
+        root = null;
+
+        leftEnd = workspace.halfedge(null, null);
+        rightEnd = workspace.halfedge(null, null);
+
+        link(leftEnd);
+        leftEnd.edgeListLeftNeighbor = null;
+        leftEnd.edgeListRightNeighbor = null;
+        root = leftEnd;
+
+        insert(leftEnd, rightEnd);
+    }
+
+    /** {@inheritDoc} */
+    @Override public void dispose() {
+        Halfedge halfEdge = leftEnd;
+
+        while (halfEdge != null) {
+            Halfedge next = halfEdge.edgeListRightNeighbor;
+
+            halfEdge.treeLeft = halfEdge.treeRight = halfEdge.treeParent = null;
+            halfEdge.reallyDispose();
+            halfEdge = next;
+        }
+
+        root = leftEnd = rightEnd = null;
+    }
+
+    /** {@inheritDoc} */
+    @Override public void insert(Halfedge lb, Halfedge newHalfedge) {
+        Halfedge next = lb.edgeListRightNeighbor;
+
+        newHalfedge.edgeListLeftNeighbor = lb;
+        newHalfedge.edgeListRightNeighbor = next;
+
+        if (next != null)
+            next.edgeListLeftNeighbor = newHalfedge;
+
+        lb.edgeListRightNeighbor = newHalfedge;
+
+        link(newHalfedge);
+
+        // in order successor of lb is either in its right subtree or above it
+        if (lb.treeRight == null) {
+            lb.treeRight = newHalfedge;
+            newHalfedge.treeParent = lb;
+        }
+        else {
+            next.treeLeft = newHalfedge;
+            newHalfedge.treeParent = next;
+        }
+
+        while (newHalfedge.treeParent != null && newHalfedge.treePriority < newHalfedge.treeParent.treePriority)
+            rotateUp(newHalfedge);
+    }
+
+    /** {@inheritDoc} */
+    @Override public void remove(Halfedge halfEdge) {
+        while (halfEdge.treeLeft != null || halfEdge.treeRight != null) {
+            Halfedge child;
+
+            if (halfEdge.treeLeft == null)
+                child = halfEdge.treeRight;
+            else if (halfEdge.treeRight == null)
+                child = halfEdge.treeLeft;
+            else
+                child = halfEdge.treeLeft.treePriority < halfEdge.treeRight.treePriority ?
+                    halfEdge.treeLeft : halfEdge.treeRight;
+
+            rotateUp(child);
+        }
+
+        Halfedge parent = halfEdge.treeParent;
+
+        if (parent == null)
+            root = null;
+        else if (parent.treeLeft == halfEdge)
+            parent.treeLeft = null;
+        else
+            parent.treeRight = null;
+
+        halfEdge.treeParent = null;
+
+        halfEdge.edgeListLeftNeighbor.edgeListRightNeighbor = halfEdge.edgeListRightNeighbor;
+        halfEdge.edgeListRightNeighbor.edgeListLeftNeighbor = halfEdge.edgeListLeftNeighbor;
+        halfEdge.edge = Edge.DELETED;
+        halfEdge.edgeListLeftNeighbor = halfEdge.edgeListRightNeighbor = null;
+    }
+
+    /** {@inheritDoc} */
+    @Override public Halfedge edgeListLeftNeighbor(Point p) {
+        Halfedge best = leftEnd;
+        Halfedge node = root;
+        long walk = 0;
+
+        stats.lookups++;
+
+        while (node != null) {
+            walk++;
+
+            if (node == leftEnd || (node != rightEnd && node.isLeftOf(p))) {
+                best = node;
+                node = node.treeRight;
+            }
+            else
+                node = node.treeLeft;
+        }
+
+        stats.walk(walk);
+
+        return best;
+    }
+
+    /**
+     * Prepares halfedge to become a treap node.
+     *
+     * @param halfEdge Halfedge.
+     */
+    private void link(Halfedge halfEdge) {
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+
+        halfEdge.treePriority = random;
+        halfEdge.treeLeft = halfEdge.treeRight = halfEdge.treeParent = null;
+    }
+
+    /**
+     * Rotates node above its parent keeping in order sequence.
+     *
+     * @param x Node with a parent.
+     */
+    private void rotateUp(Halfedge x) {
+        Halfedge p = x.treeParent;
+        Halfedge g = p.treeParent;
+
+        if (p.treeLeft == x) {
+            p.treeLeft = x.treeRight;
+
+            if (x.treeRight != null)
+                x.treeRight.treeParent = p;
+
+            x.treeRight = p;
+        }
+        else {
+            p.treeRight = x.treeLeft;
+
+            if (x.treeLeft != null)
+                x.treeLeft.treeParent = p;
+
+            x.treeLeft = p;
+        }
+
+        p.treeParent = x;
+        x.treeParent = g;
+
+        if (g == null)
+            root = x;
+        else if (g.treeLeft == p)
+            g.treeLeft = x;
+        else
+            g.treeRight = x;
+    }
+}
@@ -0,0 +1,32 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.Point;
+
+/**
+ * Beach line of Fortune's sweep: halfedges ordered from left to right and linked through
+ * {@link Halfedge#edgeListLeftNeighbor} and {@link Halfedge#edgeListRightNeighbor}.
+ */
+public interface IBeachLine extends IDisposable {
+
+    /**
+     * Insert newHalfedge to the right of lb.
+     *
+     * @param lb Halfedge in the beach line.
+     * @param newHalfedge Halfedge to insert.
+     */
+    void insert(Halfedge lb, Halfedge newHalfedge);
+
+    /**
+     * Removes halfedge from the beach line and marks its edge as {@link Edge#DELETED}.
+     * Halfedge isn't disposed because it is still in use.
+     *
+     * @param halfEdge Halfedge.
+     */
+    void remove(Halfedge halfEdge);
+
+    /**
+     * @param p Point.
+     * @return The rightmost halfedge that is still left of p.
+     */
+    Halfedge edgeListLeftNeighbor(Point p);
+}
@@ -0,0 +1,61 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.Point;
+
+/**
+ * Circle event queue of Fortune's sweep. Halfedges are ordered by their events, see
+ * {@link CircleEvent#compare(Halfedge, Halfedge)}: by {@link Halfedge#ystar}, then by {@link Halfedge#vertexX},
+ * and exactly where the doubles are too close.
+ */
+public interface IHalfedgePriorityQueue extends IDisposable {
+
+    /**
+     * @param halfEdge Halfedge with pending vertex ({@link Halfedge#hasVertex}).
+     */
+    void insert(Halfedge halfEdge);
+
+    /**
+     * Removes halfedge event if halfedge has one.
+     *
+     * @param halfEdge Halfedge.
+     */
+    void remove(Halfedge halfEdge);
+
+    /**
+     * @return {@code True} if there are no events.
+     */
+    boolean empty();
+
+    /**
+     * @return coordinates of the min Halfedge's vertex in V*, the transformed Voronoi diagram.
+     */
+    default Point min() {
+        return new Point(minX(), minYStar());
+    }
+
+    /**
+     * Allocation free version of {@link #min()}.
+     *
+     * @return X coordinate of the min Halfedge's vertex.
+     */
+    double minX();
+
+    /**
+     * Allocation free version of {@link #min()}.
+     *
+     * @return Y coordinate of the min Halfedge's vertex in V*, the transformed Voronoi diagram.
+     */
+    double minYStar();
+
+    /**
+     * @return The min Halfedge, it stays in the queue.
+     */
+    Halfedge minHalfedge();
+
+    /**
+     * Remove and return the min Halfedge.
+     *
+     * @return Halfedge.
+     */
+    Halfedge extractMin();
+}
@@ -0,0 +1,201 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of circle events. Each queued halfedge knows its slot ({@link Halfedge#heapIndex}),
+ * so insert, remove and {@link #update(Halfedge)} are O(log n) whatever the distribution of sites is.
+ * <p>
+ * Order is the same as in {@link HalfedgePriorityQueue}, see {@link CircleEvent#compare(Halfedge, Halfedge)},
+ * and the latest inserted halfedge goes first among equal ones.
+ */
+public final class IndexedHalfedgeHeap implements IHalfedgePriorityQueue {
+
+    /** Heap slots. */
+    private Halfedge[] heap;
+
+    /** Insertion stamp of halfedge in each slot, used to break ties. */
+    private long[] stamps;
+
+    /** Heap size. */
+    private int count;
+
+    /** Insertion counter. */
+    private long nextStamp;
+
+    /**
+     * @param sqrt_nsites Square root of the site count, used to size the heap.
+     */
+    public IndexedHalfedgeHeap(int sqrt_nsites) {
+        int cap = Math.max(16, 4 * sqrt_nsites);
+
+        heap = new Halfedge[cap];
+        stamps = new long[cap];
+    }
+
+    /** {@inheritDoc} */
+    @Override public void dispose() {
+        Arrays.fill(heap, 0, count, null);
+        count = 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override public void insert(Halfedge halfEdge) {
+        if (count == heap.length) {
+            heap = Arrays.copyOf(heap, count * 2);
+            stamps = Arrays.copyOf(stamps, count * 2);
+        }
+
+        int i = count++;
+
+        heap[i] = halfEdge;
+        stamps[i] = nextStamp++;
+        halfEdge.heapIndex = i;
+
+        siftUp(i);
+    }
+
+    /** {@inheritDoc} */
+    @Override public void remove(Halfedge halfEdge) {
+        if (halfEdge.hasVertex) {
+            removeAt(halfEdge.heapIndex);
+
+            halfEdge.hasVertex = false;
+            halfEdge.dispose();
+        }
+    }
+
+    /**
+     * Restores heap order after the event of a queued halfedge has changed in any direction
+     * (decrease or increase key).
+     *
+     * @param halfEdge Queued halfedge.
+     */
+    public void update(Halfedge halfEdge) {
+        int i = halfEdge.heapIndex;
+
+        stamps[i] = nextStamp++;
+
+        if (!siftUp(i))
+            siftDown(i);
+    }
+
+    /** {@inheritDoc} */
+    @Override public boolean empty() {
+        return count == 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override public double minX() {
+        return heap[0].vertexX;
+    }
+
+    /** {@inheritDoc} */
+    @Override public double minYStar() {
+        return heap[0].ystar;
+    }
+
+    /** {@inheritDoc} */
+    @Override public Halfedge minHalfedge() {
+        return heap[0];
+    }
+
+    /** {@inheritDoc} */
+    @Override public Halfedge extractMin() {
+        Halfedge answer = heap[0];
+
+        removeAt(0);
+
+        return answer;
+    }
+
+    /**
+     * @param i Slot to clear.
+     */
+    private void removeAt(int i) {
+        Halfedge removed = heap[i];
+
+        count--;
+
+        if (i != count) {
+            heap[i] = heap[count];
+            stamps[i] = stamps[count];
+            heap[i].heapIndex = i;
+
+            if (!siftUp(i))
+                siftDown(i);
+        }
+
+        heap[count] = null;
+        removed.heapIndex = -1;
+    }
+
+    /**
+     * @param i Slot.
+     * @return {@code True} if element has moved.
+     */
+    private boolean siftUp(int i) {
+        int start = i;
+        Halfedge he = heap[i];
+        long stamp = stamps[i];
+
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+
+            if (!less(he, stamp, heap[parent], stamps[parent]))
+                break;
+
+            heap[i] = heap[parent];
+            stamps[i] = stamps[parent];
+            heap[i].heapIndex = i;
+            i = parent;
+        }
+
+        heap[i] = he;
+        stamps[i] = stamp;
+        he.heapIndex = i;
+
+        return i != start;
+    }
+
+    /**
+     * @param i Slot.
+     */
+    private void siftDown(int i) {
+        Halfedge he = heap[i];
+        long stamp = stamps[i];
+        int half = count >>> 1;
+
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+
+            if (right < count && less(heap[right], stamps[right], heap[child], stamps[child]))
+                child = right;
+
+            if (!less(heap[child], stamps[child], he, stamp))
+                break;
+
+            heap[i] = heap[child];
+            stamps[i] = stamps[child];
+            heap[i].heapIndex = i;
+            i = child;
+        }
+
+        heap[i] = he;
+        stamps[i] = stamp;
+        he.heapIndex = i;
+    }
+
+    /**
+     * @return {@code True} if event of he0 goes before event of he1.
+     */
+    private static boolean less(Halfedge he0, long stamp0, Halfedge he1, long stamp1) {
+        int cmp = CircleEvent.compare(he0, he1);
+
+        if (cmp != 0)
+            return cmp < 0;
+
+        return stamp0 > stamp1;
+    }
+}
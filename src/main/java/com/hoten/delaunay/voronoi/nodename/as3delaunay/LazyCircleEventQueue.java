@@ -0,0 +1,262 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of primitive circle event records. A record remembers the {@link Halfedge#eventGeneration}
+ * of its halfedge at insertion time, and {@link #remove(Halfedge)} only bumps the generation,
+ * so cancelled events are never searched for nor unlinked: they are dropped when they reach the top.
+ * <p>
+ * Order is the same as in {@link IndexedHalfedgeHeap}.
+ */
+public final class LazyCircleEventQueue implements IHalfedgePriorityQueue {
+
+    /** Event priorities, y in V*, and their error bounds. */
+    private double[] ystars, errors;
+
+    /** Sites of each event, see {@link Halfedge#eventLeft}. */
+    private Site[] lefts, middles, rights;
+
+    /** Halfedge of each event. */
+    private Halfedge[] halfedges;
+
+    /** Halfedge generation of each event. */
+    private int[] generations;
+
+    /** Insertion stamp of each event, used to break ties. */
+    private long[] stamps;
+
+    /** Records in the heap, including stale ones. */
+    private int size;
+
+    /** Live events. */
+    private int count;
+
+    /** Insertion counter. */
+    private long nextStamp;
+
+    /**
+     * @param sqrt_nsites Square root of the site count, used to size the heap.
+     */
+    public LazyCircleEventQueue(int sqrt_nsites) {
+        int cap = Math.max(16, 8 * sqrt_nsites);
+
+        ystars = new double[cap];
+        errors = new double[cap];
+        lefts = new Site[cap];
+        middles = new Site[cap];
+        rights = new Site[cap];
+        halfedges = new Halfedge[cap];
+        generations = new int[cap];
+        stamps = new long[cap];
+    }
+
+    /** {@inheritDoc} */
+    @Override public void dispose() {
+        Arrays.fill(halfedges, 0, size, null);
+        Arrays.fill(lefts, 0, size, null);
+        Arrays.fill(middles, 0, size, null);
+        Arrays.fill(rights, 0, size, null);
+        size = 0;
+        count = 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override public void insert(Halfedge halfEdge) {
+        if (size == halfedges.length) {
+            int cap = size * 2;
+            ystars = Arrays.copyOf(ystars, cap);
+            errors = Arrays.copyOf(errors, cap);
+            lefts = Arrays.copyOf(lefts, cap);
+            middles = Arrays.copyOf(middles, cap);
+            rights = Arrays.copyOf(rights, cap);
+            halfedges = Arrays.copyOf(halfedges, cap);
+            generations = Arrays.copyOf(generations, cap);
+            stamps = Arrays.copyOf(stamps, cap);
+        }
+
+        int i = size++;
+
+        ystars[i] = halfEdge.ystar;
+        errors[i] = halfEdge.eventError;
+        lefts[i] = halfEdge.eventLeft;
+        middles[i] = halfEdge.eventMiddle;
+        rights[i] = halfEdge.eventRight;
+        halfedges[i] = halfEdge;
+        generations[i] = halfEdge.eventGeneration;
+        stamps[i] = nextStamp++;
+
+        siftUp(i);
+
+        ++count;
+    }
+
+    /** {@inheritDoc} */
+    @Override public void remove(Halfedge halfEdge) {
+        if (halfEdge.hasVertex) {
+            halfEdge.eventGeneration++;
+            halfEdge.hasVertex = false;
+            count--;
+            halfEdge.dispose();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override public boolean empty() {
+        return count == 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override public double minX() {
+        dropStale();
+
+        return halfedges[0].vertexX;
+    }
+
+    /** {@inheritDoc} */
+    @Override public double minYStar() {
+        dropStale();
+
+        return halfedges[0].ystar;
+    }
+
+    /** {@inheritDoc} */
+    @Override public Halfedge minHalfedge() {
+        dropStale();
+
+        return halfedges[0];
+    }
+
+    /** {@inheritDoc} */
+    @Override public Halfedge extractMin() {
+        dropStale();
+
+        Halfedge answer = halfedges[0];
+
+        removeTop();
+        count--;
+
+        return answer;
+    }
+
+    /**
+     * Removes cancelled events from the top of the heap.
+     */
+    private void dropStale() {
+        while (size > 0 && generations[0] != halfedges[0].eventGeneration)
+            removeTop();
+    }
+
+    /**
+     * Removes top record.
+     */
+    private void removeTop() {
+        size--;
+
+        if (size > 0) {
+            move(size, 0);
+            siftDown(0);
+        }
+
+        halfedges[size] = null;
+        lefts[size] = null;
+        middles[size] = null;
+        rights[size] = null;
+    }
+
+    /**
+     * @param from Source slot.
+     * @param to Target slot.
+     */
+    private void move(int from, int to) {
+        ystars[to] = ystars[from];
+        errors[to] = errors[from];
+        lefts[to] = lefts[from];
+        middles[to] = middles[from];
+        rights[to] = rights[from];
+        halfedges[to] = halfedges[from];
+        generations[to] = generations[from];
+        stamps[to] = stamps[from];
+    }
+
+    /**
+     * @param i Slot.
+     */
+    private void siftUp(int i) {
+        double y = ystars[i], err = errors[i];
+        Site left = lefts[i], middle = middles[i], right = rights[i];
+        Halfedge he = halfedges[i];
+        int gen = generations[i];
+        long stamp = stamps[i];
+
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+
+            if (!less(y, err, left, middle, right, stamp, parent))
+                break;
+
+            move(parent, i);
+            i = parent;
+        }
+
+        set(i, y, err, left, middle, right, he, gen, stamp);
+    }
+
+    /**
+     * @param i Slot.
+     */
+    private void siftDown(int i) {
+        double y = ystars[i], err = errors[i];
+        Site left = lefts[i], middle = middles[i], right = rights[i];
+        Halfedge he = halfedges[i];
+        int gen = generations[i];
+        long stamp = stamps[i];
+        int half = size >>> 1;
+
+        while (i < half) {
+            int child = 2 * i + 1;
+            int r = child + 1;
+
+            if (r < size && less(ystars[r], errors[r], lefts[r], middles[r], rights[r], stamps[r], child))
+                child = r;
+
+            if (less(y, err, left, middle, right, stamp, child))
+                break;
+
+            move(child, i);
+            i = child;
+        }
+
+        set(i, y, err, left, middle, right, he, gen, stamp);
+    }
+
+    /**
+     * Fills the slot.
+     */
+    private void set(int i, double y, double err, Site left, Site middle, Site right, Halfedge he, int gen,
+        long stamp) {
+        ystars[i] = y;
+        errors[i] = err;
+        lefts[i] = left;
+        middles[i] = middle;
+        rights[i] = right;
+        halfedges[i] = he;
+        generations[i] = gen;
+        stamps[i] = stamp;
+    }
+
+    /**
+     * @return {@code True} if event (y, err, sites, stamp) goes before event in the slot.
+     */
+    private boolean less(double y, double err, Site left, Site middle, Site right, long stamp, int slot) {
+        int cmp = CircleEvent.filter(y, err, ystars[slot], errors[slot]);
+
+        if (cmp == 0)
+            cmp = CircleEvent.compare(left, middle, right, lefts[slot], middles[slot], rights[slot]);
+
+        if (cmp != 0)
+            return cmp < 0;
+
+        return stamp > stamps[slot];
+    }
+}
@@ -0,0 +1,118 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.Rectangle;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sites read straight from a memory mapped file, so the sweep touches only the pages around the sweep line
+ * and the operating system can drop pages behind it.
+ * <p>
+ * File is a sequence of sites, x then y, each a big endian {@code double} (as written by
+ * {@link java.io.DataOutputStream#writeDouble(double)}). Sites must be sorted by y, then x.
+ */
+final class MappedSites {
+    /** Bytes per site. */
+    static final int SITE_BYTES = 16;
+
+    /** Sites per mapped chunk is {@code 2^CHUNK_SHIFT}, 1 GiB of file. */
+    private static final int CHUNK_SHIFT = 26;
+
+    /** Mask of site position inside a chunk. */
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    /** Mapped chunks. */
+    private final DoubleBuffer[] chunks;
+
+    /** Site count. */
+    private final int size;
+
+    /**
+     * @param file Site file.
+     * @throws IOException If the file can't be mapped.
+     * @throws IllegalArgumentException If the file length is not a whole number of sites or there are too many.
+     */
+    MappedSites(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long bytes = ch.size();
+
+            if (bytes % SITE_BYTES != 0)
+                throw new IllegalArgumentException("Site file length is not a multiple of " + SITE_BYTES + ": " + bytes);
+
+            if (bytes / SITE_BYTES > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Too many sites: " + bytes / SITE_BYTES);
+
+            size = (int) (bytes / SITE_BYTES);
+            chunks = new DoubleBuffer[(int) (((long) size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+
+            for (int i = 0; i < chunks.length; i++) {
+                long pos = ((long) i << CHUNK_SHIFT) * SITE_BYTES;
+                long len = Math.min(bytes - pos, (long) SITE_BYTES << CHUNK_SHIFT);
+
+                // mapping stays valid after the channel is closed
+                chunks[i] = ch.map(FileChannel.MapMode.READ_ONLY, pos, len).asDoubleBuffer();
+            }
+        }
+    }
+
+    /**
+     * @return Site count.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param i Site position.
+     * @return X coordinate.
+     */
+    double x(int i) {
+        return chunks[i >>> CHUNK_SHIFT].get((i & CHUNK_MASK) << 1);
+    }
+
+    /**
+     * @param i Site position.
+     * @return Y coordinate.
+     */
+    double y(int i) {
+        return chunks[i >>> CHUNK_SHIFT].get(((i & CHUNK_MASK) << 1) + 1);
+    }
+
+    /**
+     * Reads the whole file once and checks the site order. Bounds are computed the same way as in
+     * {@link SiteList#getSitesBounds()}, so the sweep makes the same decisions for the same sites.
+     *
+     * @return Bounds of the sites.
+     * @throws IllegalArgumentException If sites are not sorted by y, then x, or a site is repeated.
+     */
+    Rectangle bounds() {
+        if (size == 0)
+            return new Rectangle(0, 0, 0, 0);
+
+        double xmin = Double.MAX_VALUE;
+        double xmax = Double.MIN_VALUE;
+        double px = 0, py = 0;
+
+        for (int i = 0; i < size; i++) {
+            double x = x(i);
+            double y = y(i);
+
+            if (i > 0 && (y < py || (y == py && x < px)))
+                throw new IllegalArgumentException("Sites are not sorted by y, then x at site " + i);
+
+            // the sweep can't handle coincident sites, a build merges them
+            if (i > 0 && y == py && x == px)
+                throw new IllegalArgumentException("Site " + i + " is a duplicate of the previous one: " + x + ", " + y);
+
+            xmin = Math.min(xmin, x);
+            xmax = Math.max(xmax, x);
+            px = x;
+            py = y;
+        }
+
+        return new Rectangle(xmin, y(0), xmax - xmin, y(size - 1) - y(0));
+    }
+}
@@ -0,0 +1,215 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.Point;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Heap retained by a diagram, broken down by structure, see {@link Voronoi#memoryFootprint()}.
+ * <p>
+ * Sizes are computed from the fields of the classes for a 64-bit JVM with compressed references and class
+ * pointers, the default for heaps below 32 GB: 12 byte object headers, 16 byte array headers, 4 byte
+ * references, 8 byte alignment. Field packing is assumed to leave no gaps, so sizes may be a few bytes
+ * less than the real ones.
+ */
+public final class MemoryFootprint {
+    /** Object header. */
+    private static final int HEADER = 12;
+
+    /** Array header, including the length. */
+    private static final int ARRAY_HEADER = 16;
+
+    /** Reference size. */
+    static final int REF = 4;
+
+    /** Entry of a {@link HashMap}: hash, key, value and next. */
+    private static final long HASH_ENTRY = align(HEADER + 4 + 3 * REF);
+
+    /** Shallow sizes of classes. */
+    private static final Map<Class<?>, Long> SIZES = new ConcurrentHashMap<>();
+
+    /** Site objects with their edge and orientation arrays. */
+    long sites;
+
+    /** Positions of sites. */
+    long sitePositions;
+
+    /** Edge objects. */
+    long edges;
+
+    /** Clipped ends of edges. */
+    long clippedEnds;
+
+    /** Vertices with their positions. */
+    long vertices;
+
+    /** Cached region polygons. */
+    long regions;
+
+    /** Site and edge lists, input site array, the site lookup map with merged input points and the edge list. */
+    long indexes;
+
+    /** Number of sites. */
+    int numSites;
+
+    /**
+     * @return Bytes of site objects with their edge and orientation arrays.
+     */
+    public long getSites() {
+        return sites;
+    }
+
+    /**
+     * @return Bytes of site positions. These are input points, so they are shared with the caller's list.
+     */
+    public long getSitePositions() {
+        return sitePositions;
+    }
+
+    /**
+     * @return Bytes of edge objects.
+     */
+    public long getEdges() {
+        return edges;
+    }
+
+    /**
+     * @return Bytes of clipped ends of edges: points or float arrays, see {@link VoronoiOptions.Storage}.
+     */
+    public long getClippedEnds() {
+        return clippedEnds;
+    }
+
+    /**
+     * @return Bytes of vertices with their positions.
+     */
+    public long getVertices() {
+        return vertices;
+    }
+
+    /**
+     * @return Bytes of region polygons cached by {@link Voronoi#region(Point)} and {@link Voronoi#regions()}.
+     */
+    public long getRegions() {
+        return regions;
+    }
+
+    /**
+     * @return Bytes of site and edge lists, the input site array, the site lookup map and the {@link Dcel}.
+     */
+    public long getIndexes() {
+        return indexes;
+    }
+
+    /**
+     * @return Bytes of all structures.
+     */
+    public long total() {
+        return sites + sitePositions + edges + clippedEnds + vertices + regions + indexes;
+    }
+
+    /**
+     * @return Bytes of all structures per site.
+     */
+    public double perSite() {
+        return numSites == 0 ? 0 : (double) total() / numSites;
+    }
+
+    /** {@inheritDoc} */
+    @Override public String toString() {
+        return "MemoryFootprint [sites=" + sites + ", sitePositions=" + sitePositions + ", edges=" + edges +
+            ", clippedEnds=" + clippedEnds + ", vertices=" + vertices + ", regions=" + regions +
+            ", indexes=" + indexes + ", total=" + total() + ", perSite=" + perSite() + ']';
+    }
+
+    /**
+     * @param cls Class.
+     * @return Size of an instance without the objects it refers to.
+     */
+    static long shallowSize(Class<?> cls) {
+        Long size = SIZES.get(cls);
+
+        if (size == null) {
+            long bytes = HEADER;
+
+            for (Class<?> c = cls; c != null; c = c.getSuperclass()) {
+                for (Field f : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(f.getModifiers()))
+                        bytes += fieldSize(f.getType());
+                }
+            }
+
+            size = align(bytes);
+
+            SIZES.put(cls, size);
+        }
+
+        return size;
+    }
+
+    /**
+     * @param length Array length.
+     * @param elemSize Element size.
+     * @return Size of the array.
+     */
+    static long arraySize(int length, int elemSize) {
+        return align(ARRAY_HEADER + (long) length * elemSize);
+    }
+
+    /**
+     * @return Size of a point.
+     */
+    static long pointSize() {
+        return shallowSize(Point.class);
+    }
+
+    /**
+     * @param list Array based list.
+     * @return Size of the list and its array, assuming the array has no spare capacity.
+     */
+    static long listSize(List<?> list) {
+        return shallowSize(list.getClass()) + arraySize(list.size(), REF);
+    }
+
+    /**
+     * @param map Map.
+     * @return Size of the map, its table and entries, without keys and values.
+     */
+    static long mapSize(HashMap<?, ?> map) {
+        int table = Integer.highestOneBit(Math.max(1, (int) (map.size() / 0.75f)) * 2 - 1);
+
+        return shallowSize(HashMap.class) + arraySize(Math.max(16, table), REF) + map.size() * HASH_ENTRY;
+    }
+
+    /**
+     * @param type Field type.
+     * @return Field size.
+     */
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class)
+            return 8;
+
+        if (type == int.class || type == float.class)
+            return 4;
+
+        if (type == short.class || type == char.class)
+            return 2;
+
+        if (type == byte.class || type == boolean.class)
+            return 1;
+
+        return REF;
+    }
+
+    /**
+     * @param bytes Size.
+     * @return Size rounded up to 8 bytes.
+     */
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,187 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.Rectangle;
+import java.util.List;
+
+/**
+ * Fortune's sweep over {@link Site}, {@link Halfedge} and {@link Vertex} objects, the original port
+ * behind {@link VoronoiOptions.Engine#OBJECTS}.
+ */
+final class ObjectFortune {
+    /**
+     * Utility class.
+     */
+    private ObjectFortune() {
+        // No-op.
+    }
+
+    /**
+     * Runs the sweep and adds its edges.
+     *
+     * @param sites Sites sorted in sweep order.
+     * @param options Build settings.
+     * @param edges Output edges.
+     * @param triangles Output triangles or {@code null}.
+     * @param beachLineStats Beach line lookup counters.
+     */
+    static void build(List<Site> sites, VoronoiOptions options, List<Edge> edges, TriangleBuffer triangles,
+        BeachLineStats beachLineStats) {
+        Rectangle dataBounds = SiteList.bounds(sites);
+        VoronoiWorkspace workspace = options.getWorkspace() != null ? options.getWorkspace() : new VoronoiWorkspace();
+        Site newSite, bottomSite, topSite, tempSite;
+        Vertex v;
+        double[] intersection = new double[CircleEvent.SIZE];
+        double fixedScale = options.fixedPointScale();
+        LR leftRight;
+        Halfedge lbnd, rbnd, llbnd, rrbnd, bisector;
+        Edge edge;
+
+        int sqrt_nsites = (int) Math.sqrt(sites.size() + 4);
+        IHalfedgePriorityQueue heap = workspace.queue(options.getQueue(), dataBounds.y, dataBounds.height, sqrt_nsites);
+        IBeachLine halfedgeList = workspace.beachLine(options.getBeachLine(), dataBounds.x, dataBounds.width, sqrt_nsites,
+            beachLineStats);
+
+        int nextSite = 0;
+
+        Site bottomMostSite = nextSite < sites.size() ? sites.get(nextSite++) : null;
+        newSite = nextSite < sites.size() ? sites.get(nextSite++) : null;
+
+        int totalVertices = 0;
+        int totalEdges = 0;
+
+        for (;;) {
+            if (newSite != null && (heap.empty() || CircleEvent.compare(newSite, heap.minHalfedge()) < 0)) {
+                /* new site is smallest */
+                //trace("smallest: new site " + newSite);
+
+                // Step 8:
+                lbnd = halfedgeList.edgeListLeftNeighbor(newSite.getPosition());	// the Halfedge just to the left of newSite
+                //trace("lbnd: " + lbnd);
+                rbnd = lbnd.edgeListRightNeighbor;		// the Halfedge just to the right
+                //trace("rbnd: " + rbnd);
+                bottomSite = rightRegion(lbnd, bottomMostSite);		// this is the same as leftRegion(rbnd)
+                // this Site determines the region containing the new site
+                //trace("new Site is in region of existing site: " + bottomSite);
+
+                // Step 9:
+                edge = Edge.createBisectingEdge(bottomSite, newSite, totalEdges++);
+                //trace("new edge: " + edge);
+                edges.add(edge);
+
+                bisector = workspace.halfedge(edge, LR.LEFT);
+                // inserting two Halfedges into edgeList constitutes Step 10:
+                // insert bisector to the right of lbnd:
+                halfedgeList.insert(lbnd, bisector);
+
+                // first half of Step 11:
+                if (Vertex.intersect(lbnd, bisector, intersection, fixedScale)) {
+                    heap.remove(lbnd);
+                    setEvent(lbnd, bisector, intersection);
+                    heap.insert(lbnd);
+                }
+
+                lbnd = bisector;
+                bisector = workspace.halfedge(edge, LR.RIGHT);
+                // second Halfedge for Step 10:
+                // insert bisector to the right of lbnd:
+                halfedgeList.insert(lbnd, bisector);
+
+                // second half of Step 11:
+                if (Vertex.intersect(bisector, rbnd, intersection, fixedScale)) {
+                    setEvent(bisector, rbnd, intersection);
+                    heap.insert(bisector);
+                }
+
+                newSite = nextSite < sites.size() ? sites.get(nextSite++) : null;
+            } else if (!heap.empty()) {
+                /* intersection is smallest */
+                lbnd = heap.extractMin();
+                llbnd = lbnd.edgeListLeftNeighbor;
+                rbnd = lbnd.edgeListRightNeighbor;
+                rrbnd = rbnd.edgeListRightNeighbor;
+                bottomSite = leftRegion(lbnd, bottomMostSite);
+                topSite = rightRegion(rbnd, bottomMostSite);
+                // the only place where a vertex is made: cancelled events never get one
+                v = Vertex.fromEvent(lbnd, totalVertices, options.isCompact());
+
+                // these three sites define a Delaunay triangle
+                if (triangles != null) {
+                    triangles.set(totalVertices, bottomSite.getIndex(), rightRegion(lbnd, bottomMostSite).getIndex(),
+                        topSite.getIndex(), lbnd.vertexX, lbnd.vertexY);
+                }
+
+                totalVertices++;
+                lbnd.edge.setVertex(lbnd.leftRight, v);
+                rbnd.edge.setVertex(rbnd.leftRight, v);
+                halfedgeList.remove(lbnd);
+                heap.remove(rbnd);
+                halfedgeList.remove(rbnd);
+                lbnd.dispose();
+                rbnd.dispose();
+                leftRight = LR.LEFT;
+                if (bottomSite.getY() > topSite.getY()) {
+                    tempSite = bottomSite;
+                    bottomSite = topSite;
+                    topSite = tempSite;
+                    leftRight = LR.RIGHT;
+                }
+                edge = Edge.createBisectingEdge(bottomSite, topSite, totalEdges++);
+                edges.add(edge);
+                bisector = workspace.halfedge(edge, leftRight);
+                halfedgeList.insert(llbnd, bisector);
+                edge.setVertex(LR.other(leftRight), v);
+                if (Vertex.intersect(llbnd, bisector, intersection, fixedScale)) {
+                    heap.remove(llbnd);
+                    setEvent(llbnd, bisector, intersection);
+                    heap.insert(llbnd);
+                }
+                if (Vertex.intersect(bisector, rrbnd, intersection, fixedScale)) {
+                    setEvent(bisector, rrbnd, intersection);
+                    heap.insert(bisector);
+                }
+            } else {
+                break;
+            }
+        }
+
+        // heap should be empty now
+        heap.dispose();
+        halfedgeList.dispose();
+    }
+
+    /**
+     * Stores intersection as a pending circle event of the halfedge.
+     *
+     * @param he Halfedge.
+     * @param right Right neighbour of the halfedge.
+     * @param intersection Intersection and event priority, see {@link CircleEvent#compute}.
+     */
+    private static void setEvent(Halfedge he, Halfedge right, double[] intersection) {
+        he.hasVertex = true;
+        he.vertexX = intersection[CircleEvent.X];
+        he.vertexY = intersection[CircleEvent.Y];
+        he.ystar = intersection[CircleEvent.PRIORITY];
+        he.eventError = intersection[CircleEvent.ERROR];
+        he.eventLeft = he.edge.site(he.leftRight);
+        he.eventMiddle = he.edge.site(LR.other(he.leftRight));
+        he.eventRight = right.edge.site(LR.other(right.leftRight));
+    }
+
+    private static Site leftRegion(Halfedge he, Site bottomMostSite) {
+        Edge edge = he.edge;
+
+        if (edge == null)
+            return bottomMostSite;
+
+        return edge.site(he.leftRight);
+    }
+
+    private static Site rightRegion(Halfedge he, Site bottomMostSite) {
+        Edge edge = he.edge;
+
+        if (edge == null)
+            return bottomMostSite;
+
+        return edge.site(LR.other(he.leftRight));
+    }
+}
@@ -0,0 +1,458 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.Point;
+import com.hoten.delaunay.geom.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Voronoi diagram of sites on a torus: the bounds wrap around, so a cell at the right edge goes on at the left
+ * edge and one at the bottom at the top. Maps built from it tile seamlessly.
+ * <p>
+ * Sites closer to an edge than a margin are copied once across it, and a {@link TriangulationEngine}
+ * triangulates the sites with the copies. A triangle whose circle lies within the margin is empty of all images
+ * of the sites, so it is a triangle of the torus. Every torus triangle is taken from the copy where its site
+ * of the lowest index is in the bounds, and if any of them sticks out of the margin the margin is doubled.
+ * The margin starts at a few site spacings, so the cost is close to the cost of a plane diagram.
+ * <p>
+ * Sites in degenerate position, such as a lattice, may be triangulated differently near different edges,
+ * because an engine is free to pick any diagonal of cocircular sites. {@link VoronoiOptions.Engine#SWEEP_HULL}
+ * and {@link VoronoiOptions.Engine#POWER} do so on exact lattices. If the engine doesn't give a torus even with
+ * the margin of the whole domain, the sites are triangulated again with
+ * {@link VoronoiOptions.Engine#DIVIDE_AND_CONQUER}, which picks the same diagonals in every copy of a lattice.
+ * <p>
+ * Triangles and halfedges follow the layout of {@link DelaunayEdges}, and every halfedge has an opposite one.
+ * A corner of a triangle may be an image of its site: the site shifted by {@link #shifts()} widths and heights
+ * of the bounds. The torus needs enough sites for a triangle never to meet two images of one site. Too few
+ * sites, and degenerate sites which the fallback engine doesn't triangulate consistently either, are reported
+ * with {@link IllegalArgumentException}, and a little jitter fixes the latter.
+ */
+public final class PeriodicVoronoi {
+    /** Initial margin in site spacings. */
+    private static final double MARGIN = 3;
+
+    /** Engine for sites the requested engine doesn't give a torus for. */
+    private static final TriangulationEngine FALLBACK = VoronoiOptions.Engine.DIVIDE_AND_CONQUER;
+
+    /** Domain. */
+    private final Rectangle bounds;
+
+    /** Engine of the planar triangulation. */
+    private final TriangulationEngine engine;
+
+    /** Site coordinates in the bounds, packed. */
+    private final double[] sites;
+
+    /** Site of each input site, coincident input sites share a site. */
+    private final int[] siteOf;
+
+    /** Halfedge origins, three per triangle. */
+    private int[] triangles;
+
+    /** Image of each halfedge origin, x and y shifts in widths and heights of the bounds. */
+    private int[] shifts;
+
+    /** Opposite halfedges. */
+    private int[] halfedges;
+
+    /** Circumcenter coordinates by triangle, packed, in the frame of the shifts. */
+    private double[] circumcenters;
+
+    /** Some halfedge starting at each site. */
+    private final int[] outedges;
+
+    /**
+     * Builds the diagram with {@link VoronoiOptions.Engine#SWEEP_HULL}, or with the fallback engine for lattices.
+     *
+     * @param points Sites, wrapped into the bounds.
+     * @param bounds Domain.
+     */
+    public PeriodicVoronoi(List<Point> points, Rectangle bounds) {
+        this(points, bounds, VoronoiOptions.Engine.SWEEP_HULL);
+    }
+
+    /**
+     * @param points Sites, wrapped into the bounds.
+     * @param bounds Domain.
+     * @param engine Engine of the planar triangulation, the fallback engine is used if it fails on degenerate sites.
+     * @throws IllegalArgumentException If the bounds are empty, there are too few sites or they are degenerate.
+     */
+    public PeriodicVoronoi(List<Point> points, Rectangle bounds, TriangulationEngine engine) {
+        if (!(bounds.width > 0) || !(bounds.height > 0))
+            throw new IllegalArgumentException("Bounds are empty: " + bounds);
+
+        this.bounds = bounds;
+        this.engine = engine;
+
+        int n = points.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            xs[i] = wrap(points.get(i).x, bounds.x, bounds.width);
+            ys[i] = wrap(points.get(i).y, bounds.y, bounds.height);
+        }
+
+        int[] perm = CoordinateSort.sortByYThenX(xs, ys);
+
+        // coincident points are runs of the sweep order, a run is one site named after its first input site
+        int[] rep = new int[n];
+
+        for (int i = 0; i < n; ) {
+            int j = i;
+            int min = perm[i];
+
+            while (j < n && xs[perm[j]] == xs[perm[i]] && ys[perm[j]] == ys[perm[i]])
+                min = Math.min(min, perm[j++]);
+
+            for (int k = i; k < j; k++)
+                rep[perm[k]] = min;
+
+            i = j;
+        }
+
+        siteOf = new int[n];
+
+        int numSites = 0;
+
+        for (int i = 0; i < n; i++)
+            siteOf[i] = rep[i] == i ? numSites++ : siteOf[rep[i]];
+
+        sites = new double[2 * numSites];
+
+        for (int i = 0; i < n; i++) {
+            if (rep[i] == i) {
+                sites[2 * siteOf[i]] = xs[i];
+                sites[2 * siteOf[i] + 1] = ys[i];
+            }
+        }
+
+        double size = Math.max(bounds.width, bounds.height);
+        double start = MARGIN * Math.sqrt(bounds.width * bounds.height / Math.max(numSites, 1));
+        double margin = start;
+        TriangulationEngine used = engine;
+
+        // with the margin of the whole domain all images which may matter are there
+        while (!triangulate(Math.min(margin, size), used)) {
+            if (margin < size)
+                margin *= 2;
+            else if (used != FALLBACK) {
+                used = FALLBACK;
+                margin = start;
+            }
+            else
+                throw new IllegalArgumentException("Too few sites or sites in degenerate position: " + numSites);
+        }
+
+        outedges = new int[numSites];
+
+        for (int e = 0; e < triangles.length; e++)
+            outedges[triangles[e]] = e;
+    }
+
+    /**
+     * @param v Coordinate.
+     * @param min Domain start.
+     * @param size Domain size.
+     * @return Coordinate wrapped into the domain.
+     */
+    private static double wrap(double v, double min, double size) {
+        double res = v - size * Math.floor((v - min) / size);
+
+        // rounding may land at the far end, which is the near one
+        return res >= min + size ? min : res;
+    }
+
+    /**
+     * Triangulates the sites with images within the margin and keeps the torus triangles.
+     *
+     * @param margin Margin.
+     * @param engine Engine of the planar triangulation.
+     * @return {@code False} if a triangle is not known to be a torus triangle or the triangles are not a torus.
+     */
+    private boolean triangulate(double margin, TriangulationEngine engine) {
+        int numSites = sites.length / 2;
+        double w = bounds.width, h = bounds.height;
+        double x0 = bounds.x - margin, y0 = bounds.y - margin, x1 = bounds.right + margin, y1 = bounds.bottom + margin;
+
+        // images: site and shifts
+        int[] img = new int[3 * (numSites + 64)];
+        double[] px = new double[numSites + 64];
+        double[] py = new double[numSites + 64];
+        int cnt = 0;
+
+        for (int s = 0; s < numSites; s++) {
+            for (int oy = -1; oy <= 1; oy++) {
+                for (int ox = -1; ox <= 1; ox++) {
+                    double x = sites[2 * s] + ox * w, y = sites[2 * s + 1] + oy * h;
+
+                    if (x < x0 || x > x1 || y < y0 || y > y1)
+                        continue;
+
+                    if (cnt == px.length) {
+                        px = Arrays.copyOf(px, 2 * cnt);
+                        py = Arrays.copyOf(py, 2 * cnt);
+                        img = Arrays.copyOf(img, 6 * cnt);
+                    }
+
+                    px[cnt] = x;
+                    py[cnt] = y;
+                    img[3 * cnt] = s;
+                    img[3 * cnt + 1] = ox;
+                    img[3 * cnt + 2] = oy;
+                    cnt++;
+                }
+            }
+        }
+
+        int[] perm = CoordinateSort.sortByYThenX(Arrays.copyOf(px, cnt), Arrays.copyOf(py, cnt));
+        List<Site> planar = new ArrayList<>(cnt);
+
+        for (int i = 0; i < cnt; i++)
+            planar.add(new Site(new Point(px[perm[i]], py[perm[i]]), i, 0));
+
+        TriangleBuffer buf = new TriangleBuffer(2 * cnt, false);
+
+        engine.build(planar, new VoronoiOptions().engine(engine), new ArrayList<>(), buf, new BeachLineStats());
+
+        int[] tris = new int[6 * numSites];
+        int[] sh = new int[12 * numSites];
+        double[] centers = new double[4 * numSites];
+        int len = 0;
+
+        for (int t = 0; t < buf.size(); t++) {
+            int[] v = {perm[buf.site(t, 0)], perm[buf.site(t, 1)], perm[buf.site(t, 2)]};
+
+            // the corner of the lowest site must be the site itself
+            int m = 0;
+
+            for (int k = 1; k < 3; k++) {
+                if (img[3 * v[k]] < img[3 * v[m]])
+                    m = k;
+            }
+
+            if (img[3 * v[m] + 1] != 0 || img[3 * v[m] + 2] != 0)
+                continue;
+
+            if (img[3 * v[0]] == img[3 * v[1]] || img[3 * v[1]] == img[3 * v[2]] || img[3 * v[0]] == img[3 * v[2]])
+                return false;
+
+            double ax = px[v[0]], ay = py[v[0]];
+            double bx = px[v[1]] - ax, by = py[v[1]] - ay;
+            double cx = px[v[2]] - ax, cy = py[v[2]] - ay;
+            double b2 = bx * bx + by * by, c2 = cx * cx + cy * cy;
+            double d = 2 * (bx * cy - by * cx);
+            double ux = (cy * b2 - by * c2) / d, uy = (bx * c2 - cx * b2) / d;
+            double r = Math.sqrt(ux * ux + uy * uy);
+
+            ux += ax;
+            uy += ay;
+
+            if (ux - r < x0 || ux + r > x1 || uy - r < y0 || uy + r > y1 || 3 * len + 3 > tris.length)
+                return false;
+
+            for (int k = 0; k < 3; k++) {
+                tris[3 * len + k] = img[3 * v[k]];
+                sh[6 * len + 2 * k] = img[3 * v[k] + 1];
+                sh[6 * len + 2 * k + 1] = img[3 * v[k] + 2];
+            }
+
+            centers[2 * len] = ux;
+            centers[2 * len + 1] = uy;
+            len++;
+        }
+
+        // a torus of n sites has 2n triangles
+        if (len != 2 * numSites)
+            return false;
+
+        int[] opp = pair(tris, sh, 3 * len, numSites);
+
+        if (opp == null)
+            return false;
+
+        triangles = tris;
+        shifts = sh;
+        halfedges = opp;
+        circumcenters = centers;
+
+        return true;
+    }
+
+    /**
+     * @param tris Halfedge origins.
+     * @param sh Shifts of the origins.
+     * @param len Number of halfedges.
+     * @param numSites Number of sites.
+     * @return Opposite halfedge of each halfedge, or {@code null} if some halfedge has no opposite one.
+     */
+    private static int[] pair(int[] tris, int[] sh, int len, int numSites) {
+        long[] keys = new long[len];
+
+        for (int e = 0; e < len; e++) {
+            int a = tris[e], b = tris[next(e)];
+
+            keys[e] = (long) Math.min(a, b) * numSites + Math.max(a, b);
+        }
+
+        long[] sorted = keys.clone();
+        int[] perm = CoordinateSort.sortByKey(sorted);
+        int[] res = new int[len];
+
+        Arrays.fill(res, -1);
+
+        // halfedges between two sites are opposite if they join the same images the other way
+        for (int i = 0; i < len; ) {
+            int j = i;
+
+            while (j < len && keys[perm[j]] == keys[perm[i]])
+                j++;
+
+            for (int p = i; p < j; p++) {
+                int e = perm[p];
+
+                for (int q = p + 1; q < j && res[e] < 0; q++) {
+                    int f = perm[q];
+
+                    if (res[f] < 0 && tris[e] == tris[next(f)] && tris[f] == tris[next(e)]
+                        && dx(sh, e) == -dx(sh, f) && dy(sh, e) == -dy(sh, f)) {
+                        res[e] = f;
+                        res[f] = e;
+                    }
+                }
+
+                if (res[e] < 0)
+                    return null;
+            }
+
+            i = j;
+        }
+
+        return res;
+    }
+
+    /**
+     * @param sh Shifts.
+     * @param e Halfedge.
+     * @return X shift from the origin of the halfedge to its end.
+     */
+    private static int dx(int[] sh, int e) {
+        return sh[2 * next(e)] - sh[2 * e];
+    }
+
+    /**
+     * @param sh Shifts.
+     * @param e Halfedge.
+     * @return Y shift from the origin of the halfedge to its end.
+     */
+    private static int dy(int[] sh, int e) {
+        return sh[2 * next(e) + 1] - sh[2 * e + 1];
+    }
+
+    /**
+     * @param e Halfedge.
+     * @return Next halfedge of its triangle.
+     */
+    private static int next(int e) {
+        return e % 3 == 2 ? e - 2 : e + 1;
+    }
+
+    /**
+     * @return Domain.
+     */
+    public Rectangle getBounds() {
+        return bounds;
+    }
+
+    /**
+     * @return Engine of the planar triangulation as requested, the fallback engine may have built the diagram.
+     */
+    public TriangulationEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return Number of sites, coincident input sites count once.
+     */
+    public int numSites() {
+        return outedges.length;
+    }
+
+    /**
+     * @param inputIndex Index of an input site.
+     * @return Its site. Sites are numbered in the order of their first input site.
+     */
+    public int site(int inputIndex) {
+        return siteOf[inputIndex];
+    }
+
+    /**
+     * @return Packed site coordinates in the bounds.
+     */
+    public double[] sites() {
+        return sites.clone();
+    }
+
+    /**
+     * @return Number of triangles, which is the number of Voronoi vertices.
+     */
+    public int numTriangles() {
+        return triangles.length / 3;
+    }
+
+    /**
+     * @return Site of each halfedge origin, three per triangle.
+     */
+    public int[] triangles() {
+        return triangles.clone();
+    }
+
+    /**
+     * @return Image of each halfedge origin as x and y shifts in widths and heights of the bounds. The corner
+     * of the lowest site of a triangle is not shifted.
+     */
+    public int[] shifts() {
+        return shifts.clone();
+    }
+
+    /**
+     * @return Opposite halfedge of each halfedge.
+     */
+    public int[] halfedges() {
+        return halfedges.clone();
+    }
+
+    /**
+     * @return Packed Voronoi vertex coordinates by triangle, in the frame of the corners, so they may be
+     * out of the bounds.
+     */
+    public double[] circumcenters() {
+        return circumcenters.clone();
+    }
+
+    /**
+     * @param site Site.
+     * @return Voronoi vertices of its region, counterclockwise (y up).
+     */
+    public int[] region(int site) {
+        int start = outedges[site];
+        int[] res = new int[8];
+        int cnt = 0;
+
+        // around the site: from a halfedge starting at it to the previous one of the triangle, then across
+        for (int e = start; ; ) {
+            if (cnt == res.length)
+                res = Arrays.copyOf(res, 2 * cnt);
+
+            res[cnt++] = e / 3;
+
+            e = halfedges[next(next(e))];
+
+            if (e == start)
+                break;
+        }
+
+        return Arrays.copyOf(res, cnt);
+    }
+}
@@ -0,0 +1,470 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.Predicates;
+import com.hoten.delaunay.geom.Rectangle;
+import com.hoten.delaunay.geom.SpaceFillingCurve;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Regular (weighted Delaunay) triangulation in flat arrays, the dual of the power diagram. A site p with weight w
+ * is lifted to {@code (p, |p|^2 - w)}, and the triangulation is the projection of the lower convex hull of
+ * the lifted sites. A site whose lifted point is above the hull is redundant: its power cell is empty, it gets
+ * no edges and no region. With zero weights it is the Delaunay triangulation.
+ * <p>
+ * Sites are added one by one in Hilbert order (Bowyer-Watson): the triangle holding a site is found by a
+ * stochastic walk from the last new triangle, the triangles in conflict with the site are removed and the hole
+ * is filled with a fan around it. The outside of the hull is covered by ghost triangles with a
+ * {@link #GHOST} corner, so a site outside the hull is handled the same way. Predicates are exact, see
+ * {@link Predicates#power}. Triangles and halfedges follow the layout of {@link DelaunayEdges}.
+ */
+final class RegularTriangulation {
+    /** Corner of ghost triangles. */
+    private static final int GHOST = -1;
+
+    /** Missing triangle. */
+    private static final int NONE = -1;
+
+    /** First corner of a removed triangle. */
+    private static final int REMOVED = -2;
+
+    /** Site coordinates and weights by index. */
+    private final double[] xs, ys, ws;
+
+    /** Halfedge origins, three per triangle, ghost triangles included. */
+    private int[] triangles;
+
+    /** Opposite halfedges. */
+    private int[] halfedges;
+
+    /** Number of triangle slots in use, removed ones included. */
+    private int numSlots;
+
+    /** Removed triangles to reuse. */
+    private int[] free = new int[64];
+
+    /** Number of removed triangles. */
+    private int numFree;
+
+    /** Visit stamp of each triangle slot: current stamp if in conflict, minus it if not. */
+    private int[] marks;
+
+    /** Stamp of the current insertion. */
+    private int stamp;
+
+    /** Triangle the next walk starts from. */
+    private int last;
+
+    /** State of the walk randomizer, fixed so builds are reproducible. */
+    private int seed = 0x9E3779B9;
+
+    /** Scratch: triangles to visit. */
+    private int[] stack = new int[64];
+
+    /** Scratch: origin, end and opposite halfedge of each border edge of the hole. */
+    private int[] border = new int[3 * 64];
+
+    /** Scratch: new triangle starting at each site, ghost corner at {@code 0}. */
+    private final int[] fanAt;
+
+    /**
+     * @param sites Sites.
+     */
+    private RegularTriangulation(List<Site> sites) {
+        int n = sites.size();
+
+        xs = new double[n];
+        ys = new double[n];
+        ws = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            Site s = sites.get(i);
+
+            xs[i] = s.getX();
+            ys[i] = s.getY();
+            ws[i] = s.getWeight();
+        }
+
+        // a triangulation of n sites with its ghosts has at most 2n triangles
+        int capacity = 2 * n + 8;
+
+        triangles = new int[3 * capacity];
+        halfedges = new int[3 * capacity];
+        marks = new int[capacity];
+        fanAt = new int[n + 1];
+    }
+
+    /**
+     * Triangulates weighted sites and adds power diagram edges: the edge of two sites is on their power bisector,
+     * its vertices are orthocenters of triangles. Sites on one line are joined along it, redundant ones skipped.
+     *
+     * @param sites Sites sorted by y, then x.
+     * @param options Build settings.
+     * @param edges Output edges.
+     * @param out Output triangles or {@code null}.
+     */
+    static void build(List<Site> sites, VoronoiOptions options, List<Edge> edges, TriangleBuffer out) {
+        RegularTriangulation rt = new RegularTriangulation(sites);
+
+        if (!rt.triangulate(SiteList.bounds(sites))) {
+            rt.chain(sites, edges);
+
+            return;
+        }
+
+        // finite triangles in slot order, hull halfedges face ghosts
+        int[] slot = new int[rt.numSlots];
+        int numTriangles = 0;
+
+        for (int t = 0; t < rt.numSlots; t++)
+            slot[t] = rt.isFinite(t) ? numTriangles++ : NONE;
+
+        int[] tris = new int[3 * numTriangles];
+        int[] opps = new int[3 * numTriangles];
+
+        for (int t = 0; t < rt.numSlots; t++) {
+            if (slot[t] == NONE)
+                continue;
+
+            for (int k = 0; k < 3; k++) {
+                int e = 3 * t + k, o = rt.halfedges[e];
+
+                tris[3 * slot[t] + k] = rt.triangles[e];
+                opps[3 * slot[t] + k] = slot[o / 3] == NONE ? NONE : 3 * slot[o / 3] + o % 3;
+            }
+        }
+
+        DelaunayEdges.build(sites, tris, opps, numTriangles, options, edges, out);
+    }
+
+    /**
+     * @param bounds Bounds of the sites.
+     * @return {@code False} if all sites are on one line and there are no triangles.
+     */
+    private boolean triangulate(Rectangle bounds) {
+        int n = xs.length;
+
+        int[] order = SpaceFillingCurve.HILBERT.order(xs, ys, bounds);
+
+        int i0 = n > 0 ? order[0] : NONE, i1 = NONE, i2 = NONE;
+
+        for (int k = 1; k < n && i2 == NONE; k++) {
+            int i = order[k];
+
+            if (i1 == NONE) {
+                if (xs[i] != xs[i0] || ys[i] != ys[i0])
+                    i1 = i;
+            }
+            else if (orient(i0, i1, i) != 0)
+                i2 = i;
+        }
+
+        if (i2 == NONE)
+            return false;
+
+        if (orient(i0, i1, i2) < 0) {
+            int t = i1;
+            i1 = i2;
+            i2 = t;
+        }
+
+        int t0 = addTriangle(i0, i1, i2);
+
+        // ghost behind each edge: the edge reversed and the ghost corner
+        for (int k = 0; k < 3; k++) {
+            int e = 3 * t0 + k;
+
+            link(e, 3 * addTriangle(triangles[next(e)], triangles[e], GHOST));
+        }
+
+        for (int k = 0; k < 3; k++)
+            link(3 * (t0 + 1 + k) + 1, 3 * (t0 + 1 + (k + 2) % 3) + 2);
+
+        last = t0;
+
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+
+            if (i != i0 && i != i1 && i != i2)
+                insert(i);
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds a site unless it is redundant.
+     *
+     * @param p Site index.
+     */
+    private void insert(int p) {
+        int t = locate(p);
+
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+
+            stamp = 1;
+        }
+
+        // a site inside the hull which is above the lifted triangle holding it has an empty cell
+        if (!conflict(t, p))
+            return;
+
+        marks[t] = stamp;
+
+        int top = 0, numBorder = 0;
+
+        stack[top++] = t;
+
+        while (top > 0) {
+            int c = stack[--top];
+
+            for (int k = 0; k < 3; k++) {
+                int e = 3 * c + k, o = halfedges[e], u = o / 3;
+
+                if (marks[u] == stamp)
+                    continue;
+
+                if (marks[u] != -stamp && conflict(u, p)) {
+                    marks[u] = stamp;
+
+                    if (top == stack.length)
+                        stack = Arrays.copyOf(stack, 2 * top);
+
+                    stack[top++] = u;
+
+                    continue;
+                }
+
+                marks[u] = -stamp;
+
+                if (3 * numBorder == border.length)
+                    border = Arrays.copyOf(border, 2 * border.length);
+
+                border[3 * numBorder] = triangles[e];
+                border[3 * numBorder + 1] = triangles[next(e)];
+                border[3 * numBorder + 2] = o;
+                numBorder++;
+            }
+
+            remove(c);
+        }
+
+        // the hole is star shaped from the site: a fan of one triangle per border edge fills it
+        for (int b = 0; b < numBorder; b++) {
+            int from = border[3 * b], to = border[3 * b + 1];
+            int f = addTriangle(from, to, p);
+
+            link(3 * f, border[3 * b + 2]);
+
+            fanAt[from + 1] = f;
+
+            if (from != GHOST && to != GHOST)
+                last = f;
+        }
+
+        for (int b = 0; b < numBorder; b++) {
+            int f = fanAt[border[3 * b] + 1];
+
+            link(3 * f + 1, 3 * fanAt[border[3 * b + 1] + 1] + 2);
+        }
+    }
+
+    /**
+     * Stochastic walk: crosses a random edge which has the site on its outer side until there is none.
+     *
+     * @param p Site index.
+     * @return Finite triangle holding the site, or a ghost triangle whose hull edge has the site outside.
+     */
+    private int locate(int p) {
+        int t = last;
+
+        walk:
+        while (true) {
+            if (!isFinite(t))
+                return t;
+
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+
+            int r = (seed >>> 1) % 3;
+
+            for (int i = 0; i < 3; i++) {
+                int e = 3 * t + (r + i) % 3;
+
+                if (orient(triangles[e], triangles[next(e)], p) < 0) {
+                    t = halfedges[e] / 3;
+
+                    continue walk;
+                }
+            }
+
+            return t;
+        }
+    }
+
+    /**
+     * @param t Triangle.
+     * @param p Site index.
+     * @return {@code True} if the site is below the plane of the lifted triangle, or outside the hull edge
+     * of a ghost triangle. A site on the line of a hull edge is in conflict with the ghost if it is with
+     * the finite triangle of the edge: both lifted planes pass through the lifted edge.
+     */
+    private boolean conflict(int t, int p) {
+        int g = ghostCorner(t);
+
+        if (g < 0) {
+            int a = triangles[3 * t], b = triangles[3 * t + 1], c = triangles[3 * t + 2];
+
+            return Predicates.power(xs[a], ys[a], ws[a], xs[b], ys[b], ws[b], xs[c], ys[c], ws[c],
+                xs[p], ys[p], ws[p]) > 0;
+        }
+
+        int e = 3 * t + (g + 1) % 3;
+        double o = orient(triangles[e], triangles[next(e)], p);
+
+        if (o != 0)
+            return o > 0;
+
+        // the finite triangle may be tested, or already removed, by the current insertion
+        int u = halfedges[e] / 3;
+
+        return marks[u] == stamp || marks[u] != -stamp && conflict(u, p);
+    }
+
+    /**
+     * Joins sites on one line to their neighbours on the lower hull of the lifted sites.
+     *
+     * @param sites Sites sorted by y, then x, so in order along the line.
+     * @param edges Output edges.
+     */
+    private void chain(List<Site> sites, List<Edge> edges) {
+        int n = xs.length;
+
+        if (n < 2)
+            return;
+
+        double ux = xs[n - 1] - xs[0], uy = ys[n - 1] - ys[0];
+        double len2 = ux * ux + uy * uy;
+
+        int[] hull = new int[n];
+        int size = 0;
+
+        for (int i = 0; i < n; i++) {
+            // coincident sites keep the heaviest one
+            if (size > 0 && xs[i] == xs[hull[size - 1]] && ys[i] == ys[hull[size - 1]]) {
+                if (ws[i] <= ws[hull[size - 1]])
+                    continue;
+
+                size--;
+            }
+
+            while (size >= 2 && !convex(hull[size - 2], hull[size - 1], i, ux, uy, len2))
+                size--;
+
+            hull[size++] = i;
+        }
+
+        for (int k = 1; k < size; k++)
+            edges.add(Edge.createBisectingEdge(sites.get(hull[k - 1]), sites.get(hull[k]), edges.size()));
+    }
+
+    /**
+     * @return {@code True} if lifted b is strictly below the segment of lifted a and c, with positions
+     * measured along the line in units of {@code len2}.
+     */
+    private boolean convex(int a, int b, int c, double ux, double uy, double len2) {
+        double ta = ((xs[a] - xs[0]) * ux + (ys[a] - ys[0]) * uy) / len2;
+        double tb = ((xs[b] - xs[0]) * ux + (ys[b] - ys[0]) * uy) / len2;
+        double tc = ((xs[c] - xs[0]) * ux + (ys[c] - ys[0]) * uy) / len2;
+
+        double la = ta * ta * len2 - ws[a], lb = tb * tb * len2 - ws[b], lc = tc * tc * len2 - ws[c];
+
+        return (tb - ta) * (lc - la) - (lb - la) * (tc - ta) > 0;
+    }
+
+    /**
+     * @param t Triangle.
+     * @return {@code True} if it is in use and has no ghost corner.
+     */
+    private boolean isFinite(int t) {
+        return triangles[3 * t] != REMOVED && ghostCorner(t) < 0;
+    }
+
+    /**
+     * @param t Triangle.
+     * @return Corner of the ghost site or {@code -1}.
+     */
+    private int ghostCorner(int t) {
+        for (int k = 0; k < 3; k++) {
+            if (triangles[3 * t + k] == GHOST)
+                return k;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return Orientation of three sites, see {@link Predicates#orient(double, double, double, double, double,
+     * double)}.
+     */
+    private double orient(int a, int b, int c) {
+        return Predicates.orient(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]);
+    }
+
+    /**
+     * @return New triangle in a free slot.
+     */
+    private int addTriangle(int a, int b, int c) {
+        int t;
+
+        if (numFree > 0)
+            t = free[--numFree];
+        else {
+            if (numSlots == marks.length) {
+                triangles = Arrays.copyOf(triangles, 6 * numSlots);
+                halfedges = Arrays.copyOf(halfedges, 6 * numSlots);
+                marks = Arrays.copyOf(marks, 2 * numSlots);
+            }
+
+            t = numSlots++;
+        }
+
+        triangles[3 * t] = a;
+        triangles[3 * t + 1] = b;
+        triangles[3 * t + 2] = c;
+        marks[t] = 0;
+
+        return t;
+    }
+
+    /**
+     * @param t Triangle to put in the free list.
+     */
+    private void remove(int t) {
+        if (numFree == free.length)
+            free = Arrays.copyOf(free, 2 * numFree);
+
+        free[numFree++] = t;
+
+        triangles[3 * t] = REMOVED;
+    }
+
+    /**
+     * @param a Halfedge.
+     * @param b Opposite halfedge.
+     */
+    private void link(int a, int b) {
+        halfedges[a] = b;
+        halfedges[b] = a;
+    }
+
+    /**
+     * @param e Halfedge.
+     * @return Next halfedge of the triangle.
+     */
+    private static int next(int e) {
+        return e % 3 == 2 ? e - 2 : e + 1;
+    }
+}
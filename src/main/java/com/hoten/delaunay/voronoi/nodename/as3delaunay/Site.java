@@ -1,9 +1,10 @@
 package com.hoten.delaunay.voronoi.nodename.as3delaunay;
 
+import com.hoten.delaunay.geom.ConvexPolygon;
 import com.hoten.delaunay.geom.GenUtils;
 import com.hoten.delaunay.geom.Point;
-import com.hoten.delaunay.geom.Rectangle;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -15,17 +16,29 @@ public final class Site implements ICoord {
     /** Site location. **/
     private final Point position;
 
-    /** Currently have no use and created by "Math.random". Possible way for height algorithms. **/
-    private double weight;
+    /** Weight of the power distance {@code |x - p|^2 - weight}, {@code 0} for the plain distance. */
+    private final double weight;
 
     /** Site index. */
     private int index;
 
-    /** The edges that define this Site's Voronoi region. */
-    private List<Edge> edges;
+    /** {@code True} for a site of {@link Constraints}. */
+    private boolean constraint;
 
-    /** Which end of each edge hooks up with the previous edge in edges. */
-    private List<LR> edgeOrientations;
+    /** No edges. */
+    private static final Edge[] NO_EDGES = new Edge[0];
+
+    /** The edges that define this Site's Voronoi region, first {@link #numEdges} are used. */
+    private Edge[] edges;
+
+    /** Number of edges. */
+    private int numEdges;
+
+    /**
+     * Which end of each edge hooks up with the previous edge in edges: {@code true} for {@link LR#RIGHT}.
+     * {@code Null} until edges are reordered.
+     */
+    private boolean[] rightOrientations;
 
     /** Ordered list of points that define site border clipped to bounds. */
     private List<Point> region;
@@ -34,35 +47,32 @@ public final class Site implements ICoord {
      * Sort sites on y, then x coord, also change each site's index to
      * match its new position in the list so the index can be used to
      * identify the site for nearest-neighbor queries.
+     * <p>
+     * Sorting is done by {@link CoordinateSort} over primitive keys, indices are reassigned afterwards in one pass.
      *
-     * haha "also" - means more than one responsibility...
-     *
+     * @param sites Sites.
      */
     static void sortSites(List<Site> sites) {
-        sites.sort((s1, s2) -> {
-            int returnValue = GenUtils.compareByYThenX(s1, s2);
-
-            // swap index values if necessary to match new ordering:
-            int tempIndex;
-
-            if (returnValue == -1) {
-                if (s1.index > s2.index) {
-                    tempIndex = s1.index;
-                    s1.index = s2.index;
-                    s2.index = tempIndex;
-                }
-            }
-            else if (returnValue == 1) {
-                if (s2.index > s1.index) {
-                    tempIndex = s2.index;
-                    s2.index = s1.index;
-                    s1.index = tempIndex;
-                }
+        int n = sites.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            Site site = sites.get(i);
+            xs[i] = site.getX();
+            ys[i] = site.getY();
+        }
 
-            }
+        int[] perm = CoordinateSort.sortByYThenX(xs, ys);
+        Site[] sorted = new Site[n];
 
-            return returnValue;
-        });
+        for (int i = 0; i < n; i++) {
+            sorted[i] = sites.get(perm[i]);
+            sorted[i].index = i;
+        }
+
+        for (int i = 0; i < n; i++)
+            sites.set(i, sorted[i]);
     }
 
     /** {@inheritDoc} */
@@ -79,10 +89,31 @@ public final class Site implements ICoord {
         position = p;
         this.index = index;
         this.weight = weight;
-        edges = new ArrayList<>();
+        edges = NO_EDGES;
         region = null;
     }
 
+    /**
+     * @return Weight, see {@link Voronoi#Voronoi(List, double[], ConvexPolygon, VoronoiOptions)}.
+     */
+    public double getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return {@code True} for a site of {@link Constraints}.
+     */
+    boolean isConstraint() {
+        return constraint;
+    }
+
+    /**
+     * Marks a site of {@link Constraints}.
+     */
+    void markConstraint() {
+        constraint = true;
+    }
+
     /** {@inheritDoc} */
     @Override public String toString() {
         return "Site " + index + ": " + getPosition();
@@ -92,32 +123,113 @@ public final class Site implements ICoord {
      * @param edge Additional border segment.
      */
     void addEdge(Edge edge) {
-        edges.add(edge);
+        if (numEdges == edges.length)
+            edges = Arrays.copyOf(edges, Math.max(4, 2 * numEdges));
+
+        edges[numEdges++] = edge;
+
+        rightOrientations = null;
+        region = null;
+    }
+
+    /**
+     * @param edge Border segment which is no longer a part of the diagram.
+     */
+    void removeEdge(Edge edge) {
+        for (int i = 0; i < numEdges; i++) {
+            if (edges[i] == edge) {
+                System.arraycopy(edges, i + 1, edges, i, numEdges - i - 1);
+
+                edges[--numEdges] = null;
+
+                break;
+            }
+        }
+
+        rightOrientations = null;
+        region = null;
+    }
+
+    /**
+     * Forgets the region, so it is built again from the edges. Called when a vertex of an edge has changed.
+     */
+    void edgesChanged() {
+        rightOrientations = null;
+        region = null;
+    }
+
+    /**
+     * @return Border edges in no particular order, a view which must not be used after the edges change.
+     */
+    List<Edge> edges() {
+        return Arrays.asList(edges).subList(0, numEdges);
+    }
+
+    /**
+     * @return Length of the edge array.
+     */
+    int edgeCapacity() {
+        return edges.length;
+    }
+
+    /**
+     * @return Length of the orientation array, {@code -1} if there is none.
+     */
+    int orientationCapacity() {
+        return rightOrientations != null ? rightOrientations.length : -1;
+    }
+
+    /**
+     * @return Cached region or {@code null}.
+     */
+    List<Point> cachedRegion() {
+        return region;
+    }
+
+    /**
+     * @return Position in the site list.
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * @param index Position in the site list.
+     */
+    void setIndex(int index) {
+        this.index = index;
     }
 
     /**
      * @return Nearest border edge.
      */
     public Edge nearestEdge() {
-        edges.sort(GenUtils::compareSitesDistances);
+        Edge nearest = edges[0];
+
+        // first of the nearest ones, as a stable sort would give, without reordering the edges
+        for (int i = 1; i < numEdges; i++) {
+            if (GenUtils.compareSitesDistances(edges[i], nearest) < 0)
+                nearest = edges[i];
+        }
 
-        return edges.get(0);
+        return nearest;
     }
 
     /**
+     * @param dcel Edge list of the diagram or {@code null} if it is not up to date.
      * @return Neighbors.
      */
-    List<Site> neighborSites() {
-        if (edges == null || edges.isEmpty())
+    List<Site> neighborSites(Dcel dcel) {
+        if (numEdges == 0)
             return new ArrayList<>();
 
-        if (edgeOrientations == null)
+        if (rightOrientations == null && (dcel == null || !walkFace(dcel)))
             reorderEdges();
 
         ArrayList<Site> list = new ArrayList<>();
 
-        for (Edge edge : edges)
-            list.add(neighborSite(edge));
+        for (int i = 0; i < numEdges; i++)
+            list.add(neighborSite(edges[i]));
 
         return list;
     }
@@ -137,189 +249,281 @@ public final class Site implements ICoord {
     }
 
     /**
-     * @param clippingBounds Graph bounds.
-     * @return Continuous line represented as a sequence of points clipped in graph bounds.
+     * Edges are put in order by a walk around the face in the edge list, which goes counterclockwise,
+     * or by {@link EdgeReorderer} if there is no up to date edge list or the face can't be walked.
+     *
+     * @param domain Clip domain.
+     * @param dcel Edge list of the diagram or {@code null} if it is not up to date.
+     * @return Continuous line represented as a sequence of points clipped to the domain, counterclockwise (y up).
      */
-    List<Point> region(Rectangle clippingBounds) {
-        if (edges == null || edges.isEmpty())
+    List<Point> region(ConvexPolygon domain, Dcel dcel) {
+        if (numEdges == 0)
             return new ArrayList<>();
 
-        if (edgeOrientations == null || edgeOrientations.isEmpty()) {
-            reorderEdges();
+        if (region == null) {
+            if ((dcel == null || !walkFace(dcel)) && rightOrientations == null)
+                reorderEdges();
 
-            region = clipToBounds(clippingBounds);
-
-            if ((new Polygon(region)).winding() == Winding.CLOCKWISE)
-                Collections.reverse(region);
+            region = clipToBounds(domain);
         }
 
         return region;
     }
 
+    /**
+     * Puts edges in the order of the face of this site in the edge list. An unbounded face is one chain,
+     * or two parallel ones if all sites are on one line; chains are put one after the other.
+     *
+     * @param dcel Edge list of the diagram.
+     * @return {@code False} if the chains don't hold all edges of the site, edges are left as they are.
+     */
+    private boolean walkFace(Dcel dcel) {
+        int first = dcel.faceHalfedge(index);
+
+        if (first == Dcel.NONE)
+            return false;
+
+        Edge[] walked = new Edge[numEdges];
+        boolean[] right = new boolean[numEdges];
+        int n = 0;
+
+        if (dcel.prev(first) != Dcel.NONE)
+            n = walkChain(dcel, first, walked, right, 0);
+        else {
+            for (int i = 0; i < numEdges && n >= 0; i++) {
+                int h = dcel.halfedge(edges[i], this);
+
+                if (dcel.prev(h) == Dcel.NONE)
+                    n = walkChain(dcel, h, walked, right, n);
+            }
+        }
+
+        if (n != numEdges)
+            return false;
+
+        edges = walked;
+        rightOrientations = right;
+
+        return true;
+    }
+
+    /**
+     * @param dcel Edge list of the diagram.
+     * @param start Start of a chain or any halfedge of a bounded face.
+     * @param walked Edges in the order of the face.
+     * @param right Orientations of walked edges, see {@link #rightOrientations}.
+     * @param n Number of walked edges.
+     * @return Number of walked edges after the chain, {@code -1} if there are more than edges of the site.
+     */
+    private static int walkChain(Dcel dcel, int start, Edge[] walked, boolean[] right, int n) {
+        int h = start;
+
+        do {
+            if (n == walked.length)
+                return -1;
+
+            walked[n] = dcel.edgeOf(h);
+            right[n] = dcel.startSide(h) == LR.RIGHT;
+            n++;
+
+            h = dcel.next(h);
+        }
+        while (h != start && h != Dcel.NONE);
+
+        return n;
+    }
+
     /**
      * Sort border edges. After sorting they will represent continuous closed line.
      */
     private void reorderEdges() {
-        EdgeReorderer reorderer = new EdgeReorderer(edges, Vertex.class);
+        EdgeReorderer reorderer = new EdgeReorderer(edges(), Vertex.class);
+        List<Edge> sorted = reorderer.getEdges();
+        List<LR> orientations = reorderer.getEdgeOrientations();
+
+        edges = sorted.toArray(NO_EDGES);
+        numEdges = edges.length;
+        rightOrientations = new boolean[numEdges];
+
+        for (int i = 0; i < numEdges; i++)
+            rightOrientations[i] = orientations.get(i) == LR.RIGHT;
+
+        if (numEdges == 0)
+            return;
+
+        // the halfedge of this site goes from the left vertex to the right one if the face is on its left
+        boolean forward = (edges[0].getLeftSite() == this) == Dcel.isLeftForward(edges[0]);
 
-        edges = reorderer.getEdges();
-        edgeOrientations = reorderer.getEdgeOrientations();
+        if (forward == rightOrientations[0]) {
+            for (int i = 0, j = numEdges - 1; i <= j; i++, j--) {
+                Edge e = edges[i];
+                edges[i] = edges[j];
+                edges[j] = e;
+
+                boolean r = rightOrientations[i];
+                rightOrientations[i] = !rightOrientations[j];
+                rightOrientations[j] = !r;
+            }
+        }
+    }
+
+    /**
+     * @param j Position of a reordered edge.
+     * @return Which end of the edge hooks up with the previous edge.
+     */
+    private LR orientation(int j) {
+        return rightOrientations[j] ? LR.RIGHT : LR.LEFT;
     }
 
     /**
      * Converts site edge border to sequence points (edge ends positions), clipped to given boundaries.
+     * Edges must go counterclockwise around the site.
      *
-     * @param bounds Graph bounds.
+     * @param domain Clip domain.
      * @return Clipped site border represented as a sequence of points.
      */
-    private ArrayList<Point> clipToBounds(Rectangle bounds) {
+    private ArrayList<Point> clipToBounds(ConvexPolygon domain) {
         int visibleEdgeIdx = 0;
 
-        while (visibleEdgeIdx < edges.size() && (!edges.get(visibleEdgeIdx).isVisible()))
+        while (visibleEdgeIdx < numEdges && (!edges[visibleEdgeIdx].isVisible()))
             ++visibleEdgeIdx;
 
-        if (visibleEdgeIdx == edges.size()) {
-            // no edges visible
-            return new ArrayList<>();
+        ArrayList<Point> points = new ArrayList<>();
+
+        if (visibleEdgeIdx == numEdges) {
+            // no edges visible, the domain is either inside the region or outside it
+            if (containsDomain(domain)) {
+                for (int i = 0; i < domain.size(); i++)
+                    points.add(new Point(domain.getX(i), domain.getY(i)));
+            }
+
+            return points;
         }
 
-        Edge edge = edges.get(visibleEdgeIdx);
-        LR orientation = edgeOrientations.get(visibleEdgeIdx);
+        Edge edge = edges[visibleEdgeIdx];
+        LR orientation = orientation(visibleEdgeIdx);
 
-        ArrayList<Point> points = new ArrayList<>();
+        points.add(edge.clippedEnd(orientation));
+
+        Point end = edge.clippedEnd(LR.other(orientation));
 
-        points.add(edge.getClippedEnds().get(orientation));
-        points.add(edge.getClippedEnds().get((LR.other(orientation))));
+        points.add(end);
 
-        for (int j = visibleEdgeIdx + 1; j < edges.size(); ++j) {
-            edge = edges.get(j);
+        for (int j = visibleEdgeIdx + 1; j < numEdges; ++j) {
+            edge = edges[j];
 
             if (!edge.isVisible())
                 continue;
 
-            connect(points, j, bounds, false);
+            end = connect(points, end, j, domain, false);
         }
 
-        // Close up the polygon by adding another corner point of the bounds if needed.
-        connect(points, visibleEdgeIdx, bounds, true);
+        // Close up the polygon by adding corners of the domain if needed.
+        connect(points, end, visibleEdgeIdx, domain, true);
 
         return points;
     }
 
+    /**
+     * @param domain Clip domain.
+     * @return {@code True} if the first vertex of the domain is not nearer to any neighbor than to this site,
+     * by the power distance.
+     */
+    private boolean containsDomain(ConvexPolygon domain) {
+        double x = domain.getX(0), y = domain.getY(0);
+        double power = power(x, y);
+
+        for (int i = 0; i < numEdges; i++) {
+            Site other = neighborSite(edges[i]);
+
+            if (other != null && other.power(x, y) < power)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @return Squared distance from the site to the point minus the weight.
+     */
+    private double power(double x, double y) {
+        return (x - position.x) * (x - position.x) + (y - position.y) * (y - position.y) - weight;
+    }
+
     /**
      * Insert ends of "j" edge into sequence of points representing clipped site border.
      *
      * @param points List containing unfinished sequence.
+     * @param lastEnd End of the previous edge, it is left out of the sequence if it closes it up.
      * @param j Start index.
-     * @param bounds Graph bounds.
+     * @param domain Clip domain.
      * @param closingUp {@code True} if we should finish connecting.
+     * @return End of the edge.
      */
-    private void connect(ArrayList<Point> points, int j, Rectangle bounds, boolean closingUp) {
-        Point lastPoint = points.get(points.size() - 1);
-        Edge newEdge = edges.get(j);
-        LR newOrientation = edgeOrientations.get(j);
-        // the point that  must be connected to rightPoint:
-        Point newPoint = newEdge.getClippedEnds().get(newOrientation);
-
-        if (!GenUtils.closeEnough(lastPoint, newPoint, EPSILON)) {
-            // The points do not coincide, so they must have been clipped at the bounds;
-            // see if they are on the same border of the bounds:
-            if (lastPoint.x != newPoint.x
-                    && lastPoint.y != newPoint.y) {
-                // They are on different borders of the bounds;
-                // insert one or two corners of bounds as needed to hook them up:
-                // (NOTE this will not be correct if the region should take up more than
-                // half of the bounds rect, for then we will have gone the wrong way
-                // around the bounds and included the smaller part rather than the larger)
-                int rightCheck = BoundsCheck.check(lastPoint, bounds);
-                int newCheck = BoundsCheck.check(newPoint, bounds);
-
-                double px, py;
-
-                if ((rightCheck & BoundsCheck.RIGHT) != 0) {
-                    px = bounds.right;
-
-                    if ((newCheck & BoundsCheck.BOTTOM) != 0) {
-                        py = bounds.bottom;
-                        points.add(new Point(px, py));
-                    } else if ((newCheck & BoundsCheck.TOP) != 0) {
-                        py = bounds.top;
-                        points.add(new Point(px, py));
-                    } else if ((newCheck & BoundsCheck.LEFT) != 0) {
-                        if (lastPoint.y - bounds.y + newPoint.y - bounds.y < bounds.height)
-                            py = bounds.top;
-                        else
-                            py = bounds.bottom;
-
-                        points.add(new Point(px, py));
-                        points.add(new Point(bounds.left, py));
-                    }
-                } else if ((rightCheck & BoundsCheck.LEFT) != 0) {
-                    px = bounds.left;
-                    if ((newCheck & BoundsCheck.BOTTOM) != 0) {
-                        py = bounds.bottom;
-                        points.add(new Point(px, py));
-                    } else if ((newCheck & BoundsCheck.TOP) != 0) {
-                        py = bounds.top;
-                        points.add(new Point(px, py));
-                    } else if ((newCheck & BoundsCheck.RIGHT) != 0) {
-                        if (lastPoint.y - bounds.y + newPoint.y - bounds.y < bounds.height) {
-                            py = bounds.top;
-                        } else {
-                            py = bounds.bottom;
-                        }
-                        points.add(new Point(px, py));
-                        points.add(new Point(bounds.right, py));
-                    }
-                } else if ((rightCheck & BoundsCheck.TOP) != 0) {
-                    py = bounds.top;
-                    if ((newCheck & BoundsCheck.RIGHT) != 0) {
-                        px = bounds.right;
-                        points.add(new Point(px, py));
-                    } else if ((newCheck & BoundsCheck.LEFT) != 0) {
-                        px = bounds.left;
-                        points.add(new Point(px, py));
-                    } else if ((newCheck & BoundsCheck.BOTTOM) != 0) {
-                        if (lastPoint.x - bounds.x + newPoint.x - bounds.x < bounds.width) {
-                            px = bounds.left;
-                        } else {
-                            px = bounds.right;
-                        }
-                        points.add(new Point(px, py));
-                        points.add(new Point(px, bounds.bottom));
-                    }
-                } else if ((rightCheck & BoundsCheck.BOTTOM) != 0) {
-                    py = bounds.bottom;
-                    if ((newCheck & BoundsCheck.RIGHT) != 0) {
-                        px = bounds.right;
-                        points.add(new Point(px, py));
-                    } else if ((newCheck & BoundsCheck.LEFT) != 0) {
-                        px = bounds.left;
-                        points.add(new Point(px, py));
-                    } else if ((newCheck & BoundsCheck.TOP) != 0) {
-                        if (lastPoint.x - bounds.x + newPoint.x - bounds.x < bounds.width) {
-                            px = bounds.left;
-                        } else {
-                            px = bounds.right;
-                        }
-                        points.add(new Point(px, py));
-                        points.add(new Point(px, bounds.top));
-                    }
-                }
-            }
-
-            if (closingUp) {
-                // newEdge's ends have already been added
-                return;
-            }
-
-            points.add(newPoint);
+    private Point connect(ArrayList<Point> points, Point lastEnd, int j, ConvexPolygon domain, boolean closingUp) {
+        Edge newEdge = edges[j];
+        LR newOrientation = orientation(j);
+        // the point that  must be connected to lastEnd:
+        Point newPoint = newEdge.clippedEnd(newOrientation);
+
+        if (!GenUtils.closeEnough(lastEnd, newPoint, EPSILON)) {
+            // The points do not coincide, so they must have been clipped at the border:
+            // go along it counterclockwise passing corners of the domain.
+            if (onBorder(lastEnd, domain) && onBorder(newPoint, domain))
+                addCorners(points, lastEnd, newPoint, domain);
+
+            if (!closingUp)
+                points.add(newPoint);
         }
 
-        Point newRightPoint = newEdge.getClippedEnds().get(LR.other(newOrientation));
+        Point newRightPoint = newEdge.clippedEnd(LR.other(newOrientation));
+
+        // newEdge's ends have already been added
+        if (closingUp)
+            return newRightPoint;
 
         if (!GenUtils.closeEnough(points.get(0), newRightPoint, EPSILON))
             points.add(newRightPoint);
+
+        return newRightPoint;
+    }
+
+    /**
+     * Adds corners of the domain passed by going counterclockwise along the border from one point to the other.
+     *
+     * @param points List containing unfinished sequence.
+     * @param from Point where the border leaves the domain.
+     * @param to Point where the border comes back.
+     * @param domain Clip domain.
+     */
+    private static void addCorners(ArrayList<Point> points, Point from, Point to, ConvexPolygon domain) {
+        int n = domain.size();
+        double perimeter = domain.perimeter();
+        double t0 = domain.borderPosition(from.x, from.y);
+        double t1 = domain.borderPosition(to.x, to.y);
+
+        if (t1 < t0)
+            t1 += perimeter;
+
+        // twice around to pass the first vertex
+        for (int k = 0; k < 2 * n; k++) {
+            int i = k % n;
+            double t = domain.vertexPosition(i) + (k / n) * perimeter;
+
+            if (t > t0 && t < t1)
+                points.add(new Point(domain.getX(i), domain.getY(i)));
+        }
+    }
+
+    /**
+     * @param p Point inside the domain.
+     * @param domain Clip domain.
+     * @return {@code True} if the point is on the border, with the inaccuracy of float ends in mind.
+     */
+    private static boolean onBorder(Point p, ConvexPolygon domain) {
+        return domain.distanceToBorder(p.x, p.y) < EPSILON;
     }
 
     /**
@@ -343,38 +547,13 @@ public final class Site implements ICoord {
     public double dist(ICoord p) {
         return GenUtils.distance(p.getPosition(), this.position);
     }
-}
-
-final class BoundsCheck {
-
-    final public static int TOP = 1;
-    final public static int BOTTOM = 2;
-    final public static int LEFT = 4;
-    final public static int RIGHT = 8;
 
     /**
-     * @param point
-     * @param bounds
-     * @return an int with the appropriate bits set if the Point lies on the
-     * corresponding bounds lines
+     * @param x Target x coordinate.
+     * @param y Target y coordinate.
+     * @return Distance between site position and given point.
      */
-    public static int check(Point point, Rectangle bounds) {
-        int value = 0;
-
-        if (point.x == bounds.left)
-            value |= LEFT;
-        else if (point.x == bounds.right)
-            value |= RIGHT;
-
-        if (point.y == bounds.top)
-            value |= TOP;
-        else if (point.y == bounds.bottom)
-            value |= BOTTOM;
-
-        return value;
-    }
-
-    public BoundsCheck() {
-        throw new Error("BoundsCheck constructor unused");
+    public double dist(double x, double y) {
+        return Math.sqrt((x - position.x) * (x - position.x) + (y - position.y) * (y - position.y));
     }
 }
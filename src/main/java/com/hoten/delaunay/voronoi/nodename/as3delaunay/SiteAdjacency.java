@@ -0,0 +1,180 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Edges and neighbours of every site in compressed sparse rows, see {@link Voronoi#adjacency()}. Entries
+ * {@link #start(int)} to {@link #end(int)} (exclusive) of a site are its Voronoi edges in the order of the walk
+ * around its face in {@link Dcel}: counterclockwise (y up), starting with the edge coming from infinity if
+ * the face is unbounded. {@link #neighbor(int)} is the site on the other side of the edge of an entry,
+ * {@link #edge(int)} is the position of the edge in {@link Voronoi#edges()}.
+ * <p>
+ * Queries are array reads, so a loop over the entries of a site doesn't allocate:
+ * <pre>
+ * for (int k = adj.start(site); k &lt; adj.end(site); k++)
+ *     visit(adj.neighbor(k));
+ * </pre>
+ * Adjacency is immutable, it is made again by the first query after an edit of the diagram.
+ */
+public final class SiteAdjacency {
+    /** First entry of each site, {@code start[numSites]} is the number of entries. */
+    private final int[] start;
+
+    /** Site on the other side of the edge of each entry. */
+    private final int[] neighbors;
+
+    /** Edge index of each entry. */
+    private final int[] edges;
+
+    /**
+     * @param sites Sites, the index of a site is its position.
+     * @param dcel Up to date edge list of the diagram.
+     */
+    SiteAdjacency(List<Site> sites, Dcel dcel) {
+        int n = sites.size();
+
+        start = new int[n + 1];
+
+        for (int h = 0; h < dcel.size(); h++)
+            start[dcel.face(h) + 1]++;
+
+        for (int s = 0; s < n; s++)
+            start[s + 1] += start[s];
+
+        neighbors = new int[start[n]];
+        edges = new int[start[n]];
+
+        for (int s = 0; s < n; s++) {
+            int from = start[s], deg = start[s + 1] - from;
+
+            if (deg == 0)
+                continue;
+
+            Site site = sites.get(s);
+            int h = dcel.faceHalfedge(s);
+            int cnt = 0;
+
+            if (h != Dcel.NONE && dcel.prev(h) != Dcel.NONE)
+                cnt = walk(dcel, h, from, deg, 0);
+            else {
+                // an unbounded face is a chain, all sites on one line give two of them
+                for (Edge e : site.edges()) {
+                    int first = dcel.halfedge(e, site);
+
+                    if (dcel.prev(first) == Dcel.NONE && cnt >= 0)
+                        cnt = walk(dcel, first, from, deg, cnt);
+                }
+            }
+
+            // the walk didn't give all edges, keep the order of the site
+            if (cnt != deg) {
+                int k = from;
+
+                for (Edge e : site.edges()) {
+                    int first = dcel.halfedge(e, site);
+
+                    edges[k] = dcel.edge(first);
+                    neighbors[k++] = dcel.face(dcel.twin(first));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param dcel Edge list.
+     * @param first Start of a chain or any halfedge of a bounded face.
+     * @param from First entry of the site.
+     * @param deg Number of entries of the site.
+     * @param cnt Number of filled entries.
+     * @return Number of filled entries after the chain, {@code -1} if there are more halfedges than entries.
+     */
+    private int walk(Dcel dcel, int first, int from, int deg, int cnt) {
+        int h = first;
+
+        do {
+            if (cnt == deg)
+                return -1;
+
+            edges[from + cnt] = dcel.edge(h);
+            neighbors[from + cnt] = dcel.face(dcel.twin(h));
+            cnt++;
+
+            h = dcel.next(h);
+        }
+        while (h != first && h != Dcel.NONE);
+
+        return cnt;
+    }
+
+    /**
+     * @return Number of sites.
+     */
+    public int numSites() {
+        return start.length - 1;
+    }
+
+    /**
+     * @param site Site index.
+     * @return First entry of the site.
+     */
+    public int start(int site) {
+        return start[site];
+    }
+
+    /**
+     * @param site Site index.
+     * @return Entry after the last one of the site.
+     */
+    public int end(int site) {
+        return start[site + 1];
+    }
+
+    /**
+     * @param site Site index.
+     * @return Number of edges, and neighbours, of the site.
+     */
+    public int degree(int site) {
+        return start[site + 1] - start[site];
+    }
+
+    /**
+     * @param entry Entry.
+     * @return Index of the neighbouring site.
+     */
+    public int neighbor(int entry) {
+        return neighbors[entry];
+    }
+
+    /**
+     * @param entry Entry.
+     * @return Index of the edge in {@link Voronoi#edges()}.
+     */
+    public int edge(int entry) {
+        return edges[entry];
+    }
+
+    /**
+     * @param site Site index.
+     * @return Copy of the neighbour indices of the site.
+     */
+    public int[] neighbors(int site) {
+        return Arrays.copyOfRange(neighbors, start[site], start[site + 1]);
+    }
+
+    /**
+     * @param site Site index.
+     * @return Copy of the edge indices of the site.
+     */
+    public int[] edges(int site) {
+        return Arrays.copyOfRange(edges, start[site], start[site + 1]);
+    }
+
+    /**
+     * @return Bytes of the arrays, see {@link MemoryFootprint}.
+     */
+    long footprint() {
+        return MemoryFootprint.shallowSize(SiteAdjacency.class) + MemoryFootprint.arraySize(start.length, 4)
+            + 2 * MemoryFootprint.arraySize(edges.length, 4);
+    }
+}
@@ -1,5 +1,6 @@
 package com.hoten.delaunay.voronoi.nodename.as3delaunay;
 
+import com.hoten.delaunay.geom.ConvexPolygon;
 import com.hoten.delaunay.geom.Point;
 import com.hoten.delaunay.geom.Rectangle;
 import java.util.ArrayList;
@@ -29,6 +30,30 @@ final class SiteList {
         return sites.size();
     }
 
+    /**
+     * Removes site in O(1): the last site takes its place.
+     *
+     * @param site Site.
+     */
+    void remove(Site site) {
+        int idx = site.getIndex();
+        Site last = sites.remove(sites.size() - 1);
+
+        if (last != site) {
+            sites.set(idx, last);
+            last.setIndex(idx);
+        }
+
+        sorted = false;
+    }
+
+    /**
+     * @return Sites. Sorted by y, then x after {@link #sort()}.
+     */
+    List<Site> sites() {
+        return sites;
+    }
+
     /**
      * @return Site count.
      */
@@ -65,6 +90,14 @@ final class SiteList {
      * @return Bounds where all sites fitted.
      */
     public Rectangle getSitesBounds() {
+        return bounds(sites);
+    }
+
+    /**
+     * @param sites Sites sorted by y.
+     * @return Bounds where all sites fitted.
+     */
+    static Rectangle bounds(List<Site> sites) {
         double xmin, xmax, ymin, ymax;
 
         if (sites.isEmpty())
@@ -133,16 +166,17 @@ final class SiteList {
     }
 
     /**
-     * Region is continuous line represented as a sequence of points clipped in graph bounds.
+     * Region is continuous line represented as a sequence of points clipped to the domain.
      *
-     * @param plotBounds Graph bounds.
+     * @param domain Clip domain.
+     * @param dcel Edge list of the diagram or {@code null} if it is not up to date.
      * @return Regions for sites in this site list.
      */
-    public List<List<Point>> regions(Rectangle plotBounds) {
+    public List<List<Point>> regions(ConvexPolygon domain, Dcel dcel) {
         List<List<Point>> regions = new ArrayList<>();
 
         for (Site site : sites)
-            regions.add(site.region(plotBounds));
+            regions.add(site.region(domain, dcel));
 
         return regions;
     }
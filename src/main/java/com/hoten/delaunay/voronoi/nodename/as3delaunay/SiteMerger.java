@@ -0,0 +1,188 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import java.util.Arrays;
+
+/**
+ * Finds coincident and nearly coincident points before the sweep, which supports neither.
+ * <p>
+ * Coincident points are found by sorting them in sweep order. For a merge distance points are put on a grid
+ * of cells of that size and sorted by Morton keys of their cells, so a cell is a run of the sorted keys which
+ * is found by binary search. Points are taken in input order, each one is merged into the first earlier
+ * survivor closer than the distance in its own or the 8 adjacent cells, or survives. O(n log n) overall.
+ */
+final class SiteMerger {
+    /** Max cell coordinate, so that two of them fit a Morton key. */
+    private static final double MAX_CELL = 1 << 30;
+
+    /**
+     * Utility class.
+     */
+    private SiteMerger() {
+        // No-op.
+    }
+
+    /**
+     * @param xs X coordinates.
+     * @param ys Y coordinates.
+     * @param distance Merge distance, {@code 0} to merge only points at the same position.
+     * @return Survivor of each point: {@code survivor[i]} is the index of the point which the i-th point
+     * was merged into, {@code survivor[i] == i} if it survives. Survivors are never merged.
+     */
+    static int[] merge(double[] xs, double[] ys, double distance) {
+        return distance > 0 ? mergeClose(xs, ys, distance) : mergeCoincident(xs, ys);
+    }
+
+    /**
+     * @return Survivors, see {@link #merge(double[], double[], double)}.
+     */
+    private static int[] mergeCoincident(double[] xs, double[] ys) {
+        int n = xs.length;
+        int[] survivor = new int[n];
+        int[] perm = CoordinateSort.sortByYThenX(xs, ys);
+
+        // the sort is stable, so the first point of a run has the lowest index
+        for (int i = 0, first = 0; i < n; i++) {
+            int p = perm[i];
+
+            if (i == 0 || xs[p] != xs[perm[first]] || ys[p] != ys[perm[first]])
+                first = i;
+
+            survivor[p] = perm[first];
+        }
+
+        return survivor;
+    }
+
+    /**
+     * @return Survivors, see {@link #merge(double[], double[], double)}.
+     */
+    private static int[] mergeClose(double[] xs, double[] ys, double distance) {
+        int n = xs.length;
+        int[] survivor = new int[n];
+
+        if (n == 0)
+            return survivor;
+
+        double xmin = Double.MAX_VALUE, ymin = Double.MAX_VALUE;
+        double xmax = -Double.MAX_VALUE, ymax = -Double.MAX_VALUE;
+
+        for (int i = 0; i < n; i++) {
+            xmin = Math.min(xmin, xs[i]);
+            xmax = Math.max(xmax, xs[i]);
+            ymin = Math.min(ymin, ys[i]);
+            ymax = Math.max(ymax, ys[i]);
+        }
+
+        // cells may be larger than the distance on huge extents, then a cell just holds more survivors
+        double cell = Math.max(distance, Math.max(xmax - xmin, ymax - ymin) / MAX_CELL);
+
+        int[] cx = new int[n];
+        int[] cy = new int[n];
+        long[] keys = new long[n];
+
+        for (int i = 0; i < n; i++) {
+            cx[i] = (int) ((xs[i] - xmin) / cell);
+            cy[i] = (int) ((ys[i] - ymin) / cell);
+            keys[i] = morton(cx[i], cy[i]);
+        }
+
+        int[] perm = CoordinateSort.sortByKey(keys.clone());
+        long[] sorted = new long[n];
+
+        for (int i = 0; i < n; i++)
+            sorted[i] = keys[perm[i]];
+
+        // survivors of each cell as linked lists starting at the first sorted slot of the cell
+        int[] head = new int[n];
+        int[] next = new int[n];
+
+        Arrays.fill(head, -1);
+
+        double dist2 = distance * distance;
+
+        for (int i = 0; i < n; i++) {
+            int found = -1;
+
+            for (int dy = 0; dy <= 2 && found < 0; dy++) {
+                for (int dx = 0; dx <= 2 && found < 0; dx++) {
+                    // own cell first
+                    int x = cx[i] + (dx == 2 ? -1 : dx);
+                    int y = cy[i] + (dy == 2 ? -1 : dy);
+
+                    if (x < 0 || y < 0)
+                        continue;
+
+                    int slot = firstSlot(sorted, morton(x, y));
+
+                    if (slot < 0)
+                        continue;
+
+                    for (int s = head[slot]; s >= 0; s = next[s]) {
+                        double ddx = xs[s] - xs[i], ddy = ys[s] - ys[i];
+
+                        if (ddx * ddx + ddy * ddy <= dist2) {
+                            found = s;
+
+                            break;
+                        }
+                    }
+                }
+            }
+
+            if (found >= 0)
+                survivor[i] = found;
+            else {
+                int slot = firstSlot(sorted, keys[i]);
+
+                survivor[i] = i;
+                next[i] = head[slot];
+                head[slot] = i;
+            }
+        }
+
+        return survivor;
+    }
+
+    /**
+     * @param sorted Sorted keys.
+     * @param key Key.
+     * @return First position of the key or {@code -1} if there is no such key.
+     */
+    static int firstSlot(long[] sorted, long key) {
+        int lo = 0, hi = sorted.length;
+
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+
+            if (sorted[mid] < key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        return lo < sorted.length && sorted[lo] == key ? lo : -1;
+    }
+
+    /**
+     * @param x Cell column, non negative.
+     * @param y Cell row, non negative.
+     * @return Morton key: interleaved bits of the coordinates.
+     */
+    static long morton(int x, int y) {
+        return spread(x) | (spread(y) << 1);
+    }
+
+    /**
+     * @param v Value of 31 bits.
+     * @return Value with a zero bit inserted after each bit.
+     */
+    private static long spread(long v) {
+        v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+
+        return v;
+    }
+}
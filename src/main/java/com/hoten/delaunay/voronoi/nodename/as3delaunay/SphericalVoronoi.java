@@ -0,0 +1,399 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Voronoi diagram of sites on the unit sphere, for maps of whole planets: there is no border to clip to and
+ * no cells are lost to the distortion of a projection.
+ * <p>
+ * The Delaunay triangulation of sites on a sphere is their 3D convex hull. It is computed in
+ * {@code O(n log n)} by a stereographic projection from the first site: circles on the sphere become circles
+ * in the plane, so the planar Delaunay triangulation of the other sites, made by a {@link TriangulationEngine},
+ * is the part of the hull away from the first site, and every edge of the planar hull closes a triangle with
+ * the first site. A Voronoi vertex is the normalized circumcenter of its triangle.
+ * <p>
+ * Triangles and halfedges follow the layout of {@link DelaunayEdges}: corners are counterclockwise seen from
+ * outside the sphere, and as the surface is closed every halfedge has an opposite one. Coordinates are packed,
+ * x, y and z of element {@code i} are {@code 3 * i}, {@code 3 * i + 1} and {@code 3 * i + 2}.
+ */
+public final class SphericalVoronoi {
+    /** Engine of the planar triangulation. */
+    private final TriangulationEngine engine;
+
+    /** Unit site coordinates, packed. */
+    private final double[] sites;
+
+    /** Site of each input site, coincident input sites share a site. */
+    private final int[] siteOf;
+
+    /** Halfedge origins, three per triangle. */
+    private final int[] triangles;
+
+    /** Opposite halfedges. */
+    private final int[] halfedges;
+
+    /** Unit Voronoi vertex coordinates by triangle, packed. */
+    private final double[] circumcenters;
+
+    /** Some halfedge starting at each site. */
+    private final int[] outedges;
+
+    /**
+     * Builds the diagram with {@link VoronoiOptions.Engine#SWEEP_HULL}.
+     *
+     * @param xyz Packed site coordinates, scaled to the unit sphere.
+     */
+    public SphericalVoronoi(double[] xyz) {
+        this(xyz, VoronoiOptions.Engine.SWEEP_HULL);
+    }
+
+    /**
+     * @param xyz Packed site coordinates, scaled to the unit sphere.
+     * @param engine Engine of the planar triangulation.
+     * @throws IllegalArgumentException If a site is the zero vector or sites lie on one plane.
+     */
+    public SphericalVoronoi(double[] xyz, TriangulationEngine engine) {
+        this.engine = engine;
+
+        if (xyz.length % 3 != 0)
+            throw new IllegalArgumentException("Coordinates are not triples: " + xyz.length);
+
+        int n = xyz.length / 3;
+        double[] unit = new double[xyz.length];
+
+        for (int i = 0; i < n; i++) {
+            double x = xyz[3 * i], y = xyz[3 * i + 1], z = xyz[3 * i + 2];
+            double len = Math.sqrt(x * x + y * y + z * z);
+
+            if (!(len > 0) || Double.isInfinite(len))
+                throw new IllegalArgumentException("Site is not a direction: " + i);
+
+            unit[3 * i] = x / len;
+            unit[3 * i + 1] = y / len;
+            unit[3 * i + 2] = z / len;
+        }
+
+        if (n < 4)
+            throw new IllegalArgumentException("At least 4 sites are needed: " + n);
+
+        // frame of the projection: w is the first site, u x v = -w keeps triangles counterclockwise from outside
+        double wx = unit[0], wy = unit[1], wz = unit[2];
+        double[] u = perpendicular(wx, wy, wz);
+        double vx = u[1] * wz - u[2] * wy, vy = u[2] * wx - u[0] * wz, vz = u[0] * wy - u[1] * wx;
+
+        // sites at the first site have no planar point, the rest are projected
+        int[] ids = new int[n];
+        int numPlanar = 0;
+
+        for (int i = 0; i < n; i++) {
+            double dx = unit[3 * i] - wx, dy = unit[3 * i + 1] - wy, dz = unit[3 * i + 2] - wz;
+
+            if (dx != 0 || dy != 0 || dz != 0)
+                ids[numPlanar++] = i;
+        }
+
+        double[] px = new double[numPlanar];
+        double[] py = new double[numPlanar];
+
+        for (int j = 0; j < numPlanar; j++) {
+            int i = ids[j];
+            double x = unit[3 * i], y = unit[3 * i + 1], z = unit[3 * i + 2];
+            double dx = x - wx, dy = y - wy, dz = z - wz;
+
+            // 1 - q.w of unit vectors, without the cancellation near the first site
+            double d = (dx * dx + dy * dy + dz * dz) / 2;
+
+            px[j] = (x * u[0] + y * u[1] + z * u[2]) / d;
+            py[j] = (x * vx + y * vy + z * vz) / d;
+        }
+
+        int[] perm = CoordinateSort.sortByYThenX(px, py);
+
+        // coincident points are runs of the sweep order, a run is one site named after its first input site
+        int[] rep = new int[n];
+        int[] runEnd = new int[numPlanar];
+
+        for (int i = 0; i < numPlanar; ) {
+            int j = i;
+            int min = ids[perm[i]];
+
+            while (j < numPlanar && px[perm[j]] == px[perm[i]] && py[perm[j]] == py[perm[i]])
+                min = Math.min(min, ids[perm[j++]]);
+
+            for (int k = i; k < j; k++)
+                rep[ids[perm[k]]] = min;
+
+            runEnd[i] = j;
+            i = j;
+        }
+
+        siteOf = new int[n];
+
+        int numSites = 0;
+
+        for (int i = 0; i < n; i++)
+            siteOf[i] = rep[i] == i ? numSites++ : siteOf[rep[i]];
+
+        sites = new double[3 * numSites];
+
+        for (int i = 0; i < n; i++) {
+            if (rep[i] == i)
+                System.arraycopy(unit, 3 * i, sites, 3 * siteOf[i], 3);
+        }
+
+        // planar sites in sweep order, one per run
+        List<Site> planar = new ArrayList<>(numSites);
+        int[] planarSite = new int[numSites];
+
+        for (int i = 0; i < numPlanar; i = runEnd[i]) {
+            int j = perm[i];
+
+            planarSite[planar.size()] = siteOf[ids[j]];
+            planar.add(new Site(new Point(px[j], py[j]), planar.size(), 0));
+        }
+
+        TriangleBuffer buf = new TriangleBuffer(2 * planar.size(), false);
+
+        engine.build(planar, new VoronoiOptions().engine(engine), new ArrayList<>(), buf, new BeachLineStats());
+
+        int numPlanarTriangles = buf.size();
+
+        if (numPlanarTriangles == 0)
+            throw new IllegalArgumentException("Sites lie on one plane");
+
+        int[] tris = new int[3 * (2 * numSites)];
+        int len = 0;
+
+        for (int t = 0; t < numPlanarTriangles; t++) {
+            for (int k = 0; k < 3; k++)
+                tris[len + k] = planarSite[buf.site(t, k)];
+
+            len += 3;
+        }
+
+        // a planar hull edge a -> b has the interior on its left, its triangle with the first site is b, a, first
+        int[] opp = pair(tris, len, numSites);
+        int planarLen = len;
+
+        for (int e = 0; e < planarLen; e++) {
+            if (opp[e] >= 0)
+                continue;
+
+            tris[len] = tris[next(e)];
+            tris[len + 1] = tris[e];
+            tris[len + 2] = siteOf[0];
+
+            len += 3;
+        }
+
+        int numTriangles = len / 3;
+
+        triangles = Arrays.copyOf(tris, len);
+        halfedges = pair(triangles, len, numSites);
+
+        for (int e = 0; e < len; e++) {
+            if (halfedges[e] < 0)
+                throw new IllegalStateException("Hull is not closed at halfedge " + e);
+        }
+
+        circumcenters = new double[3 * numTriangles];
+
+        for (int t = 0; t < numTriangles; t++)
+            circumcenter(triangles[3 * t], triangles[3 * t + 1], triangles[3 * t + 2], 3 * t);
+
+        outedges = new int[numSites];
+
+        for (int e = 0; e < len; e++)
+            outedges[triangles[e]] = e;
+    }
+
+    /**
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param z Z coordinate.
+     * @return Unit vector perpendicular to the unit vector.
+     */
+    private static double[] perpendicular(double x, double y, double z) {
+        double ax = Math.abs(x), ay = Math.abs(y), az = Math.abs(z);
+
+        // cross product with the axis least parallel to the vector
+        double[] res = ax <= ay && ax <= az ? new double[] {0, -z, y}
+            : ay <= az ? new double[] {z, 0, -x} : new double[] {-y, x, 0};
+
+        double len = Math.sqrt(res[0] * res[0] + res[1] * res[1] + res[2] * res[2]);
+
+        for (int i = 0; i < 3; i++)
+            res[i] /= len;
+
+        return res;
+    }
+
+    /**
+     * @param tris Halfedge origins.
+     * @param len Number of halfedges.
+     * @param numSites Number of sites.
+     * @return Opposite halfedge of each halfedge or {@code -1}.
+     */
+    private static int[] pair(int[] tris, int len, int numSites) {
+        long[] keys = new long[len];
+
+        for (int e = 0; e < len; e++) {
+            int a = tris[e], b = tris[next(e)];
+
+            keys[e] = (long) Math.min(a, b) * numSites + Math.max(a, b);
+        }
+
+        long[] sorted = keys.clone();
+        int[] perm = CoordinateSort.sortByKey(sorted);
+        int[] res = new int[len];
+
+        Arrays.fill(res, -1);
+
+        for (int i = 0; i + 1 < len; i++) {
+            int e = perm[i], f = perm[i + 1];
+
+            if (keys[e] == keys[f]) {
+                res[e] = f;
+                res[f] = e;
+                i++;
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * @param e Halfedge.
+     * @return Next halfedge of its triangle.
+     */
+    private static int next(int e) {
+        return e % 3 == 2 ? e - 2 : e + 1;
+    }
+
+    /**
+     * @param a First site.
+     * @param b Second site.
+     * @param c Third site.
+     * @param off Offset of the vertex in {@link #circumcenters}.
+     */
+    private void circumcenter(int a, int b, int c, int off) {
+        double ax = sites[3 * a], ay = sites[3 * a + 1], az = sites[3 * a + 2];
+        double bx = sites[3 * b] - ax, by = sites[3 * b + 1] - ay, bz = sites[3 * b + 2] - az;
+        double cx = sites[3 * c] - ax, cy = sites[3 * c + 1] - ay, cz = sites[3 * c + 2] - az;
+
+        // normal of a counterclockwise triangle points out of the sphere, to the center of its circle
+        double nx = by * cz - bz * cy, ny = bz * cx - bx * cz, nz = bx * cy - by * cx;
+        double len = Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+        circumcenters[off] = nx / len;
+        circumcenters[off + 1] = ny / len;
+        circumcenters[off + 2] = nz / len;
+    }
+
+    /**
+     * @param numSites Number of sites.
+     * @param r Randomizer.
+     * @return Packed coordinates of sites spread uniformly over the unit sphere.
+     */
+    public static double[] randomSites(int numSites, Random r) {
+        double[] res = new double[3 * numSites];
+
+        for (int i = 0; i < numSites; i++) {
+            double z = 2 * r.nextDouble() - 1;
+            double phi = 2 * Math.PI * r.nextDouble();
+            double rad = Math.sqrt(1 - z * z);
+
+            res[3 * i] = rad * Math.cos(phi);
+            res[3 * i + 1] = rad * Math.sin(phi);
+            res[3 * i + 2] = z;
+        }
+
+        return res;
+    }
+
+    /**
+     * @return Engine of the planar triangulation.
+     */
+    public TriangulationEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return Number of sites, coincident input sites count once.
+     */
+    public int numSites() {
+        return outedges.length;
+    }
+
+    /**
+     * @param inputIndex Index of an input site.
+     * @return Its site. Sites are numbered in the order of their first input site.
+     */
+    public int site(int inputIndex) {
+        return siteOf[inputIndex];
+    }
+
+    /**
+     * @return Packed unit site coordinates.
+     */
+    public double[] sites() {
+        return sites.clone();
+    }
+
+    /**
+     * @return Number of triangles, which is the number of Voronoi vertices.
+     */
+    public int numTriangles() {
+        return triangles.length / 3;
+    }
+
+    /**
+     * @return Site of each halfedge origin, three per triangle.
+     */
+    public int[] triangles() {
+        return triangles.clone();
+    }
+
+    /**
+     * @return Opposite halfedge of each halfedge.
+     */
+    public int[] halfedges() {
+        return halfedges.clone();
+    }
+
+    /**
+     * @return Packed unit coordinates of Voronoi vertices, vertex {@code t} is the one of triangle {@code t}.
+     */
+    public double[] circumcenters() {
+        return circumcenters.clone();
+    }
+
+    /**
+     * @param site Site.
+     * @return Voronoi vertices of its region, counterclockwise seen from outside the sphere.
+     */
+    public int[] region(int site) {
+        int start = outedges[site];
+        int[] res = new int[8];
+        int cnt = 0;
+
+        // around the site: from a halfedge starting at it to the previous one of the triangle, then across
+        for (int e = start; ; ) {
+            if (cnt == res.length)
+                res = Arrays.copyOf(res, 2 * cnt);
+
+            res[cnt++] = e / 3;
+
+            e = halfedges[next(next(e))];
+
+            if (e == start)
+                break;
+        }
+
+        return Arrays.copyOf(res, cnt);
+    }
+}
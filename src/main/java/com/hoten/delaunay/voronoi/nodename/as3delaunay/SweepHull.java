@@ -0,0 +1,487 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.Predicates;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sweep-hull Delaunay triangulation in flat arrays, a port of delaunator. A seed triangle is picked near
+ * the center of the sites, the rest of the sites are added in the order of their distance from its circumcenter,
+ * so every new site is outside the current hull. A site is joined to the hull edges it sees, and the new
+ * triangles are flipped until they are Delaunay.
+ * <p>
+ * The hull is a doubly linked list of sites with an angular hash to find a visible edge quickly. Triangles
+ * and halfedges follow the layout of {@link DelaunayEdges}, counterclockwise (y up), and predicates are exact,
+ * on the fixed point grid if sites are snapped to it.
+ */
+final class SweepHull {
+    /** Missing site or halfedge. */
+    private static final int NONE = -1;
+
+    /** Site coordinates by sweep index. */
+    private final double[] xs, ys;
+
+    /** Site coordinates on the fixed point grid, {@code null} for doubles. */
+    private final long[] gx, gy;
+
+    /** Sweep indices of sites without coincident ones. */
+    private final int[] ids;
+
+    /** Halfedge origins, three per triangle. */
+    private int[] triangles;
+
+    /** Opposite halfedges or {@link #NONE} on the hull. */
+    private int[] halfedges;
+
+    /** Number of used halfedges. */
+    private int trianglesLen;
+
+    /** Previous and next hull site counterclockwise, next of a site off the hull is the site itself. */
+    private final int[] hullPrev, hullNext;
+
+    /** Halfedge of the hull edge from each hull site to the next one. */
+    private final int[] hullTri;
+
+    /** Hull sites by the angle around the seed circumcenter. */
+    private int[] hullHash;
+
+    /** Some site on the hull. */
+    private int hullStart;
+
+    /** Seed circumcenter. */
+    private double cx, cy;
+
+    /** Halfedges to legalize. */
+    private int[] edgeStack = new int[64];
+
+    /**
+     * @param sites Sites sorted in sweep order.
+     * @param options Build settings.
+     */
+    private SweepHull(List<Site> sites, VoronoiOptions options) {
+        int n = sites.size();
+
+        xs = new double[n];
+        ys = new double[n];
+
+        int[] uniq = new int[n];
+        int cnt = 0;
+
+        for (int i = 0; i < n; i++) {
+            Site s = sites.get(i);
+
+            xs[i] = s.getX();
+            ys[i] = s.getY();
+
+            // sweep order keeps coincident sites together, they have no edges of their own
+            if (cnt > 0 && xs[uniq[cnt - 1]] == xs[i] && ys[uniq[cnt - 1]] == ys[i])
+                continue;
+
+            uniq[cnt++] = i;
+        }
+
+        ids = Arrays.copyOf(uniq, cnt);
+
+        double fixedScale = options.fixedPointScale();
+
+        if (fixedScale != 0) {
+            gx = new long[n];
+            gy = new long[n];
+
+            for (int i = 0; i < n; i++) {
+                gx[i] = FixedPoint.grid(xs[i], fixedScale);
+                gy[i] = FixedPoint.grid(ys[i], fixedScale);
+            }
+        }
+        else {
+            gx = null;
+            gy = null;
+        }
+
+        hullPrev = new int[n];
+        hullNext = new int[n];
+        hullTri = new int[n];
+    }
+
+    /**
+     * Triangulates sites and adds Voronoi edges of the triangulation. If rounding of distances ever makes a site
+     * fall inside the hull, the sites are triangulated by {@link DivideAndConquer} instead.
+     *
+     * @param sites Sites sorted in sweep order.
+     * @param options Build settings.
+     * @param edges Output edges.
+     * @param triangles Output triangles or {@code null}.
+     */
+    static void build(List<Site> sites, VoronoiOptions options, List<Edge> edges, TriangleBuffer triangles) {
+        SweepHull sh = new SweepHull(sites, options);
+
+        int numTriangles = sh.triangulate();
+
+        if (numTriangles < 0)
+            DivideAndConquer.build(sites, options, edges, triangles);
+        else
+            DelaunayEdges.build(sites, sh.triangles, sh.halfedges, numTriangles, options, edges, triangles);
+    }
+
+    /**
+     * @return Number of triangles, {@code 0} if all sites are on one line, or {@code -1} if a site was not added.
+     */
+    private int triangulate() {
+        int n = ids.length;
+
+        if (n < 3)
+            return 0;
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i : ids) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        // seed: the site nearest to the center, its nearest site and the third one of the smallest circle
+        int i0 = nearest((minX + maxX) / 2, (minY + maxY) / 2, NONE);
+        int i1 = nearest(xs[i0], ys[i0], i0);
+        int i2 = NONE;
+
+        double minRadius = Double.POSITIVE_INFINITY;
+        double[] center = new double[2];
+
+        for (int i : ids) {
+            if (i == i0 || i == i1 || orient(i0, i1, i) == 0)
+                continue;
+
+            double r = circumradius(i0, i1, i, center);
+
+            if (r < minRadius) {
+                i2 = i;
+                minRadius = r;
+            }
+        }
+
+        if (i2 == NONE)
+            return 0;
+
+        if (orient(i0, i1, i2) < 0) {
+            int t = i1;
+            i1 = i2;
+            i2 = t;
+        }
+
+        circumcenter(i0, i1, i2, center);
+
+        cx = center[0];
+        cy = center[1];
+
+        long[] keys = new long[n];
+
+        for (int k = 0; k < n; k++) {
+            double dx = xs[ids[k]] - cx, dy = ys[ids[k]] - cy;
+
+            keys[k] = CoordinateSort.sortableKey(dx * dx + dy * dy);
+        }
+
+        int[] order = CoordinateSort.sortByKey(keys);
+
+        hullHash = new int[(int) Math.ceil(Math.sqrt(n))];
+
+        Arrays.fill(hullHash, NONE);
+
+        // a triangulation of n sites has at most 2n - 5 triangles
+        int maxTriangles = Math.max(2 * n - 5, 1);
+
+        triangles = new int[3 * maxTriangles];
+        halfedges = new int[3 * maxTriangles];
+
+        hullStart = i0;
+
+        hullNext[i0] = hullPrev[i2] = i1;
+        hullNext[i1] = hullPrev[i0] = i2;
+        hullNext[i2] = hullPrev[i1] = i0;
+
+        hullTri[i0] = 0;
+        hullTri[i1] = 1;
+        hullTri[i2] = 2;
+
+        hullHash[hashKey(i0)] = i0;
+        hullHash[hashKey(i1)] = i1;
+        hullHash[hashKey(i2)] = i2;
+
+        addTriangle(i0, i1, i2, NONE, NONE, NONE);
+
+        for (int k = 0; k < n; k++) {
+            int i = ids[order[k]];
+
+            if (i == i0 || i == i1 || i == i2)
+                continue;
+
+            // a visible hull edge, starting from the hull site of the nearest angle
+            int start = NONE;
+            int key = hashKey(i);
+
+            for (int j = 0; j < hullHash.length; j++) {
+                start = hullHash[(key + j) % hullHash.length];
+
+                if (start != NONE && start != hullNext[start])
+                    break;
+            }
+
+            if (start == NONE || start == hullNext[start])
+                start = hullStart;
+
+            start = hullPrev[start];
+
+            int e = start;
+
+            while (!visible(i, e, hullNext[e])) {
+                e = hullNext[e];
+
+                if (e == start)
+                    return NONE;
+            }
+
+            int t = addTriangle(e, i, hullNext[e], NONE, NONE, hullTri[e]);
+
+            hullTri[i] = legalize(t + 2);
+            hullTri[e] = t;
+
+            // walk forward through the hull, adding triangles of the visible edges
+            int next = hullNext[e];
+
+            for (int q = hullNext[next]; visible(i, next, q); q = hullNext[next]) {
+                t = addTriangle(next, i, q, hullTri[i], NONE, hullTri[next]);
+
+                hullTri[i] = legalize(t + 2);
+                hullNext[next] = next;
+
+                next = q;
+            }
+
+            // walk backward from the other side
+            if (e == start) {
+                for (int q = hullPrev[e]; visible(i, q, e); q = hullPrev[e]) {
+                    t = addTriangle(q, i, e, NONE, hullTri[e], hullTri[q]);
+
+                    legalize(t + 2);
+
+                    hullTri[q] = t;
+                    hullNext[e] = e;
+
+                    e = q;
+                }
+            }
+
+            hullStart = hullPrev[i] = e;
+            hullNext[e] = hullPrev[next] = i;
+            hullNext[i] = next;
+
+            hullHash[hashKey(i)] = i;
+            hullHash[hashKey(e)] = e;
+        }
+
+        return trianglesLen / 3;
+    }
+
+    /**
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param skip Site to skip or {@link #NONE}.
+     * @return Site nearest to the point.
+     */
+    private int nearest(double x, double y, int skip) {
+        int best = NONE;
+        double min = Double.POSITIVE_INFINITY;
+
+        for (int i : ids) {
+            double dx = xs[i] - x, dy = ys[i] - y;
+            double d = dx * dx + dy * dy;
+
+            if (i != skip && d < min) {
+                best = i;
+                min = d;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Flips the triangles at a halfedge and at the halfedges the flips expose until they are Delaunay.
+     *
+     * @param a Halfedge.
+     * @return Halfedge out of the new site along the hull, which the flips may have changed.
+     */
+    private int legalize(int a) {
+        int i = 0;
+        int ar;
+
+        for (;;) {
+            int b = halfedges[a];
+
+            int a0 = a - a % 3;
+
+            ar = a0 + (a + 2) % 3;
+
+            if (b == NONE) {
+                if (i == 0)
+                    break;
+
+                a = edgeStack[--i];
+
+                continue;
+            }
+
+            int b0 = b - b % 3;
+            int al = a0 + (a + 1) % 3;
+            int bl = b0 + (b + 2) % 3;
+
+            int p0 = triangles[ar];
+            int pr = triangles[a];
+            int pl = triangles[al];
+            int p1 = triangles[bl];
+
+            if (inCircle(p0, pr, pl, p1) > 0) {
+                triangles[a] = p1;
+                triangles[b] = p0;
+
+                int hbl = halfedges[bl];
+
+                // the flipped edge was on the hull, fix the halfedge reference
+                if (hbl == NONE) {
+                    int e = hullStart;
+
+                    do {
+                        if (hullTri[e] == bl) {
+                            hullTri[e] = a;
+
+                            break;
+                        }
+
+                        e = hullPrev[e];
+                    }
+                    while (e != hullStart);
+                }
+
+                link(a, hbl);
+                link(b, halfedges[ar]);
+                link(ar, bl);
+
+                if (i == edgeStack.length)
+                    edgeStack = Arrays.copyOf(edgeStack, 2 * i);
+
+                edgeStack[i++] = b0 + (b + 1) % 3;
+            }
+            else {
+                if (i == 0)
+                    break;
+
+                a = edgeStack[--i];
+            }
+        }
+
+        return ar;
+    }
+
+    /**
+     * @return First halfedge of the new triangle.
+     */
+    private int addTriangle(int i0, int i1, int i2, int a, int b, int c) {
+        int t = trianglesLen;
+
+        triangles[t] = i0;
+        triangles[t + 1] = i1;
+        triangles[t + 2] = i2;
+
+        link(t, a);
+        link(t + 1, b);
+        link(t + 2, c);
+
+        trianglesLen += 3;
+
+        return t;
+    }
+
+    /**
+     * @param a Halfedge.
+     * @param b Opposite halfedge or {@link #NONE}.
+     */
+    private void link(int a, int b) {
+        halfedges[a] = b;
+
+        if (b != NONE)
+            halfedges[b] = a;
+    }
+
+    /**
+     * @param i Site.
+     * @return Hash slot of the angle of the site around the seed circumcenter.
+     */
+    private int hashKey(int i) {
+        double dx = xs[i] - cx, dy = ys[i] - cy;
+
+        // grows monotonically with the angle counterclockwise, from 0 to 1
+        double p = dx / (Math.abs(dx) + Math.abs(dy));
+        double angle = (dy > 0 ? 3 - p : 1 + p) / 4;
+
+        return (int) Math.floor(angle * hullHash.length) % hullHash.length;
+    }
+
+    /**
+     * @param i Site.
+     * @param a Origin of a counterclockwise hull edge.
+     * @param b End of the edge.
+     * @return {@code True} if the site is strictly outside the edge.
+     */
+    private boolean visible(int i, int a, int b) {
+        return orient(a, b, i) < 0;
+    }
+
+    /**
+     * @return Twice the signed area of triangle abc, positive if it is counterclockwise.
+     */
+    private double orient(int a, int b, int c) {
+        if (gx != null)
+            return Predicates.orient(gx[a], gy[a], gx[b], gy[b], gx[c], gy[c]);
+
+        return Predicates.orient(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]);
+    }
+
+    /**
+     * @return Positive if d is inside the circle through counterclockwise a, b, c.
+     */
+    private double inCircle(int a, int b, int c, int d) {
+        if (gx != null)
+            return Predicates.inCircle(gx[a], gy[a], gx[b], gy[b], gx[c], gy[c], gx[d], gy[d]);
+
+        return Predicates.inCircle(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c], xs[d], ys[d]);
+    }
+
+    /**
+     * @param center Scratch for the circumcenter.
+     * @return Squared circumradius of triangle abc, which is not degenerate.
+     */
+    private double circumradius(int a, int b, int c, double[] center) {
+        circumcenter(a, b, c, center);
+
+        double dx = center[0] - xs[a], dy = center[1] - ys[a];
+
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * @param center Receives circumcenter x and y of triangle abc, which is not degenerate.
+     */
+    private void circumcenter(int a, int b, int c, double[] center) {
+        double bx = xs[b] - xs[a], by = ys[b] - ys[a];
+        double qx = xs[c] - xs[a], qy = ys[c] - ys[a];
+        double b2 = bx * bx + by * by;
+        double q2 = qx * qx + qy * qy;
+        double d = 2 * (bx * qy - by * qx);
+
+        center[0] = xs[a] + (qy * b2 - by * q2) / d;
+        center[1] = ys[a] + (bx * q2 - qx * b2) / d;
+    }
+}
@@ -0,0 +1,266 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.Predicates;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Delaunay triangles of a diagram in primitive arrays, see {@link Voronoi#triangles()}. Triangle {@code t} is
+ * sites {@code indices()[3 * t]}, {@code indices()[3 * t + 1]} and {@code indices()[3 * t + 2]} counterclockwise
+ * (y up), a site index is the position of the site in {@link Voronoi#siteCoords()}. The circumcenter of
+ * the triangle, if kept, is {@code circumcenters()[2 * t]}, {@code circumcenters()[2 * t + 1]}.
+ * <p>
+ * A triangle is the dual of a Voronoi vertex. Engines fill the buffer when they make a vertex, see
+ * {@link VoronoiOptions#triangles(VoronoiOptions.Triangles)}, so triangle {@code t} is the triangle of the vertex
+ * with index {@code t}. Otherwise the buffer is collected from the edges and triangles follow vertex indices
+ * with gaps left by edits skipped.
+ */
+public final class TriangleBuffer {
+    /** Site index triples. */
+    private int[] sites;
+
+    /** Circumcenter x and y pairs or {@code null}. */
+    private double[] centers;
+
+    /** Number of triangles. */
+    private int size;
+
+    /**
+     * @param capacity Expected number of triangles.
+     * @param circumcenters {@code True} to keep circumcenters.
+     */
+    TriangleBuffer(int capacity, boolean circumcenters) {
+        capacity = Math.max(capacity, 1);
+
+        sites = new int[3 * capacity];
+        centers = circumcenters ? new double[2 * capacity] : null;
+    }
+
+    /**
+     * Collects triangles from the vertices of the edges. Edges must know their vertex indices
+     * and sites their indices.
+     *
+     * @param edges Edges.
+     * @param circumcenters {@code True} to keep circumcenters.
+     * @return Triangles.
+     */
+    static TriangleBuffer fromEdges(List<Edge> edges, boolean circumcenters) {
+        int numVertices = 0;
+
+        for (Edge e : edges) {
+            numVertices = Math.max(numVertices, vertexIndex(e.getLeftVertex()) + 1);
+            numVertices = Math.max(numVertices, vertexIndex(e.getRightVertex()) + 1);
+        }
+
+        // sites met at each vertex, a vertex has three edges and three sites
+        Site[] met = new Site[3 * numVertices];
+        int[] cnt = new int[numVertices];
+
+        Vertex[] vertices = new Vertex[numVertices];
+
+        for (Edge e : edges) {
+            meet(met, cnt, vertices, e.getLeftVertex(), e);
+            meet(met, cnt, vertices, e.getRightVertex(), e);
+        }
+
+        TriangleBuffer res = new TriangleBuffer(numVertices, circumcenters);
+
+        for (int v = 0; v < numVertices; v++) {
+            if (cnt[v] != 3)
+                continue;
+
+            Site a = met[3 * v], b = met[3 * v + 1], c = met[3 * v + 2];
+
+            if (Predicates.orient(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY()) < 0) {
+                Site t = b;
+                b = c;
+                c = t;
+            }
+
+            res.set(res.size, a.getIndex(), b.getIndex(), c.getIndex(),
+                circumcenters ? vertices[v].getX() : 0, circumcenters ? vertices[v].getY() : 0);
+        }
+
+        res.trim();
+
+        return res;
+    }
+
+    /**
+     * @param v Vertex or {@code null}.
+     * @return Vertex index or {@code -1} if there is no finite vertex.
+     */
+    private static int vertexIndex(Vertex v) {
+        return v == null || v == Vertex.VERTEX_AT_INFINITY ? -1 : v.getIndex();
+    }
+
+    /**
+     * @param met Sites met at each vertex.
+     * @param cnt Number of sites met at each vertex.
+     * @param vertices Vertex by index.
+     * @param v Vertex of the edge or {@code null}.
+     * @param e Edge.
+     */
+    private static void meet(Site[] met, int[] cnt, Vertex[] vertices, Vertex v, Edge e) {
+        int idx = vertexIndex(v);
+
+        if (idx < 0)
+            return;
+
+        vertices[idx] = v;
+
+        meet(met, cnt, idx, e.getLeftSite());
+        meet(met, cnt, idx, e.getRightSite());
+    }
+
+    /**
+     * @param met Sites met at each vertex.
+     * @param cnt Number of sites met at each vertex.
+     * @param v Vertex index.
+     * @param site Site of an edge of the vertex.
+     */
+    private static void meet(Site[] met, int[] cnt, int v, Site site) {
+        for (int i = 0; i < Math.min(cnt[v], 3); i++) {
+            if (met[3 * v + i] == site)
+                return;
+        }
+
+        // a vertex of more than three sites is not a triangle, it is skipped
+        if (cnt[v] < 3)
+            met[3 * v + cnt[v]] = site;
+
+        cnt[v]++;
+    }
+
+    /**
+     * Sets a triangle, growing the buffer if needed. Different triangles may be set concurrently
+     * if the buffer is {@link #ensureCapacity(int) large enough}.
+     *
+     * @param t Triangle index.
+     * @param a First site index.
+     * @param b Second site index, counterclockwise.
+     * @param c Third site index.
+     * @param x Circumcenter x.
+     * @param y Circumcenter y.
+     */
+    void set(int t, int a, int b, int c, double x, double y) {
+        if (3 * t + 3 > sites.length)
+            ensureCapacity(Math.max(t + 1, sites.length / 3 * 2));
+
+        sites[3 * t] = a;
+        sites[3 * t + 1] = b;
+        sites[3 * t + 2] = c;
+
+        if (centers != null) {
+            centers[2 * t] = x;
+            centers[2 * t + 1] = y;
+        }
+
+        if (t >= size)
+            size = t + 1;
+    }
+
+    /**
+     * @param capacity Number of triangles which can be set without growing the buffer.
+     */
+    void ensureCapacity(int capacity) {
+        if (3 * capacity <= sites.length)
+            return;
+
+        sites = Arrays.copyOf(sites, 3 * capacity);
+
+        if (centers != null)
+            centers = Arrays.copyOf(centers, 2 * capacity);
+    }
+
+    /**
+     * Fixes the number of triangles and cuts the arrays to it.
+     *
+     * @param size Number of triangles.
+     */
+    void trim(int size) {
+        this.size = size;
+
+        trim();
+    }
+
+    /**
+     * Cuts the arrays to the number of triangles.
+     */
+    void trim() {
+        if (sites.length != 3 * size)
+            sites = Arrays.copyOf(sites, 3 * size);
+
+        if (centers != null && centers.length != 2 * size)
+            centers = Arrays.copyOf(centers, 2 * size);
+    }
+
+    /**
+     * @return Number of triangles.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param t Triangle.
+     * @param k Corner from {@code 0} to {@code 2}.
+     * @return Site index of the corner.
+     */
+    public int site(int t, int k) {
+        return sites[3 * t + k];
+    }
+
+    /**
+     * @return Site index triples, exactly {@code 3 * size()} elements. The array is not copied,
+     * so it must not be changed.
+     */
+    public int[] indices() {
+        return sites;
+    }
+
+    /**
+     * @return {@code True} if circumcenters are kept.
+     */
+    public boolean hasCircumcenters() {
+        return centers != null;
+    }
+
+    /**
+     * @param t Triangle.
+     * @return X coordinate of the circumcenter.
+     * @throws IllegalStateException If circumcenters are not kept.
+     */
+    public double circumcenterX(int t) {
+        return circumcenters()[2 * t];
+    }
+
+    /**
+     * @param t Triangle.
+     * @return Y coordinate of the circumcenter.
+     * @throws IllegalStateException If circumcenters are not kept.
+     */
+    public double circumcenterY(int t) {
+        return circumcenters()[2 * t + 1];
+    }
+
+    /**
+     * @return Circumcenter x and y pairs, exactly {@code 2 * size()} elements. The array is not copied,
+     * so it must not be changed.
+     * @throws IllegalStateException If circumcenters are not kept.
+     */
+    public double[] circumcenters() {
+        if (centers == null)
+            throw new IllegalStateException("Circumcenters are not kept, see VoronoiOptions.Triangles");
+
+        return centers;
+    }
+
+    /**
+     * @return Bytes of the buffer, see {@link MemoryFootprint}.
+     */
+    long footprint() {
+        return MemoryFootprint.shallowSize(TriangleBuffer.class) + MemoryFootprint.arraySize(sites.length, 4)
+            + (centers != null ? MemoryFootprint.arraySize(centers.length, 8) : 0);
+    }
+}
@@ -0,0 +1,28 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import java.util.List;
+
+/**
+ * Builds the Voronoi edges of sites, which {@link Voronoi} then clips and walks into regions. Constants of
+ * {@link VoronoiOptions.Engine} are the engines of the library, a build picks one with
+ * {@link VoronoiOptions#engine(TriangulationEngine)}.
+ * <p>
+ * An engine of another triangulation library may describe its triangles with flat arrays and make the edges
+ * with {@link DelaunayEdges#build}.
+ */
+public interface TriangulationEngine {
+    /**
+     * Adds an edge for every Delaunay edge of the sites. The left site of an edge is the one with the lower index,
+     * the left vertex is the circumcenter of the triangle to the left of the direction from the left site
+     * to the right one, and a missing triangle is a {@code null} vertex. Vertex indices are unique, and edge
+     * indices are positions in the list.
+     *
+     * @param sites Sites sorted by y, then x. The index of a site is its position.
+     * @param options Build settings.
+     * @param edges Output edges, sites learn about them as they are added.
+     * @param triangles Output triangles or {@code null}. Triangle {@code t} is the dual of vertex {@code t}.
+     * @param stats Beach line lookup counters, engines without a beach line leave them alone.
+     */
+    void build(List<Site> sites, VoronoiOptions options, List<Edge> edges, TriangleBuffer triangles,
+        BeachLineStats stats);
+}
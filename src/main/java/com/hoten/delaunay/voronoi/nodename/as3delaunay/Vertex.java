@@ -1,30 +1,42 @@
 package com.hoten.delaunay.voronoi.nodename.as3delaunay;
 
-import com.hoten.delaunay.geom.GenUtils;
 import com.hoten.delaunay.geom.Point;
+import com.hoten.delaunay.geom.Predicates;
 
-final public class Vertex implements ICoord {
+/**
+ * Voronoi vertex. Position is stored either as a {@link Point} or, with {@link VoronoiOptions.Storage#FLOAT},
+ * as two floats without a point object.
+ */
+public abstract class Vertex implements ICoord {
 
     /** Vertex at affinity. Used in edge reordering to find out wrong edge list for reordering. */
-    final public static Vertex VERTEX_AT_INFINITY = new Vertex(Double.NaN, Double.NaN);
+    final public static Vertex VERTEX_AT_INFINITY = new DoubleVertex(Double.NaN, Double.NaN);
 
     /** Vertex index. */
     private int index;
 
-    /** Vertex position. */
-    private final Point position;
+    /**
+     * Only nested classes extend vertex.
+     */
+    private Vertex() {
+        // No-op.
+    }
 
     /**
+     * Makes a vertex for an intersection found by the sweep.
+     *
      * @param x Coordinate.
      * @param y Coordinate.
+     * @param idx Vertex index.
+     * @param compact {@code True} to store the position as floats.
+     * @return New vertex.
      */
-    private Vertex(double x, double y) {
-        position = new Point(x, y);
-    }
+    static Vertex create(double x, double y, int idx, boolean compact) {
+        Vertex v = compact ? new FloatVertex(x, y) : new DoubleVertex(x, y);
 
-    /** {@inheritDoc} */
-    @Override public Point getPosition() {
-        return position;
+        v.index = idx;
+
+        return v;
     }
 
     /**
@@ -43,71 +55,188 @@ final public class Vertex implements ICoord {
 
     /** {@inheritDoc} */
     @Override public String toString() {
-        return "Vertex (" + index + ") " + position.x + ", " + position.y;
+        return "Vertex (" + index + ") " + getX() + ", " + getY();
     }
 
     /**
-     * This is the only way to make a Vertex.
-     *
      * @param halfedge0 Halfedge 0.
      * @param halfedge1 Halfedge 1.
      * @return Intersection vertex or {@code null} if there is no intersection between given halfedges.
      */
     public static Vertex intersect(Halfedge halfedge0, Halfedge halfedge1) {
+        double[] intersection = new double[CircleEvent.SIZE];
+
+        if (!intersect(halfedge0, halfedge1, intersection))
+            return null;
+
+        if (Double.isNaN(intersection[0]))
+            return VERTEX_AT_INFINITY;
+
+        return new DoubleVertex(intersection[0], intersection[1]);
+    }
+
+    /**
+     * Allocation free version of {@link #intersect(Halfedge, Halfedge)}. The sweep uses it for every
+     * candidate circle event and makes a {@link Vertex} only when the event fires.
+     *
+     * @param halfedge0 Halfedge 0.
+     * @param halfedge1 Halfedge 1.
+     * @param out Receives intersection x and y. Both are {@code NaN} for a vertex at infinity.
+     * @return {@code False} if there is no intersection between given halfedges.
+     */
+    public static boolean intersect(Halfedge halfedge0, Halfedge halfedge1, double[] out) {
+        return intersect(halfedge0, halfedge1, out, 0);
+    }
+
+    /**
+     * Same as {@link #intersect(Halfedge, Halfedge, double[])}, on the fixed point grid if the scale is set.
+     * The vertex is the circumcenter of the sites, see {@link CircleEvent#compute}, or {@link FixedPoint#circumcenter}
+     * on the grid. The event priority is the one of the exact circle in both cases.
+     *
+     * @param halfedge0 Halfedge 0.
+     * @param halfedge1 Halfedge 1.
+     * @param out Receives intersection x and y. Both are {@code NaN} for a vertex at infinity. With
+     * {@link CircleEvent#SIZE} slots it receives the event priority and its error bound too.
+     * @param fixedScale Grid steps per unit of {@link VoronoiOptions#fixedPoint(int)}, {@code 0} for doubles.
+     * @return {@code False} if there is no intersection between given halfedges.
+     */
+    static boolean intersect(Halfedge halfedge0, Halfedge halfedge1, double[] out, double fixedScale) {
         Edge edge0 = halfedge0.edge;
         Edge edge1 = halfedge1.edge;
 
         if (edge0 == null || edge1 == null)
-            return null;
+            return false;
 
-        if (edge0.getRightSite() == edge1.getRightSite())
-            return null;
+        Site a = halfedge0.leftRight == LR.LEFT ? edge0.getLeftSite() : edge0.getRightSite();
+        Site b = halfedge0.leftRight == LR.LEFT ? edge0.getRightSite() : edge0.getLeftSite();
+        Site c = halfedge1.leftRight == LR.LEFT ? edge1.getRightSite() : edge1.getLeftSite();
 
-        double determinant = edge0.a * edge1.b - edge0.b * edge1.a;
+        // breakpoints around the arc of b meet only if the sites of the three arcs turn counterclockwise,
+        // exact test, so nearly collinear sites are neither dropped nor joined at a bogus vertex
+        if (fixedScale != 0) {
+            if (Predicates.orient(FixedPoint.grid(a.getX(), fixedScale), FixedPoint.grid(a.getY(), fixedScale),
+                FixedPoint.grid(b.getX(), fixedScale), FixedPoint.grid(b.getY(), fixedScale),
+                FixedPoint.grid(c.getX(), fixedScale), FixedPoint.grid(c.getY(), fixedScale)) <= 0)
+                return false;
 
-        if (-1.0e-10 < determinant && determinant < 1.0e-10) {
-            // the edges are parallel
-            return null;
-        }
+            // events are ordered by the exact circles of the snapped sites, the vertex is rounded from it
+            CircleEvent.compute(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY(), out);
+            FixedPoint.circumcenter(fixedScale, a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY(), out);
 
-        double intersectionX = (edge0.c * edge1.b - edge1.c * edge0.b) / determinant;
-        double intersectionY = (edge1.c * edge0.a - edge0.c * edge1.a) / determinant;
+            return true;
+        }
 
-        if (Double.isNaN(intersectionX) || Double.isNaN(intersectionY))
-            return VERTEX_AT_INFINITY;
+        if (!(Predicates.orient(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY()) > 0))
+            return false;
 
-        Edge edge;
-        Halfedge halfedge;
+        CircleEvent.compute(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY(), out);
 
-        if (GenUtils.compareByYThenX(edge0.getRightSite(), edge1.getRightSite()) < 0) {
-            halfedge = halfedge0;
-            edge = edge0;
-        } else {
-            halfedge = halfedge1;
-            edge = edge1;
-        }
+        return true;
+    }
 
-        boolean rightOfSite = intersectionX >= edge.getRightSite().getX();
+    /**
+     * Makes a vertex for a fired circle event of the halfedge.
+     *
+     * @param halfedge Halfedge with pending vertex.
+     * @param idx Vertex index.
+     * @param compact {@code True} to store the position as floats.
+     * @return New vertex or {@link #VERTEX_AT_INFINITY}.
+     */
+    static Vertex fromEvent(Halfedge halfedge, int idx, boolean compact) {
+        if (Double.isNaN(halfedge.vertexX) || Double.isNaN(halfedge.vertexY)) {
+            VERTEX_AT_INFINITY.setIndex(idx);
 
-        if ((rightOfSite && halfedge.leftRight == LR.LEFT)
-                || (!rightOfSite && halfedge.leftRight == LR.RIGHT)) {
-            return null;
+            return VERTEX_AT_INFINITY;
         }
 
-        return new Vertex(intersectionX, intersectionY);
+        return create(halfedge.vertexX, halfedge.vertexY, idx, compact);
     }
 
+    /**
+     * @return Bytes of the vertex with its position, see {@link MemoryFootprint}.
+     */
+    abstract long footprint();
+
     /**
      * @return X coordinate.
      */
-    public double getX() {
-        return position.x;
-    }
+    public abstract double getX();
 
     /**
      * @return Y coordinate.
      */
-    public double getY() {
-        return position.y;
+    public abstract double getY();
+
+    /**
+     * Vertex with a point.
+     */
+    private static final class DoubleVertex extends Vertex {
+        /** Vertex position. */
+        private final Point position;
+
+        /**
+         * @param x Coordinate.
+         * @param y Coordinate.
+         */
+        private DoubleVertex(double x, double y) {
+            position = new Point(x, y);
+        }
+
+        /** {@inheritDoc} */
+        @Override public Point getPosition() {
+            return position;
+        }
+
+        /** {@inheritDoc} */
+        @Override long footprint() {
+            return MemoryFootprint.shallowSize(DoubleVertex.class) + MemoryFootprint.pointSize();
+        }
+
+        /** {@inheritDoc} */
+        @Override public double getX() {
+            return position.x;
+        }
+
+        /** {@inheritDoc} */
+        @Override public double getY() {
+            return position.y;
+        }
+    }
+
+    /**
+     * Vertex with float coordinates, a point is made on each {@link #getPosition()} call.
+     */
+    private static final class FloatVertex extends Vertex {
+        /** Coordinates. */
+        private final float x, y;
+
+        /**
+         * @param x Coordinate.
+         * @param y Coordinate.
+         */
+        private FloatVertex(double x, double y) {
+            this.x = (float) x;
+            this.y = (float) y;
+        }
+
+        /** {@inheritDoc} */
+        @Override public Point getPosition() {
+            return new Point(x, y);
+        }
+
+        /** {@inheritDoc} */
+        @Override long footprint() {
+            return MemoryFootprint.shallowSize(FloatVertex.class);
+        }
+
+        /** {@inheritDoc} */
+        @Override public double getX() {
+            return x;
+        }
+
+        /** {@inheritDoc} */
+        @Override public double getY() {
+            return y;
+        }
     }
 }
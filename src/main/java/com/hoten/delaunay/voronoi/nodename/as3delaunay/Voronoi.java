@@ -28,37 +28,139 @@ package com.hoten.delaunay.voronoi.nodename.as3delaunay;
  * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
  */
 
+import com.hoten.delaunay.geom.ConvexPolygon;
 import com.hoten.delaunay.geom.GenUtils;
 import com.hoten.delaunay.geom.Point;
 import com.hoten.delaunay.geom.Rectangle;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Random;
 
 public final class Voronoi {
 
     private SiteList sites;
     private Map<Point, Site> center2siteMap;
-    private List<Triangle> _triangles;
+    /** Site of each input point, the same one for merged points. */
+    private Site[] inputSites;
+    /** Delaunay triangles, {@code null} after an edit until they are asked for. */
+    private TriangleBuffer triangles;
     private List<Edge> edges;
-    // TODO generalize this so it doesn't have to be a rectangle;
-    // then we can make the fractal voronois-within-voronois
-    /** Graph bounds. */
+    /** Graph bounds, the bounding box of {@link #clipDomain}. */
     private Rectangle plotBounds;
+    /** Polygon which edges and regions are clipped to. */
+    private ConvexPolygon clipDomain;
+    /** Build settings. */
+    private final VoronoiOptions options;
+    /** Beach line lookup counters of the build. */
+    private final BeachLineStats beachLineStats = new BeachLineStats();
+    /** Local repair of the diagram, made on the first edit. */
+    private VoronoiEditor editor;
+    /** Edge list of the diagram, {@code null} after an edit until it is asked for. */
+    private Dcel dcel;
+    /** Viewport clipping of the edges, made on the first query after a build or an edit. */
+    private EdgeClipper clipper;
+    /** Edges and neighbours of sites by index, made on the first query after a build or an edit. */
+    private SiteAdjacency adjacency;
+    /** {@code True} if some site has a non zero weight. */
+    private boolean weighted;
 
     public Rectangle getPlotBounds() {
         return plotBounds;
     }
 
+    /**
+     * @return Polygon which edges and regions are clipped to, the graph bounds unless it is given.
+     */
+    public ConvexPolygon getClipDomain() {
+        return clipDomain;
+    }
+
+    /**
+     * @return Build settings.
+     */
+    public VoronoiOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * @return Beach line lookup counters of the build, see {@link VoronoiOptions#beachLine(VoronoiOptions.BeachLine)}.
+     */
+    public BeachLineStats beachLineStats() {
+        return beachLineStats;
+    }
+
     /**
      * @param points Graph points.
      * @param plotBounds Bounds.
      */
     public Voronoi(List<Point> points, Rectangle plotBounds) {
-        init(points, plotBounds);
+        this(points, plotBounds, new VoronoiOptions());
+    }
+
+    /**
+     * @param points Graph points.
+     * @param plotBounds Bounds.
+     * @param options Build settings.
+     */
+    public Voronoi(List<Point> points, Rectangle plotBounds, VoronoiOptions options) {
+        this(points, null, ConvexPolygon.of(plotBounds), options);
+    }
+
+    /**
+     * Power diagram of weighted points, see {@link VoronoiOptions.Engine#POWER}. A point of weight {@code r^2}
+     * acts like a circle of radius {@code r}: its cell ends where the tangents to the circles of the neighbours
+     * are equal, so e.g. cities get big cells among villages without extra sites. Weights come only from
+     * the caller, so the same input always gives the same diagram. Merged points keep the weight of the point
+     * they are merged into, sites of {@link VoronoiOptions#constraints} weigh {@code 0}.
+     *
+     * @param points Graph points.
+     * @param weights Weight of each point or {@code null} for zero weights.
+     * @param plotBounds Bounds.
+     * @param options Build settings, the engine must be {@link VoronoiOptions.Engine#POWER} if a weight
+     * is not {@code 0}.
+     */
+    public Voronoi(List<Point> points, double[] weights, Rectangle plotBounds, VoronoiOptions options) {
+        this(points, weights, ConvexPolygon.of(plotBounds), options);
+    }
+
+    /**
+     * Clips edges and regions to a convex polygon instead of a rectangle, e.g. an island outline or
+     * a cell of another diagram. The graph bounds are the bounding box of the polygon. Sites outside
+     * the polygon are kept, they shape the cells inside it.
+     *
+     * @param points Graph points.
+     * @param clip Clip domain.
+     * @param options Build settings.
+     */
+    public Voronoi(List<Point> points, ConvexPolygon clip, VoronoiOptions options) {
+        this(points, null, clip, options);
+    }
+
+    /**
+     * Power diagram of weighted points clipped to a convex polygon, see
+     * {@link #Voronoi(List, double[], Rectangle, VoronoiOptions)}.
+     *
+     * @param points Graph points.
+     * @param weights Weight of each point or {@code null} for zero weights.
+     * @param clip Clip domain.
+     * @param options Build settings, the engine must be {@link VoronoiOptions.Engine#POWER} if a weight
+     * is not {@code 0}.
+     * @throws IllegalArgumentException If there is not a weight per point, a weight is not finite,
+     * or weights are given to another engine.
+     */
+    public Voronoi(List<Point> points, double[] weights, ConvexPolygon clip, VoronoiOptions options) {
+        this.options = options;
+        checkWeights(points, weights);
+        init(points, weights, clip);
         fortunesAlgorithm();
     }
 
@@ -66,6 +168,16 @@ public final class Voronoi {
      * @param points Graph points.
      */
     public Voronoi(List<Point> points) {
+        this(points, new VoronoiOptions());
+    }
+
+    /**
+     * @param points Graph points.
+     * @param options Build settings.
+     */
+    public Voronoi(List<Point> points, VoronoiOptions options) {
+        this.options = options;
+
         double maxWidth = 0, maxHeight = 0;
         double shiftX = 0, shiftY = 0;
 
@@ -94,7 +206,7 @@ public final class Voronoi {
 
         System.out.println("Graph bounds: width = " + maxWidth + ", height = " + maxHeight);
 
-        init(points,  new Rectangle(0, 0, maxWidth, maxHeight));
+        init(points, null, ConvexPolygon.of(new Rectangle(0, 0, maxWidth, maxHeight)));
 
         fortunesAlgorithm();
     }
@@ -106,35 +218,312 @@ public final class Voronoi {
      * @param r Randomizer.
      */
     public Voronoi(int numSites, double maxWidth, double maxHeight, Random r) {
+        this(numSites, maxWidth, maxHeight, r, new VoronoiOptions());
+    }
+
+    /**
+     * @param numSites Amount of sites.
+     * @param maxWidth Graph width.
+     * @param maxHeight Graph height.
+     * @param r Randomizer.
+     * @param options Build settings.
+     */
+    public Voronoi(int numSites, double maxWidth, double maxHeight, Random r, VoronoiOptions options) {
+        this.options = options;
+
         ArrayList<Point> points = new ArrayList<>();
 
         for (int i = 0; i < numSites; i++)
             points.add(new Point(r.nextDouble() * maxWidth, r.nextDouble() * maxHeight));
 
-        init(points, new Rectangle(0, 0, maxWidth, maxHeight));
+        init(points, null, ConvexPolygon.of(new Rectangle(0, 0, maxWidth, maxHeight)));
 
         fortunesAlgorithm();
     }
 
-    private void init(List<Point> points, Rectangle plotBounds) {
+    /**
+     * Builds the diagram of a site file without keeping it in memory: the file is memory mapped, the sweep reads
+     * sites in file order and passes every vertex and finished edge to the sink. Memory use is proportional
+     * to the beach line (about square root of the site count for uniform sites) and the convex hull, so
+     * diagrams of hundreds of millions of sites can be built. Output is the same as of the
+     * {@link VoronoiOptions.Engine#ARRAYS} engine for the same sites.
+     * <p>
+     * The file holds sites as pairs of big endian doubles, x then y (as written by
+     * {@link java.io.DataOutputStream#writeDouble(double)}), sorted by y, then x, without duplicates: coincident
+     * sites are not merged as a build merges them. The file is read once to check the order and find the bounds
+     * before the sweep.
+     * <p>
+     * Engine option is ignored, queue, beach line and workspace options are used.
+     *
+     * @param siteFile Site file.
+     * @param options Build settings.
+     * @param sink Receiver of vertices and edges.
+     * @return Beach line lookup counters of the build.
+     * @throws IOException If the file can't be read.
+     * @throws IllegalArgumentException If the file is not a sorted site file or has duplicate sites.
+     */
+    public static BeachLineStats stream(Path siteFile, VoronoiOptions options, VoronoiSink sink) throws IOException {
+        if (sink == null)
+            throw new IllegalArgumentException("Sink is null");
+
+        MappedSites sites = new MappedSites(siteFile);
+        Rectangle dataBounds = sites.bounds();
+
+        VoronoiWorkspace workspace = options.getWorkspace() != null ? options.getWorkspace() : new VoronoiWorkspace();
+        BeachLineStats stats = new BeachLineStats();
+
+        workspace.arrayFortune().stream(sites, options, dataBounds, sink, stats);
+
+        return stats;
+    }
+
+    /**
+     * @param points Graph points.
+     * @param weights Weight of each point or {@code null}.
+     */
+    private void checkWeights(List<Point> points, double[] weights) {
+        if (weights == null)
+            return;
+
+        if (weights.length != points.size())
+            throw new IllegalArgumentException("Expected " + points.size() + " weights: " + weights.length);
+
+        for (double w : weights) {
+            if (Double.isNaN(w) || Double.isInfinite(w))
+                throw new IllegalArgumentException("Weight must be finite: " + w);
+
+            if (w != 0 && options.getTriangulationEngine() != VoronoiOptions.Engine.POWER)
+                throw new IllegalArgumentException("Weights need the " + VoronoiOptions.Engine.POWER + " engine");
+        }
+    }
+
+    private void init(List<Point> points, double[] weights, ConvexPolygon clipDomain) {
         sites = new SiteList();
         center2siteMap = new HashMap<>();
-        addSites(points);
-        this.plotBounds = plotBounds;
-        _triangles = new ArrayList<>();
+        addSites(points, weights);
+        this.clipDomain = clipDomain;
+        plotBounds = clipDomain.bounds();
+        triangles = null;
         edges = new ArrayList<>();
+        editor = null;
+        dcel = null;
+        clipper = null;
+        adjacency = null;
     }
 
-    private void addSites(List<Point> points) {
-        for (int idx = 0; idx < points.size(); ++idx) {
+    private void addSites(List<Point> points, double[] weights) {
+        int n = points.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+
+        for (int idx = 0; idx < n; ++idx) {
+            xs[idx] = points.get(idx).x;
+            ys[idx] = points.get(idx).y;
+        }
+
+        double scale = options.fixedPointScale();
+
+        if (scale != 0) {
+            for (int idx = 0; idx < n; ++idx) {
+                xs[idx] = FixedPoint.snap(xs[idx], scale);
+                ys[idx] = FixedPoint.snap(ys[idx], scale);
+            }
+        }
+
+        int[] survivor = SiteMerger.merge(xs, ys, options.getMergeDistance());
+
+        Constraints constraints = options.getConstraints();
+        Site[] constraintSites = constraints != null ? addConstraintSites(constraints, n) : null;
+
+        inputSites = new Site[n];
+        weighted = false;
+
+        for (int idx = 0; idx < n; ++idx) {
             Point point = points.get(idx);
-            double weight = Math.random() * 100;
+            int absorbed = constraints != null ? constraints.absorb(xs[idx], ys[idx]) : -1;
+
+            if (absorbed >= 0)
+                inputSites[idx] = constraintSites[absorbed];
+            else if (survivor[idx] == idx) {
+                double weight = weights != null ? weights[idx] : 0;
+
+                weighted |= weight != 0;
+
+                Point position = xs[idx] != point.x || ys[idx] != point.y ? new Point(xs[idx], ys[idx]) : point;
+                Site site = new Site(position, idx, weight);
+
+                sites.add(site);
+                inputSites[idx] = site;
+            }
+            else
+                inputSites[idx] = inputSites[survivor[idx]];
+
+            center2siteMap.put(point, inputSites[idx]);
+        }
+    }
+
+    /**
+     * Adds sites of the constraints, snapped to the fixed point grid if needed.
+     *
+     * @param constraints Constraints.
+     * @param base Index of the first constraint site.
+     * @return Site of each constraint site, coincident ones share a site.
+     */
+    private Site[] addConstraintSites(Constraints constraints, int base) {
+        int n = constraints.numSites();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double scale = options.fixedPointScale();
+
+        for (int i = 0; i < n; i++) {
+            xs[i] = scale != 0 ? FixedPoint.snap(constraints.siteX(i), scale) : constraints.siteX(i);
+            ys[i] = scale != 0 ? FixedPoint.snap(constraints.siteY(i), scale) : constraints.siteY(i);
+        }
 
-            Site site = new Site(point, idx, weight);
+        int[] survivor = SiteMerger.merge(xs, ys, 0);
+        Site[] res = new Site[n];
+
+        for (int i = 0; i < n; i++) {
+            if (survivor[i] != i) {
+                res[i] = res[survivor[i]];
+
+                continue;
+            }
+
+            Point position = new Point(xs[i], ys[i]);
+            Site site = new Site(position, base + i, 0);
+
+            site.markConstraint();
 
             sites.add(site);
-            center2siteMap.put(point, site);
+            center2siteMap.put(position, site);
+
+            res[i] = site;
         }
+
+        return res;
+    }
+
+    /**
+     * @param coord Site position.
+     * @return Weight of the site, {@code 0} if there is no site at this position.
+     */
+    public double siteWeight(Point coord) {
+        Site site = center2siteMap.get(coord);
+
+        return site != null ? site.getWeight() : 0;
+    }
+
+    /**
+     * @param coord Site position.
+     * @return {@code True} if the site was added by {@link VoronoiOptions#constraints(Constraints)}.
+     */
+    public boolean isConstraintSite(Point coord) {
+        Site site = center2siteMap.get(coord);
+
+        return site != null && site.isConstraint();
+    }
+
+    /**
+     * Coincident input points, and points within {@link VoronoiOptions#mergeDistance(double)}, become one site.
+     * Points inside the balls of {@link VoronoiOptions#constraints(Constraints)} are merged into
+     * the nearest constraint site.
+     * Use this to map data of input points to sites. Edits don't change the mapping: a removed site stays
+     * in it and an added one is not there.
+     *
+     * @param inputIndex Position of the point in the list the diagram was built from.
+     * @return Site of the point.
+     */
+    public Site inputSite(int inputIndex) {
+        return inputSites[inputIndex];
+    }
+
+    /**
+     * Estimates heap retained by the diagram, broken down by structure. Counts are exact, object sizes
+     * are computed for a 64-bit JVM with compressed references, see {@link MemoryFootprint}. Takes time
+     * proportional to the size of the diagram.
+     *
+     * @return Retained bytes.
+     */
+    public MemoryFootprint memoryFootprint() {
+        MemoryFootprint f = new MemoryFootprint();
+
+        for (Site s : sites.sites()) {
+            f.numSites++;
+            f.sites += MemoryFootprint.shallowSize(Site.class);
+            f.sitePositions += MemoryFootprint.pointSize();
+
+            if (s.edgeCapacity() > 0)
+                f.sites += MemoryFootprint.arraySize(s.edgeCapacity(), MemoryFootprint.REF);
+
+            if (s.orientationCapacity() >= 0)
+                f.sites += MemoryFootprint.arraySize(s.orientationCapacity(), 1);
+
+            List<Point> region = s.cachedRegion();
+
+            if (region != null) {
+                f.regions += MemoryFootprint.listSize(region);
+
+                // ends of double edges are shared with the region
+                Set<Point> shared = Collections.newSetFromMap(new IdentityHashMap<>());
+
+                for (Edge e : s.edges()) {
+                    if (e.isVisible()) {
+                        shared.add(e.clippedEnd(LR.LEFT));
+                        shared.add(e.clippedEnd(LR.RIGHT));
+                    }
+                }
+
+                for (Point p : region) {
+                    if (!shared.contains(p))
+                        f.regions += MemoryFootprint.pointSize();
+                }
+            }
+        }
+
+        Set<Vertex> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (Edge e : edges) {
+            f.edges += MemoryFootprint.shallowSize(Edge.class);
+            f.clippedEnds += e.clippedEndsFootprint();
+
+            for (Vertex v : new Vertex[] {e.getLeftVertex(), e.getRightVertex()}) {
+                if (v != null && v != Vertex.VERTEX_AT_INFINITY && seen.add(v))
+                    f.vertices += v.footprint();
+            }
+        }
+
+        f.indexes = MemoryFootprint.shallowSize(SiteList.class) + MemoryFootprint.listSize(sites.sites())
+            + MemoryFootprint.listSize(edges) + MemoryFootprint.arraySize(inputSites.length, MemoryFootprint.REF)
+            + MemoryFootprint.mapSize((HashMap<?, ?>) center2siteMap)
+            + (long) (center2siteMap.size() - f.numSites) * MemoryFootprint.pointSize();
+
+        if (dcel != null)
+            f.indexes += dcel.footprint();
+
+        if (adjacency != null)
+            f.indexes += adjacency.footprint();
+
+        if (triangles != null)
+            f.indexes += triangles.footprint();
+
+        return f;
+    }
+
+    /**
+     * Delaunay triangulation of the sites. It is filled by the build with
+     * {@link VoronoiOptions#triangles(VoronoiOptions.Triangles)}, otherwise, and after an edit, it is collected
+     * from the edges on the first call. Circumcenters are kept if the option asks for them.
+     *
+     * @return Triangles as site index triples.
+     */
+    public TriangleBuffer triangles() {
+        TriangleBuffer t = triangles;
+
+        if (t == null)
+            triangles = t = TriangleBuffer.fromEdges(edges, options.getTriangles() == VoronoiOptions.Triangles.CIRCUMCENTERS);
+
+        return t;
     }
 
     /**
@@ -144,6 +533,239 @@ public final class Voronoi {
         return edges;
     }
 
+    /**
+     * Adds a site and repairs the diagram around it: {@link #edges()}, regions and neighbours of the sites
+     * next to the new one are updated, the rest of the diagram stays as it is. Cost is proportional
+     * to the number of changed edges plus a walk from the previously edited site to the new one.
+     * <p>
+     * Changed and new edges are moved to the end of {@link #edges()}, removed edges are replaced
+     * by the last ones. Diagrams without triangles (fewer than 3 sites or all of them on one line)
+     * and power diagrams are built again from scratch, the new site weighs {@code 0}.
+     *
+     * @param p Site position.
+     * @return {@code False} if there already is a site at this position or within
+     * {@link VoronoiOptions#mergeDistance(double)}.
+     */
+    public boolean addSite(Point p) {
+        p = snap(p);
+
+        Site near = editor().nearestSite(p);
+
+        if (near != null && GenUtils.distance(near.getPosition(), p) <= options.getMergeDistance())
+            return false;
+
+        dcel = null;
+        clipper = null;
+        adjacency = null;
+        triangles = null;
+
+        if (weighted || !editor().insert(p))
+            rebuild(p, null);
+
+        return true;
+    }
+
+    /**
+     * Removes a site and repairs the diagram around it, see {@link #addSite(Point)}.
+     *
+     * @param p Site position.
+     * @return {@code False} if there is no site at this position.
+     */
+    public boolean removeSite(Point p) {
+        p = snap(p);
+
+        Site site = editor().nearestSite(p);
+
+        if (site == null || site.getX() != p.x || site.getY() != p.y)
+            return false;
+
+        dcel = null;
+        clipper = null;
+        adjacency = null;
+        triangles = null;
+
+        if (weighted || !editor().delete(site))
+            rebuild(null, site);
+
+        return true;
+    }
+
+    /**
+     * @param p Point.
+     * @return Point snapped to the grid of {@link VoronoiOptions#fixedPoint(int)} or the point itself.
+     */
+    private Point snap(Point p) {
+        double scale = options.fixedPointScale();
+
+        if (scale == 0)
+            return p;
+
+        double x = FixedPoint.snap(p.x, scale), y = FixedPoint.snap(p.y, scale);
+
+        return x != p.x || y != p.y ? new Point(x, y) : p;
+    }
+
+    /**
+     * Doubly connected edge list of the diagram: halfedges of {@link #edges()} linked around sites and vertices.
+     * It is built with the diagram and again on the first call after an edit.
+     *
+     * @return Edge list.
+     */
+    public Dcel dcel() {
+        if (dcel == null)
+            dcel = new Dcel(sites.size(), edges);
+
+        return dcel;
+    }
+
+    /**
+     * Clips edges to a viewport, which may go beyond the graph bounds. Only the edges near the viewport are
+     * looked at, so it is cheap for small tiles of a large diagram; buckets of edges are made on the first
+     * call after a build or an edit. Edges and their clipped ends are not changed.
+     *
+     * @param viewport Viewport.
+     * @return Clipped parts of the edges crossing the viewport.
+     */
+    public EdgeClipper.Segments clipEdges(Rectangle viewport) {
+        EdgeClipper c = clipper;
+
+        if (c == null)
+            clipper = c = new EdgeClipper(edges, clipDomain);
+
+        return c.clip(viewport);
+    }
+
+    /**
+     * @return Editor of the current diagram.
+     */
+    private VoronoiEditor editor() {
+        if (editor == null)
+            editor = new VoronoiEditor(sites, edges, center2siteMap, clipDomain, options);
+
+        return editor;
+    }
+
+    /**
+     * Builds the diagram from scratch with one site added or removed.
+     *
+     * @param added Added site position or {@code null}.
+     * @param removed Removed site or {@code null}.
+     */
+    private void rebuild(Point added, Site removed) {
+        List<Point> points = new ArrayList<>();
+        double[] weights = new double[sites.size() + 1];
+
+        // constraint sites are made again by init
+        for (Site s : sites.sites()) {
+            if (s != removed && !s.isConstraint()) {
+                weights[points.size()] = s.getWeight();
+                points.add(s.getPosition());
+            }
+        }
+
+        if (added != null)
+            points.add(added);
+
+        Site[] input = inputSites;
+
+        init(points, Arrays.copyOf(weights, points.size()), clipDomain);
+
+        // sites are made again from the same points
+        for (int i = 0; i < input.length; i++) {
+            Site site = center2siteMap.get(input[i].getPosition());
+
+            if (site != null)
+                input[i] = site;
+        }
+
+        inputSites = input;
+        fortunesAlgorithm();
+    }
+
+    /**
+     * Edges and neighbours of all sites in flat arrays, for queries by site index without hashing or
+     * allocation. It is made from {@link #dcel()} on the first call after a build or an edit.
+     *
+     * @return Adjacency of sites.
+     */
+    public SiteAdjacency adjacency() {
+        SiteAdjacency a = adjacency;
+
+        if (a == null)
+            adjacency = a = new SiteAdjacency(sites.sites(), dcel());
+
+        return a;
+    }
+
+    /**
+     * @return Number of sites.
+     */
+    public int numSites() {
+        return sites.size();
+    }
+
+    /**
+     * Site indices are positions in {@link #siteCoords()}. Removing a site moves the last site to its index,
+     * an added site gets the next index.
+     *
+     * @param site Site index.
+     * @return Site position.
+     */
+    public Point siteCoord(int site) {
+        return sites.sites().get(site).getPosition();
+    }
+
+    /**
+     * @param coord Site position, the instance in {@link #siteCoords()} or an input point.
+     * @return Site index or {@code -1} if there is no site at this position.
+     */
+    public int siteIndex(Point coord) {
+        Site site = center2siteMap.get(coord);
+
+        return site != null ? site.getIndex() : -1;
+    }
+
+    /**
+     * Same as {@link #inputSite(int)}, as an index.
+     *
+     * @param inputIndex Position of the point in the list the diagram was built from.
+     * @return Site index of the point or {@code -1} if its site was removed.
+     */
+    public int inputSiteIndex(int inputIndex) {
+        Site site = inputSites[inputIndex];
+        int idx = site.getIndex();
+
+        return idx < sites.size() && sites.sites().get(idx) == site ? idx : -1;
+    }
+
+    /**
+     * Same as {@link #region(Point)} by site index.
+     *
+     * @param site Site index.
+     * @return Site border clipped to the domain, counterclockwise (y up), empty if the site has no edges.
+     */
+    public List<Point> region(int site) {
+        return sites.sites().get(site).region(clipDomain, dcel());
+    }
+
+    /**
+     * Allocates the result, loops over {@link #adjacency()} don't.
+     *
+     * @param site Site index.
+     * @return Indices of neighbouring sites in the order of the region.
+     */
+    public int[] neighbors(int site) {
+        return adjacency().neighbors(site);
+    }
+
+    /**
+     * @param site Site index.
+     * @return Positions in {@link #edges()} of the edges of the site in the order of the region.
+     */
+    public int[] edgesOf(int site) {
+        return adjacency().edges(site);
+    }
+
     /**
      * @param p Site center.
      * @return Site border represented as continuous line of edge corners clipped in graph bounds.
@@ -155,10 +777,9 @@ public final class Voronoi {
         if (site == null)
             return new ArrayList<>();
 
-        return site.region(plotBounds);
+        return site.region(clipDomain, dcel());
     }
 
-    // TODO: bug (from AS, no entries found): if you call this before you call region(), something goes wrong :(
     public List<Point> neighborSitesForSite(Point coord) {
         List<Point> points = new ArrayList<>();
         Site site = center2siteMap.get(coord);
@@ -166,7 +787,7 @@ public final class Voronoi {
         if (site == null)
             return points;
 
-        List<Site> sites = site.neighborSites();
+        List<Site> sites = site.neighborSites(dcel());
 
         for (Site neighbor : sites)
             points.add(neighbor.getPosition());
@@ -203,8 +824,8 @@ public final class Voronoi {
 
         for (Edge edge : edges) {
             if (edge.isVisible()) {
-                Point p1 = edge.getClippedEnds().get(LR.LEFT);
-                Point p2 = edge.getClippedEnds().get(LR.RIGHT);
+                Point p1 = edge.clippedEnd(LR.LEFT);
+                Point p2 = edge.clippedEnd(LR.RIGHT);
                 segments.add(new LineSegment(p1, p2));
             }
         }
@@ -257,6 +878,12 @@ public final class Voronoi {
          }*/
     }
 
+    /**
+     * Hull sites are found by walking the edge list: the face of the next site is on the other side of the edge
+     * going to infinity from the current one. Falls back to {@link EdgeReorderer} if all sites are on one line.
+     *
+     * @return Positions of hull sites in order around the hull.
+     */
     public List<Point> hullPointsInOrder() {
         List<Edge> hullEdges = hullEdges();
 
@@ -265,6 +892,27 @@ public final class Voronoi {
         if (hullEdges.isEmpty())
             return points;
 
+        Dcel d = dcel();
+        Site first = hullEdges.get(0).getLeftSite();
+        Site site = first;
+
+        do {
+            int h = d.faceHalfedge(site.getIndex());
+
+            if (d.prev(h) != Dcel.NONE || points.size() == hullEdges.size())
+                break;
+
+            points.add(site.getPosition());
+
+            site = sites.sites().get(d.face(d.twin(h)));
+        }
+        while (site != first);
+
+        if (site == first && points.size() == hullEdges.size())
+            return points;
+
+        points.clear();
+
         EdgeReorderer reorderer = new EdgeReorderer(hullEdges, Site.class);
 
         hullEdges = reorderer.getEdges();
@@ -296,7 +944,7 @@ public final class Voronoi {
      * Each border represented as continuous line of edge corners clipped in graph bounds.
      */
     public List<List<Point>> regions() {
-        return sites.regions(plotBounds);
+        return sites.regions(clipDomain, dcel());
     }
 
     /*public ArrayList<Integer> siteColors(referenceImage:BitmapData = null)
@@ -321,146 +969,22 @@ public final class Voronoi {
     }
 
     private void fortunesAlgorithm() {
-        Site newSite, bottomSite, topSite, tempSite;
-        Vertex v, vertex;
-        Point newIntStar = null;
-        LR leftRight;
-        Halfedge lbnd, rbnd, llbnd, rrbnd, bisector;
-        Edge edge;
-
         sites.sort();
 
-        Rectangle dataBounds = sites.getSitesBounds();
-
-        int sqrt_nsites = (int) Math.sqrt(sites.size() + 4);
-        HalfedgePriorityQueue heap = new HalfedgePriorityQueue(dataBounds.y, dataBounds.height, sqrt_nsites);
-        HalfedgeList halfedgeList = new HalfedgeList(dataBounds.x, dataBounds.width, sqrt_nsites);
-
-        Site bottomMostSite = sites.next();
-        newSite = sites.next();
-
-        int totalVertices = 0;
-        int totalEdges = 0;
-
-        for (;;) {
-            if (!heap.empty())
-                newIntStar = heap.min();
-
-            if (newSite != null && (heap.empty() || GenUtils.compareByYThenX(newSite, newIntStar) < 0)) {
-                /* new site is smallest */
-                //trace("smallest: new site " + newSite);
-
-                // Step 8:
-                lbnd = halfedgeList.edgeListLeftNeighbor(newSite.getPosition());	// the Halfedge just to the left of newSite
-                //trace("lbnd: " + lbnd);
-                rbnd = lbnd.edgeListRightNeighbor;		// the Halfedge just to the right
-                //trace("rbnd: " + rbnd);
-                bottomSite = rightRegion(lbnd, bottomMostSite);		// this is the same as leftRegion(rbnd)
-                // this Site determines the region containing the new site
-                //trace("new Site is in region of existing site: " + bottomSite);
-
-                // Step 9:
-                edge = Edge.createBisectingEdge(bottomSite, newSite, totalEdges++);
-                //trace("new edge: " + edge);
-                edges.add(edge);
-
-                bisector = new Halfedge(edge, LR.LEFT);
-                // inserting two Halfedges into edgeList constitutes Step 10:
-                // insert bisector to the right of lbnd:
-                halfedgeList.insert(lbnd, bisector);
-
-                // first half of Step 11:
-                if ((vertex = Vertex.intersect(lbnd, bisector)) != null) {
-                    heap.remove(lbnd);
-                    lbnd.vertex = vertex;
-                    lbnd.ystar = vertex.getY() + newSite.dist(vertex);
-                    heap.insert(lbnd);
-                }
+        VoronoiOptions.Triangles kept = options.getTriangles();
 
-                lbnd = bisector;
-                bisector = new Halfedge(edge, LR.RIGHT);
-                // second Halfedge for Step 10:
-                // insert bisector to the right of lbnd:
-                halfedgeList.insert(lbnd, bisector);
-
-                // second half of Step 11:
-                if ((vertex = Vertex.intersect(bisector, rbnd)) != null) {
-                    bisector.vertex = vertex;
-                    bisector.ystar = vertex.getY() + newSite.dist(vertex);
-                    heap.insert(bisector);
-                }
+        // a triangulation has less than 2n triangles
+        triangles = kept == VoronoiOptions.Triangles.NONE ? null :
+            new TriangleBuffer(2 * sites.size(), kept == VoronoiOptions.Triangles.CIRCUMCENTERS);
 
-                newSite = sites.next();
-            } else if (!heap.empty()) {
-                /* intersection is smallest */
-                lbnd = heap.extractMin();
-                llbnd = lbnd.edgeListLeftNeighbor;
-                rbnd = lbnd.edgeListRightNeighbor;
-                rrbnd = rbnd.edgeListRightNeighbor;
-                bottomSite = leftRegion(lbnd, bottomMostSite);
-                topSite = rightRegion(rbnd, bottomMostSite);
-                // these three sites define a Delaunay triangle
-                // (not actually using these for anything...)
-                //_triangles.add(new Triangle(bottomSite, topSite, rightRegion(lbnd)));
-
-                v = lbnd.vertex;
-                v.setIndex(totalVertices++);
-                lbnd.edge.setVertex(lbnd.leftRight, v);
-                rbnd.edge.setVertex(rbnd.leftRight, v);
-                halfedgeList.remove(lbnd);
-                heap.remove(rbnd);
-                halfedgeList.remove(rbnd);
-                leftRight = LR.LEFT;
-                if (bottomSite.getY() > topSite.getY()) {
-                    tempSite = bottomSite;
-                    bottomSite = topSite;
-                    topSite = tempSite;
-                    leftRight = LR.RIGHT;
-                }
-                edge = Edge.createBisectingEdge(bottomSite, topSite, totalEdges++);
-                edges.add(edge);
-                bisector = new Halfedge(edge, leftRight);
-                halfedgeList.insert(llbnd, bisector);
-                edge.setVertex(LR.other(leftRight), v);
-                if ((vertex = Vertex.intersect(llbnd, bisector)) != null) {
-                    heap.remove(llbnd);
-                    llbnd.vertex = vertex;
-                    llbnd.ystar = vertex.getY() + bottomSite.dist(vertex);
-                    heap.insert(llbnd);
-                }
-                if ((vertex = Vertex.intersect(bisector, rrbnd)) != null) {
-                    bisector.vertex = vertex;
-                    bisector.ystar = vertex.getY() + bottomSite.dist(vertex);
-                    heap.insert(bisector);
-                }
-            } else {
-                break;
-            }
-        }
+        options.getTriangulationEngine().build(sites.sites(), options, edges, triangles, beachLineStats);
 
-        // heap should be empty now
-        heap.dispose();
+        if (triangles != null)
+            triangles.trim();
 
         // we need the vertices to clip the edges
-        for (Edge e : edges)
-            e.clipVertices(plotBounds);
-    }
-
-    Site leftRegion(Halfedge he, Site bottomMostSite) {
-        Edge edge = he.edge;
-
-        if (edge == null)
-            return bottomMostSite;
-
-        return edge.site(he.leftRight);
-    }
-
-    Site rightRegion(Halfedge he, Site bottomMostSite) {
-        Edge edge = he.edge;
-
-        if (edge == null)
-            return bottomMostSite;
+        EdgeClipper.clipAll(edges, clipDomain, options.isCompact(), options.getParallelism());
 
-        return edge.site(LR.other(he.leftRight));
+        dcel = new Dcel(sites.size(), edges);
     }
 }
@@ -0,0 +1,694 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import com.hoten.delaunay.geom.ConvexPolygon;
+import com.hoten.delaunay.geom.GenUtils;
+import com.hoten.delaunay.geom.Point;
+import com.hoten.delaunay.geom.Predicates;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Local repair of a built diagram when a site is added or removed.
+ * <p>
+ * The diagram itself is the Delaunay triangulation: every {@link Vertex} is a triangle of the three sites
+ * around it, and an edge end without a vertex is the outer face beyond a hull edge. The left vertex of
+ * an edge is the triangle to the left of the direction from its left site to its right site.
+ * <p>
+ * Adding a site is Bowyer-Watson insertion: triangles whose circumcircles contain the new site
+ * (and outer faces which see it) form a cavity, edges inside the cavity are removed and the cavity is
+ * filled by a fan of triangles around the new site. Removing a site clips Delaunay ears off the polygon of
+ * its neighbours. Either way only the edges around the site are touched, and the site is found by
+ * a walk over neighbours which starts from the site of the previous edit.
+ * <p>
+ * The editor can't repair diagrams without triangles (fewer than 3 sites or all of them collinear),
+ * such edits report failure before changing anything.
+ */
+final class VoronoiEditor {
+
+    /** Result of {@link #findEar}: every vertex of the chain is reflex or flat. */
+    private static final int NO_CONVEX = -1;
+
+    /** Result of {@link #findEar}: there are convex vertices, but their circles aren't empty. */
+    private static final int NO_EAR = -2;
+
+    /** Sites. */
+    private final SiteList sites;
+
+    /** Edges, {@link Edge#getIndex()} is the position of each edge. */
+    private final List<Edge> edges;
+
+    /** Site by its position. */
+    private final Map<Point, Site> center2siteMap;
+
+    /** Clip domain. */
+    private final ConvexPolygon domain;
+
+    /** Clipped ends of an edge. */
+    private final double[] ends = new double[4];
+
+    /** Index of the next vertex. */
+    private int vertexCount;
+
+    /** Start of the next walk. */
+    private Site hint;
+
+    /** Grid steps per unit of {@link VoronoiOptions#fixedPoint(int)}, {@code 0} for doubles. */
+    private final double fixedScale;
+
+    /** {@code True} to store vertex positions and clipped ends as floats. */
+    private final boolean compact;
+
+    /** State of the xorshift generator of walk starts. */
+    private long seed = 0x9E3779B97F4A7C15L;
+
+    /**
+     * @param sites Sites.
+     * @param edges Edges in the order of their indices.
+     * @param center2siteMap Site by its position.
+     * @param domain Clip domain.
+     * @param options Build settings.
+     */
+    VoronoiEditor(SiteList sites, List<Edge> edges, Map<Point, Site> center2siteMap, ConvexPolygon domain,
+        VoronoiOptions options) {
+        this.sites = sites;
+        this.edges = edges;
+        this.center2siteMap = center2siteMap;
+        this.domain = domain;
+        fixedScale = options.fixedPointScale();
+        compact = options.isCompact();
+
+        for (Edge e : edges) {
+            if (e.getLeftVertex() != null)
+                vertexCount = Math.max(vertexCount, e.getLeftVertex().getIndex() + 1);
+
+            if (e.getRightVertex() != null)
+                vertexCount = Math.max(vertexCount, e.getRightVertex().getIndex() + 1);
+        }
+    }
+
+    /**
+     * Jump and walk: the walk starts from the closest of the previously edited site and a few random sites,
+     * then it greedily goes over Delaunay neighbours, which always reaches the nearest site.
+     * About {@code n^(1/3)} sites are sampled, so the walk is {@code O(n^(1/3))} steps long for distant edits
+     * and a few steps for edits next to the previous one.
+     *
+     * @param p Point.
+     * @return Site nearest to the point or {@code null} if there are no sites.
+     */
+    Site nearestSite(Point p) {
+        List<Site> all = sites.sites();
+        int n = all.size();
+
+        if (n == 0)
+            return null;
+
+        Site cur = hint != null ? hint : all.get(0);
+        double curDist = dist2(cur, p.x, p.y);
+
+        for (int i = (int) Math.cbrt(n); i > 0; i--) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 7;
+            seed ^= seed << 17;
+
+            Site s = all.get((int) ((seed >>> 1) % n));
+            double d = dist2(s, p.x, p.y);
+
+            if (d < curDist) {
+                cur = s;
+                curDist = d;
+            }
+        }
+
+        for (;;) {
+            Site best = cur;
+
+            for (Edge e : cur.edges()) {
+                Site nb = other(e, cur);
+                double d = dist2(nb, p.x, p.y);
+
+                if (d < curDist) {
+                    best = nb;
+                    curDist = d;
+                }
+            }
+
+            if (best == cur)
+                break;
+
+            cur = best;
+        }
+
+        hint = cur;
+
+        return cur;
+    }
+
+    /**
+     * @param p New site position, not equal to any site.
+     * @return {@code False} if the diagram can't be repaired locally, nothing is changed then.
+     */
+    boolean insert(Point p) {
+        if (sites.size() < 3)
+            return false;
+
+        Site near = nearestSite(p);
+
+        // vertices and outer faces in conflict with the new site
+        Set<Vertex> dead = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Edge> deadOuter = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Vertex> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Edge> seenOuter = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Edge> touchedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Edge> touched = new ArrayList<>();
+        ArrayDeque<Edge> queue = new ArrayDeque<>();
+        ArrayDeque<LR> queueSides = new ArrayDeque<>();
+
+        for (Edge e : near.edges()) {
+            if (e.getLeftVertex() == null && e.getRightVertex() == null)
+                return false;
+
+            queue.add(e);
+            queueSides.add(LR.LEFT);
+            queue.add(e);
+            queueSides.add(LR.RIGHT);
+        }
+
+        while (!queue.isEmpty()) {
+            Edge e = queue.poll();
+            LR side = queueSides.poll();
+            Vertex v = e.vertex(side);
+
+            if (v != null) {
+                if (!seen.add(v) || !inCircumcircle(v, e.getLeftSite(), p))
+                    continue;
+
+                dead.add(v);
+
+                Edge[] triangle = triangleEdges(e, v);
+
+                if (triangle[1] == null || triangle[2] == null)
+                    return false;
+
+                for (Edge t : triangle) {
+                    if (touchedSet.add(t))
+                        touched.add(t);
+
+                    queue.add(t);
+                    queueSides.add(t.getLeftVertex() == v ? LR.RIGHT : LR.LEFT);
+                }
+            }
+            else {
+                if (!seenOuter.add(e) || !seesOuterSide(e, side, p))
+                    continue;
+
+                deadOuter.add(e);
+
+                if (touchedSet.add(e))
+                    touched.add(e);
+
+                queue.add(e);
+                queueSides.add(LR.other(side));
+
+                // outer faces of the hull neighbours
+                for (Site s : new Site[] {e.getLeftSite(), e.getRightSite()}) {
+                    for (Edge h : s.edges()) {
+                        if (h != e && h.isPartOfConvexHull()) {
+                            queue.add(h);
+                            queueSides.add(h.getLeftVertex() == null ? LR.LEFT : LR.RIGHT);
+                        }
+                    }
+                }
+            }
+        }
+
+        if (dead.isEmpty() && deadOuter.isEmpty())
+            return false;
+
+        Site site = new Site(p, sites.size(), 0);
+
+        // boundary of the cavity: arcs u -> w with the cavity on the left
+        Map<Site, Site> next = new IdentityHashMap<>();
+        Map<Site, Site> prev = new IdentityHashMap<>();
+        Map<Site, Vertex> arcVertex = new IdentityHashMap<>();
+        List<Site> boundary = new ArrayList<>();
+        List<Edge> changed = new ArrayList<>();
+
+        for (Edge t : touched) {
+            boolean leftDead = isDead(t, LR.LEFT, dead, deadOuter);
+            boolean rightDead = isDead(t, LR.RIGHT, dead, deadOuter);
+
+            if (leftDead && rightDead) {
+                removeEdge(t);
+
+                continue;
+            }
+
+            if (!leftDead && !rightDead)
+                continue;
+
+            LR side = leftDead ? LR.LEFT : LR.RIGHT;
+            Site u = leftDead ? t.getLeftSite() : t.getRightSite();
+            Site w = other(t, u);
+            Vertex v = circumcenter(u, w, site);
+
+            next.put(u, w);
+            prev.put(w, u);
+            arcVertex.put(u, v);
+            boundary.add(u);
+
+            t.setVertex(side, v);
+            changed.add(t);
+
+            u.edgesChanged();
+            w.edgesChanged();
+        }
+
+        // end of the chain when the cavity reaches the outer face
+        for (int i = 0, n = boundary.size(); i < n; i++) {
+            Site w = next.get(boundary.get(i));
+
+            if (!next.containsKey(w))
+                boundary.add(w);
+        }
+
+        sites.add(site);
+        center2siteMap.put(p, site);
+
+        for (Site x : boundary) {
+            // triangle to the left of site -> x is (site, x, next x), to the right is (site, prev x, x)
+            Vertex toLeft = next.containsKey(x) ? arcVertex.get(x) : null;
+            Vertex toRight = prev.containsKey(x) ? arcVertex.get(prev.get(x)) : null;
+
+            if (GenUtils.compareByYThenX(site, x) < 0)
+                changed.add(addEdge(site, x, toLeft, toRight));
+            else
+                changed.add(addEdge(x, site, toRight, toLeft));
+        }
+
+        for (Edge e : changed)
+            e.clipVertices(domain, compact, ends);
+
+        hint = site;
+
+        return true;
+    }
+
+    /**
+     * @param site Site to remove.
+     * @return {@code False} if the diagram can't be repaired locally, nothing is changed then.
+     */
+    boolean delete(Site site) {
+        if (sites.size() <= 3)
+            return false;
+
+        List<Edge> own = site.edges();
+
+        if (own.isEmpty())
+            return false;
+
+        for (Edge e : own) {
+            if (e.getLeftVertex() == null && e.getRightVertex() == null)
+                return false;
+        }
+
+        // neighbours counterclockwise, for a hull site from one hull neighbour to the other
+        Edge start = own.get(0);
+
+        for (Edge e : own) {
+            if (e.vertex(rightOf(e, site)) == null) {
+                start = e;
+
+                break;
+            }
+        }
+
+        List<Site> ring = new ArrayList<>();
+        boolean closed = false;
+
+        for (Edge e = start;;) {
+            ring.add(other(e, site));
+
+            Vertex v = e.vertex(leftOf(e, site));
+
+            if (v == null)
+                break;
+
+            Edge f = otherEdgeAt(site, e, v);
+
+            if (f == null)
+                return false;
+
+            if (f == start) {
+                closed = true;
+
+                break;
+            }
+
+            e = f;
+        }
+
+        if (ring.size() != own.size())
+            return false;
+
+        // arcs between neighbours: arcs.get(i) connects ring i and i + 1, the site is on the left
+        int k = ring.size();
+        List<Edge> arcs = new ArrayList<>();
+
+        for (int i = 0; i < (closed ? k : k - 1); i++) {
+            Edge arc = edgeBetween(ring.get(i), ring.get((i + 1) % k));
+
+            if (arc == null)
+                return false;
+
+            arcs.add(arc);
+        }
+
+        // plan ears first, the diagram is changed only if all of them are found
+        List<Site> poly = new ArrayList<>(ring);
+        List<int[]> ears = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+
+        for (int i = 0; i < k; i++)
+            ids.add(i);
+
+        while (poly.size() > (closed ? 3 : 2)) {
+            int ear = findEar(poly, ring, closed);
+
+            // the rest of the chain is convex, it is the new hull
+            if (ear == NO_CONVEX && !closed)
+                break;
+
+            if (ear < 0)
+                return false;
+
+            int n = poly.size();
+            int a = (ear + n - 1) % n, c = (ear + 1) % n;
+
+            ears.add(new int[] {ids.get(a), ids.get(ear), ids.get(c)});
+
+            poly.remove(ear);
+            ids.remove(ear);
+        }
+
+        if (closed)
+            ears.add(new int[] {ids.get(0), ids.get(1), ids.get(2)});
+
+        // apply
+        for (Edge e : new ArrayList<>(own))
+            removeEdge(e);
+
+        sites.remove(site);
+        center2siteMap.remove(site.getPosition());
+
+        // left side of every open arc, keyed by its ends
+        Map<Site, Map<Site, Edge>> open = new IdentityHashMap<>();
+        List<Edge> changed = new ArrayList<>(arcs);
+
+        for (int i = 0; i < arcs.size(); i++) {
+            Site u = ring.get(i), w = ring.get((i + 1) % k);
+
+            open.computeIfAbsent(u, key -> new IdentityHashMap<>()).put(w, arcs.get(i));
+        }
+
+        for (int[] ear : ears) {
+            Site a = ring.get(ear[0]), b = ring.get(ear[1]), c = ring.get(ear[2]);
+            Vertex v = circumcenter(a, b, c);
+
+            closeArc(open, a, b, v);
+            closeArc(open, b, c, v);
+
+            if (open.containsKey(c) && open.get(c).containsKey(a)) {
+                // last triangle of a closed ring
+                closeArc(open, c, a, v);
+
+                continue;
+            }
+
+            // diagonal a - c: the ear is to its right, the rest of the polygon to its left
+            Edge diag = GenUtils.compareByYThenX(a, c) < 0 ? addEdge(a, c, null, v) : addEdge(c, a, v, null);
+
+            changed.add(diag);
+            open.computeIfAbsent(a, key -> new IdentityHashMap<>()).put(c, diag);
+        }
+
+        // arcs left open are on the new hull
+        for (Map.Entry<Site, Map<Site, Edge>> entry : open.entrySet()) {
+            for (Map.Entry<Site, Edge> arc : entry.getValue().entrySet())
+                setLeftOf(arc.getValue(), entry.getKey(), null);
+        }
+
+        for (Edge e : changed)
+            e.clipVertices(domain, compact, ends);
+
+        for (Site s : ring)
+            s.edgesChanged();
+
+        hint = ring.get(0);
+
+        return true;
+    }
+
+    /**
+     * @param poly Polygon or chain of sites, counterclockwise around the removed site.
+     * @param ring All neighbours of the removed site.
+     * @param closed {@code True} for a polygon.
+     * @return Index of a convex vertex whose triangle has no neighbour in its circumcircle,
+     * {@link #NO_CONVEX} if there are no convex vertices or {@link #NO_EAR} if none of them is an ear.
+     */
+    private static int findEar(List<Site> poly, List<Site> ring, boolean closed) {
+        int n = poly.size();
+        int res = NO_CONVEX;
+
+        for (int i = closed ? 0 : 1; i < (closed ? n : n - 1); i++) {
+            Site a = poly.get((i + n - 1) % n), b = poly.get(i), c = poly.get((i + 1) % n);
+
+            if (ccw(a, b, c) <= 0)
+                continue;
+
+            res = NO_EAR;
+
+            boolean empty = true;
+
+            for (int j = 0; j < ring.size() && empty; j++) {
+                Site q = ring.get(j);
+
+                if (q != a && q != b && q != c && inCircle(a, b, c, q) > 0)
+                    empty = false;
+            }
+
+            if (empty)
+                return i;
+        }
+
+        return res;
+    }
+
+    /**
+     * Sets the vertex to the left of an open arc and closes it.
+     */
+    private static void closeArc(Map<Site, Map<Site, Edge>> open, Site u, Site w, Vertex v) {
+        Edge arc = open.get(u).remove(w);
+
+        if (open.get(u).isEmpty())
+            open.remove(u);
+
+        setLeftOf(arc, u, v);
+    }
+
+    /**
+     * @param e Edge.
+     * @param from Site the direction starts from.
+     * @param v Vertex to the left of the direction from the site to the other site of the edge.
+     */
+    private static void setLeftOf(Edge e, Site from, Vertex v) {
+        e.setVertex(leftOf(e, from), v);
+    }
+
+    /**
+     * @return End of the edge to the left of the direction from the site to the other site of the edge.
+     */
+    private static LR leftOf(Edge e, Site from) {
+        return e.getLeftSite() == from ? LR.LEFT : LR.RIGHT;
+    }
+
+    /**
+     * @return End of the edge to the right of the direction from the site to the other site of the edge.
+     */
+    private static LR rightOf(Edge e, Site from) {
+        return e.getLeftSite() == from ? LR.RIGHT : LR.LEFT;
+    }
+
+    /**
+     * Makes a new edge. It isn't clipped yet.
+     *
+     * @param left Left site, earlier in sweep order.
+     * @param right Right site.
+     * @param leftVertex Left vertex.
+     * @param rightVertex Right vertex.
+     * @return New edge.
+     */
+    private Edge addEdge(Site left, Site right, Vertex leftVertex, Vertex rightVertex) {
+        Edge edge = Edge.createBisectingEdge(left, right, edges.size());
+
+        edge.setVertex(LR.LEFT, leftVertex);
+        edge.setVertex(LR.RIGHT, rightVertex);
+
+        edges.add(edge);
+
+        return edge;
+    }
+
+    /**
+     * Removes edge in O(1): the last edge takes its place.
+     *
+     * @param edge Edge.
+     */
+    private void removeEdge(Edge edge) {
+        int idx = edge.getIndex();
+        Edge last = edges.remove(edges.size() - 1);
+
+        if (last != edge) {
+            edges.set(idx, last);
+            last.setIndex(idx);
+        }
+
+        edge.getLeftSite().removeEdge(edge);
+        edge.getRightSite().removeEdge(edge);
+    }
+
+    /**
+     * @param e Edge with the vertex.
+     * @param v Vertex.
+     * @return Three edges of the triangle of the vertex.
+     */
+    private static Edge[] triangleEdges(Edge e, Vertex v) {
+        return new Edge[] {e, otherEdgeAt(e.getLeftSite(), e, v), otherEdgeAt(e.getRightSite(), e, v)};
+    }
+
+    /**
+     * @return Edge of the site other than the given one which ends at the vertex, or {@code null}.
+     */
+    private static Edge otherEdgeAt(Site s, Edge e, Vertex v) {
+        for (Edge f : s.edges()) {
+            if (f != e && (f.getLeftVertex() == v || f.getRightVertex() == v))
+                return f;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return Edge between two sites or {@code null}.
+     */
+    private static Edge edgeBetween(Site a, Site b) {
+        for (Edge e : a.edges()) {
+            if (other(e, a) == b)
+                return e;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return Other site of the edge.
+     */
+    private static Site other(Edge e, Site s) {
+        return e.getLeftSite() == s ? e.getRightSite() : e.getLeftSite();
+    }
+
+    /**
+     * @param e Edge.
+     * @param side End.
+     * @return {@code True} if the vertex or the outer face at the end conflicts with the new site.
+     */
+    private static boolean isDead(Edge e, LR side, Set<Vertex> dead, Set<Edge> deadOuter) {
+        Vertex v = e.vertex(side);
+
+        return v != null ? dead.contains(v) : deadOuter.contains(e);
+    }
+
+    /**
+     * @param v Vertex.
+     * @param s Any site of its triangle.
+     * @param p Point.
+     * @return {@code True} if the point is strictly inside the circumcircle of the triangle.
+     */
+    private static boolean inCircumcircle(Vertex v, Site s, Point p) {
+        double dx = v.getX() - p.x, dy = v.getY() - p.y;
+
+        return dx * dx + dy * dy < dist2(s, v.getX(), v.getY());
+    }
+
+    /**
+     * @param e Hull edge.
+     * @param side End without a vertex.
+     * @param p Point.
+     * @return {@code True} if the point is beyond the hull edge, or on the edge between its sites.
+     */
+    private static boolean seesOuterSide(Edge e, LR side, Point p) {
+        Site l = e.getLeftSite(), r = e.getRightSite();
+        double c = Predicates.orient(l.getX(), l.getY(), r.getX(), r.getY(), p.x, p.y);
+
+        // outer face to the left of left -> right means the outside is where cross product is positive
+        if (side == LR.RIGHT)
+            c = -c;
+
+        if (c != 0)
+            return c > 0;
+
+        double dot = (p.x - l.getX()) * (r.getX() - l.getX()) + (p.y - l.getY()) * (r.getY() - l.getY());
+
+        return dot > 0 && dot < dist2(r, l.getX(), l.getY());
+    }
+
+    /**
+     * @return New vertex at the circumcenter of the sites.
+     */
+    private Vertex circumcenter(ICoord a, ICoord b, ICoord c) {
+        if (fixedScale != 0) {
+            double[] center = new double[2];
+
+            FixedPoint.circumcenter(fixedScale, a.getPosition().x, a.getPosition().y, b.getPosition().x,
+                b.getPosition().y, c.getPosition().x, c.getPosition().y, center);
+
+            return Vertex.create(center[0], center[1], vertexCount++, compact);
+        }
+
+        double ax = a.getPosition().x, ay = a.getPosition().y;
+        double bx = b.getPosition().x - ax, by = b.getPosition().y - ay;
+        double cx = c.getPosition().x - ax, cy = c.getPosition().y - ay;
+        double b2 = bx * bx + by * by;
+        double c2 = cx * cx + cy * cy;
+        double d = 2 * (bx * cy - by * cx);
+
+        return Vertex.create(ax + (cy * b2 - by * c2) / d, ay + (bx * c2 - cx * b2) / d, vertexCount++, compact);
+    }
+
+    /**
+     * @return Twice the signed area of triangle abc, positive if it is counterclockwise.
+     */
+    private static double ccw(Site a, Site b, Site c) {
+        return Predicates.orient(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY());
+    }
+
+    /**
+     * @return Positive if d is inside the circle through counterclockwise a, b, c.
+     */
+    private static double inCircle(Site a, Site b, Site c, Site d) {
+        return Predicates.inCircle(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY(), d.getX(), d.getY());
+    }
+
+    /**
+     * @return Squared distance from the site to the point.
+     */
+    private static double dist2(Site s, double x, double y) {
+        double dx = s.getX() - x, dy = s.getY() - y;
+
+        return dx * dx + dy * dy;
+    }
+}
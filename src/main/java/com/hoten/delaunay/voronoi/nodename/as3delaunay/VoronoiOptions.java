@@ -0,0 +1,429 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import java.util.List;
+
+/**
+ * Build settings for {@link Voronoi}. Default settings reproduce the original object based sweep,
+ * so {@code new VoronoiOptions()} is equal to calling a constructor without options.
+ */
+public final class VoronoiOptions {
+    /** Value of {@link #getFixedPointBits()} when sites keep their double coordinates. */
+    public static final int FLOATING_POINT = -1;
+
+    /** Max fraction bits of the fixed point grid. */
+    public static final int MAX_FIXED_POINT_BITS = 52;
+
+    /**
+     * Diagram implementations. Every engine produces the same edges, vertices and regions. Only {@link #POWER}
+     * reads site weights.
+     */
+    public enum Engine implements TriangulationEngine {
+        /** Original port: every site, edge, vertex and halfedge of the sweep is an object. */
+        OBJECTS {
+            /** {@inheritDoc} */
+            @Override public void build(List<Site> sites, VoronoiOptions options, List<Edge> edges,
+                TriangleBuffer triangles, BeachLineStats stats) {
+                ObjectFortune.build(sites, options, edges, triangles, stats);
+            }
+        },
+
+        /**
+         * Sites, vertices, edges and halfedges of the sweep live in parallel primitive arrays addressed by ids.
+         * Objects are created only for the resulting edges and vertices.
+         */
+        ARRAYS {
+            /** {@inheritDoc} */
+            @Override public void build(List<Site> sites, VoronoiOptions options, List<Edge> edges,
+                TriangleBuffer triangles, BeachLineStats stats) {
+                VoronoiWorkspace workspace = options.getWorkspace() != null ? options.getWorkspace() :
+                    new VoronoiWorkspace();
+
+                workspace.arrayFortune().build(sites, options, SiteList.bounds(sites), edges, triangles, stats);
+            }
+        },
+
+        /**
+         * Guibas-Stolfi divide and conquer Delaunay triangulation in {@link #getParallelism()} threads, converted
+         * to Voronoi edges. Gives the same edges, vertices and regions as the sweep, but lists edges in the order
+         * of their sites. Degenerate inputs may differ: a cocircular quad gets one of its diagonals instead
+         * of a zero length edge. The result doesn't depend on the number of threads.
+         */
+        DIVIDE_AND_CONQUER {
+            /** {@inheritDoc} */
+            @Override public void build(List<Site> sites, VoronoiOptions options, List<Edge> edges,
+                TriangleBuffer triangles, BeachLineStats stats) {
+                DivideAndConquer.build(sites, options, edges, triangles);
+            }
+        },
+
+        /**
+         * Sweep-hull (delaunator) Delaunay triangulation in flat arrays: sites are added in the order
+         * of their distance from a seed triangle, each one is joined to the hull edges it sees and the new
+         * triangles are flipped until they are Delaunay. Edges come from {@link DelaunayEdges}. Gives the same
+         * edges, vertices and regions as the sweep, with the same differences as {@link #DIVIDE_AND_CONQUER}.
+         */
+        SWEEP_HULL {
+            /** {@inheritDoc} */
+            @Override public void build(List<Site> sites, VoronoiOptions options, List<Edge> edges,
+                TriangleBuffer triangles, BeachLineStats stats) {
+                SweepHull.build(sites, options, edges, triangles);
+            }
+        },
+
+        /**
+         * Power diagram of weighted sites, see the weighted constructors of {@link Voronoi}: the cell of a site
+         * is where {@code |x - site|^2 - weight} is the smallest, so a heavier site gets a bigger cell, which may
+         * not hold the site itself. A site outweighed by its neighbours gets no edges and no region. Sites are
+         * added one by one to a regular triangulation, see {@link RegularTriangulation}. Without weights gives
+         * the same edges, vertices and regions as the sweep, with the same differences as
+         * {@link #DIVIDE_AND_CONQUER}.
+         */
+        POWER {
+            /** {@inheritDoc} */
+            @Override public void build(List<Site> sites, VoronoiOptions options, List<Edge> edges,
+                TriangleBuffer triangles, BeachLineStats stats) {
+                RegularTriangulation.build(sites, options, edges, triangles);
+            }
+        }
+    }
+
+    /**
+     * Circle event queues.
+     */
+    public enum Queue {
+        /** Original queue: {@code 4 * sqrt(n)} y-buckets of sorted linked lists. */
+        BUCKETS,
+
+        /** Binary heap where every halfedge knows its slot. O(log n) whatever the distribution of sites is. */
+        INDEXED_HEAP,
+
+        /**
+         * Binary heap of primitive event records with generation counters. Cancelling an event is O(1):
+         * stale records are skipped when they reach the top.
+         */
+        LAZY_HEAP
+    }
+
+    /**
+     * Beach line structures.
+     */
+    public enum BeachLine {
+        /** Original linked list with a hash of {@code 2 * sqrt(n)} x-buckets to start the walk from. */
+        HASHED_LIST,
+
+        /**
+         * Treap ordered by breakpoints. O(log n) lookup whatever the input is. Gives the same diagram
+         * as {@link #HASHED_LIST}.
+         */
+        TREE
+    }
+
+    /**
+     * Storage of the resulting geometry. Sweeps and predicates compute in doubles either way.
+     */
+    public enum Storage {
+        /** Vertices and clipped ends of edges are {@link com.hoten.delaunay.geom.Point} objects. */
+        DOUBLE,
+
+        /**
+         * Vertices and clipped ends of edges keep float coordinates and make points on request. Rounding
+         * to floats is below a pixel for maps up to {@code 2^24} pixels wide. Sites stay the input points.
+         */
+        FLOAT
+    }
+
+    /**
+     * Delaunay triangles filled by the build, see {@link Voronoi#triangles()}.
+     */
+    public enum Triangles {
+        /** No triangles are kept, {@link Voronoi#triangles()} collects them from the edges on request. */
+        NONE,
+
+        /** Site index triples are filled as vertices are made. */
+        INDICES,
+
+        /** Site index triples and circumcenter coordinates are filled as vertices are made. */
+        CIRCUMCENTERS
+    }
+
+    /** Diagram implementation. */
+    private TriangulationEngine engine = Engine.OBJECTS;
+
+    /** Circle event queue. */
+    private Queue queue = Queue.BUCKETS;
+
+    /** Beach line structure. */
+    private BeachLine beachLine = BeachLine.HASHED_LIST;
+
+    /** Scratch structures, {@code null} for a new workspace in each build. */
+    private VoronoiWorkspace workspace;
+
+    /** Number of threads of parallel engines. */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /** Sites within this distance are merged. */
+    private double mergeDistance;
+
+    /** Storage of the resulting geometry. */
+    private Storage storage = Storage.DOUBLE;
+
+    /** Fraction bits of the fixed point grid, {@link #FLOATING_POINT} if sites are not snapped. */
+    private int fixedPointBits = FLOATING_POINT;
+
+    /** Delaunay triangles filled by the build. */
+    private Triangles triangles = Triangles.NONE;
+
+    /** Polylines the diagram follows or {@code null}. */
+    private Constraints constraints;
+
+    /**
+     * @return Diagram implementation or {@code null} if it is not one of the library.
+     */
+    public Engine getEngine() {
+        return engine instanceof Engine ? (Engine) engine : null;
+    }
+
+    /**
+     * @return Diagram implementation.
+     */
+    public TriangulationEngine getTriangulationEngine() {
+        return engine;
+    }
+
+    /**
+     * @param engine Diagram implementation.
+     * @return {@code this} for chaining.
+     */
+    public VoronoiOptions engine(Engine engine) {
+        return engine((TriangulationEngine) engine);
+    }
+
+    /**
+     * @param engine Diagram implementation, one of {@link Engine} or a custom one.
+     * @return {@code this} for chaining.
+     */
+    public VoronoiOptions engine(TriangulationEngine engine) {
+        if (engine == null)
+            throw new IllegalArgumentException("Engine can't be null");
+
+        this.engine = engine;
+
+        return this;
+    }
+
+    /**
+     * @return Circle event queue.
+     */
+    public Queue getQueue() {
+        return queue;
+    }
+
+    /**
+     * @param queue Circle event queue.
+     * @return {@code this} for chaining.
+     */
+    public VoronoiOptions queue(Queue queue) {
+        if (queue == null)
+            throw new IllegalArgumentException("Queue can't be null");
+
+        this.queue = queue;
+
+        return this;
+    }
+
+    /**
+     * @return Beach line structure.
+     */
+    public BeachLine getBeachLine() {
+        return beachLine;
+    }
+
+    /**
+     * @param beachLine Beach line structure.
+     * @return {@code this} for chaining.
+     */
+    public VoronoiOptions beachLine(BeachLine beachLine) {
+        if (beachLine == null)
+            throw new IllegalArgumentException("Beach line can't be null");
+
+        this.beachLine = beachLine;
+
+        return this;
+    }
+
+    /**
+     * @return Scratch structures or {@code null} if each build makes its own.
+     */
+    public VoronoiWorkspace getWorkspace() {
+        return workspace;
+    }
+
+    /**
+     * Sets scratch structures to reuse between builds. Workspace isn't thread safe, so options holding
+     * a workspace must not be used by several threads at once.
+     *
+     * @param workspace Scratch structures or {@code null} to make a new workspace in each build.
+     * @return {@code this} for chaining.
+     */
+    public VoronoiOptions workspace(VoronoiWorkspace workspace) {
+        this.workspace = workspace;
+
+        return this;
+    }
+
+    /**
+     * @return Number of threads of parallel engines.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism Number of threads of parallel engines, the number of processors by default.
+     * @return {@code this} for chaining.
+     */
+    public VoronoiOptions parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+
+        this.parallelism = parallelism;
+
+        return this;
+    }
+
+    /**
+     * @return Sites within this distance are merged into one.
+     */
+    public double getMergeDistance() {
+        return mergeDistance;
+    }
+
+    /**
+     * Sites at the same position are always merged: the sweep can't handle them. Sites within the distance
+     * are merged too, each one into the first earlier site within the distance, see {@link Voronoi#inputSite(int)}.
+     *
+     * @param mergeDistance Sites within this distance are merged into one, {@code 0} by default.
+     * @return {@code this} for chaining.
+     */
+    public VoronoiOptions mergeDistance(double mergeDistance) {
+        if (!(mergeDistance >= 0) || Double.isInfinite(mergeDistance))
+            throw new IllegalArgumentException("Merge distance must be a non negative number: " + mergeDistance);
+
+        this.mergeDistance = mergeDistance;
+
+        return this;
+    }
+
+    /**
+     * @return Storage of the resulting geometry.
+     */
+    public Storage getStorage() {
+        return storage;
+    }
+
+    /**
+     * @param storage Storage of the resulting geometry, {@link Storage#DOUBLE} by default.
+     * @return {@code this} for chaining.
+     */
+    public VoronoiOptions storage(Storage storage) {
+        if (storage == null)
+            throw new IllegalArgumentException("Storage can't be null");
+
+        this.storage = storage;
+
+        return this;
+    }
+
+    /**
+     * @return {@code True} if the resulting geometry is stored as floats.
+     */
+    boolean isCompact() {
+        return storage == Storage.FLOAT;
+    }
+
+    /**
+     * @return Fraction bits of the fixed point grid or {@link #FLOATING_POINT}.
+     */
+    public int getFixedPointBits() {
+        return fixedPointBits;
+    }
+
+    /**
+     * Snaps sites to the nearest multiples of {@code 2^-bits} and runs the sweep predicates on long grid
+     * coordinates. Circle events are ordered exactly on the snapped sites, so the topology is the Delaunay
+     * triangulation of the snapped sites, not of the input ones. A vertex is computed exactly from its sites
+     * and rounded once, so all engines give bit identical vertices. Snapping may make sites coincident, they are merged then. Site coordinates times
+     * {@code 2^bits} must not exceed {@code 2^53} in absolute value. {@link Voronoi#stream} ignores the option.
+     *
+     * @param bits Fraction bits from {@code 0} to {@link #MAX_FIXED_POINT_BITS}, or {@link #FLOATING_POINT}
+     * to keep double coordinates, which is the default.
+     * @return {@code this} for chaining.
+     */
+    public VoronoiOptions fixedPoint(int bits) {
+        if (bits != FLOATING_POINT && (bits < 0 || bits > MAX_FIXED_POINT_BITS))
+            throw new IllegalArgumentException("Fixed point bits must be from 0 to " + MAX_FIXED_POINT_BITS + ": " + bits);
+
+        this.fixedPointBits = bits;
+
+        return this;
+    }
+
+    /**
+     * @return {@code True} if sites are snapped to the fixed point grid.
+     */
+    boolean isFixedPoint() {
+        return fixedPointBits != FLOATING_POINT;
+    }
+
+    /**
+     * @return Grid steps per unit of the fixed point grid, {@code 0} if sites are not snapped.
+     */
+    double fixedPointScale() {
+        return isFixedPoint() ? FixedPoint.scale(fixedPointBits) : 0;
+    }
+
+    /**
+     * @return Delaunay triangles filled by the build.
+     */
+    public Triangles getTriangles() {
+        return triangles;
+    }
+
+    /**
+     * Makes every engine write the sites of a Delaunay triangle into a {@link TriangleBuffer} when it makes
+     * the vertex of the triangle, so the triangulation comes with the diagram at the cost of three ints
+     * (and two doubles with circumcenters) per vertex.
+     *
+     * @param triangles Delaunay triangles filled by the build, {@link Triangles#NONE} by default.
+     * @return {@code this} for chaining.
+     */
+    public VoronoiOptions triangles(Triangles triangles) {
+        if (triangles == null)
+            throw new IllegalArgumentException("Triangles can't be null");
+
+        this.triangles = triangles;
+
+        return this;
+    }
+
+    /**
+     * @return Polylines the diagram follows or {@code null}.
+     */
+    public Constraints getConstraints() {
+        return constraints;
+    }
+
+    /**
+     * Adds sites on both sides of the polylines, so every polyline is a chain of Voronoi edges, and merges input
+     * sites too close to a polyline into them, see {@link Voronoi#inputSite(int)}. Works with every engine.
+     * Edits don't check the constraints: a site added near a polyline bends the diagram there.
+     *
+     * @param constraints Polylines the diagram follows or {@code null} for none, which is the default.
+     * @return {@code this} for chaining.
+     */
+    public VoronoiOptions constraints(Constraints constraints) {
+        this.constraints = constraints;
+
+        return this;
+    }
+}
@@ -0,0 +1,30 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+/**
+ * Receiver of a diagram built by {@link Voronoi#stream(java.nio.file.Path, VoronoiOptions, VoronoiSink)}.
+ * <p>
+ * The sweep keeps only its beach line and event queue, every vertex and edge is passed to the sink as soon
+ * as it is finished and forgotten right after. A vertex always comes before the edges that end at it.
+ */
+public interface VoronoiSink {
+    /**
+     * Called once per Voronoi vertex.
+     *
+     * @param id Vertex id, vertices are numbered from 0 in the order they are found.
+     * @param x X coordinate, {@code NaN} for a vertex at infinity.
+     * @param y Y coordinate, {@code NaN} for a vertex at infinity.
+     */
+    void vertex(long id, double x, double y);
+
+    /**
+     * Called once per Voronoi edge, when both of its ends are known. Edges of the convex hull come last,
+     * when the sweep is over. The edge lies on the bisector of its sites, see {@link Edge}.
+     *
+     * @param id Edge id, edges are numbered from 0 in the order they are created by the sweep.
+     * @param leftSite Position of the left site in the site file.
+     * @param rightSite Position of the right site in the site file.
+     * @param leftVertex Id of the left end or {@code -1} if the edge extends to infinity.
+     * @param rightVertex Id of the right end or {@code -1} if the edge extends to infinity.
+     */
+    void edge(long id, int leftSite, int rightSite, long leftVertex, long rightVertex);
+}
@@ -0,0 +1,148 @@
+package com.hoten.delaunay.voronoi.nodename.as3delaunay;
+
+import java.util.Arrays;
+
+/**
+ * Scratch structures of the sweep: recycled halfedges, the beach lines, the circle event queues
+ * and the arrays of {@link VoronoiOptions.Engine#ARRAYS} engine. They survive a build, so the next build
+ * of a similar size allocates nothing but its results.
+ * <p>
+ * Workspace is not thread safe: give each thread its own one (e.g. through a {@link ThreadLocal})
+ * and pass it with {@link VoronoiOptions#workspace(VoronoiWorkspace)}. Nothing is shared between
+ * workspaces, and {@link #trim()} releases everything a huge build has left behind.
+ */
+public final class VoronoiWorkspace {
+
+    /** Recycled halfedges. */
+    private Halfedge[] pool = new Halfedge[64];
+
+    /** Recycled halfedge count. */
+    private int poolSize;
+
+    /** Hashed list beach line. */
+    private HalfedgeList halfedgeList;
+
+    /** Tree beach line. */
+    private HalfedgeTree halfedgeTree;
+
+    /** Bucket queue. */
+    private HalfedgePriorityQueue buckets;
+
+    /** Indexed heap queue. */
+    private IndexedHalfedgeHeap indexedHeap;
+
+    /** Lazy heap queue. */
+    private LazyCircleEventQueue lazyHeap;
+
+    /** Array engine. */
+    private ArrayFortune arrayFortune;
+
+    /**
+     * @param edge Edge or {@code null} for a dummy.
+     * @param lr Orientation.
+     * @return Recycled or new halfedge.
+     */
+    Halfedge halfedge(Edge edge, LR lr) {
+        if (poolSize > 0) {
+            Halfedge he = pool[--poolSize];
+
+            pool[poolSize] = null;
+
+            return he.init(edge, lr);
+        }
+
+        return new Halfedge(this, edge, lr);
+    }
+
+    /**
+     * @param he Halfedge which is out of both beach line and queue.
+     */
+    void release(Halfedge he) {
+        if (poolSize == pool.length)
+            pool = Arrays.copyOf(pool, poolSize * 2);
+
+        pool[poolSize++] = he;
+    }
+
+    /**
+     * @param beachLine Beach line type.
+     * @param xmin Min x of the sites.
+     * @param deltax Width of the sites.
+     * @param sqrt_nsites Square root of the site count.
+     * @param stats Lookup counters.
+     * @return Empty beach line.
+     */
+    IBeachLine beachLine(VoronoiOptions.BeachLine beachLine, double xmin, double deltax, int sqrt_nsites,
+        BeachLineStats stats) {
+        if (beachLine == VoronoiOptions.BeachLine.TREE) {
+            if (halfedgeTree == null)
+                halfedgeTree = new HalfedgeTree(this);
+
+            halfedgeTree.reset(stats);
+
+            return halfedgeTree;
+        }
+
+        if (halfedgeList == null)
+            halfedgeList = new HalfedgeList(this);
+
+        halfedgeList.reset(xmin, deltax, sqrt_nsites, stats);
+
+        return halfedgeList;
+    }
+
+    /**
+     * @param queue Queue type.
+     * @param ymin Min y of the sites.
+     * @param deltay Height of the sites.
+     * @param sqrt_nsites Square root of the site count.
+     * @return Empty circle event queue.
+     */
+    IHalfedgePriorityQueue queue(VoronoiOptions.Queue queue, double ymin, double deltay, int sqrt_nsites) {
+        switch (queue) {
+            case INDEXED_HEAP:
+                if (indexedHeap == null)
+                    indexedHeap = new IndexedHalfedgeHeap(sqrt_nsites);
+
+                return indexedHeap;
+
+            case LAZY_HEAP:
+                if (lazyHeap == null)
+                    lazyHeap = new LazyCircleEventQueue(sqrt_nsites);
+
+                return lazyHeap;
+
+            default:
+                if (buckets == null)
+                    buckets = new HalfedgePriorityQueue(this);
+
+                buckets.reset(ymin, deltay, sqrt_nsites);
+
+                return buckets;
+        }
+    }
+
+    /**
+     * @return Array engine.
+     */
+    ArrayFortune arrayFortune() {
+        if (arrayFortune == null)
+            arrayFortune = new ArrayFortune();
+
+        return arrayFortune;
+    }
+
+    /**
+     * Drops all recycled halfedges, queues and arrays. The next build allocates them again.
+     */
+    public void trim() {
+        pool = new Halfedge[64];
+        poolSize = 0;
+        halfedgeList = null;
+        halfedgeTree = null;
+        buckets = null;
+        indexedHeap = null;
+        lazyHeap = null;
+        arrayFortune = null;
+    }
+}